@@ -30,6 +30,7 @@ abstract class ExternalModulesExtension {
     val aetherImpl = "org.sonatype.aether:aether-impl"
     val aetherSpi = "org.sonatype.aether:aether-spi"
     val aetherUtil = "org.sonatype.aether:aether-util"
+    val aircompressor = "io.airlift:aircompressor"
     val ansiControlSequenceUtil = "net.rubygrapefruit:ansi-control-sequence-util"
     val ant = "org.apache.ant:ant"
     val antLauncher = "org.apache.ant:ant-launcher"
@@ -125,7 +126,6 @@ abstract class ExternalModulesExtension {
     val xmlApis = "xml-apis:xml-apis"
 
     // Test classpath only libraries
-    val aircompressor = "io.airlift:aircompressor"
     val archunit = "com.tngtech.archunit:archunit"
     val archunitJunit4 = "com.tngtech.archunit:archunit-junit4"
     val awaitility = "org.awaitility:awaitility-kotlin"
@@ -166,6 +166,7 @@ abstract class ExternalModulesExtension {
         aetherImpl to License.EPL,
         aetherSpi to License.EPL,
         aetherUtil to License.EPL,
+        aircompressor to License.Apache2,
         ansiControlSequenceUtil to License.Apache2,
         ant to License.Apache2,
         antLauncher to License.Apache2,
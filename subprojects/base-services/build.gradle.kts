@@ -36,6 +36,6 @@ dependencies {
     jmh(libs.guava)
 }
 
-jmh.include = listOf("HashingAlgorithmsBenchmark")
+jmh.include = listOf("HashingAlgorithmsBenchmark", "FileHashingBenchmark")
 
 moduleIdentity.createBuildReceipt()
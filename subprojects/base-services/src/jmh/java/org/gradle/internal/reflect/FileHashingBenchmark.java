@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.reflect;
+
+import org.gradle.internal.hash.ContentHashFunction;
+import org.gradle.internal.hash.DefaultStreamHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Compares hashing files by reading them as a stream through a heap buffer with hashing them
+ * directly from the file channel, which memory-maps large files.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class FileHashingBenchmark {
+
+    // 1 KB to 1 GB
+    @Param({"1024", "65536", "1048576", "67108864", "1073741824"})
+    long fileSize;
+
+    @Param({"stream", "channel"})
+    String read;
+
+    @Param({"MD5", "MURMUR3"})
+    ContentHashFunction hashFunction;
+
+    File file;
+    DefaultStreamHasher hasher;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file = File.createTempFile("hashing", ".bin");
+        Random random = new Random(1234L);
+        byte[] chunk = new byte[1024 * 1024];
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            for (long remaining = fileSize; remaining > 0; remaining -= chunk.length) {
+                random.nextBytes(chunk);
+                outputStream.write(chunk, 0, (int) Math.min(chunk.length, remaining));
+            }
+        }
+        hasher = new DefaultStreamHasher(hashFunction.getHashFunction());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        if (!file.delete()) {
+            throw new IllegalStateException("Could not delete " + file);
+        }
+    }
+
+    @Benchmark
+    public void hashFile(Blackhole blackhole) throws IOException {
+        try (InputStream inputStream = read.equals("stream")
+            // Wrapping the stream hides the file channel from the hasher
+            ? new BufferedInputStream(new FileInputStream(file))
+            : new FileInputStream(file)
+        ) {
+            blackhole.consume(hasher.hash(inputStream));
+        }
+    }
+}
@@ -25,7 +25,21 @@
 import java.util.concurrent.TimeUnit;
 
 public class DefaultExecutorFactory implements ExecutorFactory, Stoppable {
+    /**
+     * Opts in to running the actions of {@link #createForBlockingIo(String)} and {@link #createForBlockingIo(String, int)} executors on virtual threads, when the JVM supports them.
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "org.gradle.internal.executors.virtual-threads";
+
     private final Set<ManagedExecutor> executors = new CopyOnWriteArraySet<ManagedExecutor>();
+    private final VirtualThreads virtualThreads;
+
+    public DefaultExecutorFactory() {
+        this(Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY));
+    }
+
+    DefaultExecutorFactory(boolean useVirtualThreads) {
+        this.virtualThreads = useVirtualThreads ? VirtualThreads.get() : null;
+    }
 
     @Override
     public void stop() {
@@ -58,6 +72,41 @@ protected ExecutorService createExecutor(String displayName, int fixedSize) {
         return Executors.newFixedThreadPool(fixedSize, new ThreadFactoryImpl(displayName));
     }
 
+    @Override
+    public ManagedExecutor createForBlockingIo(String displayName) {
+        ManagedExecutor executor = new TrackedManagedExecutor(createBlockingIoExecutor(displayName), new ExecutorPolicy.CatchAndRecordFailures());
+        executors.add(executor);
+        return executor;
+    }
+
+    private ExecutorService createBlockingIoExecutor(String displayName) {
+        if (virtualThreads != null) {
+            return virtualThreads.newThreadPerTaskExecutor(displayName);
+        }
+        return createExecutor(displayName);
+    }
+
+    @Override
+    public ManagedExecutor createForBlockingIo(String displayName, int maxConcurrency) {
+        ManagedExecutor executor = new TrackedManagedExecutor(createBlockingIoExecutor(displayName, maxConcurrency), new ExecutorPolicy.CatchAndRecordFailures());
+        executors.add(executor);
+        return executor;
+    }
+
+    private ExecutorService createBlockingIoExecutor(String displayName, int maxConcurrency) {
+        if (virtualThreads != null) {
+            return new ConcurrencyLimitingExecutorService(virtualThreads.newThreadPerTaskExecutor(displayName), maxConcurrency);
+        }
+        return createExecutor(displayName, maxConcurrency);
+    }
+
+    /**
+     * Returns whether executors created by {@link #createForBlockingIo(String)} run their actions on virtual threads.
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads != null;
+    }
+
     @Override
     public ManagedScheduledExecutor createScheduled(String displayName, int fixedSize) {
         ManagedScheduledExecutor executor = new TrackedScheduledManagedExecutor(createScheduledExecutor(displayName, fixedSize), new ExecutorPolicy.CatchAndRecordFailures());
@@ -38,6 +38,35 @@ public interface ExecutorFactory {
      */
     ManagedExecutor create(String displayName, int fixedSize);
 
+    /**
+     * Creates an executor for actions which spend most of their time blocked on I/O, such as network requests or waiting for file locks.
+     * It is the caller's responsibility to stop the executor.
+     *
+     * When enabled and supported by the JVM, the actions are run on virtual threads, so a large number of them can be blocked concurrently
+     * without each holding a platform thread. Otherwise, this behaves the same as {@link #create(String)}.
+     *
+     * The executor will collect failures thrown by actions and rethrow when the executor is stopped.
+     *
+     * @param displayName The display name for the this executor. Used for thread names, logging and error message.
+     * @return The executor.
+     */
+    ManagedExecutor createForBlockingIo(String displayName);
+
+    /**
+     * Creates an executor for actions which spend most of their time blocked on I/O, and which runs no more than the given number of actions concurrently.
+     * It is the caller's responsibility to stop the executor.
+     *
+     * When enabled and supported by the JVM, the actions are run on virtual threads, and actions exceeding the limit wait on their own virtual thread.
+     * Otherwise, this behaves the same as {@link #create(String, int)}.
+     *
+     * The executor will collect failures thrown by actions and rethrow when the executor is stopped.
+     *
+     * @param displayName The display name for the this executor. Used for thread names, logging and error message.
+     * @param maxConcurrency The maximum number of actions running concurrently
+     * @return The executor.
+     */
+    ManagedExecutor createForBlockingIo(String displayName, int maxConcurrency);
+
     /**
      * Creates a scheduled executor which can run tasks periodically. It is the caller's responsibility to stop the executor.
      *
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fork-join pool with a bounded number of named threads, owned by the service which creates it.
+ *
+ * Unlike the common pool, the pool is not shared with unrelated code, so that work blocking on I/O
+ * does not starve other users of the common pool. Worker threads are only started when work is
+ * first submitted, so an unused pool costs nothing. The pool is stopped together with its owner.
+ */
+public class ManagedForkJoinPool extends ForkJoinPool implements Stoppable {
+    public ManagedForkJoinPool(String displayName, int parallelism) {
+        super(parallelism, namedThreadFactory(displayName), null, false);
+    }
+
+    private static ForkJoinWorkerThreadFactory namedThreadFactory(String displayName) {
+        AtomicLong threadCounter = new AtomicLong();
+        return pool -> {
+            ForkJoinWorkerThread thread = defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(displayName + " Thread " + threadCounter.incrementAndGet());
+            return thread;
+        };
+    }
+
+    @Override
+    public void stop() {
+        shutdownNow();
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.internal.concurrent;
 
+import javax.annotation.Nullable;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -26,14 +27,24 @@
 public class ThreadFactoryImpl implements ThreadFactory {
     private final AtomicLong counter = new AtomicLong();
     private final String displayName;
+    private final ThreadFactory delegate;
 
     public ThreadFactoryImpl(String displayName) {
+        this(displayName, null);
+    }
+
+    /**
+     * Creates a factory that uses the given factory to create the threads, for example to create virtual threads.
+     */
+    public ThreadFactoryImpl(String displayName, @Nullable ThreadFactory delegate) {
         this.displayName = displayName;
+        this.delegate = delegate;
     }
 
     @Override
     public Thread newThread(Runnable r) {
-        Thread thread = new Thread(new ManagedThreadRunnable(r));
+        Runnable managedRunnable = new ManagedThreadRunnable(r);
+        Thread thread = delegate == null ? new Thread(managedRunnable) : delegate.newThread(managedRunnable);
         long count = counter.incrementAndGet();
         if (count == 1) {
             thread.setName(displayName);
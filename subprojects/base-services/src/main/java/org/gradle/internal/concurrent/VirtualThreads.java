@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Provides access to virtual threads when the current JVM supports them. Gradle is compiled against older Java versions, so the API is looked up reflectively.
+ */
+class VirtualThreads {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+    private static final VirtualThreads INSTANCE = load();
+
+    private final Method ofVirtual;
+    private final Method factory;
+    private final Method newThreadPerTaskExecutor;
+
+    private VirtualThreads(Method ofVirtual, Method factory, Method newThreadPerTaskExecutor) {
+        this.ofVirtual = ofVirtual;
+        this.factory = factory;
+        this.newThreadPerTaskExecutor = newThreadPerTaskExecutor;
+    }
+
+    /**
+     * Returns the virtual thread support of the current JVM, or {@code null} when virtual threads are not available.
+     */
+    @Nullable
+    static VirtualThreads get() {
+        return INSTANCE;
+    }
+
+    @Nullable
+    private static VirtualThreads load() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            VirtualThreads virtualThreads = new VirtualThreads(ofVirtual, factory, newThreadPerTaskExecutor);
+            // Virtual threads are a preview feature on some JVMs, make sure they can actually be created
+            virtualThreads.newThreadFactory();
+            return virtualThreads;
+        } catch (Exception e) {
+            LOGGER.debug("Virtual threads are not available in this JVM.", e);
+            return null;
+        }
+    }
+
+    private ThreadFactory newThreadFactory() throws Exception {
+        return (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each action.
+     */
+    ExecutorService newThreadPerTaskExecutor(String displayName) {
+        try {
+            ThreadFactory threadFactory = new ThreadFactoryImpl(displayName, newThreadFactory());
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create virtual thread executor for " + displayName + ".", e);
+        }
+    }
+}
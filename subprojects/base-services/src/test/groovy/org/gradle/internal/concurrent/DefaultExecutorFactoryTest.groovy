@@ -16,6 +16,7 @@
 package org.gradle.internal.concurrent
 
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import spock.lang.Unroll
 
 import java.util.concurrent.Callable
 import java.util.concurrent.CountDownLatch
@@ -436,4 +437,76 @@ class DefaultExecutorFactoryTest extends ConcurrentSpec {
         def ex = thrown(RuntimeException)
         ex.is(failure1)
     }
+
+    def blockingIoExecutorUsesPlatformThreadsByDefault() {
+        when:
+        def executor = factory.createForBlockingIo('test')
+        def thread = executor.submit({ Thread.currentThread() } as Callable).get()
+
+        then:
+        !factory.usingVirtualThreads
+        thread.name == 'test'
+        !isVirtual(thread)
+
+        cleanup:
+        executor?.stop()
+    }
+
+    def blockingIoExecutorUsesVirtualThreadsWhenEnabledAndSupported() {
+        given:
+        def virtualThreadsFactory = new DefaultExecutorFactory(true)
+
+        when:
+        def executor = virtualThreadsFactory.createForBlockingIo('test')
+        def thread = executor.submit({ Thread.currentThread() } as Callable).get()
+        def managed = executor.submit({ GradleThread.managed } as Callable).get()
+
+        then:
+        virtualThreadsFactory.usingVirtualThreads == (VirtualThreads.get() != null)
+        isVirtual(thread) == virtualThreadsFactory.usingVirtualThreads
+        thread.name == 'test'
+        managed
+
+        cleanup:
+        virtualThreadsFactory.stop()
+    }
+
+    @Unroll
+    def "blocking I/O executor runs no more than requested number of actions concurrently (virtual threads enabled: #useVirtualThreads)"() {
+        given:
+        def blockingIoFactory = new DefaultExecutorFactory(useVirtualThreads)
+        def action1 = {
+            instant.started1
+            thread.block()
+            instant.completed1
+        }
+        def action2 = {
+            instant.started2
+            thread.blockUntil.started3
+        }
+        def action3 = {
+            instant.started3
+        }
+
+        when:
+        def executor = blockingIoFactory.createForBlockingIo('test', 2)
+        executor.execute(action1)
+        executor.execute(action2)
+        executor.execute(action3)
+        thread.blockUntil.started3
+
+        then:
+        instant.started3 > instant.completed1
+        instant.started3 > instant.started2
+
+        cleanup:
+        blockingIoFactory.stop()
+
+        where:
+        useVirtualThreads << [false, true]
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        return thread.respondsTo('isVirtual') && thread.isVirtual()
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent
+
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.RejectedExecutionException
+
+class ManagedForkJoinPoolTest extends Specification {
+    def pool = new ManagedForkJoinPool("Test pool", 2)
+
+    def cleanup() {
+        pool.stop()
+    }
+
+    def "does not start threads before work is submitted"() {
+        expect:
+        pool.parallelism == 2
+        pool.poolSize == 0
+    }
+
+    def "runs work on named threads"() {
+        when:
+        def threadName = pool.submit({ Thread.currentThread().name } as Callable<String>).join()
+
+        then:
+        threadName.startsWith("Test pool Thread ")
+    }
+
+    def "shuts down pool on stop"() {
+        when:
+        pool.stop()
+
+        then:
+        pool.isShutdown()
+
+        when:
+        pool.submit({ "result" } as Callable<String>)
+
+        then:
+        thrown(RejectedExecutionException)
+    }
+}
@@ -31,6 +31,7 @@ dependencies {
     implementation(libs.guava)
     implementation(libs.commonsCompress)
     implementation(libs.commonsIo)
+    implementation(libs.aircompressor)
 
     testImplementation(project(":process-services"))
     testImplementation(project(":file-collections"))
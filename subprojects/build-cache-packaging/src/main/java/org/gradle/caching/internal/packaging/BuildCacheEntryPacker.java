@@ -23,6 +23,8 @@
 import org.gradle.internal.snapshot.CompleteFileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemSnapshot;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -43,7 +45,16 @@ public long getEntries() {
         }
     }
 
-    UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException;
+    default UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        return unpack(entity, input, readOrigin, null);
+    }
+
+    /**
+     * Unpacks an entry whose files may refer to contents in the given directory instead of containing them,
+     * as written by a local build cache storing the contents of files separately.
+     * Entries referring to any other contents are rejected.
+     */
+    UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin, @Nullable File linkedContentDirectory) throws IOException;
 
     class UnpackResult {
         private final OriginMetadata originMetadata;
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.MalformedInputException;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Reads data written by {@link BlockCompressedOutputStream}.
+ *
+ * The checksum of each block is verified when the block is read, and the checksum of all the data when the end of the data is reached.
+ * Corrupt data fails with an {@link IOException} instead of being returned.
+ */
+class BlockCompressedInputStream extends InputStream {
+    private final DataInputStream input;
+    private final Decompressor decompressor;
+    private final byte[] block = new byte[BlockCompressedOutputStream.BLOCK_SIZE];
+    private final CRC32 blockChecksum = new CRC32();
+    private final CRC32 streamChecksum = new CRC32();
+    private byte[] compressedBlock = new byte[0];
+    private int blockLength;
+    private int position;
+    private boolean finished;
+
+    BlockCompressedInputStream(InputStream input, Decompressor decompressor) {
+        this.input = new DataInputStream(input);
+        this.decompressor = decompressor;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!hasRemaining()) {
+            return -1;
+        }
+        return block[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(len, blockLength - position);
+        System.arraycopy(block, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return blockLength - position;
+    }
+
+    private boolean hasRemaining() throws IOException {
+        while (position == blockLength) {
+            if (finished) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        int uncompressedLength = readLength();
+        if (uncompressedLength == 0) {
+            verifyChecksum(streamChecksum, readInt(), "Compressed data");
+            finished = true;
+            return;
+        }
+        int storedLength = readLength();
+        if (uncompressedLength > block.length || storedLength == 0 || storedLength > uncompressedLength) {
+            throw new IOException(String.format("Invalid compressed block of length %d with %d uncompressed bytes.", storedLength, uncompressedLength));
+        }
+        int expectedChecksum = readInt();
+        if (storedLength == uncompressedLength) {
+            input.readFully(block, 0, uncompressedLength);
+        } else {
+            if (compressedBlock.length < storedLength) {
+                compressedBlock = new byte[storedLength];
+            }
+            input.readFully(compressedBlock, 0, storedLength);
+            int decompressedLength;
+            try {
+                decompressedLength = decompressor.decompress(compressedBlock, 0, storedLength, block, 0, uncompressedLength);
+            } catch (MalformedInputException e) {
+                throw new IOException("Invalid compressed block.", e);
+            }
+            if (decompressedLength != uncompressedLength) {
+                throw new IOException(String.format("Compressed block decompressed to %d bytes instead of %d.", decompressedLength, uncompressedLength));
+            }
+        }
+        blockChecksum.reset();
+        blockChecksum.update(block, 0, uncompressedLength);
+        verifyChecksum(blockChecksum, expectedChecksum, "Compressed block");
+        streamChecksum.update(block, 0, uncompressedLength);
+        blockLength = uncompressedLength;
+        position = 0;
+    }
+
+    private int readLength() throws IOException {
+        int length = readInt();
+        if (length < 0) {
+            throw new IOException("Invalid compressed block length " + length + ".");
+        }
+        return length;
+    }
+
+    private int readInt() throws IOException {
+        try {
+            return input.readInt();
+        } catch (EOFException e) {
+            throw new IOException("Unexpected end of compressed data.", e);
+        }
+    }
+
+    private static void verifyChecksum(CRC32 checksum, int expectedChecksum, String description) throws IOException {
+        int actualChecksum = (int) checksum.getValue();
+        if (actualChecksum != expectedChecksum) {
+            throw new IOException(String.format("%s is corrupt, expected checksum %08x but was %08x.", description, expectedChecksum, actualChecksum));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import io.airlift.compress.Compressor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Compresses the written data in independent blocks.
+ *
+ * Each block is written as its uncompressed length, its stored length, the CRC32 of its uncompressed data and the stored data.
+ * Blocks which do not get smaller by compressing them are stored uncompressed, indicated by equal lengths.
+ * The end of the data is marked by an empty block, followed by the CRC32 of all the uncompressed data.
+ */
+class BlockCompressedOutputStream extends OutputStream {
+    static final int BLOCK_SIZE = 256 * 1024;
+
+    private final DataOutputStream output;
+    private final Compressor compressor;
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private final byte[] compressedBlock;
+    private final CRC32 blockChecksum = new CRC32();
+    private final CRC32 streamChecksum = new CRC32();
+    private int blockLength;
+    private boolean closed;
+
+    BlockCompressedOutputStream(OutputStream output, Compressor compressor) {
+        this.output = new DataOutputStream(output);
+        this.compressor = compressor;
+        this.compressedBlock = new byte[compressor.maxCompressedLength(BLOCK_SIZE)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (blockLength == BLOCK_SIZE) {
+            writeBlock();
+        }
+        block[blockLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (blockLength == BLOCK_SIZE) {
+                writeBlock();
+            }
+            int count = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockLength == 0) {
+            return;
+        }
+        int compressedLength = compressor.compress(block, 0, blockLength, compressedBlock, 0, compressedBlock.length);
+        blockChecksum.reset();
+        blockChecksum.update(block, 0, blockLength);
+        streamChecksum.update(block, 0, blockLength);
+        output.writeInt(blockLength);
+        if (compressedLength < blockLength) {
+            output.writeInt(compressedLength);
+            output.writeInt((int) blockChecksum.getValue());
+            output.write(compressedBlock, 0, compressedLength);
+        } else {
+            output.writeInt(blockLength);
+            output.writeInt((int) blockChecksum.getValue());
+            output.write(block, 0, blockLength);
+        }
+        blockLength = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBlock();
+            output.writeInt(0);
+            output.writeInt((int) streamChecksum.getValue());
+        } finally {
+            output.close();
+        }
+    }
+}
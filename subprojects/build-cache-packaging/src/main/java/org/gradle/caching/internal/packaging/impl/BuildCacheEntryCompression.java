@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import com.google.common.io.ByteStreams;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.zstd.ZstdCompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression formats for build cache entries.
+ *
+ * Gzip entries are plain gzip streams, as written by older Gradle versions.
+ * Entries in other formats start with a header of the bytes {@code GBC} followed by the id of the format,
+ * so the format of an entry can be detected when reading it, regardless of the format the reading build writes.
+ */
+public enum BuildCacheEntryCompression {
+    GZIP(0) {
+        @Override
+        public OutputStream compress(OutputStream output, @Nullable ForkJoinPool compressionPool) throws IOException {
+            return compressionPool == null ? new GZIPOutputStream(output) : new ParallelGZipOutputStream(output, compressionPool);
+        }
+
+        @Override
+        InputStream decompress(InputStream input) throws IOException {
+            return new GZIPInputStream(input);
+        }
+    },
+    /**
+     * LZ4, which is a lot cheaper to compress and decompress than gzip, at the cost of larger entries.
+     */
+    LZ4(1) {
+        @Override
+        public OutputStream compress(OutputStream output, @Nullable ForkJoinPool compressionPool) throws IOException {
+            writeHeader(output);
+            return new BlockCompressedOutputStream(output, new Lz4Compressor());
+        }
+
+        @Override
+        InputStream decompress(InputStream input) {
+            return new BlockCompressedInputStream(input, new Lz4Decompressor());
+        }
+    },
+    /**
+     * Zstandard, which produces smaller entries than gzip at a comparable cost.
+     */
+    ZSTD(2) {
+        @Override
+        public OutputStream compress(OutputStream output, @Nullable ForkJoinPool compressionPool) throws IOException {
+            writeHeader(output);
+            return new BlockCompressedOutputStream(output, new ZstdCompressor());
+        }
+
+        @Override
+        InputStream decompress(InputStream input) {
+            return new BlockCompressedInputStream(input, new ZstdDecompressor());
+        }
+    };
+
+    private static final byte[] HEADER_MAGIC = {'G', 'B', 'C'};
+    private static final int HEADER_LENGTH = HEADER_MAGIC.length + 1;
+
+    private final int id;
+
+    BuildCacheEntryCompression(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Wraps the output into a compressing stream. Closing the returned stream finishes the compressed data and closes the output.
+     *
+     * @param compressionPool the pool to compress in parallel in, if the format supports it.
+     */
+    public abstract OutputStream compress(OutputStream output, @Nullable ForkJoinPool compressionPool) throws IOException;
+
+    abstract InputStream decompress(InputStream input) throws IOException;
+
+    void writeHeader(OutputStream output) throws IOException {
+        output.write(HEADER_MAGIC);
+        output.write(id);
+    }
+
+    /**
+     * Writes an entry in any format to the target in this format. Closes the target.
+     */
+    public void recompress(InputStream entry, OutputStream target) throws IOException {
+        try (InputStream input = decompressDetectingFormat(entry); OutputStream output = compress(target, null)) {
+            ByteStreams.copy(input, output);
+        }
+    }
+
+    /**
+     * Wraps the input into a decompressing stream for the format the entry has been written with.
+     */
+    public static InputStream decompressDetectingFormat(InputStream input) throws IOException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(input);
+        bufferedInput.mark(HEADER_LENGTH);
+        byte[] header = new byte[HEADER_LENGTH];
+        int headerLength = ByteStreams.read(bufferedInput, header, 0, HEADER_LENGTH);
+        if (headerLength == HEADER_LENGTH && startsWith(header, HEADER_MAGIC)) {
+            return forId(header[HEADER_MAGIC.length]).decompress(bufferedInput);
+        }
+        // Anything else is left to the gzip stream to read or to report as invalid, as it was before there were other formats
+        bufferedInput.reset();
+        return GZIP.decompress(bufferedInput);
+    }
+
+    private static BuildCacheEntryCompression forId(int id) throws IOException {
+        for (BuildCacheEntryCompression compression : values()) {
+            if (compression != GZIP && compression.id == id) {
+                return compression;
+            }
+        }
+        throw new IOException(String.format("Build cache entry is compressed with an unknown format (%d).", id));
+    }
+
+    private static boolean startsWith(byte[] header, byte[] magic) {
+        for (int i = 0; i < magic.length; i++) {
+            if (header[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the name of a format, ignoring case.
+     */
+    public static BuildCacheEntryCompression forName(String name) {
+        for (BuildCacheEntryCompression compression : values()) {
+            if (compression.name().equalsIgnoreCase(name.trim())) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown build cache entry compression '%s', supported are: %s.",
+            name, Arrays.stream(values()).map(compression -> compression.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", "))));
+    }
+}
@@ -16,37 +16,57 @@
 
 package org.gradle.caching.internal.packaging.impl;
 
+import com.google.common.io.ByteStreams;
 import org.gradle.caching.internal.CacheableEntity;
 import org.gradle.caching.internal.origin.OriginReader;
 import org.gradle.caching.internal.origin.OriginWriter;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.internal.snapshot.FileSystemSnapshot;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.GZIPOutputStream;
 
+/**
+ * Compresses packed entries with gzip.
+ * Entries in any {@link BuildCacheEntryCompression} format can be unpacked, regardless of the format used for packing.
+ */
 public class GZipBuildCacheEntryPacker implements BuildCacheEntryPacker {
     private final BuildCacheEntryPacker delegate;
+    private final ForkJoinPool compressionPool;
 
     public GZipBuildCacheEntryPacker(BuildCacheEntryPacker delegate) {
+        this(delegate, null);
+    }
+
+    /**
+     * Creates a packer which compresses blocks of the packed entry in parallel when a compression pool is given.
+     * Decompression is always sequential, since the boundaries of the blocks are not known when reading.
+     */
+    public GZipBuildCacheEntryPacker(BuildCacheEntryPacker delegate, @Nullable ForkJoinPool compressionPool) {
         this.delegate = delegate;
+        this.compressionPool = compressionPool;
     }
 
     @Override
     public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
-        try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output)) {
+        try (OutputStream gzipOutput = compressionPool == null ? new GZIPOutputStream(output) : new ParallelGZipOutputStream(output, compressionPool)) {
             return delegate.pack(entity, snapshots, gzipOutput, writeOrigin);
         }
     }
 
     @Override
-    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
-        try (GZIPInputStream gzipInput = new GZIPInputStream(input)) {
-            return delegate.unpack(entity, gzipInput, readOrigin);
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin, @Nullable File linkedContentDirectory) throws IOException {
+        try (InputStream decompressedInput = BuildCacheEntryCompression.decompressDetectingFormat(input)) {
+            UnpackResult result = delegate.unpack(entity, decompressedInput, readOrigin, linkedContentDirectory);
+            // Read up to the end, so the checksum at the end of the compressed data is verified
+            ByteStreams.exhaust(decompressedInput);
+            return result;
         }
     }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a GZIP stream, compressing blocks of the written data in parallel.
+ *
+ * <p>The output is a single regular GZIP member, so it can be read by {@link java.util.zip.GZIPInputStream}.
+ * Each block is compressed with the last 32 KB of the previous block as a preset dictionary,
+ * so the compression ratio is close to the one of sequential compression.</p>
+ */
+public class ParallelGZipOutputStream extends FilterOutputStream {
+    private static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = {
+        (byte) 0x1f, (byte) 0x8b, // Magic number
+        Deflater.DEFLATED,        // Compression method
+        0,                        // Flags
+        0, 0, 0, 0,               // Modification time
+        0,                        // Extra flags
+        0                         // Operating system
+    };
+
+    private final ForkJoinPool compressionPool;
+    private final int maxPendingBlocks;
+    private final Deque<ForkJoinTask<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    @Nullable
+    private byte[] dictionary;
+    private long uncompressedLength;
+    private boolean finished;
+
+    public ParallelGZipOutputStream(OutputStream out, ForkJoinPool compressionPool) throws IOException {
+        super(out);
+        this.compressionPool = compressionPool;
+        // Keep enough blocks in flight to keep all threads busy without buffering the whole stream
+        this.maxPendingBlocks = 2 * compressionPool.getParallelism();
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream has already been finished");
+        }
+        crc.update(b, off, len);
+        uncompressedLength += len;
+        while (len > 0) {
+            int count = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        byte[] uncompressed = block;
+        int length = blockLength;
+        byte[] blockDictionary = dictionary;
+        pendingBlocks.addLast(compressionPool.submit(() -> compress(uncompressed, length, blockDictionary, last)));
+        dictionary = length >= DICTIONARY_SIZE
+            ? Arrays.copyOfRange(uncompressed, length - DICTIONARY_SIZE, length)
+            : null;
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+        while (pendingBlocks.size() > maxPendingBlocks) {
+            writeOldestBlock();
+        }
+    }
+
+    private void writeOldestBlock() throws IOException {
+        out.write(pendingBlocks.removeFirst().join());
+    }
+
+    private static byte[] compress(byte[] uncompressed, int length, @Nullable byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(uncompressed, 0, length);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, count);
+                }
+            } else {
+                // Sync flush ends the block at a byte boundary, so the next block can be appended as is
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Writes the remaining compressed data and the GZIP trailer without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        submitBlock(true);
+        while (!pendingBlocks.isEmpty()) {
+            writeOldestBlock();
+        }
+        writeInt((int) crc.getValue());
+        writeInt((int) uncompressedLength);
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+}
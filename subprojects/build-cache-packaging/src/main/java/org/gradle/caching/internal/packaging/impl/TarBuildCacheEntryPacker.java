@@ -47,6 +47,7 @@
 
 import javax.annotation.Nullable;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -60,9 +61,16 @@
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -71,6 +79,14 @@
  */
 public class TarBuildCacheEntryPacker implements BuildCacheEntryPacker {
 
+    /**
+     * Marks an archived file whose content is not contained in the archive, but is linked into place from the file named by the value of the header.
+     *
+     * Only written by local build caches storing the contents of files separately, never stored in a cache entry.
+     * The header is only honored when unpacking with a linked content directory, and only for files inside that directory.
+     */
+    public static final String LINKED_CONTENT_PAX_HEADER = "GRADLE.linked-content";
+
     @SuppressWarnings("OctalInteger")
     private interface UnixPermissions {
         int FILE_FLAG =         0100000;
@@ -85,22 +101,42 @@ private interface UnixPermissions {
     private static final Pattern TREE_PATH = Pattern.compile("(missing-)?tree-([^/]+)(?:/(.*))?");
     private static final int BUFFER_SIZE = 64 * 1024;
     private static final ThreadLocal<byte[]> COPY_BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private static final int MAX_PARALLEL_UNPACKED_FILE_SIZE = 1024 * 1024;
+    private static final long MAX_BUFFERED_BYTES = 64 * 1024 * 1024;
 
     private final TarPackerFileSystemSupport fileSystemSupport;
     private final FilePermissionAccess filePermissionAccess;
     private final StreamHasher streamHasher;
     private final Interner<String> stringInterner;
+    private final ForkJoinPool unpackingPool;
 
     public TarBuildCacheEntryPacker(
         TarPackerFileSystemSupport fileSystemSupport,
         FilePermissionAccess filePermissionAccess,
         StreamHasher streamHasher,
         Interner<String> stringInterner
+    ) {
+        this(fileSystemSupport, filePermissionAccess, streamHasher, stringInterner, null);
+    }
+
+    /**
+     * Creates a packer which writes and hashes the unpacked files in parallel when an unpacking pool is given.
+     *
+     * The archive itself is still read sequentially. Small files are buffered in memory and written by the pool
+     * while the next entries are read, larger files are written directly from the archive.
+     */
+    public TarBuildCacheEntryPacker(
+        TarPackerFileSystemSupport fileSystemSupport,
+        FilePermissionAccess filePermissionAccess,
+        StreamHasher streamHasher,
+        Interner<String> stringInterner,
+        @Nullable ForkJoinPool unpackingPool
     ) {
         this.fileSystemSupport = fileSystemSupport;
         this.filePermissionAccess = filePermissionAccess;
         this.streamHasher = streamHasher;
         this.stringInterner = stringInterner;
+        this.unpackingPool = unpackingPool;
     }
 
     @Override
@@ -156,13 +192,13 @@ private static void createTarEntry(String path, long size, int mode, TarArchiveO
     }
 
     @Override
-    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin, @Nullable File linkedContentDirectory) throws IOException {
         try (TarArchiveInputStream tarInput = new TarArchiveInputStream(input, ENCODING.name())) {
-            return unpack(entity, tarInput, readOrigin);
+            return unpack(entity, tarInput, readOrigin, linkedContentDirectory == null ? null : linkedContentDirectory.getCanonicalFile());
         }
     }
 
-    private UnpackResult unpack(CacheableEntity entity, TarArchiveInputStream tarInput, OriginReader readOriginAction) throws IOException {
+    private UnpackResult unpack(CacheableEntity entity, TarArchiveInputStream tarInput, OriginReader readOriginAction, @Nullable File linkedContentDirectory) throws IOException {
         ImmutableMap.Builder<String, CacheableTree> treesBuilder = ImmutableMap.builder();
         entity.visitOutputTrees((name, type, root) -> treesBuilder.put(name, new CacheableTree(type, root)));
         ImmutableMap<String, CacheableTree> treesByName = treesBuilder.build();
@@ -179,7 +215,14 @@ private UnpackResult unpack(CacheableEntity entity, TarArchiveInputStream tarInp
 
             if (path.equals(METADATA_PATH)) {
                 // handle origin metadata
-                originMetadata = readOriginAction.execute(new CloseShieldInputStream(tarInput));
+                String linkedContent = tarEntry.getExtraPaxHeader(LINKED_CONTENT_PAX_HEADER);
+                if (linkedContent != null) {
+                    try (InputStream metadataInput = new FileInputStream(resolveLinkedContent(linkedContent, linkedContentDirectory))) {
+                        originMetadata = readOriginAction.execute(metadataInput);
+                    }
+                } else {
+                    originMetadata = readOriginAction.execute(new CloseShieldInputStream(tarInput));
+                }
                 tarEntry = tarInput.getNextTarEntry();
             } else {
                 // handle tree
@@ -196,7 +239,7 @@ private UnpackResult unpack(CacheableEntity entity, TarArchiveInputStream tarInp
 
                 boolean missing = matcher.group(1) != null;
                 String childPath = matcher.group(3);
-                tarEntry = unpackTree(treeName, tree.getType(), tree.getRoot(), tarInput, tarEntry, childPath, missing, snapshots, entries);
+                tarEntry = unpackTree(treeName, tree.getType(), tree.getRoot(), tarInput, tarEntry, childPath, missing, snapshots, entries, linkedContentDirectory);
             }
         }
         if (originMetadata == null) {
@@ -225,7 +268,7 @@ public File getRoot() {
     }
 
     @Nullable
-    private TarArchiveEntry unpackTree(String treeName, TreeType treeType, File treeRoot, TarArchiveInputStream input, TarArchiveEntry rootEntry, String childPath, boolean missing, Map<String, CompleteFileSystemLocationSnapshot> snapshots, AtomicLong entries) throws IOException {
+    private TarArchiveEntry unpackTree(String treeName, TreeType treeType, File treeRoot, TarArchiveInputStream input, TarArchiveEntry rootEntry, String childPath, boolean missing, Map<String, CompleteFileSystemLocationSnapshot> snapshots, AtomicLong entries, @Nullable File linkedContentDirectory) throws IOException {
         boolean isDirEntry = rootEntry.isDirectory();
         boolean root = Strings.isNullOrEmpty(childPath);
         if (!root) {
@@ -242,7 +285,7 @@ private TarArchiveEntry unpackTree(String treeName, TreeType treeType, File tree
             if (isDirEntry) {
                 throw new IllegalStateException("Should be a file: " + treeName);
             }
-            RegularFileSnapshot fileSnapshot = unpackFile(input, rootEntry, treeRoot, treeRoot.getName());
+            RegularFileSnapshot fileSnapshot = unpackFile(input, rootEntry, treeRoot, treeRoot.getName(), linkedContentDirectory);
             snapshots.put(treeName, fileSnapshot);
             return input.getNextTarEntry();
         }
@@ -252,63 +295,242 @@ private TarArchiveEntry unpackTree(String treeName, TreeType treeType, File tree
         }
         chmodUnpackedFile(rootEntry, treeRoot);
 
-        return unpackDirectoryTree(input, rootEntry, snapshots, entries, treeRoot, treeName);
+        return unpackDirectoryTree(input, rootEntry, snapshots, entries, treeRoot, treeName, linkedContentDirectory);
     }
 
-    private RegularFileSnapshot unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+    private RegularFileSnapshot unpackFile(InputStream input, TarArchiveEntry entry, File file, String fileName, @Nullable File linkedContentDirectory) throws IOException {
+        String linkedContent = entry.getExtraPaxHeader(LINKED_CONTENT_PAX_HEADER);
+        if (linkedContent != null) {
+            return linkFile(resolveLinkedContent(linkedContent, linkedContentDirectory), entry, file, fileName);
+        }
         try (CountingOutputStream output = new CountingOutputStream(new FileOutputStream(file))) {
             HashCode hash = streamHasher.hashCopy(input, output);
             chmodUnpackedFile(entry, file);
             String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
             String internedFileName = stringInterner.intern(fileName);
-            return new RegularFileSnapshot(internedAbsolutePath, internedFileName, hash, DefaultFileMetadata.file(output.getCount(), file.lastModified(), AccessType.DIRECT));
+            return new RegularFileSnapshot(internedAbsolutePath, internedFileName, hash, DefaultFileMetadata.file(file.lastModified(), output.getCount(), AccessType.DIRECT));
+        }
+    }
+
+    private RegularFileSnapshot linkFile(File content, TarArchiveEntry entry, File file, String fileName) throws IOException {
+        // Changing the permissions of a linked file would change them for the cached content and every other file linked to it
+        boolean linked = filePermissionAccess.getUnixMode(content) == (entry.getMode() & UnixPermissions.PERM_MASK) && tryLink(file, content);
+        if (!linked) {
+            Files.copy(content.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            chmodUnpackedFile(entry, file);
+        }
+        HashCode hash;
+        try (InputStream input = new FileInputStream(file)) {
+            hash = streamHasher.hash(input);
+        }
+        String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
+        String internedFileName = stringInterner.intern(fileName);
+        return new RegularFileSnapshot(internedAbsolutePath, internedFileName, hash, DefaultFileMetadata.file(file.lastModified(), file.length(), AccessType.DIRECT));
+    }
+
+    /**
+     * Only files inside the linked content directory can be linked, so an archive from elsewhere cannot make Gradle link or read arbitrary files.
+     */
+    private static File resolveLinkedContent(String linkedContent, @Nullable File linkedContentDirectory) throws IOException {
+        if (linkedContentDirectory == null) {
+            throw new IllegalStateException("Cached entry format error, unexpected linked content: " + linkedContent);
+        }
+        File content = new File(linkedContent).getCanonicalFile();
+        if (!content.toPath().startsWith(linkedContentDirectory.toPath()) || content.equals(linkedContentDirectory)) {
+            throw new IllegalStateException(String.format("Cached entry format error, linked content '%s' is not in '%s'", linkedContent, linkedContentDirectory));
+        }
+        return content;
+    }
+
+    private static boolean tryLink(File file, File content) {
+        try {
+            Files.createLink(file.toPath(), content.toPath());
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            // Links are not supported by the file system, not possible across file systems, or the content has too many links already
+            return false;
         }
     }
 
     @Nullable
-    private TarArchiveEntry unpackDirectoryTree(TarArchiveInputStream input, TarArchiveEntry rootEntry, Map<String, CompleteFileSystemLocationSnapshot> snapshots, AtomicLong entries, File treeRoot, String treeName) throws IOException {
+    private TarArchiveEntry unpackDirectoryTree(TarArchiveInputStream input, TarArchiveEntry rootEntry, Map<String, CompleteFileSystemLocationSnapshot> snapshots, AtomicLong entries, File treeRoot, String treeName, @Nullable File linkedContentDirectory) throws IOException {
         RelativePathParser parser = new RelativePathParser();
         parser.rootPath(rootEntry.getName());
 
-        MerkleDirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+        UnpackedTreeBuilder builder = unpackingPool == null
+            ? new SequentialUnpackedTreeBuilder(linkedContentDirectory)
+            : new ParallelUnpackedTreeBuilder(unpackingPool, linkedContentDirectory);
         String rootPath = stringInterner.intern(treeRoot.getAbsolutePath());
         String rootDirName = stringInterner.intern(treeRoot.getName());
         builder.preVisitDirectory(rootPath, rootDirName);
 
         TarArchiveEntry entry;
 
-        while ((entry = input.getNextTarEntry()) != null) {
-            boolean isDir = entry.isDirectory();
-            int directoriesLeft = parser.nextPath(entry.getName(), isDir);
-            for (int i = 0; i < directoriesLeft; i++) {
-                builder.postVisitDirectory(AccessType.DIRECT);
-            }
-            if (parser.getDepth() == 0) {
-                break;
-            }
-            entries.incrementAndGet();
-
-            File file = new File(treeRoot, parser.getRelativePath());
-            if (isDir) {
-                FileUtils.forceMkdir(file);
-                chmodUnpackedFile(entry, file);
-                String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
-                String internedDirName = stringInterner.intern(parser.getName());
-                builder.preVisitDirectory(internedAbsolutePath, internedDirName);
-            } else {
-                RegularFileSnapshot fileSnapshot = unpackFile(input, entry, file, parser.getName());
-                builder.visitFile(fileSnapshot);
+        try {
+            while ((entry = input.getNextTarEntry()) != null) {
+                boolean isDir = entry.isDirectory();
+                int directoriesLeft = parser.nextPath(entry.getName(), isDir);
+                for (int i = 0; i < directoriesLeft; i++) {
+                    builder.postVisitDirectory();
+                }
+                if (parser.getDepth() == 0) {
+                    break;
+                }
+                entries.incrementAndGet();
+
+                File file = new File(treeRoot, parser.getRelativePath());
+                if (isDir) {
+                    FileUtils.forceMkdir(file);
+                    chmodUnpackedFile(entry, file);
+                    String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
+                    String internedDirName = stringInterner.intern(parser.getName());
+                    builder.preVisitDirectory(internedAbsolutePath, internedDirName);
+                } else {
+                    builder.unpackFile(input, entry, file, parser.getName());
+                }
             }
+        } finally {
+            // Also wait when failing, so no files are written after unpacking has finished
+            builder.awaitUnpackedFiles();
         }
 
         for (int i = 0; i < parser.getDepth(); i++) {
-            builder.postVisitDirectory(AccessType.DIRECT);
+            builder.postVisitDirectory();
         }
 
         snapshots.put(treeName, builder.getResult());
         return entry;
     }
 
+    /**
+     * Unpacks the files of a directory tree and builds the snapshot of the unpacked tree.
+     */
+    private interface UnpackedTreeBuilder {
+        void preVisitDirectory(String absolutePath, String name);
+
+        void unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException;
+
+        void postVisitDirectory();
+
+        void awaitUnpackedFiles();
+
+        CompleteFileSystemLocationSnapshot getResult();
+    }
+
+    private class SequentialUnpackedTreeBuilder implements UnpackedTreeBuilder {
+        private final MerkleDirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+        private final File linkedContentDirectory;
+
+        public SequentialUnpackedTreeBuilder(@Nullable File linkedContentDirectory) {
+            this.linkedContentDirectory = linkedContentDirectory;
+        }
+
+        @Override
+        public void preVisitDirectory(String absolutePath, String name) {
+            builder.preVisitDirectory(absolutePath, name);
+        }
+
+        @Override
+        public void unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+            builder.visitFile(TarBuildCacheEntryPacker.this.unpackFile(input, entry, file, fileName, linkedContentDirectory));
+        }
+
+        @Override
+        public void postVisitDirectory() {
+            builder.postVisitDirectory(AccessType.DIRECT);
+        }
+
+        @Override
+        public void awaitUnpackedFiles() {
+        }
+
+        @Override
+        public CompleteFileSystemLocationSnapshot getResult() {
+            return builder.getResult();
+        }
+    }
+
+    /**
+     * Writes and hashes small files in the unpacking pool while the next entries are read from the archive.
+     *
+     * The snapshot of the tree is built once all files have been written.
+     * The reader waits for running writes when more than {@link #MAX_BUFFERED_BYTES} of file content are buffered in memory.
+     */
+    private class ParallelUnpackedTreeBuilder implements UnpackedTreeBuilder {
+        private final ForkJoinPool unpackingPool;
+        private final File linkedContentDirectory;
+        private final List<Consumer<MerkleDirectorySnapshotBuilder>> steps = new ArrayList<>();
+        private final List<ForkJoinTask<RegularFileSnapshot>> tasks = new ArrayList<>();
+        private final AtomicLong bufferedBytes = new AtomicLong();
+        private int oldestRunningTask;
+
+        public ParallelUnpackedTreeBuilder(ForkJoinPool unpackingPool, @Nullable File linkedContentDirectory) {
+            this.unpackingPool = unpackingPool;
+            this.linkedContentDirectory = linkedContentDirectory;
+        }
+
+        @Override
+        public void preVisitDirectory(String absolutePath, String name) {
+            steps.add(builder -> builder.preVisitDirectory(absolutePath, name));
+        }
+
+        @Override
+        public void unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+            if (entry.getSize() > MAX_PARALLEL_UNPACKED_FILE_SIZE) {
+                RegularFileSnapshot fileSnapshot = TarBuildCacheEntryPacker.this.unpackFile(input, entry, file, fileName, linkedContentDirectory);
+                steps.add(builder -> builder.visitFile(fileSnapshot));
+                return;
+            }
+            byte[] content = new byte[(int) entry.getSize()];
+            IOUtils.readFully(input, content);
+            while (bufferedBytes.addAndGet(content.length) > MAX_BUFFERED_BYTES && oldestRunningTask < tasks.size()) {
+                bufferedBytes.addAndGet(-content.length);
+                tasks.get(oldestRunningTask++).quietlyJoin();
+            }
+            ForkJoinTask<RegularFileSnapshot> task = unpackingPool.submit(() -> {
+                try {
+                    return TarBuildCacheEntryPacker.this.unpackFile(new ByteArrayInputStream(content), entry, file, fileName, linkedContentDirectory);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    bufferedBytes.addAndGet(-content.length);
+                }
+            });
+            tasks.add(task);
+            steps.add(builder -> builder.visitFile(task.join()));
+        }
+
+        @Override
+        public void postVisitDirectory() {
+            steps.add(builder -> builder.postVisitDirectory(AccessType.DIRECT));
+        }
+
+        @Override
+        public void awaitUnpackedFiles() {
+            tasks.forEach(ForkJoinTask::quietlyJoin);
+        }
+
+        @Override
+        public CompleteFileSystemLocationSnapshot getResult() {
+            RuntimeException failure = null;
+            for (ForkJoinTask<RegularFileSnapshot> task : tasks) {
+                try {
+                    task.join();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            MerkleDirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+            steps.forEach(step -> step.accept(builder));
+            return builder.getResult();
+        }
+    }
+
     private void chmodUnpackedFile(TarArchiveEntry entry, File file) {
         filePermissionAccess.chmod(file, entry.getMode() & UnixPermissions.PERM_MASK);
     }
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.zip.GZIPOutputStream
+import java.util.zip.ZipException
+
+class BuildCacheEntryCompressionTest extends Specification {
+    def content = ("some content to compress " * 1000).bytes
+
+    @Unroll
+    def "detects #compression when decompressing"() {
+        when:
+        def compressed = compress(compression, content)
+
+        then:
+        decompress(compressed) == content
+
+        where:
+        compression << BuildCacheEntryCompression.values()
+    }
+
+    @Unroll
+    def "can read #size bytes compressed with #compression"() {
+        def random = new Random(1234L)
+        def data = new byte[size]
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt() : i % 7)
+        }
+
+        expect:
+        decompress(compress(compression, data)) == data
+
+        where:
+        [compression, size] << [[BuildCacheEntryCompression.LZ4, BuildCacheEntryCompression.ZSTD], [0, 1, 256 * 1024, 256 * 1024 + 1, 1000000]].combinations()
+    }
+
+    @Unroll
+    def "stores incompressible data with little overhead with #compression"() {
+        def random = new Random(1234L)
+        def data = new byte[1000000]
+        random.nextBytes(data)
+
+        expect:
+        compress(compression, data).length < data.length + 100
+
+        where:
+        compression << [BuildCacheEntryCompression.LZ4, BuildCacheEntryCompression.ZSTD]
+    }
+
+    def "decompresses entries written by older Gradle versions"() {
+        def compressed = new ByteArrayOutputStream()
+        new GZIPOutputStream(compressed).withStream { it.write(content) }
+
+        expect:
+        decompress(compressed.toByteArray()) == content
+    }
+
+    def "reports entries in unknown format as invalid gzip"() {
+        when:
+        decompress("not compressed".bytes)
+
+        then:
+        thrown(ZipException)
+    }
+
+    def "reports entries in formats of newer Gradle versions"() {
+        when:
+        decompress((("GBC".bytes as List) + [(byte) 42]) as byte[])
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Build cache entry is compressed with an unknown format (42)."
+    }
+
+    def "reports truncated entries"() {
+        def compressed = compress(BuildCacheEntryCompression.LZ4, content)
+
+        when:
+        decompress(Arrays.copyOf(compressed, compressed.length - 3))
+
+        then:
+        thrown(IOException)
+    }
+
+    @Unroll
+    def "reports corrupt entries with #compression"() {
+        def random = new Random(1234L)
+        def data = new byte[1000]
+        random.nextBytes(data)
+        def compressed = compress(compression, data)
+        // Flip a bit in the data of the first block, which is stored uncompressed
+        compressed[4 + 12 + 10] ^= 1
+
+        when:
+        decompress(compressed)
+
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Compressed block is corrupt")
+
+        where:
+        compression << [BuildCacheEntryCompression.LZ4, BuildCacheEntryCompression.ZSTD]
+    }
+
+    def "reports entries which end early"() {
+        def compressed = compress(BuildCacheEntryCompression.LZ4, content)
+        // Turn the first block into the marker for the end of the data
+        Arrays.fill(compressed, 4, 8, (byte) 0)
+
+        when:
+        decompress(compressed)
+
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Compressed data is corrupt")
+    }
+
+    @Unroll
+    def "recompresses #from entries with #to"() {
+        def recompressed = new ByteArrayOutputStream()
+
+        when:
+        to.recompress(new ByteArrayInputStream(compress(from, content)), recompressed)
+
+        then:
+        recompressed.toByteArray() == compress(to, content)
+
+        where:
+        [from, to] << [BuildCacheEntryCompression.values(), BuildCacheEntryCompression.values()].combinations()
+    }
+
+    def "parses names ignoring case"() {
+        expect:
+        BuildCacheEntryCompression.forName("lz4") == BuildCacheEntryCompression.LZ4
+        BuildCacheEntryCompression.forName("Zstd") == BuildCacheEntryCompression.ZSTD
+        BuildCacheEntryCompression.forName("GZIP") == BuildCacheEntryCompression.GZIP
+    }
+
+    def "fails for unknown names"() {
+        when:
+        BuildCacheEntryCompression.forName("snappy")
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unknown build cache entry compression 'snappy', supported are: gzip, lz4, zstd."
+    }
+
+    private static byte[] compress(BuildCacheEntryCompression compression, byte[] content) {
+        def compressed = new ByteArrayOutputStream()
+        compression.compress(compressed, null).withStream { it.write(content) }
+        compressed.toByteArray()
+    }
+
+    private static byte[] decompress(byte[] compressed) {
+        BuildCacheEntryCompression.decompressDetectingFormat(new ByteArrayInputStream(compressed)).withStream { it.bytes }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.ForkJoinPool
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+class ParallelGZipOutputStreamTest extends Specification {
+    def pool = new ForkJoinPool(4)
+
+    def cleanup() {
+        pool.shutdown()
+    }
+
+    @Unroll
+    def "can read compressed #size bytes of #contentType content"() {
+        def content = createContent(contentType, size)
+
+        when:
+        def compressed = new ByteArrayOutputStream()
+        new ParallelGZipOutputStream(compressed, pool).withStream { output ->
+            def random = new Random(1234L)
+            int offset = 0
+            while (offset < size) {
+                int length = Math.min(size - offset, 1 + random.nextInt(20000))
+                output.write(content, offset, length)
+                offset += length
+            }
+        }
+
+        then:
+        new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())).bytes == content
+
+        where:
+        [size, contentType] << [[0, 1, 32 * 1024, 128 * 1024 - 1, 128 * 1024, 128 * 1024 + 1, 1000000], ["random", "text"]].combinations()
+    }
+
+    def "compresses about as well as sequential compression"() {
+        def content = createContent("text", 5000000)
+
+        when:
+        def parallel = new ByteArrayOutputStream()
+        new ParallelGZipOutputStream(parallel, pool).withStream { it.write(content) }
+        def sequential = new ByteArrayOutputStream()
+        new GZIPOutputStream(sequential).withStream { it.write(content) }
+
+        then:
+        parallel.size() < sequential.size() * 1.01
+    }
+
+    def "can write single bytes"() {
+        when:
+        def compressed = new ByteArrayOutputStream()
+        new ParallelGZipOutputStream(compressed, pool).withStream { output ->
+            "some text".bytes.each { output.write(it) }
+        }
+
+        then:
+        new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())).text == "some text"
+    }
+
+    private static byte[] createContent(String contentType, int size) {
+        def random = new Random(1234L)
+        if (contentType == "random") {
+            def content = new byte[size]
+            random.nextBytes(content)
+            return content
+        }
+        def text = new StringBuilder()
+        while (text.length() < size) {
+            text.append("public class SomeClass").append(random.nextInt(100)).append(" {}\n")
+        }
+        return text.substring(0, size).bytes
+    }
+}
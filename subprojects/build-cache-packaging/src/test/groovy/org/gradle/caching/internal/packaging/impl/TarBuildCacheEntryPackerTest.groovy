@@ -16,6 +16,8 @@
 
 package org.gradle.caching.internal.packaging.impl
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.caching.internal.CacheableEntity
 import org.gradle.caching.internal.origin.OriginReader
@@ -25,11 +27,15 @@ import org.gradle.internal.file.TreeType
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint
 import org.gradle.internal.fingerprint.FingerprintingStrategy
 import org.gradle.internal.fingerprint.impl.AbsolutePathFingerprintingStrategy
+import org.gradle.internal.hash.StreamHasher
 import org.gradle.internal.nativeintegration.filesystem.FileSystem
 import org.gradle.util.Requires
 import org.gradle.util.TestPrecondition
 import spock.lang.Unroll
 
+import java.nio.file.Files
+import java.util.concurrent.ForkJoinPool
+
 import static org.gradle.caching.internal.packaging.impl.AbstractTarBuildCacheEntryPackerSpec.TestCacheableTree
 import static org.gradle.internal.file.TreeType.DIRECTORY
 import static org.gradle.internal.file.TreeType.FILE
@@ -251,6 +257,164 @@ class TarBuildCacheEntryPackerTest extends AbstractTarBuildCacheEntryPackerSpec
         targetDir.assertIsEmptyDir()
     }
 
+    def "unpacks the same files and snapshots when writing files in parallel"() {
+        def sourceDir = temporaryFolder.file("source").createDir()
+        def random = new Random(1234L)
+        (1..50).each { i ->
+            def bytes = new byte[random.nextInt(10 * 1024)]
+            random.nextBytes(bytes)
+            sourceDir.file("dir${i % 5}/sub${i % 3}/file${i}.bin").createFile().bytes = bytes
+        }
+        def largeFile = new byte[2 * 1024 * 1024]
+        random.nextBytes(largeFile)
+        sourceDir.file("dir1/large.bin").createFile().bytes = largeFile
+        sourceDir.file("dir2/empty.bin").createFile()
+        def sequentialTargetDir = temporaryFolder.file("sequential")
+        def parallelTargetDir = temporaryFolder.file("parallel")
+        def parallelPacker = new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, streamHasher, stringInterner, ForkJoinPool.commonPool())
+
+        def output = new ByteArrayOutputStream()
+        pack output, prop(DIRECTORY, sourceDir)
+
+        when:
+        def sequentialResult = unpack new ByteArrayInputStream(output.toByteArray()), prop(DIRECTORY, sequentialTargetDir)
+        def parallelResult = parallelPacker.unpack(entity(prop(DIRECTORY, parallelTargetDir)), new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        parallelResult.entries == sequentialResult.entries
+        parallelResult.snapshots["test"].hash == sequentialResult.snapshots["test"].hash
+        parallelTargetDir.file("dir1/large.bin").bytes == largeFile
+        sourceDir.allDescendants() == parallelTargetDir.allDescendants()
+        sourceDir.allDescendants().each { path ->
+            assert parallelTargetDir.file(path).bytes == sourceDir.file(path).bytes
+        }
+    }
+
+    def "rethrows failures to write files unpacked in parallel as unchecked I/O exceptions"() {
+        def sourceDir = temporaryFolder.file("source").createDir()
+        sourceDir.file("file.txt") << "content"
+        def failingHasher = Stub(StreamHasher) {
+            hashCopy(_, _) >> { throw new IOException("Cannot write") }
+        }
+        def parallelPacker = new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, failingHasher, stringInterner, ForkJoinPool.commonPool())
+        def output = new ByteArrayOutputStream()
+        pack output, prop(DIRECTORY, sourceDir)
+
+        when:
+        parallelPacker.unpack(entity(prop(DIRECTORY, temporaryFolder.file("target"))), new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        def ex = thrown UncheckedIOException
+        ex.cause.message == "Cannot write"
+    }
+
+    def "snapshots unpacked files with their length and modification time"() {
+        def sourceOutputFile = temporaryFolder.file("source.txt")
+        sourceOutputFile << "output"
+        def targetOutputFile = temporaryFolder.file("target.txt")
+        def output = new ByteArrayOutputStream()
+        pack output, prop(FILE, sourceOutputFile)
+
+        when:
+        def result = unpack new ByteArrayInputStream(output.toByteArray()), prop(FILE, targetOutputFile)
+
+        then:
+        def metadata = result.snapshots["test"].metadata
+        metadata.length == 6
+        metadata.lastModified == targetOutputFile.lastModified()
+    }
+
+    @Requires(TestPrecondition.UNIX_DERIVATIVE)
+    def "links contents from the linked content directory"() {
+        def blobs = temporaryFolder.file("blobs")
+        def blob = blobContaining(blobs, "content", 0644)
+        def targetOutputFile = temporaryFolder.file("target.txt")
+
+        when:
+        def result = packer.unpack(entity(prop(FILE, targetOutputFile)), linkedEntry(blob.absolutePath, 0644), readOrigin, blobs)
+
+        then:
+        targetOutputFile.text == "content"
+        Files.getAttribute(targetOutputFile.toPath(), "unix:nlink") == 2
+        def snapshot = result.snapshots["test"]
+        snapshot.hash == streamHasher.hash(new ByteArrayInputStream("content".bytes))
+        snapshot.metadata.length == 7
+        snapshot.metadata.lastModified == targetOutputFile.lastModified()
+    }
+
+    @Requires(TestPrecondition.UNIX_DERIVATIVE)
+    def "copies linked contents when the permissions differ"() {
+        def blobs = temporaryFolder.file("blobs")
+        def blob = blobContaining(blobs, "content", 0644)
+        def targetOutputFile = temporaryFolder.file("target.txt")
+
+        when:
+        def result = packer.unpack(entity(prop(FILE, targetOutputFile)), linkedEntry(blob.absolutePath, 0755), readOrigin, blobs)
+
+        then:
+        targetOutputFile.text == "content"
+        Files.getAttribute(targetOutputFile.toPath(), "unix:nlink") == 1
+        filePermissionAccess.getUnixMode(targetOutputFile) == 0755
+        filePermissionAccess.getUnixMode(blob) == 0644
+        result.snapshots["test"].metadata.length == 7
+    }
+
+    @Requires(TestPrecondition.UNIX_DERIVATIVE)
+    def "copies linked contents when they cannot be linked"() {
+        def blobs = temporaryFolder.file("blobs")
+        def blob = blobContaining(blobs, "content", 0644)
+        def targetOutputFile = temporaryFolder.file("target.txt")
+        // Linking fails when the target already exists
+        def existingTargetSupport = Stub(TarPackerFileSystemSupport) {
+            ensureDirectoryForTree(FILE, targetOutputFile) >> { targetOutputFile.text = "existing" }
+        }
+        def existingTargetPacker = new TarBuildCacheEntryPacker(existingTargetSupport, filePermissionAccess, streamHasher, stringInterner)
+
+        when:
+        existingTargetPacker.unpack(entity(prop(FILE, targetOutputFile)), linkedEntry(blob.absolutePath, 0644), readOrigin, blobs)
+
+        then:
+        targetOutputFile.text == "content"
+        Files.getAttribute(targetOutputFile.toPath(), "unix:nlink") == 1
+        blob.text == "content"
+    }
+
+    def "rejects linked contents when unpacking without a linked content directory"() {
+        def blob = blobContaining(temporaryFolder.file("blobs"), "content", 0644)
+        def targetOutputFile = temporaryFolder.file("target.txt")
+
+        when:
+        unpack linkedEntry(blob.absolutePath, 0644), prop(FILE, targetOutputFile)
+
+        then:
+        def ex = thrown IllegalStateException
+        ex.message == "Cached entry format error, unexpected linked content: ${blob.absolutePath}"
+        !targetOutputFile.exists()
+    }
+
+    @Unroll
+    def "rejects linked contents #description"() {
+        def blobs = temporaryFolder.file("blobs").createDir()
+        def secret = temporaryFolder.file("secret.txt")
+        secret.text = "secret"
+        def targetOutputFile = temporaryFolder.file("target.txt")
+
+        when:
+        packer.unpack(entity(prop(FILE, targetOutputFile)), linkedEntry(linkedContent(blobs, secret), 0644), readOrigin, blobs)
+
+        then:
+        def ex = thrown IllegalStateException
+        ex.message.startsWith("Cached entry format error, linked content")
+        !targetOutputFile.exists()
+        secret.text == "secret"
+
+        where:
+        description                              | linkedContent
+        "outside of the linked content directory" | { File blobs, File secret -> secret.absolutePath }
+        "escaping the linked content directory"   | { File blobs, File secret -> new File(blobs, "../secret.txt").path }
+        "naming the linked content directory"     | { File blobs, File secret -> blobs.absolutePath }
+    }
+
     def pack(OutputStream output, OriginWriter writeOrigin = this.writeOrigin, TreeDefinition... treeDefs) {
         Map<String, CurrentFileCollectionFingerprint> fingerprints = treeDefs.collectEntries { treeDef ->
             return [(treeDef.tree.name): treeDef.fingerprint()]
@@ -262,6 +426,28 @@ class TarBuildCacheEntryPackerTest extends AbstractTarBuildCacheEntryPackerSpec
         packer.unpack(entity(treeDefs), input, readOrigin)
     }
 
+    def blobContaining(File blobs, String content, int mode) {
+        def blob = new File(blobs, "ab/cdef")
+        blob.parentFile.mkdirs()
+        blob.text = content
+        filePermissionAccess.chmod(blob, mode)
+        blob
+    }
+
+    static InputStream linkedEntry(String linkedContent, int mode) {
+        def output = new ByteArrayOutputStream()
+        new TarArchiveOutputStream(output, "UTF-8").withCloseable { tarOutput ->
+            tarOutput.putArchiveEntry(new TarArchiveEntry("METADATA", true))
+            tarOutput.closeArchiveEntry()
+            def entry = new TarArchiveEntry("tree-test", true)
+            entry.mode = 0100000 | mode
+            entry.addPaxHeader(TarBuildCacheEntryPacker.LINKED_CONTENT_PAX_HEADER, linkedContent)
+            tarOutput.putArchiveEntry(entry)
+            tarOutput.closeArchiveEntry()
+        }
+        new ByteArrayInputStream(output.toByteArray())
+    }
+
     def entity(TreeDefinition... treeDefs) {
         Stub(CacheableEntity) {
             visitOutputTrees(_ as CacheableEntity.CacheableTreeVisitor) >> { CacheableEntity.CacheableTreeVisitor visitor ->
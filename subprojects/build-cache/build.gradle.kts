@@ -36,6 +36,7 @@ dependencies {
     implementation(libs.inject)
 
     jmhImplementation(platform(project(":distributions-dependencies")))
+    jmhImplementation(project(":build-cache-packaging"))
     jmhImplementation(libs.ant)
     jmhImplementation(libs.commonsCompress)
     jmhImplementation(libs.aircompressor)
@@ -19,6 +19,7 @@
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.io.FileUtils;
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
@@ -35,6 +36,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 @Fork(1)
 @Warmup(iterations = 3)
@@ -55,6 +57,10 @@ public abstract class AbstractTaskOutputPackagingBenchmark {
         .put("tar.small", new AntTarPacker(2))
         .put("tar.large", new AntTarPacker(64))
         .put("tar.gz", new GzipPacker(new AntTarPacker(4)))
+        .put("tar.gz.commons", new GzipPacker(new CommonsTarPacker(4)))
+        .put("tar.gz.parallel", new GzipPacker(new ParallelCommonsTarPacker(4, ForkJoinPool.commonPool()), ForkJoinPool.commonPool()))
+        .put("tar.lz4", new CompressionPacker(new CommonsTarPacker(4), BuildCacheEntryCompression.LZ4))
+        .put("tar.zstd", new CompressionPacker(new CommonsTarPacker(4), BuildCacheEntryCompression.ZSTD))
         .put("zip", new ZipPacker(4))
         .build();
 
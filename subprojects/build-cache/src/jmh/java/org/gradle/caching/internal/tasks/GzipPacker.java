@@ -16,18 +16,28 @@
 
 package org.gradle.caching.internal.tasks;
 
+import org.gradle.caching.internal.packaging.impl.ParallelGZipOutputStream;
+
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class GzipPacker implements Packer {
     private final Packer delegate;
+    private final ForkJoinPool compressionPool;
 
     public GzipPacker(Packer delegate) {
+        this(delegate, null);
+    }
+
+    public GzipPacker(Packer delegate, @Nullable ForkJoinPool compressionPool) {
         this.delegate = delegate;
+        this.compressionPool = compressionPool;
     }
 
     @Override
@@ -35,7 +45,9 @@ public void pack(List<DataSource> inputs, DataTarget output) throws IOException
         delegate.pack(inputs, new DelegatingDataTarget(output) {
             @Override
             public OutputStream openOutput() throws IOException {
-                return new GZIPOutputStream(super.openOutput());
+                return compressionPool == null
+                    ? new GZIPOutputStream(super.openOutput())
+                    : new ParallelGZipOutputStream(super.openOutput(), compressionPool);
             }
         });
     }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Packs like {@link CommonsTarPacker}, but writes the unpacked entries in parallel while reading the next entries from the archive.
+ */
+public class ParallelCommonsTarPacker implements Packer {
+
+    private final CommonsTarPacker delegate;
+    private final ForkJoinPool unpackingPool;
+
+    public ParallelCommonsTarPacker(int bufferSizeInKBytes, ForkJoinPool unpackingPool) {
+        this.delegate = new CommonsTarPacker(bufferSizeInKBytes);
+        this.unpackingPool = unpackingPool;
+    }
+
+    @Override
+    public void pack(List<DataSource> inputs, DataTarget output) throws IOException {
+        delegate.pack(inputs, output);
+    }
+
+    @Override
+    public void unpack(DataSource input, DataTargetFactory targetFactory) throws IOException {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        try (TarArchiveInputStream tarInput = new TarArchiveInputStream(input.openInput())) {
+            while (true) {
+                TarArchiveEntry entry = tarInput.getNextTarEntry();
+                if (entry == null) {
+                    break;
+                }
+                byte[] content = new byte[(int) entry.getSize()];
+                IOUtils.readFully(tarInput, content);
+                String name = entry.getName();
+                tasks.add(unpackingPool.submit(() -> {
+                    PackerUtils.unpackEntry(name, new ByteArrayInputStream(content), new byte[8 * 1024], targetFactory);
+                    return null;
+                }));
+            }
+        } finally {
+            tasks.forEach(ForkJoinTask::join);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller;
+
+import org.gradle.api.Action;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uploads build cache entries to the remote build cache in the background, so that work does not wait for slow uploads.
+ *
+ * At most {@code queueSize} entries are waiting for or being uploaded at a time. Further entries are uploaded right away
+ * on the calling thread until the queue has room again. Closing the uploader waits for the pending uploads up to the
+ * given timeout, and reports the queue depth and upload latency, so that the queue can be sized. Entries given to a closed
+ * uploader are uploaded right away as well.
+ */
+public class AsyncBuildCacheUploader implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncBuildCacheUploader.class);
+    private static final String PENDING_UPLOAD_SUFFIX = ".upload";
+
+    private final ExecutorFactory executorFactory;
+    private final int uploadThreads;
+    private final int queueSize;
+    private final int drainTimeoutSeconds;
+    private final Semaphore queueCapacity;
+    private final Set<File> pendingUploads = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicInteger backgroundUploads = new AtomicInteger();
+    private final AtomicInteger synchronousUploads = new AtomicInteger();
+    private final AtomicLong totalWaitingNanos = new AtomicLong();
+    private final AtomicLong totalUploadNanos = new AtomicLong();
+    private final AtomicLong maxUploadNanos = new AtomicLong();
+
+    private ManagedExecutor executor;
+    private volatile boolean closed;
+
+    public AsyncBuildCacheUploader(ExecutorFactory executorFactory, int uploadThreads, int queueSize, int drainTimeoutSeconds) {
+        this.executorFactory = executorFactory;
+        this.uploadThreads = uploadThreads;
+        this.queueSize = queueSize;
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+        this.queueCapacity = new Semaphore(queueSize);
+    }
+
+    /**
+     * Uploads the given entry in the background when the queue has room, otherwise uploads it right away.
+     *
+     * The entry file can be moved or removed once this method returns.
+     */
+    public void upload(File entry, Action<? super File> upload) {
+        if (closed || !queueCapacity.tryAcquire()) {
+            uploadNow(entry, upload);
+            return;
+        }
+
+        File pendingUpload = new File(entry.getParentFile(), entry.getName() + PENDING_UPLOAD_SUFFIX);
+        try {
+            linkOrCopy(entry, pendingUpload);
+        } catch (IOException e) {
+            LOGGER.debug("Could not keep build cache entry {} for uploading it in the background, uploading it right away.", entry, e);
+            GFileUtils.deleteQuietly(pendingUpload);
+            queueCapacity.release();
+            uploadNow(entry, upload);
+            return;
+        }
+        long queuedAt = System.nanoTime();
+        boolean queued = queue(pendingUpload, () -> {
+            long startedAt = System.nanoTime();
+            totalWaitingNanos.addAndGet(startedAt - queuedAt);
+            try {
+                upload.execute(pendingUpload);
+            } catch (Exception e) {
+                LOGGER.warn("Could not upload build cache entry to the remote build cache.", e);
+            } finally {
+                recordUploadTime(System.nanoTime() - startedAt);
+                backgroundUploads.incrementAndGet();
+                pendingUploads.remove(pendingUpload);
+                GFileUtils.deleteQuietly(pendingUpload);
+                queueDepth.decrementAndGet();
+                queueCapacity.release();
+            }
+        });
+        if (!queued) {
+            // Closed concurrently
+            GFileUtils.deleteQuietly(pendingUpload);
+            queueCapacity.release();
+            uploadNow(entry, upload);
+        }
+    }
+
+    private void uploadNow(File entry, Action<? super File> upload) {
+        synchronousUploads.incrementAndGet();
+        long startedAt = System.nanoTime();
+        try {
+            upload.execute(entry);
+        } finally {
+            recordUploadTime(System.nanoTime() - startedAt);
+        }
+    }
+
+    private synchronized boolean queue(File pendingUpload, Runnable upload) {
+        if (closed) {
+            return false;
+        }
+        pendingUploads.add(pendingUpload);
+        maxQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+        getExecutor().execute(upload);
+        return true;
+    }
+
+    private synchronized ManagedExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.createForBlockingIo("Build cache uploads", uploadThreads);
+        }
+        return executor;
+    }
+
+    private static void linkOrCopy(File entry, File pendingUpload) throws IOException {
+        // The entry is usually moved to the local build cache right after being queued, so keep a link to its content
+        try {
+            Files.createLink(pendingUpload.toPath(), entry.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(entry.toPath(), pendingUpload.toPath());
+        }
+    }
+
+    private void recordUploadTime(long uploadNanos) {
+        totalUploadNanos.addAndGet(uploadNanos);
+        maxUploadNanos.accumulateAndGet(uploadNanos, Math::max);
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * Waits for the pending uploads to finish, and drops the ones not finished within the timeout.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (executor == null) {
+            return;
+        }
+        int pendingWhenClosing = queueDepth.get();
+        long drainStartedAt = System.nanoTime();
+        try {
+            executor.stop(drainTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (IllegalStateException e) {
+            LOGGER.warn("Build cache entries still uploading to the remote build cache after waiting for {} seconds were not stored.", drainTimeoutSeconds);
+        } finally {
+            pendingUploads.forEach(GFileUtils::deleteQuietly);
+            pendingUploads.clear();
+        }
+        logStatistics(pendingWhenClosing, System.nanoTime() - drainStartedAt);
+    }
+
+    private void logStatistics(int pendingWhenClosing, long drainNanos) {
+        int uploads = backgroundUploads.get() + synchronousUploads.get();
+        LOGGER.info(
+            "Uploaded {} build cache entries to the remote build cache, {} of them right away because the queue of {} was full. " +
+                "Maximum queue depth: {}, average wait in queue: {} ms, average upload: {} ms, maximum upload: {} ms. " +
+                "Waited {} ms for {} pending uploads at the end of the build.",
+            uploads,
+            synchronousUploads.get(),
+            queueSize,
+            maxQueueDepth.get(),
+            averageMillis(totalWaitingNanos.get(), backgroundUploads.get()),
+            averageMillis(totalUploadNanos.get(), uploads),
+            TimeUnit.NANOSECONDS.toMillis(maxUploadNanos.get()),
+            TimeUnit.NANOSECONDS.toMillis(drainNanos),
+            pendingWhenClosing
+        );
+    }
+
+    private static long averageMillis(long totalNanos, int count) {
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos / count);
+    }
+}
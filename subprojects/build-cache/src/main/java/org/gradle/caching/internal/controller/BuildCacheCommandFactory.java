@@ -33,5 +33,10 @@ public interface BuildCacheCommandFactory {
     interface LoadMetadata {
         OriginMetadata getOriginMetadata();
         ImmutableSortedMap<String, CurrentFileCollectionFingerprint> getResultingSnapshots();
+
+        /**
+         * Whether the loaded outputs may be hard links to the contents of the local build cache.
+         */
+        boolean hasLinkedOutputs();
     }
 }
@@ -18,6 +18,7 @@
 
 import org.gradle.caching.BuildCacheKey;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -32,6 +33,13 @@
      */
     Result<T> load(InputStream inputStream) throws IOException;
 
+    /**
+     * Like {@link #load(InputStream)}, for artifacts from the local build cache which may refer to contents in the given directory instead of containing them.
+     */
+    default Result<T> load(InputStream inputStream, File linkedContentDirectory) throws IOException {
+        return load(inputStream);
+    }
+
     interface Result<T> {
 
         /**
@@ -20,6 +20,7 @@
 import com.google.common.io.Closer;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.internal.controller.operations.PackOperationDetails;
@@ -50,6 +51,7 @@
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Optional;
 
 public class DefaultBuildCacheController implements BuildCacheController {
@@ -61,19 +63,35 @@ public class DefaultBuildCacheController implements BuildCacheController {
     final LocalBuildCacheServiceHandle local;
 
     private final BuildCacheTempFileStore tmp;
+    private final BuildCacheEntryTranscoder remoteEntryTranscoder;
+    private final BuildCacheEntryTranscoder localEntryTranscoder;
+    private final AsyncBuildCacheUploader remoteUploader;
     private final BuildOperationExecutor buildOperationExecutor;
     private final boolean emitDebugLogging;
 
     private boolean closed;
 
+    /**
+     * Creates a controller which packs entries in the format of the local cache.
+     *
+     * @param remoteEntryTranscoder converts entries into the format of the remote cache before storing them there, if the formats differ.
+     * @param localEntryTranscoder converts entries loaded from the remote cache into the format of the local cache before storing them there, if the formats differ.
+     * @param remoteUploader stores entries in the remote cache in the background, if given.
+     */
     public DefaultBuildCacheController(
         BuildCacheServicesConfiguration config,
         BuildOperationExecutor buildOperationExecutor,
         File gradleUserHomeDir,
         boolean logStackTraces,
         boolean emitDebugLogging,
-        boolean disableRemoteOnError
+        boolean disableRemoteOnError,
+        @Nullable BuildCacheEntryTranscoder remoteEntryTranscoder,
+        @Nullable BuildCacheEntryTranscoder localEntryTranscoder,
+        @Nullable AsyncBuildCacheUploader remoteUploader
     ) {
+        this.remoteEntryTranscoder = remoteEntryTranscoder;
+        this.localEntryTranscoder = localEntryTranscoder;
+        this.remoteUploader = remoteUploader;
         this.buildOperationExecutor = buildOperationExecutor;
         this.emitDebugLogging = emitDebugLogging;
         this.local = toLocalHandle(config.getLocal(), config.isLocalPush());
@@ -81,6 +99,20 @@ public DefaultBuildCacheController(
         this.tmp = toTempFileStore(config.getLocal(), gradleUserHomeDir);
     }
 
+    /**
+     * Creates a controller which stores entries in the format they are packed in, and stores them in the remote cache while storing the entry.
+     */
+    public static DefaultBuildCacheController create(
+        BuildCacheServicesConfiguration config,
+        BuildOperationExecutor buildOperationExecutor,
+        File gradleUserHomeDir,
+        boolean logStackTraces,
+        boolean emitDebugLogging,
+        boolean disableRemoteOnError
+    ) {
+        return new DefaultBuildCacheController(config, buildOperationExecutor, gradleUserHomeDir, logStackTraces, emitDebugLogging, disableRemoteOnError, null, null, null);
+    }
+
     @Override
     public boolean isEnabled() {
         return true;
@@ -93,20 +125,22 @@ public boolean isEmitDebugLogging() {
 
     @Override
     public <T> Optional<T> load(BuildCacheLoadCommand<T> command) {
-        final Unpack<T> unpack = new Unpack<>(command);
-
         if (local.canLoad()) {
+            Unpack<T> localUnpack = new Unpack<>(command, local.getLinkedContentDirectory());
             try {
-                local.load(command.getKey(), unpack);
+                local.load(command.getKey(), localUnpack);
             } catch (Exception e) {
                 throw new GradleException("Build cache entry " + command.getKey().getHashCode() + " from local build cache is invalid", e);
             }
 
-            if (unpack.result != null) {
-                return Optional.of(unpack.result.getMetadata());
+            if (localUnpack.result != null) {
+                return Optional.of(localUnpack.result.getMetadata());
             }
         }
 
+        // Entries from the remote cache must contain all their contents
+        final Unpack<T> unpack = new Unpack<>(command, null);
+
         if (remote.canLoad()) {
             tmp.withTempFile(command.getKey(), file -> {
                 LoadTarget loadTarget = new LoadTarget(file);
@@ -119,7 +153,7 @@ public <T> Optional<T> load(BuildCacheLoadCommand<T> command) {
                         throw new GradleException("Build cache entry " + command.getKey().getHashCode() + " from remote build cache is invalid", e);
                     }
                     if (local.canStore()) {
-                        local.store(command.getKey(), file);
+                        storeLocally(command.getKey(), file);
                     }
                 }
             });
@@ -133,11 +167,13 @@ public <T> Optional<T> load(BuildCacheLoadCommand<T> command) {
 
     private class Unpack<T> implements Action<File> {
         private final BuildCacheLoadCommand<T> command;
+        private final File linkedContentDirectory;
 
         private BuildCacheLoadCommand.Result<T> result;
 
-        private Unpack(BuildCacheLoadCommand<T> command) {
+        private Unpack(BuildCacheLoadCommand<T> command, @Nullable File linkedContentDirectory) {
             this.command = command;
+            this.linkedContentDirectory = linkedContentDirectory;
         }
 
         @Override
@@ -146,7 +182,9 @@ public void execute(File file) {
                 @Override
                 public void run(BuildOperationContext context) throws IOException {
                     try (InputStream input = new FileInputStream(file)) {
-                        result = command.load(input);
+                        result = linkedContentDirectory == null
+                            ? command.load(input)
+                            : command.load(input, linkedContentDirectory);
                         context.setResult(new UnpackOperationResult(
                             result.getArtifactEntryCount()
                         ));
@@ -176,7 +214,11 @@ public void store(BuildCacheStoreCommand command) {
             pack.execute(file);
 
             if (remote.canStore()) {
-                remote.store(key, new StoreTarget(file));
+                if (remoteUploader == null) {
+                    storeRemotely(key, file);
+                } else {
+                    remoteUploader.upload(file, entry -> storeRemotely(key, entry));
+                }
             }
 
             if (local.canStore()) {
@@ -185,6 +227,36 @@ public void store(BuildCacheStoreCommand command) {
         });
     }
 
+    private void storeRemotely(BuildCacheKey key, File entry) {
+        if (remoteEntryTranscoder == null) {
+            remote.store(key, new StoreTarget(entry));
+        } else {
+            tmp.withTempFile(key, transcodedFile -> {
+                transcode(entry, transcodedFile, remoteEntryTranscoder);
+                remote.store(key, new StoreTarget(transcodedFile));
+            });
+        }
+    }
+
+    private void storeLocally(BuildCacheKey key, File remoteEntry) {
+        if (localEntryTranscoder == null) {
+            local.store(key, remoteEntry);
+        } else {
+            tmp.withTempFile(key, transcodedFile -> {
+                transcode(remoteEntry, transcodedFile, localEntryTranscoder);
+                local.store(key, transcodedFile);
+            });
+        }
+    }
+
+    private static void transcode(File entry, File target, BuildCacheEntryTranscoder transcoder) {
+        try (InputStream input = new FileInputStream(entry); OutputStream output = new FileOutputStream(target)) {
+            transcoder.transcode(input, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private class Pack implements Action<File> {
 
         private final BuildCacheStoreCommand command;
@@ -224,6 +296,10 @@ public void close() throws IOException {
             Closer closer = Closer.create();
             closer.register(local);
             closer.register(remote);
+            if (remoteUploader != null) {
+                // Closed first, so pending uploads can still use the remote cache
+                closer.register(remoteUploader);
+            }
             closer.close();
         }
     }
@@ -49,6 +49,12 @@ public void load(BuildCacheKey key, Action<? super File> reader) {
         service.loadLocally(key, reader);
     }
 
+    @Nullable
+    @Override
+    public File getLinkedContentDirectory() {
+        return service.getLinkedContentDirectory();
+    }
+
     @Override
     public boolean canStore() {
         return pushEnabled;
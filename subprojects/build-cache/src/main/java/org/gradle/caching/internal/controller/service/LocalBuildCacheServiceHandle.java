@@ -36,6 +36,9 @@ public interface LocalBuildCacheServiceHandle extends Closeable {
     // TODO: what if this errors?
     void load(BuildCacheKey key, Action<? super File> reader);
 
+    @Nullable
+    File getLinkedContentDirectory();
+
     boolean canStore();
 
     // TODO: what if this errors?
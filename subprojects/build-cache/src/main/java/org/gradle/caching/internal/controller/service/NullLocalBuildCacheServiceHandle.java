@@ -46,6 +46,12 @@ public void load(BuildCacheKey key, Action<? super File> reader) {
         throw new UnsupportedOperationException();
     }
 
+    @Nullable
+    @Override
+    public File getLinkedContentDirectory() {
+        return null;
+    }
+
     @Override
     public boolean canStore() {
         return false;
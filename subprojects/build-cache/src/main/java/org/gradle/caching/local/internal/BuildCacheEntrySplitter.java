@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Splits packed build cache entries into the contents of the files they contain and a structure describing everything else,
+ * and assembles entries from these parts again.
+ *
+ * This allows a local build cache to store each distinct file content only once, however many entries contain it.
+ */
+public interface BuildCacheEntrySplitter {
+
+    /**
+     * Reads the packed entry, storing the contents of its files in the blob store and writing the rest to the structure output.
+     */
+    void split(InputStream entry, OutputStream structure, BlobStore blobs) throws IOException;
+
+    /**
+     * Writes a packed entry from the structure previously written by {@link #split(InputStream, OutputStream, BlobStore)}
+     * and the file contents from the blob store.
+     */
+    void assemble(InputStream structure, BlobStore blobs, OutputStream entry) throws IOException;
+
+    interface BlobStore {
+        /**
+         * Stores the given number of bytes read from the input, returning the hash identifying the content.
+         */
+        HashCode store(InputStream content, long size) throws IOException;
+
+        /**
+         * Opens the content with the given hash.
+         */
+        InputStream load(HashCode hash) throws IOException;
+
+        /**
+         * Returns the file holding the content with the given hash when the assembled entry should refer to the file
+         * instead of containing the content, so that the content can be linked into place on unpacking.
+         * Returns {@code null} when the content should be copied into the entry.
+         */
+        @Nullable
+        File fileToLink(HashCode hash) throws IOException;
+    }
+}
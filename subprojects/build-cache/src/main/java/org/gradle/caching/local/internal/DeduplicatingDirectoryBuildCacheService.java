@@ -0,0 +1,421 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import com.google.common.io.ByteStreams;
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.PersistentCache;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.file.FileAccessTracker;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.HashingOutputStream;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * A local build cache which stores the contents of the files in cache entries by their hash, so that outputs shared
+ * by many entries are stored only once.
+ *
+ * For each cache key, a small manifest lists the referenced contents followed by the structure of the entry as written
+ * by the {@link BuildCacheEntrySplitter}. Loading an entry assembles it again from the manifest and the shared contents.
+ * Contents no longer referenced by any manifest are removed by {@link UnreferencedBlobsCleanup}.
+ *
+ * When linking contents on load, entries loaded locally refer to the stored contents instead of containing them,
+ * so that unpacking can hard-link the outputs to the stored contents instead of writing them again.
+ * The stored contents must then never be changed, and work must replace linked outputs with copies before changing them.
+ * Since other tools can still write through a link, each content is checked against its hash before it is used,
+ * and a changed content is removed, so that the entries referring to it are missing instead of restoring wrong outputs.
+ */
+public class DeduplicatingDirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
+    public static final String MANIFEST_SUFFIX = ".manifest";
+    public static final String BLOBS_DIRECTORY = "blobs";
+
+    // Contents up to this size are hashed in memory, so that contents already in the cache are never written
+    private static final int IN_MEMORY_CONTENT_LIMIT = 1024 * 1024;
+
+    private final File baseDir;
+    private final File blobsDir;
+    private final PersistentCache persistentCache;
+    private final BuildCacheTempFileStore tempFileStore;
+    private final FileAccessTracker fileAccessTracker;
+    private final BuildCacheEntrySplitter splitter;
+    private final String failedFileSuffix;
+    private final boolean linkContentsOnLoad;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public DeduplicatingDirectoryBuildCacheService(PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, BuildCacheEntrySplitter splitter, String failedFileSuffix) {
+        this(persistentCache, tempFileStore, fileAccessTracker, splitter, failedFileSuffix, false);
+    }
+
+    public DeduplicatingDirectoryBuildCacheService(PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, FileAccessTracker fileAccessTracker, BuildCacheEntrySplitter splitter, String failedFileSuffix, boolean linkContentsOnLoad) {
+        this.baseDir = persistentCache.getBaseDir();
+        this.blobsDir = new File(baseDir, BLOBS_DIRECTORY);
+        this.persistentCache = persistentCache;
+        this.tempFileStore = tempFileStore;
+        this.fileAccessTracker = fileAccessTracker;
+        this.splitter = splitter;
+        this.failedFileSuffix = failedFileSuffix;
+        this.linkContentsOnLoad = linkContentsOnLoad;
+    }
+
+    @Override
+    public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        boolean[] loaded = new boolean[1];
+        // The reader may not know how to unpack an entry with linked contents
+        load(key, false, file -> {
+            try (InputStream input = new FileInputStream(file)) {
+                reader.readFrom(input);
+                loaded[0] = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return loaded[0];
+    }
+
+    @Override
+    public void loadLocally(BuildCacheKey key, Action<? super File> reader) {
+        load(key, linkContentsOnLoad, reader);
+    }
+
+    @Nullable
+    @Override
+    public File getLinkedContentDirectory() {
+        return linkContentsOnLoad ? blobsDir : null;
+    }
+
+    private void load(BuildCacheKey key, boolean linkContents, Action<? super File> reader) {
+        // We need to lock other processes out here because garbage collection can be under way in another process
+        persistentCache.withFileLock(() -> {
+            lock.readLock().lock();
+            try {
+                loadInsideLock(key, linkContents, reader);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    private void loadInsideLock(BuildCacheKey key, boolean linkContents, Action<? super File> reader) {
+        File manifest = manifestFile(key);
+        if (!manifest.isFile()) {
+            return;
+        }
+        fileAccessTracker.markAccessed(manifest);
+
+        tempFileStore.withTempFile(key, entryFile -> {
+            try {
+                assemble(manifest, entryFile, linkContents);
+            } catch (MissingBlobException e) {
+                // Some content has been removed from the cache or has changed, so the entry is gone as well
+                GFileUtils.deleteQuietly(manifest);
+                return;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            try {
+                reader.execute(entryFile);
+            } catch (Exception e) {
+                // Try to move the manifest out of the way in case its permanently corrupt
+                // Don't delete, so that it can be potentially used for debugging
+                File failedFile = new File(manifest.getAbsolutePath() + failedFileSuffix);
+                GFileUtils.deleteQuietly(failedFile);
+                //noinspection ResultOfMethodCallIgnored
+                manifest.renameTo(failedFile);
+
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        });
+    }
+
+    private void assemble(File manifest, File entryFile, boolean linkContents) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)));
+             OutputStream output = new FileOutputStream(entryFile)) {
+            skipReferencedBlobs(input);
+            splitter.assemble(input, new DirectoryBlobStore(linkContents), output);
+        }
+    }
+
+    @Override
+    public void store(BuildCacheKey key, BuildCacheEntryWriter result) throws BuildCacheException {
+        tempFileStore.withTempFile(key, file -> {
+            try (OutputStream output = new FileOutputStream(file)) {
+                result.writeTo(output);
+            } catch (IOException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+
+            storeLocally(key, file);
+        });
+    }
+
+    @Override
+    public void storeLocally(BuildCacheKey key, File file) {
+        // Splitting takes most of the time, and storing contents is atomic, so only making the entry visible needs the locks
+        SplitEntry entry;
+        try {
+            entry = split(file);
+        } catch (IOException e) {
+            // Possibly a cleanup removed partially written contents, try again while holding the lock
+            entry = null;
+        }
+        SplitEntry splitEntry = entry;
+        persistentCache.withFileLock(() -> {
+            lock.writeLock().lock();
+            try {
+                storeInsideLock(key, file, splitEntry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private SplitEntry split(File file) throws IOException {
+        DirectoryBlobStore blobs = new DirectoryBlobStore(false);
+        ByteArrayOutputStream structure = new ByteArrayOutputStream();
+        try (InputStream input = new FileInputStream(file)) {
+            splitter.split(input, structure, blobs);
+        }
+        return new SplitEntry(blobs.getStoredBlobs(), structure);
+    }
+
+    private void storeInsideLock(BuildCacheKey key, File file, @Nullable SplitEntry splitEntry) throws IOException {
+        SplitEntry entry = splitEntry;
+        if (entry == null || !entry.hasAllBlobs()) {
+            // A cleanup removed some of the contents in the meantime
+            entry = split(file);
+        }
+        // Keep the blobs from being removed by older Gradle versions cleaning up the cache
+        fileAccessTracker.markAccessed(blobsDir);
+
+        File manifest = manifestFile(key);
+        File tempManifest = File.createTempFile(key.getHashCode() + "-", BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX, baseDir);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempManifest)))) {
+                output.writeInt(entry.referencedBlobs.size());
+                for (HashCode hash : entry.referencedBlobs) {
+                    byte[] bytes = hash.toByteArray();
+                    output.writeByte(bytes.length);
+                    output.write(bytes);
+                }
+                entry.structure.writeTo(output);
+            }
+            Files.move(tempManifest.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            GFileUtils.deleteQuietly(tempManifest);
+        }
+        fileAccessTracker.markAccessed(manifest);
+    }
+
+    @Override
+    public void withTempFile(BuildCacheKey key, Action<? super File> action) {
+        persistentCache.withFileLock(() -> tempFileStore.withTempFile(key, action));
+    }
+
+    @Override
+    public void close() {
+        persistentCache.close();
+    }
+
+    private File manifestFile(BuildCacheKey key) {
+        return new File(baseDir, key.getHashCode() + MANIFEST_SUFFIX);
+    }
+
+    static File blobFile(File blobsDir, HashCode hash) {
+        String name = hash.toString();
+        return new File(new File(blobsDir, name.substring(0, 2)), name.substring(2));
+    }
+
+    /**
+     * Reads the hashes of the contents referenced by the given manifest.
+     */
+    static void readReferencedBlobs(File manifest, Consumer<HashCode> consumer) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)))) {
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[input.readUnsignedByte()];
+                input.readFully(bytes);
+                consumer.accept(HashCode.fromBytes(bytes));
+            }
+        }
+    }
+
+    private static void skipReferencedBlobs(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            ByteStreams.skipFully(input, input.readUnsignedByte());
+        }
+    }
+
+    private class DirectoryBlobStore implements BuildCacheEntrySplitter.BlobStore {
+        private final boolean linkContents;
+        private final List<HashCode> storedBlobs = new ArrayList<>();
+
+        public DirectoryBlobStore(boolean linkContents) {
+            this.linkContents = linkContents;
+        }
+
+        @Override
+        public HashCode store(InputStream content, long size) throws IOException {
+            HashCode hash = size <= IN_MEMORY_CONTENT_LIMIT
+                ? storeFromMemory(content, (int) size)
+                : storeStreaming(content);
+            storedBlobs.add(hash);
+            return hash;
+        }
+
+        private HashCode storeFromMemory(InputStream content, int size) throws IOException {
+            byte[] bytes = new byte[size];
+            ByteStreams.readFully(content, bytes);
+            HashCode hash = Hashing.hashBytes(bytes);
+            File blob = blobFile(blobsDir, hash);
+            if (!blob.isFile()) {
+                File tempFile = createTempBlob();
+                try {
+                    Files.write(tempFile.toPath(), bytes);
+                    moveToBlob(tempFile, blob);
+                } finally {
+                    GFileUtils.deleteQuietly(tempFile);
+                }
+            }
+            return hash;
+        }
+
+        private HashCode storeStreaming(InputStream content) throws IOException {
+            File tempFile = createTempBlob();
+            try {
+                HashCode hash;
+                try (HashingOutputStream output = Hashing.primitiveStreamHasher(new FileOutputStream(tempFile))) {
+                    ByteStreams.copy(content, output);
+                    hash = output.hash();
+                }
+                File blob = blobFile(blobsDir, hash);
+                if (!blob.isFile()) {
+                    moveToBlob(tempFile, blob);
+                }
+                return hash;
+            } finally {
+                GFileUtils.deleteQuietly(tempFile);
+            }
+        }
+
+        private File createTempBlob() throws IOException {
+            GFileUtils.mkdirs(blobsDir);
+            return File.createTempFile("blob-", BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX, blobsDir);
+        }
+
+        private void moveToBlob(File tempFile, File blob) throws IOException {
+            GFileUtils.mkdirs(blob.getParentFile());
+            try {
+                Files.move(tempFile.toPath(), blob.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Stored by another process in the meantime
+            }
+        }
+
+        @Override
+        public InputStream load(HashCode hash) throws IOException {
+            return new FileInputStream(verifiedBlob(hash));
+        }
+
+        @Nullable
+        @Override
+        public File fileToLink(HashCode hash) throws IOException {
+            if (!linkContents) {
+                return null;
+            }
+            return verifiedBlob(hash);
+        }
+
+        private File verifiedBlob(HashCode hash) throws IOException {
+            File blob = blobFile(blobsDir, hash);
+            HashCode actualHash;
+            try (HashingOutputStream output = Hashing.primitiveStreamHasher()) {
+                Files.copy(blob.toPath(), output);
+                actualHash = output.hash();
+            } catch (NoSuchFileException e) {
+                throw new MissingBlobException(String.format("Build cache content %s is missing.", blob));
+            }
+            if (!actualHash.equals(hash)) {
+                // Written through a link to an output, or corrupted otherwise
+                GFileUtils.deleteQuietly(blob);
+                throw new MissingBlobException(String.format("Build cache content %s has changed and has been removed.", blob));
+            }
+            return blob;
+        }
+
+        public List<HashCode> getStoredBlobs() {
+            return storedBlobs;
+        }
+    }
+
+    private class SplitEntry {
+        private final List<HashCode> referencedBlobs;
+        private final ByteArrayOutputStream structure;
+
+        public SplitEntry(List<HashCode> referencedBlobs, ByteArrayOutputStream structure) {
+            this.referencedBlobs = referencedBlobs;
+            this.structure = structure;
+        }
+
+        public boolean hasAllBlobs() {
+            for (HashCode hash : referencedBlobs) {
+                if (!blobFile(blobsDir, hash).isFile()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class MissingBlobException extends IOException {
+        public MissingBlobException(String message) {
+            super(message);
+        }
+    }
+}
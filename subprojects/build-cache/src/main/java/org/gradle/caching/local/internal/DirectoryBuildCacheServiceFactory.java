@@ -19,9 +19,11 @@
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
+import org.gradle.cache.CleanupAction;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.internal.CacheScopeMapping;
 import org.gradle.cache.internal.CleanupActionFactory;
+import org.gradle.cache.internal.CompositeCleanupAction;
 import org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup;
 import org.gradle.cache.internal.SingleDepthFilesFinder;
 import org.gradle.cache.internal.VersionStrategy;
@@ -36,6 +38,8 @@
 
 import javax.inject.Inject;
 import java.io.File;
+import java.io.FileFilter;
+import java.nio.file.FileSystems;
 
 import static org.gradle.cache.FileLockManager.LockMode.OnDemand;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
@@ -43,6 +47,20 @@
 public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFactory<DirectoryBuildCache> {
     public static final String FAILED_READ_SUFFIX = ".failed";
 
+    /**
+     * When enabled, the local build cache stores the contents of the files in cache entries only once,
+     * instead of storing each entry as a separate archive. See {@link DeduplicatingDirectoryBuildCacheService}.
+     */
+    public static final String DEDUPLICATION_PROPERTY = "org.gradle.internal.caching.local.deduplicate";
+
+    /**
+     * When enabled together with {@link #DEDUPLICATION_PROPERTY}, outputs are restored from the local build cache
+     * by hard-linking them to the stored contents instead of writing them again.
+     *
+     * @see #isLinkingOnLoadEnabled()
+     */
+    public static final String LINK_ON_LOAD_PROPERTY = "org.gradle.internal.caching.local.link";
+
     private static final String BUILD_CACHE_VERSION = "1";
     private static final String BUILD_CACHE_KEY = "build-cache-" + BUILD_CACHE_VERSION;
     private static final String DIRECTORY_BUILD_CACHE_TYPE = "directory";
@@ -54,16 +72,18 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
     private final DirectoryBuildCacheFileStoreFactory fileStoreFactory;
     private final CleanupActionFactory cleanupActionFactory;
     private final FileAccessTimeJournal fileAccessTimeJournal;
+    private final BuildCacheEntrySplitter entrySplitter;
 
     @Inject
     public DirectoryBuildCacheServiceFactory(CacheRepository cacheRepository, CacheScopeMapping cacheScopeMapping, PathToFileResolver resolver, DirectoryBuildCacheFileStoreFactory fileStoreFactory,
-                                             CleanupActionFactory cleanupActionFactory, FileAccessTimeJournal fileAccessTimeJournal) {
+                                             CleanupActionFactory cleanupActionFactory, FileAccessTimeJournal fileAccessTimeJournal, BuildCacheEntrySplitter entrySplitter) {
         this.cacheRepository = cacheRepository;
         this.cacheScopeMapping = cacheScopeMapping;
         this.resolver = resolver;
         this.fileStoreFactory = fileStoreFactory;
         this.cleanupActionFactory = cleanupActionFactory;
         this.fileAccessTimeJournal = fileAccessTimeJournal;
+        this.entrySplitter = entrySplitter;
     }
 
     @Override
@@ -78,14 +98,26 @@ public BuildCacheService createBuildCacheService(DirectoryBuildCache configurati
         checkDirectory(target);
 
         int removeUnusedEntriesAfterDays = configuration.getRemoveUnusedEntriesAfterDays();
+        boolean deduplicate = Boolean.getBoolean(DEDUPLICATION_PROPERTY);
         describer.type(DIRECTORY_BUILD_CACHE_TYPE).
             config("location", target.getAbsolutePath()).
             config("removeUnusedEntriesAfter", String.valueOf(removeUnusedEntriesAfterDays) + " days");
+        if (deduplicate) {
+            describer.config("deduplicated", "true");
+            if (isLinkingOnLoadEnabled()) {
+                describer.config("linkOnLoad", "true");
+            }
+        }
 
-        PathKeyFileStore fileStore = fileStoreFactory.createFileStore(target);
+        CleanupAction cleanupAction = deduplicate
+            ? CompositeCleanupAction.builder()
+                .add(new LeastRecentlyUsedCacheCleanup(DirectoryBuildCacheServiceFactory::findEntriesOutsideOfBlobs, fileAccessTimeJournal, removeUnusedEntriesAfterDays))
+                .add(new UnreferencedBlobsCleanup())
+                .build()
+            : new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesAfterDays);
         PersistentCache persistentCache = cacheRepository
             .cache(target)
-            .withCleanup(cleanupActionFactory.create(new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesAfterDays)))
+            .withCleanup(cleanupActionFactory.create(cleanupAction))
             .withDisplayName("Build cache")
             .withLockOptions(mode(OnDemand))
             .withCrossVersionCache(CacheBuilder.LockTarget.DefaultTarget)
@@ -93,9 +125,32 @@ public BuildCacheService createBuildCacheService(DirectoryBuildCache configurati
         BuildCacheTempFileStore tempFileStore = new DefaultBuildCacheTempFileStore(target);
         FileAccessTracker fileAccessTracker = new SingleDepthFileAccessTracker(fileAccessTimeJournal, target, FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
 
+        if (deduplicate) {
+            return new DeduplicatingDirectoryBuildCacheService(persistentCache, tempFileStore, fileAccessTracker, entrySplitter, FAILED_READ_SUFFIX, isLinkingOnLoadEnabled());
+        }
+        PathKeyFileStore fileStore = fileStoreFactory.createFileStore(target);
         return new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, fileAccessTracker, FAILED_READ_SUFFIX);
     }
 
+    /**
+     * Whether outputs are restored from the local build cache by hard-linking them.
+     *
+     * Work needs to replace linked outputs with copies before changing them, so that the cached contents stay intact.
+     * Such outputs are recorded in the execution history, and detected by their number of links.
+     * Linking is therefore only used when the file system reports the number of links to a file.
+     */
+    private static boolean isLinkingOnLoadEnabled() {
+        return Boolean.getBoolean(DEDUPLICATION_PROPERTY)
+            && Boolean.getBoolean(LINK_ON_LOAD_PROPERTY)
+            && FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    }
+
+    private static Iterable<File> findEntriesOutsideOfBlobs(File baseDir, FileFilter filter) {
+        // Stored contents are removed once no manifest references them anymore
+        File blobsDir = new File(baseDir, DeduplicatingDirectoryBuildCacheService.BLOBS_DIRECTORY);
+        return new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP).find(baseDir, file -> !file.equals(blobsDir) && filter.accept(file));
+    }
+
     private static void checkDirectory(File directory) {
         if (directory.exists()) {
             if (!directory.isDirectory()) {
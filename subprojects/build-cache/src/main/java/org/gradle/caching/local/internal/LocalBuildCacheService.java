@@ -19,6 +19,7 @@
 import org.gradle.api.Action;
 import org.gradle.caching.BuildCacheKey;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.File;
 
@@ -34,6 +35,14 @@ public interface LocalBuildCacheService extends BuildCacheTempFileStore, Closeab
      */
     void loadLocally(BuildCacheKey key, Action<? super File> reader);
 
+    /**
+     * The directory containing the contents the entries loaded via {@link #loadLocally(BuildCacheKey, Action)} may refer to, if any.
+     */
+    @Nullable
+    default File getLinkedContentDirectory() {
+        return null;
+    }
+
     /**
      * Store the given file in the local file store as a cache artifact.
      */
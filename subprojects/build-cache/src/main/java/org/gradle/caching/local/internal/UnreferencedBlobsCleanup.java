@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import com.google.common.collect.Iterables;
+import org.gradle.cache.CleanableStore;
+import org.gradle.cache.CleanupProgressMonitor;
+import org.gradle.cache.internal.AbstractCacheCleanup;
+import org.gradle.cache.internal.SingleDepthFilesFinder;
+import org.gradle.internal.hash.HashCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Removes the contents stored by {@link DeduplicatingDirectoryBuildCacheService} which are no longer referenced by any manifest,
+ * together with partially written contents left behind by interrupted builds.
+ *
+ * Should run after the manifests of unused entries have been removed.
+ */
+public class UnreferencedBlobsCleanup extends AbstractCacheCleanup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnreferencedBlobsCleanup.class);
+
+    private final Set<HashCode> referencedBlobs = new HashSet<>();
+
+    public UnreferencedBlobsCleanup() {
+        super((baseDir, filter) -> {
+            File blobsDir = new File(baseDir, DeduplicatingDirectoryBuildCacheService.BLOBS_DIRECTORY);
+            return Iterables.concat(
+                new SingleDepthFilesFinder(1).find(blobsDir, file -> file.isFile() && filter.accept(file)),
+                new SingleDepthFilesFinder(2).find(blobsDir, filter)
+            );
+        });
+    }
+
+    @Override
+    public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
+        File[] manifests = cleanableStore.getBaseDir().listFiles((dir, name) -> name.endsWith(DeduplicatingDirectoryBuildCacheService.MANIFEST_SUFFIX));
+        if (manifests != null) {
+            for (File manifest : manifests) {
+                try {
+                    DeduplicatingDirectoryBuildCacheService.readReferencedBlobs(manifest, referencedBlobs::add);
+                } catch (IOException e) {
+                    // Loading the entry fails as well, so its contents don't need to be kept
+                    LOGGER.debug("Could not read build cache manifest {}.", manifest, e);
+                }
+            }
+        }
+        try {
+            super.clean(cleanableStore, progressMonitor);
+        } finally {
+            referencedBlobs.clear();
+        }
+    }
+
+    @Override
+    protected boolean shouldDelete(File file) {
+        if (file.getName().endsWith(BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX)) {
+            return true;
+        }
+        try {
+            return !referencedBlobs.contains(HashCode.fromString(file.getParentFile().getName() + file.getName()));
+        } catch (IllegalArgumentException e) {
+            // Not a content stored by the build cache
+            return true;
+        }
+    }
+
+    @Override
+    protected void handleDeletion(File file) {
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class AsyncBuildCacheUploaderTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def executorFactory = new DefaultExecutorFactory()
+    def entry = temporaryFolder.file("entry").text("content")
+    def release = new CountDownLatch(1)
+
+    def cleanup() {
+        release.countDown()
+        executorFactory.stop()
+    }
+
+    def "uploads entries in the background"() {
+        def uploader = new AsyncBuildCacheUploader(executorFactory, 1, 1, 60)
+        def uploaded = []
+
+        when:
+        uploader.upload(entry) { File file ->
+            release.await()
+            uploaded << file.text
+        }
+        entry.delete()
+
+        then:
+        uploader.queueDepth == 1
+        uploaded.empty
+
+        when:
+        release.countDown()
+        uploader.close()
+
+        then:
+        uploaded == ["content"]
+        uploader.queueDepth == 0
+        uploader.maxQueueDepth == 1
+        temporaryFolder.testDirectory.listFiles().toList().empty
+    }
+
+    def "uploads entries right away when the queue is full"() {
+        def uploader = new AsyncBuildCacheUploader(executorFactory, 1, 1, 60)
+        def uploadingThreads = []
+
+        when:
+        uploader.upload(entry) { release.await() }
+        uploader.upload(entry) { uploadingThreads << Thread.currentThread() }
+
+        then:
+        uploadingThreads == [Thread.currentThread()]
+
+        cleanup:
+        release.countDown()
+        uploader.close()
+    }
+
+    def "uploads entries right away after closing"() {
+        def uploader = new AsyncBuildCacheUploader(executorFactory, 1, 1, 60)
+        def uploadingThreads = []
+        uploader.upload(entry) {}
+        uploader.close()
+
+        when:
+        uploader.upload(entry) { uploadingThreads << Thread.currentThread() }
+
+        then:
+        uploadingThreads == [Thread.currentThread()]
+        uploader.queueDepth == 0
+        temporaryFolder.testDirectory.listFiles()*.name == ["entry"]
+    }
+
+    def "uploads entries right away when the entry cannot be kept for uploading"() {
+        def uploader = new AsyncBuildCacheUploader(executorFactory, 1, 1, 60)
+        // Blocks both linking and copying the entry
+        temporaryFolder.file("entry.upload/blocking").text = "blocking"
+        def uploads = []
+
+        when:
+        uploader.upload(entry) { File file -> uploads << [Thread.currentThread(), file.text] }
+
+        then:
+        uploads == [[Thread.currentThread(), "content"]]
+        uploader.queueDepth == 0
+
+        when:
+        uploader.upload(entry) { release.await() }
+
+        then:
+        uploader.queueDepth == 1
+
+        cleanup:
+        release.countDown()
+        uploader.close()
+    }
+
+    def "failing uploads do not fail the build"() {
+        def uploader = new AsyncBuildCacheUploader(executorFactory, 1, 1, 60)
+
+        when:
+        uploader.upload(entry) { throw new RuntimeException("boom") }
+        uploader.close()
+
+        then:
+        noExceptionThrown()
+        uploader.queueDepth == 0
+    }
+
+    def "stops waiting for pending uploads after the timeout"() {
+        def uploader = new AsyncBuildCacheUploader(executorFactory, 1, 2, 0)
+
+        when:
+        uploader.upload(entry) { release.await(10, TimeUnit.SECONDS) }
+        uploader.close()
+
+        then:
+        noExceptionThrown()
+        temporaryFolder.testDirectory.listFiles()*.name == ["entry"]
+    }
+}
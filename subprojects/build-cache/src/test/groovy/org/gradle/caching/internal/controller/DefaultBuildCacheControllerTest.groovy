@@ -83,14 +83,13 @@ class DefaultBuildCacheControllerTest extends Specification {
 
     interface Local extends BuildCacheService, LocalBuildCacheService {}
 
+    BuildCacheServicesConfiguration getConfiguration() {
+        new BuildCacheServicesConfiguration(local, localPush, remote, remotePush)
+    }
+
     BuildCacheController getController(boolean disableRemoteOnError = true) {
-        new DefaultBuildCacheController(
-            new BuildCacheServicesConfiguration(
-                local,
-                localPush,
-                remote,
-                remotePush
-            ),
+        DefaultBuildCacheController.create(
+            configuration,
             operations,
             tmpDir.file("dir"),
             false,
@@ -99,6 +98,20 @@ class DefaultBuildCacheControllerTest extends Specification {
         )
     }
 
+    BuildCacheController getController(boolean disableRemoteOnError, BuildCacheEntryTranscoder remoteEntryTranscoder, AsyncBuildCacheUploader remoteUploader = null, BuildCacheEntryTranscoder localEntryTranscoder = null) {
+        new DefaultBuildCacheController(
+            configuration,
+            operations,
+            tmpDir.file("dir"),
+            false,
+            false,
+            disableRemoteOnError,
+            remoteEntryTranscoder,
+            localEntryTranscoder,
+            remoteUploader
+        )
+    }
+
     def "does suppress exceptions from load"() {
         given:
         1 * remote.load(key, _) >> { throw new RuntimeException() }
@@ -177,6 +190,45 @@ class DefaultBuildCacheControllerTest extends Specification {
         1 * local.storeLocally(key, _)
     }
 
+    def "local load may refer to linked contents"() {
+        given:
+        def linkedContentDirectory = tmpDir.file("blobs")
+        local.getLinkedContentDirectory() >> linkedContentDirectory
+        def command = Mock(BuildCacheLoadCommand) {
+            getKey() >> key
+        }
+        1 * local.loadLocally(key, _) >> { BuildCacheKey key, Action<File> action ->
+            action.execute(tmpDir.file("file").createFile())
+        }
+
+        when:
+        controller.load(command)
+
+        then:
+        1 * command.load(_ as InputStream, linkedContentDirectory) >> Stub(BuildCacheLoadCommand.Result)
+        0 * command.load(_ as InputStream)
+    }
+
+    def "remote load may not refer to linked contents"() {
+        given:
+        local.getLinkedContentDirectory() >> tmpDir.file("blobs")
+        def command = Mock(BuildCacheLoadCommand) {
+            getKey() >> key
+        }
+        1 * local.loadLocally(key, _) // miss
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("foo".bytes))
+            true
+        }
+
+        when:
+        controller.load(command)
+
+        then:
+        1 * command.load(_ as InputStream) >> Stub(BuildCacheLoadCommand.Result)
+        0 * command.load(_ as InputStream, _ as File)
+    }
+
     def "remote load does not store to local if local is disabled"() {
         given:
         local = null
@@ -272,6 +324,90 @@ class DefaultBuildCacheControllerTest extends Specification {
         1 * remote.store(key, _)
     }
 
+    def "stores transcoded entry to remote"() {
+        given:
+        local = null
+        def transcoder = Mock(BuildCacheEntryTranscoder)
+        def packingStoreCommand = Stub(BuildCacheStoreCommand) {
+            getKey() >> key
+            store(_ as OutputStream) >> { OutputStream output ->
+                output.write("packed".bytes)
+                output.close()
+                Stub(BuildCacheStoreCommand.Result)
+            }
+        }
+        def stored = new ByteArrayOutputStream()
+
+        when:
+        getController(true, transcoder).store(packingStoreCommand)
+
+        then:
+        1 * transcoder.transcode(_ as InputStream, _ as OutputStream) >> { InputStream entry, OutputStream target ->
+            target.write(entry.text.toUpperCase().bytes)
+        }
+        1 * remote.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            writer.writeTo(stored)
+        }
+        stored.toString() == "PACKED"
+    }
+
+    def "stores transcoded remote entry to local"() {
+        given:
+        def tempFiles = 0
+        local = Mock(Local) {
+            withTempFile(_ as BuildCacheKey, _ as Action) >> { key, action ->
+                action.execute(tmpDir.file("file${tempFiles++}"))
+            }
+        }
+        def transcoder = Mock(BuildCacheEntryTranscoder)
+        String storedLocally = null
+
+        when:
+        getController(true, null, null, transcoder).load(loadCommand)
+
+        then:
+        1 * local.loadLocally(key, _) // miss
+        1 * remote.load(key, _) >> { BuildCacheKey key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("remote".bytes))
+            true
+        }
+        1 * transcoder.transcode(_ as InputStream, _ as OutputStream) >> { InputStream entry, OutputStream target ->
+            target.write(entry.text.toUpperCase().bytes)
+        }
+        1 * local.storeLocally(key, _) >> { BuildCacheKey key, File file ->
+            storedLocally = file.text
+        }
+        storedLocally == "REMOTE"
+    }
+
+    def "stores entry to remote through the remote uploader"() {
+        given:
+        def uploader = Mock(AsyncBuildCacheUploader)
+
+        when:
+        def controller = getController(true, null, uploader)
+        controller.store(storeCommand)
+
+        then:
+        1 * uploader.upload(_ as File, _ as Action) >> { File entry, Action upload ->
+            upload.execute(entry)
+        }
+        1 * remote.store(key, _)
+        1 * local.store(key, _)
+
+        when:
+        controller.close()
+
+        then:
+        1 * uploader.close()
+
+        then:
+        1 * remote.close()
+
+        then:
+        1 * local.close()
+    }
+
     def "close only closes once"() {
         when:
         def controller = getController()
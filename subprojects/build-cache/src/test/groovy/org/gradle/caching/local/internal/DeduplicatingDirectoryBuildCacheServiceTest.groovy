@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal
+
+import groovy.io.FileType
+import org.gradle.cache.CleanableStore
+import org.gradle.cache.CleanupProgressMonitor
+import org.gradle.cache.PersistentCache
+import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.file.FileAccessTracker
+import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+@UsesNativeServices
+@CleanupTestDirectory
+class DeduplicatingDirectoryBuildCacheServiceTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+    def cacheDir = temporaryFolder.createDir("cache")
+    def persistentCache = Mock(PersistentCache) {
+        getBaseDir() >> cacheDir
+        withFileLock(_) >> { Runnable r -> r.run() }
+    }
+    def tempFileStore = new DefaultBuildCacheTempFileStore(cacheDir)
+    def fileAccessTracker = Mock(FileAccessTracker)
+    def service = new DeduplicatingDirectoryBuildCacheService(persistentCache, tempFileStore, fileAccessTracker, new LinesSplitter(), ".failed")
+
+    def "loads stored entry"() {
+        def key = key("1234abcd")
+
+        when:
+        service.storeLocally(key, entry("first\nsecond\n"))
+
+        then:
+        loadLocally(key) == "first\nsecond\n"
+    }
+
+    def "does not load missing entry"() {
+        def loaded = false
+
+        when:
+        service.loadLocally(key("1234abcd"), { loaded = true })
+
+        then:
+        !loaded
+    }
+
+    def "stores shared content only once"() {
+        when:
+        service.storeLocally(key("1234abcd"), entry("shared\nfirst\n"))
+        service.storeLocally(key("5678abcd"), entry("shared\nsecond\n"))
+
+        then:
+        blobs().size() == 3
+        loadLocally(key("1234abcd")) == "shared\nfirst\n"
+        loadLocally(key("5678abcd")) == "shared\nsecond\n"
+    }
+
+    def "marks manifest accessed when storing and loading"() {
+        def key = key("1234abcd")
+        def manifest = new File(cacheDir, "1234abcd.manifest")
+
+        when:
+        service.storeLocally(key, entry("content\n"))
+
+        then:
+        1 * fileAccessTracker.markAccessed(manifest)
+
+        when:
+        loadLocally(key)
+
+        then:
+        1 * fileAccessTracker.markAccessed(manifest)
+    }
+
+    def "treats entry with missing content as a miss"() {
+        def key = key("1234abcd")
+        service.storeLocally(key, entry("content\n"))
+        blobs()*.delete()
+        def loaded = false
+
+        when:
+        service.loadLocally(key, { loaded = true })
+
+        then:
+        !loaded
+        !new File(cacheDir, "1234abcd.manifest").exists()
+    }
+
+    def "treats entry with changed content as a miss and removes the content"() {
+        def linkingService = new DeduplicatingDirectoryBuildCacheService(persistentCache, tempFileStore, fileAccessTracker, new LinesSplitter(), ".failed", true)
+        def key = key("1234abcd")
+        linkingService.storeLocally(key, entry("content\n"))
+        // Simulates writing to an output linked to the content
+        blobs()*.text = "changed"
+        def loaded = false
+
+        when:
+        linkingService.loadLocally(key, { loaded = true })
+
+        then:
+        !loaded
+        blobs().empty
+        !new File(cacheDir, "1234abcd.manifest").exists()
+    }
+
+    def "moves manifest out of the way when loading fails"() {
+        def key = key("1234abcd")
+        service.storeLocally(key, entry("content\n"))
+
+        when:
+        service.loadLocally(key, { throw new RuntimeException("Simulated read error") })
+
+        then:
+        def ex = thrown RuntimeException
+        ex.message == "Simulated read error"
+        !new File(cacheDir, "1234abcd.manifest").exists()
+        new File(cacheDir, "1234abcd.manifest.failed").exists()
+    }
+
+    def "cleanup removes content not referenced by any manifest"() {
+        service.storeLocally(key("1234abcd"), entry("shared\nfirst\n"))
+        service.storeLocally(key("5678abcd"), entry("shared\nsecond\n"))
+        def partialBlob = new File(cacheDir, "blobs/blob-1234${BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX}")
+        partialBlob.text = "partial"
+
+        when:
+        new File(cacheDir, "1234abcd.manifest").delete()
+        new UnreferencedBlobsCleanup().clean(cleanableStore(), CleanupProgressMonitor.NO_OP)
+
+        then:
+        blobs().size() == 2
+        !partialBlob.exists()
+        loadLocally(key("5678abcd")) == "shared\nsecond\n"
+    }
+
+    def "stores contents again when they are removed before the entry is stored"() {
+        def splitter = new LinesSplitter() {
+            boolean cleanedUp
+
+            @Override
+            void split(InputStream entry, OutputStream structure, BuildCacheEntrySplitter.BlobStore blobStore) throws IOException {
+                super.split(entry, structure, blobStore)
+                if (!cleanedUp) {
+                    // Simulate a cleanup running before the entry is stored
+                    cleanedUp = true
+                    new File(cacheDir, "blobs").eachFileRecurse(FileType.FILES) { it.delete() }
+                }
+            }
+        }
+        def cleanedUpService = new DeduplicatingDirectoryBuildCacheService(persistentCache, tempFileStore, fileAccessTracker, splitter, ".failed")
+        def key = key("1234abcd")
+        String content = null
+
+        when:
+        cleanedUpService.storeLocally(key, entry("first\nsecond\n"))
+        cleanedUpService.loadLocally(key, { File file -> content = file.text })
+
+        then:
+        splitter.cleanedUp
+        content == "first\nsecond\n"
+        blobs().size() == 2
+    }
+
+    def "refers to stored contents only when loading locally with linking enabled"() {
+        def linkingService = new DeduplicatingDirectoryBuildCacheService(persistentCache, tempFileStore, fileAccessTracker, new LinesSplitter(), ".failed", true)
+        def key = key("1234abcd")
+        linkingService.storeLocally(key, entry("content\n"))
+        String loadedLocally = null
+        String loaded = null
+
+        when:
+        linkingService.loadLocally(key, { File file -> loadedLocally = file.text })
+        linkingService.load(key, { InputStream input -> loaded = input.text })
+
+        then:
+        loadedLocally.startsWith("link:")
+        new File(loadedLocally.substring("link:".length()).trim()).text == "content"
+        loaded == "content\n"
+    }
+
+    private BuildCacheKey key(String hashCode) {
+        Mock(BuildCacheKey) {
+            getHashCode() >> hashCode
+        }
+    }
+
+    private File entry(String content) {
+        def file = temporaryFolder.file("entry-${UUID.randomUUID()}")
+        file.text = content
+        file
+    }
+
+    private String loadLocally(BuildCacheKey key) {
+        String content = null
+        service.loadLocally(key, { File file -> content = file.text })
+        content
+    }
+
+    private List<File> blobs() {
+        def blobsDir = new File(cacheDir, "blobs")
+        (blobsDir.listFiles() ?: []).findAll { it.directory }.collectMany { it.listFiles() as List }
+    }
+
+    private CleanableStore cleanableStore() {
+        Stub(CleanableStore) {
+            getBaseDir() >> cacheDir
+            getReservedCacheFiles() >> []
+        }
+    }
+
+    /**
+     * Stores each line of an entry as separate content, and refers to the stored content when it should be linked.
+     */
+    private static class LinesSplitter implements BuildCacheEntrySplitter {
+        @Override
+        void split(InputStream entry, OutputStream structure, BuildCacheEntrySplitter.BlobStore blobs) throws IOException {
+            def hashes = entry.text.readLines().collect { line ->
+                def bytes = line.bytes
+                blobs.store(new ByteArrayInputStream(bytes), bytes.length).toString()
+            }
+            structure.write(hashes.join("\n").bytes)
+        }
+
+        @Override
+        void assemble(InputStream structure, BuildCacheEntrySplitter.BlobStore blobs, OutputStream entry) throws IOException {
+            structure.text.readLines().each { hash ->
+                def fileToLink = blobs.fileToLink(HashCode.fromString(hash))
+                if (fileToLink != null) {
+                    entry.write("link:${fileToLink.absolutePath}".bytes)
+                } else {
+                    blobs.load(HashCode.fromString(hash)).withStream { entry.write(it.bytes) }
+                }
+                entry.write("\n".bytes)
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ dependencies {
     implementation(project(":logging"))
     implementation(project(":core-api"))
     implementation(project(":core"))
+    implementation(project(":snapshots"))
     implementation(project(":build-option"))
 
     implementation(libs.guava)
@@ -17,11 +17,15 @@
 
 import com.google.common.collect.Maps;
 import org.gradle.StartParameter;
+import org.gradle.execution.plan.SchedulingDelayReason;
+import org.gradle.execution.plan.SchedulingSummary;
+import org.gradle.internal.vfs.FileSystemAccessStatistics;
 import org.gradle.util.CollectionUtils;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +52,10 @@ public class BuildProfile {
     private final Map<String, ProjectProfile> projects = new LinkedHashMap<String, ProjectProfile>();
     private final Map<String, ContinuousOperation> dependencySets = new LinkedHashMap<String, ContinuousOperation>();
     private final Map<String, FragmentedOperation> transformations = Maps.newLinkedHashMap();
+    private final FragmentedOperation taskGraphCalculation = new FragmentedOperation("Task graph calculation");
+    private final Map<SchedulingDelayReason, Long> schedulingWaitTimes = new EnumMap<SchedulingDelayReason, Long>(SchedulingDelayReason.class);
+    private final Map<SchedulingDelayReason, Integer> delayedTaskCounts = new EnumMap<SchedulingDelayReason, Integer>(SchedulingDelayReason.class);
+    private final Map<String, FileSystemAccessStatistics> fileSystemAccessStatistics = new LinkedHashMap<String, FileSystemAccessStatistics>();
     private long profilingStarted;
     private long buildStarted;
     private long settingsEvaluated;
@@ -152,6 +160,50 @@ public CompositeOperation<FragmentedOperation> getTransformations() {
         return new CompositeOperation<FragmentedOperation>(profiles);
     }
 
+    public FragmentedOperation getTaskGraphCalculation() {
+        return taskGraphCalculation;
+    }
+
+    /**
+     * Adds the time tasks spent waiting to be started during an execution of the task graph.
+     */
+    public void addScheduling(SchedulingSummary summary) {
+        for (SchedulingDelayReason reason : SchedulingDelayReason.values()) {
+            schedulingWaitTimes.put(reason, getSchedulingWaitTime(reason) + summary.getWaitTimeMillis(reason));
+            delayedTaskCounts.put(reason, getDelayedTaskCount(reason) + summary.getDelayedNodeCount(reason));
+        }
+    }
+
+    /**
+     * Get the total time tasks waited for the given resource after their dependencies had completed.
+     */
+    public long getSchedulingWaitTime(SchedulingDelayReason reason) {
+        Long waitTime = schedulingWaitTimes.get(reason);
+        return waitTime == null ? 0 : waitTime;
+    }
+
+    /**
+     * Get the number of tasks which waited for the given resource after their dependencies had completed.
+     */
+    public int getDelayedTaskCount(SchedulingDelayReason reason) {
+        Integer count = delayedTaskCounts.get(reason);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Records how the file system access of the given scope served its requests during the build.
+     */
+    public void addFileSystemAccessStatistics(String scope, FileSystemAccessStatistics statistics) {
+        fileSystemAccessStatistics.put(scope, statistics);
+    }
+
+    /**
+     * Get the statistics of the file system accesses by scope.
+     */
+    public Map<String, FileSystemAccessStatistics> getFileSystemAccessStatistics() {
+        return fileSystemAccessStatistics;
+    }
+
     /**
      * Should be set with a time as soon as possible after startup.
      */
@@ -29,7 +29,7 @@ public FragmentedOperation(String description) {
     }
 
     @Override
-    public long getElapsedTime() {
+    public synchronized long getElapsedTime() {
         long result = 0;
         for (ContinuousOperation child : children) {
             result += child.getElapsedTime();
@@ -42,7 +42,7 @@ public String getDescription() {
         return description;
     }
 
-    public ContinuousOperation start(long start) {
+    public synchronized ContinuousOperation start(long start) {
         ContinuousOperation child = new ContinuousOperation("<child>");
         child.setStart(start);
         children.add(child);
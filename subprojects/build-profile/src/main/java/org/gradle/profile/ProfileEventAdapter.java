@@ -27,20 +27,30 @@
 import org.gradle.api.internal.project.taskfactory.TaskIdentity;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.api.tasks.TaskState;
+import org.gradle.execution.plan.SchedulingSummary;
+import org.gradle.execution.taskgraph.TaskGraphCalculationListener;
 import org.gradle.execution.taskgraph.TaskListenerInternal;
+import org.gradle.execution.taskgraph.TaskSchedulingListener;
 import org.gradle.initialization.BuildCompletionListener;
 import org.gradle.internal.InternalBuildListener;
 import org.gradle.internal.buildevents.BuildStartedTime;
 import org.gradle.internal.time.Clock;
+import org.gradle.internal.vfs.FileSystemAccessStatistics;
+import org.gradle.internal.vfs.FileSystemAccessStatisticsListener;
+import org.gradle.util.Path;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Adapts various events to build a {@link BuildProfile} model, and then notifies a {@link ReportGeneratingProfileListener} when the model is ready.
  */
-public class ProfileEventAdapter implements InternalBuildListener, ProjectEvaluationListener, TaskListenerInternal, DependencyResolutionListener, BuildCompletionListener, ArtifactTransformListener {
+public class ProfileEventAdapter implements InternalBuildListener, ProjectEvaluationListener, TaskListenerInternal, TaskGraphCalculationListener, TaskSchedulingListener, FileSystemAccessStatisticsListener, DependencyResolutionListener, BuildCompletionListener, ArtifactTransformListener {
     private final BuildStartedTime buildStartedTime;
     private final Clock clock;
     private final ProfileListener listener;
     private final ThreadLocal<ContinuousOperation> currentTransformation = new ThreadLocal<ContinuousOperation>();
+    private final Map<Path, ContinuousOperation> currentTaskGraphCalculations = new ConcurrentHashMap<Path, ContinuousOperation>();
     private BuildProfile buildProfile;
 
     public ProfileEventAdapter(BuildStartedTime buildStartedTime, Clock clock, ProfileListener listener) {
@@ -122,6 +132,31 @@ public void afterExecute(TaskIdentity<?> taskIdentity, TaskState state) {
         taskExecution.completed(state);
     }
 
+    // TaskGraphCalculationListener
+    @Override
+    public void beforeTaskGraphCalculation(Path buildPath) {
+        long now = clock.getCurrentTime();
+        currentTaskGraphCalculations.put(buildPath, buildProfile.getTaskGraphCalculation().start(now));
+    }
+
+    @Override
+    public void afterTaskGraphCalculation(Path buildPath) {
+        long now = clock.getCurrentTime();
+        currentTaskGraphCalculations.remove(buildPath).setFinish(now);
+    }
+
+    // TaskSchedulingListener
+    @Override
+    public void afterTaskGraphExecution(SchedulingSummary summary) {
+        buildProfile.addScheduling(summary);
+    }
+
+    // FileSystemAccessStatisticsListener
+    @Override
+    public void fileSystemAccessStatistics(String scope, FileSystemAccessStatistics statistics) {
+        buildProfile.addFileSystemAccessStatistics(scope, statistics);
+    }
+
     // DependencyResolutionListener
     @Override
     public void beforeResolve(ResolvableDependencies dependencies) {
@@ -15,8 +15,10 @@
  */
 package org.gradle.profile;
 
+import org.gradle.execution.plan.SchedulingDelayReason;
 import org.gradle.internal.html.SimpleHtmlWriter;
 import org.gradle.internal.time.TimeFormatting;
+import org.gradle.internal.vfs.FileSystemAccessStatistics;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
 import org.gradle.reporting.TabbedPageRenderer;
@@ -24,6 +26,7 @@
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Map;
 
 public class ProfileReportRenderer {
 
@@ -102,6 +105,10 @@ public void render(BuildProfile model, SimpleHtmlWriter htmlWriter) throws IOExc
                                     htmlWriter.startElement("td").characters("Configuring Projects").endElement();
                                     htmlWriter.startElement("td").attribute("class", "numeric").characters(TimeFormatting.formatDurationVeryTerse(profiledProjectConfiguration.getElapsedTime())).endElement();
                                 htmlWriter.endElement();
+                                htmlWriter.startElement("tr");
+                                    htmlWriter.startElement("td").characters("Task Graph Calculation").endElement();
+                                    htmlWriter.startElement("td").attribute("class", "numeric").characters(TimeFormatting.formatDurationVeryTerse(model.getTaskGraphCalculation().getElapsedTime())).endElement();
+                                htmlWriter.endElement();
                                 htmlWriter.startElement("tr");
                                     htmlWriter.startElement("td").characters("Artifact Transforms").endElement();
                                     htmlWriter.startElement("td").attribute("class", "numeric").characters(TimeFormatting.formatDurationVeryTerse(model.getElapsedArtifactTransformTime())).endElement();
@@ -111,6 +118,47 @@ public void render(BuildProfile model, SimpleHtmlWriter htmlWriter) throws IOExc
                                     htmlWriter.startElement("td").attribute("class", "numeric").characters(TimeFormatting.formatDurationVeryTerse(model.getElapsedTotalExecutionTime())).endElement();
                                 htmlWriter.endElement();
                             htmlWriter.endElement();
+                            htmlWriter.startElement("h2").characters("Task Scheduling").endElement();
+                            htmlWriter.startElement("table");
+                                htmlWriter.startElement("thead");
+                                    htmlWriter.startElement("tr");
+                                        htmlWriter.startElement("th").characters("Waiting for").endElement();
+                                        htmlWriter.startElement("th").attribute("class", "numeric").characters("Tasks").endElement();
+                                        htmlWriter.startElement("th").attribute("class", "numeric").characters("Duration").endElement();
+                                    htmlWriter.endElement();
+                                htmlWriter.endElement();
+                                for (SchedulingDelayReason reason : SchedulingDelayReason.values()) {
+                                    htmlWriter.startElement("tr");
+                                        htmlWriter.startElement("td").characters(reason.getDisplayName()).endElement();
+                                        htmlWriter.startElement("td").attribute("class", "numeric").characters(String.valueOf(model.getDelayedTaskCount(reason))).endElement();
+                                        htmlWriter.startElement("td").attribute("class", "numeric").characters(TimeFormatting.formatDurationVeryTerse(model.getSchedulingWaitTime(reason))).endElement();
+                                    htmlWriter.endElement();
+                                }
+                            htmlWriter.endElement();
+                            htmlWriter.startElement("h2").characters("File System Access").endElement();
+                            htmlWriter.startElement("table");
+                                htmlWriter.startElement("thead");
+                                    htmlWriter.startElement("tr");
+                                        htmlWriter.startElement("th").characters("Scope").endElement();
+                                        htmlWriter.startElement("th").attribute("class", "numeric").characters("VFS hits").endElement();
+                                        htmlWriter.startElement("th").attribute("class", "numeric").characters("File system reads").endElement();
+                                        htmlWriter.startElement("th").attribute("class", "numeric").characters("Coalesced reads").endElement();
+                                        htmlWriter.startElement("th").attribute("class", "numeric").characters("Hashed").endElement();
+                                        htmlWriter.startElement("th").attribute("class", "numeric").characters("Directory snapshotting").endElement();
+                                    htmlWriter.endElement();
+                                htmlWriter.endElement();
+                                for (Map.Entry<String, FileSystemAccessStatistics> entry : model.getFileSystemAccessStatistics().entrySet()) {
+                                    FileSystemAccessStatistics statistics = entry.getValue();
+                                    htmlWriter.startElement("tr");
+                                        htmlWriter.startElement("td").characters(entry.getKey()).endElement();
+                                        htmlWriter.startElement("td").attribute("class", "numeric").characters(String.valueOf(statistics.getVirtualFileSystemHits())).endElement();
+                                        htmlWriter.startElement("td").attribute("class", "numeric").characters(String.valueOf(statistics.getFileSystemReads())).endElement();
+                                        htmlWriter.startElement("td").attribute("class", "numeric").characters(String.valueOf(statistics.getCoalescedReads())).endElement();
+                                        htmlWriter.startElement("td").attribute("class", "numeric").characters(statistics.getHashedBytes() / 1024 + " KB").endElement();
+                                        htmlWriter.startElement("td").attribute("class", "numeric").characters(TimeFormatting.formatDurationVeryTerse(statistics.getDirectorySnapshottingTimeMillis())).endElement();
+                                    htmlWriter.endElement();
+                                }
+                            htmlWriter.endElement();
                         htmlWriter.endElement();
                         htmlWriter.startElement("div").attribute("class", "tab").attribute("id", "tab1");
                             htmlWriter.startElement("h2").characters("Configuration").endElement();
@@ -17,8 +17,13 @@ package org.gradle.profile
 
 import org.gradle.StartParameter
 import org.gradle.api.tasks.TaskState
+import org.gradle.execution.plan.SchedulingSummary
 import spock.lang.Specification
 
+import static org.gradle.execution.plan.SchedulingDelayReason.PROJECT_LOCK
+import static org.gradle.execution.plan.SchedulingDelayReason.SHARED_RESOURCE
+import static org.gradle.execution.plan.SchedulingDelayReason.WORKER_LEASE
+
 class BuildProfileTest extends Specification {
     private profile = new BuildProfile(new StartParameter())
 
@@ -62,6 +67,20 @@ class BuildProfileTest extends Specification {
         profile.projects == [profile.getProjectProfile("a"), profile.getProjectProfile("d"), profile.getProjectProfile("b"), profile.getProjectProfile("c")]
     }
 
+    def "sums up scheduling of several task graph executions"() {
+        when:
+        profile.addScheduling(new SchedulingSummary(2, new EnumMap([(PROJECT_LOCK): 100L]), new EnumMap([(PROJECT_LOCK): 1])))
+        profile.addScheduling(new SchedulingSummary(3, new EnumMap([(PROJECT_LOCK): 50L, (WORKER_LEASE): 20L]), new EnumMap([(PROJECT_LOCK): 2, (WORKER_LEASE): 1])))
+
+        then:
+        profile.getSchedulingWaitTime(PROJECT_LOCK) == 150
+        profile.getDelayedTaskCount(PROJECT_LOCK) == 3
+        profile.getSchedulingWaitTime(WORKER_LEASE) == 20
+        profile.getDelayedTaskCount(WORKER_LEASE) == 1
+        profile.getSchedulingWaitTime(SHARED_RESOURCE) == 0
+        profile.getDelayedTaskCount(SHARED_RESOURCE) == 0
+    }
+
     def "contains build description"() {
         given:
         def param = new StartParameter()
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile
+
+import org.gradle.StartParameter
+import org.gradle.api.invocation.Gradle
+import org.gradle.internal.buildevents.BuildStartedTime
+import org.gradle.internal.time.Clock
+import org.gradle.util.Path
+import spock.lang.Specification
+
+class ProfileEventAdapterTest extends Specification {
+    def clock = Mock(Clock)
+    def listener = Mock(ProfileListener)
+    def adapter = new ProfileEventAdapter(BuildStartedTime.startingAt(0), clock, listener)
+
+    def "records task graph calculations of builds which overlap"() {
+        given:
+        clock.currentTime >>> [0, 100, 110, 130, 150, 200]
+        BuildProfile profile = null
+        listener.buildFinished(_) >> { BuildProfile buildProfile -> profile = buildProfile }
+        adapter.buildStarted(Stub(Gradle) {
+            getStartParameter() >> new StartParameter()
+        })
+
+        when:
+        adapter.beforeTaskGraphCalculation(Path.path(":"))
+        adapter.beforeTaskGraphCalculation(Path.path(":included"))
+        adapter.afterTaskGraphCalculation(Path.path(":"))
+        adapter.afterTaskGraphCalculation(Path.path(":included"))
+        adapter.completed()
+
+        then:
+        profile.taskGraphCalculation.elapsedTime == (130 - 100) + (150 - 110)
+    }
+}
@@ -18,10 +18,15 @@ package org.gradle.profile
 
 import org.gradle.StartParameter
 import org.gradle.api.tasks.TaskState
+import org.gradle.execution.plan.SchedulingSummary
+import org.gradle.internal.vfs.impl.DefaultFileSystemAccessStatistics
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
 
+import static org.gradle.execution.plan.SchedulingDelayReason.OUTPUT_MUTATION
+import static org.gradle.execution.plan.SchedulingDelayReason.PROJECT_LOCK
+import static org.gradle.execution.plan.SchedulingDelayReason.WORKER_LEASE
 import static org.gradle.util.TextUtil.toPlatformLineSeparators
 
 class ProfileReportRendererTest extends Specification {
@@ -48,6 +53,14 @@ class ProfileReportRendererTest extends Specification {
         model.getTransformationProfile("some transform").start(time(12, 22, 0)).setFinish(time(12, 22, 12))
         model.getTransformationProfile("some other transform").start(time(12, 23, 0)).setFinish(time(12, 23, 19))
 
+        model.taskGraphCalculation.start(time(12, 24, 40)).setFinish(time(12, 24, 41))
+        model.taskGraphCalculation.start(time(12, 24, 50)).setFinish(time(12, 24, 51, 500))
+
+        model.addScheduling(new SchedulingSummary(3, new EnumMap([(PROJECT_LOCK): 1500L, (WORKER_LEASE): 30000L]), new EnumMap([(PROJECT_LOCK): 1, (WORKER_LEASE): 2])))
+        model.addScheduling(new SchedulingSummary(1, new EnumMap([(OUTPUT_MUTATION): 250L]), new EnumMap([(OUTPUT_MUTATION): 1])))
+
+        model.addFileSystemAccessStatistics("build", new DefaultFileSystemAccessStatistics(120, 30, 2, 3 * 1024 * 1024, 1250))
+
         model.getProjectProfile("a").configurationOperation.start = time(12, 20, 7)
         model.getProjectProfile("a").configurationOperation.finish = time(12, 20, 10)
         model.getProjectProfile("a").getTaskProfile("a:foo").completed(Stub(TaskState)).setStart(time(12, 25, 0)).setFinish(time(12, 26, 30))
@@ -128,6 +141,10 @@ class ProfileReportRendererTest extends Specification {
 <td class="numeric">8.000s</td>
 </tr>
 <tr>
+<td>Task Graph Calculation</td>
+<td class="numeric">2.500s</td>
+</tr>
+<tr>
 <td>Artifact Transforms</td>
 <td class="numeric">31.000s</td>
 </tr>
@@ -136,6 +153,62 @@ class ProfileReportRendererTest extends Specification {
 <td class="numeric">6m30.00s</td>
 </tr>
 </table>
+<h2>Task Scheduling</h2>
+<table>
+<thead>
+<tr>
+<th>Waiting for</th>
+<th class="numeric">Tasks</th>
+<th class="numeric">Duration</th>
+</tr>
+</thead>
+<tr>
+<td>Project lock</td>
+<td class="numeric">1</td>
+<td class="numeric">1.500s</td>
+</tr>
+<tr>
+<td>Shared resource</td>
+<td class="numeric">0</td>
+<td class="numeric">0s</td>
+</tr>
+<tr>
+<td>Worker lease</td>
+<td class="numeric">2</td>
+<td class="numeric">30.000s</td>
+</tr>
+<tr>
+<td>Overlapping outputs</td>
+<td class="numeric">1</td>
+<td class="numeric">0.250s</td>
+</tr>
+<tr>
+<td>No resource</td>
+<td class="numeric">0</td>
+<td class="numeric">0s</td>
+</tr>
+</table>
+<h2>File System Access</h2>
+<table>
+<thead>
+<tr>
+<th>Scope</th>
+<th class="numeric">VFS hits</th>
+<th class="numeric">File system reads</th>
+<th class="numeric">Coalesced reads</th>
+<th class="numeric">Hashed</th>
+<th class="numeric">Directory snapshotting</th>
+</tr>
+</thead>
+<tr>
+<td>build</td>
+<td class="numeric">120</td>
+<td class="numeric">30</td>
+<td class="numeric">2</td>
+<td class="numeric">3072 KB</td>
+<td class="numeric">1.250s</td>
+</tr>
+</table>
 </div>
 <div class="tab" id="tab1">
 <h2>Configuration</h2>
@@ -171,18 +171,16 @@ class ConfigurationCacheHost internal constructor(
             gradle.rootProject.project(path)
 
         override fun scheduleNodes(nodes: Collection<Node>) {
-            gradle.taskGraph.run {
-                addNodes(nodes)
-                populate()
-            }
-
             // Fire build operation required by build scan to determine when task execution starts
-            // Currently this operation is not around the actual task graph calculation/populate for configuration cache (just to make this a smaller step)
+            // The nodes are already in execution order, so populating the task graph does not need to walk the graph again
             // This might be better done as a new build operation type
             BuildOperationFiringTaskExecutionPreparer(
                 TaskExecutionPreparer {
-                    // Nothing to do
                     // TODO:configuration-cache - perhaps move this so it wraps loading tasks from cache file
+                    gradle.taskGraph.run {
+                        addNodes(nodes)
+                        populate()
+                    }
                 },
                 service<BuildOperationExecutor>()
             ).prepareForTaskExecution(gradle)
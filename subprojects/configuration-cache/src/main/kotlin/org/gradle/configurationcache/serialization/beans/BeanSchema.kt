@@ -122,7 +122,7 @@ val Class<*>.relevantFields: Sequence<Field>
 
 
 private
-val abstractTaskRelevantFields = listOf("actions", "enabled", "timeout", "onlyIfSpec")
+val abstractTaskRelevantFields = listOf("actions", "enabled", "timeout", "memoryWeight", "onlyIfSpec")
 
 
 internal
@@ -750,6 +750,29 @@ public String determineName(Task c) {
     @Incubating
     Property<Duration> getTimeout();
 
+    /**
+     * <p>The estimated amount of memory, in megabytes, this task needs while it runs.</p>
+     *
+     * <pre class='autoTested'>
+     *   task myTask {
+     *       memoryWeight = 1024
+     *   }
+     * </pre>
+     *
+     * <p>
+     * The estimate should include the memory of the work actions and worker processes the task uses.
+     * When a memory budget is configured for the build, a task is only started while the weights of the running tasks and work actions leave enough of the budget for it.
+     * A task whose weight exceeds the budget runs on its own. The work actions submitted by a task with a memory weight run within the weight of the task.
+     * </p>
+     * <p>By default, tasks have no memory weight.</p>
+     *
+     * @since 6.8
+     */
+    @Internal
+    @Optional
+    @Incubating
+    Property<Integer> getMemoryWeight();
+
     /**
      * Registers a {@link BuildService} that is used by this task.
      *
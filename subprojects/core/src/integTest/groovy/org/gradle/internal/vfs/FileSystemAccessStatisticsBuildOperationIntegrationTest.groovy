@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.vfs
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import org.gradle.integtests.fixtures.BuildOperationsFixture
+
+class FileSystemAccessStatisticsBuildOperationIntegrationTest extends AbstractIntegrationSpec {
+    def operations = new BuildOperationsFixture(executer, testDirectoryProvider)
+    def inputFile = file("input.txt")
+
+    def setup() {
+        buildFile << """
+            task myTask {
+                def inputFile = file("${inputFile.name}")
+                def outputFile = file("build/output.txt")
+                inputs.file(inputFile)
+                outputs.file(outputFile)
+                doLast {
+                    outputFile.text = inputFile.length()
+                }
+            }
+        """
+        inputFile.text = "x" * 10000
+        // Make sure the timestamp can be trusted by the file hash cache
+        inputFile.lastModified = System.currentTimeMillis() - 10000
+    }
+
+    def "reports the file system access statistics of each scope"() {
+        when:
+        run "myTask"
+
+        then:
+        executedAndNotSkipped(":myTask")
+        operations.all(FileSystemAccessStatisticsBuildOperationType)*.details*.scope as Set == ["Gradle user home", "build"] as Set
+        def statistics = buildStatistics()
+        statistics.fileSystemReads > 0
+        statistics.hashedBytes >= inputFile.length()
+    }
+
+    def "does not count bytes of files whose hashes are cached across builds"() {
+        given:
+        executer.beforeExecute {
+            withArgument("--no-watch-fs")
+        }
+        run "myTask"
+
+        when:
+        run "myTask"
+
+        then:
+        skipped(":myTask")
+        // Without file system watching the input file is read again, but its hash is served from the file hash cache
+        def statistics = buildStatistics()
+        statistics.fileSystemReads > 0
+        statistics.hashedBytes < inputFile.length()
+    }
+
+    private Map<String, ?> buildStatistics() {
+        operations.first(FileSystemAccessStatisticsBuildOperationType) { it.details.scope == "build" }.result.statistics as Map<String, ?>
+    }
+}
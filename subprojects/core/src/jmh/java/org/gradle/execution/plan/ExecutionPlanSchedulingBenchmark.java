@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.resources.ResourceLock;
+import org.gradle.internal.work.DefaultWorkerLeaseService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the scheduling overhead of the plan executor with a large graph of nodes that do no work.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ExecutionPlanSchedulingBenchmark {
+
+    @Param({"50000"})
+    int nodeCount;
+
+    @Param({"1", "8", "32"})
+    int maxWorkers;
+
+    DefaultExecutorFactory executorFactory;
+    DefaultWorkerLeaseService workerLeaseService;
+    DefaultPlanExecutor planExecutor;
+    DefaultExecutionPlan executionPlan;
+
+    @Setup(Level.Trial)
+    public void setupExecutor() {
+        DefaultResourceLockCoordinationService coordinationService = new DefaultResourceLockCoordinationService();
+        DefaultParallelismConfiguration parallelismConfiguration = new DefaultParallelismConfiguration(true, maxWorkers);
+        executorFactory = new DefaultExecutorFactory();
+        workerLeaseService = new DefaultWorkerLeaseService(coordinationService, parallelismConfiguration);
+        planExecutor = new DefaultPlanExecutor(parallelismConfiguration, executorFactory, workerLeaseService, new DefaultBuildCancellationToken(), coordinationService);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupPlan() {
+        executionPlan = new DefaultExecutionPlan(null, null, new TaskDependencyResolver(Collections.emptyList())) {
+            @Override
+            public String getDisplayName() {
+                return "benchmark";
+            }
+        };
+        executionPlan.addNodes(createGraph());
+        executionPlan.determineExecutionPlan();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopExecutor() {
+        workerLeaseService.stop();
+        executorFactory.stop();
+    }
+
+    @Benchmark
+    public void executePlan() {
+        List<Throwable> failures = new ArrayList<>();
+        workerLeaseService.withLocks(Collections.singleton(workerLeaseService.getWorkerLease()), () -> {
+            planExecutor.process(executionPlan, failures, node -> {
+            });
+        });
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Plan execution failed", failures.get(0));
+        }
+    }
+
+    /**
+     * Creates a wide graph, where each node depends on a few of the nodes created shortly before it.
+     */
+    private List<Node> createGraph() {
+        Random random = new Random(1234L);
+        List<Node> nodes = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            SyntheticNode node = new SyntheticNode(i);
+            int dependencies = Math.min(i, random.nextInt(4));
+            for (int j = 0; j < dependencies; j++) {
+                node.addDependencySuccessor(nodes.get(i - 1 - random.nextInt(Math.min(i, 100))));
+            }
+            node.require();
+            node.dependenciesProcessed();
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static class SyntheticNode extends Node {
+        private final int id;
+
+        SyntheticNode(int id) {
+            this.id = id;
+        }
+
+        @Nullable
+        @Override
+        public Throwable getNodeFailure() {
+            return null;
+        }
+
+        @Override
+        public void rethrowNodeFailure() {
+        }
+
+        @Override
+        public void prepareForExecution() {
+        }
+
+        @Override
+        public void resolveDependencies(TaskDependencyResolver dependencyResolver, Action<Node> processHardSuccessor) {
+        }
+
+        @Override
+        public Set<Node> getFinalizers() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void resolveMutations() {
+        }
+
+        @Override
+        public boolean isPublicNode() {
+            return false;
+        }
+
+        @Override
+        public boolean requiresMonitoring() {
+            return false;
+        }
+
+        @Nullable
+        @Override
+        public ResourceLock getProjectToLock() {
+            return null;
+        }
+
+        @Nullable
+        @Override
+        public ProjectInternal getOwningProject() {
+            return null;
+        }
+
+        @Override
+        public List<? extends ResourceLock> getResourcesToLock() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public int compareTo(Node o) {
+            return Integer.compare(id, ((SyntheticNode) o).id);
+        }
+
+        @Override
+        public String toString() {
+            return "node " + id;
+        }
+    }
+}
@@ -62,6 +62,7 @@
 import org.gradle.api.tasks.TaskInstantiationException;
 import org.gradle.api.tasks.TaskLocalState;
 import org.gradle.configuration.internal.UserCodeApplicationContext;
+import org.gradle.execution.plan.MemoryBudget;
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factory;
 import org.gradle.internal.event.ListenerManager;
@@ -130,6 +131,8 @@ public abstract class AbstractTask implements TaskInternal, DynamicObjectAware {
 
     private final Property<Duration> timeout;
 
+    private final Property<Integer> memoryWeight;
+
     private AndSpec<Task> onlyIfSpec = createNewOnlyIfSpec();
 
     private final ServiceRegistry services;
@@ -187,6 +190,7 @@ private AbstractTask(TaskInfo taskInfo) {
         this.dependencies = new DefaultTaskDependency(tasks, ImmutableSet.of(taskInputs));
 
         this.timeout = project.getObjects().property(Duration.class);
+        this.memoryWeight = project.getObjects().property(Integer.class);
     }
 
     private void assertDynamicObject() {
@@ -939,6 +943,11 @@ public Property<Duration> getTimeout() {
         return timeout;
     }
 
+    @Override
+    public Property<Integer> getMemoryWeight() {
+        return memoryWeight;
+    }
+
     @Override
     public void usesService(Provider<? extends BuildService<?>> service) {
         taskMutator.mutate("Task.usesService(Provider)", () -> {
@@ -958,17 +967,23 @@ public Set<Provider<? extends BuildService<?>>> getRequiredServices() {
 
     @Override
     public List<ResourceLock> getSharedResources() {
-        if (requiredServices == null) {
+        ResourceLock memoryLock = memoryWeight.isPresent() ? getServices().get(MemoryBudget.class).getResourceLock(memoryWeight.get()) : null;
+        if (requiredServices == null && memoryLock == null) {
             return Collections.emptyList();
         }
         ImmutableList.Builder<ResourceLock> locks = ImmutableList.builder();
-        BuildServiceRegistryInternal serviceRegistry = getServices().get(BuildServiceRegistryInternal.class);
-        for (Provider<? extends BuildService<?>> service : requiredServices) {
-            SharedResource resource = serviceRegistry.forService(service);
-            if (resource.getMaxUsages() > 0) {
-                locks.add(resource.getResourceLock(1));
+        if (requiredServices != null) {
+            BuildServiceRegistryInternal serviceRegistry = getServices().get(BuildServiceRegistryInternal.class);
+            for (Provider<? extends BuildService<?>> service : requiredServices) {
+                SharedResource resource = serviceRegistry.forService(service);
+                if (resource.getMaxUsages() > 0) {
+                    locks.add(resource.getResourceLock(1));
+                }
             }
         }
+        if (memoryLock != null) {
+            locks.add(memoryLock);
+        }
         return locks.build();
     }
 
@@ -21,6 +21,7 @@
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.hash.CoalescingProducer;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -31,6 +32,7 @@
 import org.gradle.internal.serialize.InterningStringSerializer;
 
 import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class CachingFileHasher implements FileHasher {
     private final PersistentIndexedCache<String, FileInfo> cache;
@@ -38,6 +40,8 @@ public class CachingFileHasher implements FileHasher {
     private final FileSystem fileSystem;
     private final StringInterner stringInterner;
     private final FileTimeStampInspector timestampInspector;
+    private final AtomicLong coalescedHashes = new AtomicLong();
+    private final CoalescingProducer<HashRequest, FileInfo> producingHashes = new CoalescingProducer<>(coalescedHashes);
 
     public CachingFileHasher(FileHasher delegate, CrossBuildFileHashCache store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName, FileSystem fileSystem, int inMemorySize) {
         this.delegate = delegate;
@@ -84,16 +88,60 @@ private FileInfo snapshot(File file, long length, long timestamp) {
             }
         }
 
+        // Only requests for the same file content wait for each other, a changed file is hashed again
+        return producingHashes.produce(new HashRequest(absolutePath, length, timestamp), () -> hash(file, absolutePath, length, timestamp));
+    }
+
+    private FileInfo hash(File file, String absolutePath, long length, long timestamp) {
         HashCode hash = delegate.hash(file);
         FileInfo info = new FileInfo(hash, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
         return info;
     }
 
+    /**
+     * Returns the number of hash requests since the last call which waited for a concurrent request
+     * to hash the same file instead of hashing it again.
+     */
+    public long getAndResetCoalescedHashes() {
+        return coalescedHashes.getAndSet(0);
+    }
+
     public void discard(String path) {
         cache.remove(path);
     }
 
+    private static class HashRequest {
+        private final String absolutePath;
+        private final long length;
+        private final long timestamp;
+
+        public HashRequest(String absolutePath, long length, long timestamp) {
+            this.absolutePath = absolutePath;
+            this.length = length;
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            HashRequest that = (HashRequest) o;
+            return length == that.length
+                && timestamp == that.timestamp
+                && absolutePath.equals(that.absolutePath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(absolutePath, length, timestamp);
+        }
+    }
+
     @VisibleForTesting
     static class FileInfo {
         private final HashCode hash;
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.collect.ImmutableMap;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.FileLockManager;
@@ -23,6 +24,7 @@
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
+import org.gradle.internal.hash.ContentHashFunction;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
@@ -35,9 +37,13 @@ public class CrossBuildFileHashCache implements Closeable {
     private final PersistentCache cache;
     private final InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory;
 
-    public CrossBuildFileHashCache(@Nullable File cacheDir, CacheRepository repository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, Kind cacheKind) {
+    public CrossBuildFileHashCache(@Nullable File cacheDir, CacheRepository repository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, Kind cacheKind, ContentHashFunction contentHashFunction) {
         this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
         CacheBuilder cacheBuilder = cacheDir != null ? repository.cache(cacheDir) : repository.cache(cacheKind.cacheId);
+        if (cacheKind == Kind.FILE_HASHES) {
+            // Discard the persisted hashes when the content hash function changes
+            cacheBuilder.withProperties(ImmutableMap.of("contentHashFunction", contentHashFunction.name()));
+        }
         cache = cacheBuilder
             .withDisplayName(cacheKind.description)
             .withLockOptions(mode(FileLockManager.LockMode.OnDemand)) // Lock on demand
@@ -15,10 +15,12 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.collect.ImmutableMap;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.PersistentCache;
 import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess;
+import org.gradle.internal.execution.history.impl.FileCollectionFingerprintSerializer;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
@@ -32,6 +34,8 @@ public DefaultExecutionHistoryCacheAccess(@Nullable Object scope, CacheRepositor
         this.cache = cacheRepository
             .cache(scope, "executionHistory")
             .withDisplayName("execution history cache")
+            // Discard the execution history written in a different format
+            .withProperties(ImmutableMap.of("fingerprintFormatVersion", String.valueOf(FileCollectionFingerprintSerializer.FORMAT_VERSION)))
             .withLockOptions(mode(FileLockManager.LockMode.OnDemand)) // Lock on demand
             .open();
     }
@@ -22,6 +22,9 @@
 import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.snapshot.RegularFileSnapshot;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+
 public class DefaultResourceSnapshotterCacheService implements ResourceSnapshotterCacheService {
     private static final HashCode NO_HASH = Hashing.signature(CachingResourceHasher.class.getName() + " : no hash");
     private final PersistentIndexedCache<HashCode, HashCode> persistentCache;
@@ -36,22 +39,37 @@ public HashCode hashFile(RegularFileSnapshot fileSnapshot, RegularFileHasher has
 
         HashCode resourceHash = persistentCache.get(resourceHashCacheKey);
         if (resourceHash != null) {
-            if (resourceHash.equals(NO_HASH)) {
-                return null;
-            }
-            return resourceHash;
+            return fromCachedHash(resourceHash);
         }
 
         resourceHash = hasher.hash(fileSnapshot);
+        storeHash(resourceHashCacheKey, resourceHash);
+        return resourceHash;
+    }
 
+    @Override
+    public HashCode hashZipEntry(ZipEntryContext zipEntryContext, HashCode contentKey, ZipEntryHasher hasher, HashCode configurationHash) throws IOException {
+        HashCode resourceHashCacheKey = resourceHashCacheKey(contentKey, configurationHash);
+
+        HashCode resourceHash = persistentCache.get(resourceHashCacheKey);
         if (resourceHash != null) {
-            persistentCache.put(resourceHashCacheKey, resourceHash);
-        } else {
-            persistentCache.put(resourceHashCacheKey, NO_HASH);
+            return fromCachedHash(resourceHash);
         }
+
+        resourceHash = hasher.hash(zipEntryContext);
+        storeHash(resourceHashCacheKey, resourceHash);
         return resourceHash;
     }
 
+    @Nullable
+    private static HashCode fromCachedHash(HashCode cachedHash) {
+        return cachedHash.equals(NO_HASH) ? null : cachedHash;
+    }
+
+    private void storeHash(HashCode resourceHashCacheKey, @Nullable HashCode resourceHash) {
+        persistentCache.put(resourceHashCacheKey, resourceHash != null ? resourceHash : NO_HASH);
+    }
+
     private static HashCode resourceHashCacheKey(HashCode contentHash, HashCode configurationHash) {
         Hasher hasher = Hashing.newHasher();
         hasher.putHash(configurationHash);
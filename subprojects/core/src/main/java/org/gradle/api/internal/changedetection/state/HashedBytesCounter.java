@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes read to hash file contents, as opposed to hashes served from a cache.
+ */
+public class HashedBytesCounter {
+    private final AtomicLong hashedBytes = new AtomicLong();
+
+    /**
+     * Returns a hasher which counts the bytes the given hasher reads.
+     */
+    public FileHasher countBytesHashedBy(FileHasher delegate) {
+        return new CountingFileHasher(delegate);
+    }
+
+    /**
+     * Returns the number of bytes hashed since the last call.
+     */
+    public long getAndResetHashedBytes() {
+        return hashedBytes.getAndSet(0);
+    }
+
+    private class CountingFileHasher implements FileHasher {
+        private final FileHasher delegate;
+
+        public CountingFileHasher(FileHasher delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HashCode hash(File file) {
+            HashCode hash = delegate.hash(file);
+            hashedBytes.addAndGet(file.length());
+            return hash;
+        }
+
+        @Override
+        public HashCode hash(File file, long length, long lastModified) {
+            HashCode hash = delegate.hash(file, length, lastModified);
+            hashedBytes.addAndGet(length);
+            return hash;
+        }
+    }
+}
@@ -20,6 +20,8 @@
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.snapshot.RegularFileSnapshot;
 
+import java.io.IOException;
+
 /**
  * A {@link ResourceSnapshotterCacheService} that delegates to the global service for immutable files
  * and uses the local service for all other files. This ensures optimal cache utilization.
@@ -43,4 +45,13 @@ public HashCode hashFile(RegularFileSnapshot fileSnapshot, RegularFileHasher has
             return localCache.hashFile(fileSnapshot, hasher, configurationHash);
         }
     }
+
+    @Override
+    public HashCode hashZipEntry(ZipEntryContext zipEntryContext, HashCode contentKey, ZipEntryHasher hasher, HashCode configurationHash) throws IOException {
+        if (globalCacheLocations.isInsideGlobalCache(zipEntryContext.getRootParentName())) {
+            return globalCache.hashZipEntry(zipEntryContext, contentKey, hasher, configurationHash);
+        } else {
+            return localCache.hashZipEntry(zipEntryContext, contentKey, hasher, configurationHash);
+        }
+    }
 }
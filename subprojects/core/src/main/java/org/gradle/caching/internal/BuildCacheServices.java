@@ -24,22 +24,30 @@
 import org.gradle.caching.configuration.internal.BuildCacheServiceRegistration;
 import org.gradle.caching.configuration.internal.DefaultBuildCacheConfiguration;
 import org.gradle.caching.configuration.internal.DefaultBuildCacheServiceRegistration;
+import org.gradle.caching.internal.controller.AsyncBuildCacheUploader;
 import org.gradle.caching.internal.controller.BuildCacheCommandFactory;
 import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.caching.internal.controller.BuildCacheEntryTranscoder;
 import org.gradle.caching.internal.controller.RootBuildCacheControllerRef;
 import org.gradle.caching.internal.controller.impl.DefaultBuildCacheCommandFactory;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.ParallelPackingPool;
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression;
+import org.gradle.caching.internal.packaging.impl.CompressingBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.DefaultTarPackerFileSystemSupport;
 import org.gradle.caching.internal.packaging.impl.FilePermissionAccess;
 import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntrySplitter;
 import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport;
 import org.gradle.caching.internal.services.BuildCacheControllerFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
+import org.gradle.caching.local.internal.BuildCacheEntrySplitter;
 import org.gradle.caching.local.internal.DirectoryBuildCacheFileStoreFactory;
 import org.gradle.caching.local.internal.DirectoryBuildCacheServiceFactory;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.FileException;
 import org.gradle.internal.hash.ChecksumService;
@@ -62,12 +70,43 @@
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Build scoped services for build cache usage.
  */
 public final class BuildCacheServices extends AbstractPluginServiceRegistry {
 
+    /**
+     * When enabled, build cache entries are compressed and unpacked using multiple threads.
+     */
+    public static final String PARALLEL_PACKING_PROPERTY = "org.gradle.internal.caching.parallel-packing";
+
+    /**
+     * The compression of build cache entries stored in the local build cache, one of gzip, lz4 or zstd.
+     * Entries are packed in this format, and recompressed when the remote build cache uses a different one.
+     * Defaults to gzip, the only format older Gradle versions can read.
+     */
+    public static final String LOCAL_COMPRESSION_PROPERTY = "org.gradle.internal.caching.local.compression";
+
+    /**
+     * The compression of build cache entries stored in the remote build cache, one of gzip, lz4 or zstd. Defaults to gzip.
+     */
+    public static final String REMOTE_COMPRESSION_PROPERTY = "org.gradle.internal.caching.remote.compression";
+
+    /**
+     * The number of build cache entries which can wait for being stored in the remote build cache in the background.
+     * When not set, entries are stored in the remote build cache before the work finishes.
+     */
+    public static final String REMOTE_STORE_QUEUE_SIZE_PROPERTY = "org.gradle.internal.caching.remote.store-queue-size";
+
+    /**
+     * The number of seconds to wait at the end of the build for entries still being stored in the remote build cache. Defaults to 60.
+     */
+    public static final String REMOTE_STORE_DRAIN_TIMEOUT_PROPERTY = "org.gradle.internal.caching.remote.store-drain-timeout";
+
+    private static final int REMOTE_STORE_THREADS = 4;
+
     @Override
     public void registerBuildTreeServices(ServiceRegistration registration) {
         registration.addProvider(new Object() {
@@ -97,6 +136,10 @@ public PathKeyFileStore createFileStore(File baseDir) {
                 };
             }
 
+            BuildCacheEntrySplitter createBuildCacheEntrySplitter() {
+                return new TarBuildCacheEntrySplitter(BuildCacheEntryCompression.LZ4);
+            }
+
             BuildCacheServiceRegistration createDirectoryBuildCacheServiceRegistration() {
                 return new DefaultBuildCacheServiceRegistration(DirectoryBuildCache.class, DirectoryBuildCacheServiceFactory.class);
             }
@@ -114,14 +157,23 @@ TarPackerFileSystemSupport createPackerFileSystemSupport(Deleter deleter) {
                 return new DefaultTarPackerFileSystemSupport(deleter);
             }
 
+            ParallelPackingPool createParallelPackingPool() {
+                return new ParallelPackingPool();
+            }
+
             BuildCacheEntryPacker createResultPacker(
                 TarPackerFileSystemSupport fileSystemSupport,
                 FileSystem fileSystem,
                 StreamHasher fileHasher,
-                StringInterner stringInterner
+                StringInterner stringInterner,
+                ParallelPackingPool parallelPackingPool
             ) {
-                return new GZipBuildCacheEntryPacker(
-                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner));
+                ForkJoinPool packingPool = Boolean.getBoolean(PARALLEL_PACKING_PROPERTY) ? parallelPackingPool : null;
+                TarBuildCacheEntryPacker tarPacker = new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner, packingPool);
+                BuildCacheEntryCompression compression = getCompression(LOCAL_COMPRESSION_PROPERTY);
+                return compression == BuildCacheEntryCompression.GZIP
+                    ? new GZipBuildCacheEntryPacker(tarPacker, packingPool)
+                    : new CompressingBuildCacheEntryPacker(tarPacker, compression);
             }
 
             OriginMetadataFactory createOriginMetadataFactory(
@@ -186,6 +238,14 @@ private BuildCacheController doCreateBuildCacheController(ServiceRegistry servic
                 BuildCacheControllerFactory.RemoteAccessMode remoteAccessMode = startParameter.isOffline() ? BuildCacheControllerFactory.RemoteAccessMode.OFFLINE : BuildCacheControllerFactory.RemoteAccessMode.ONLINE;
                 boolean logStackTraces = startParameter.getShowStacktrace() != ShowStacktrace.INTERNAL_EXCEPTIONS;
                 boolean emitDebugLogging = startParameter.isBuildCacheDebugLogging();
+                BuildCacheEntryCompression localCompression = getCompression(LOCAL_COMPRESSION_PROPERTY);
+                BuildCacheEntryCompression remoteCompression = getCompression(REMOTE_COMPRESSION_PROPERTY);
+                BuildCacheEntryTranscoder remoteEntryTranscoder = remoteCompression == localCompression ? null : remoteCompression::recompress;
+                BuildCacheEntryTranscoder localEntryTranscoder = remoteCompression == localCompression ? null : localCompression::recompress;
+                int remoteStoreQueueSize = Integer.getInteger(REMOTE_STORE_QUEUE_SIZE_PROPERTY, 0);
+                AsyncBuildCacheUploader remoteUploader = remoteStoreQueueSize > 0
+                    ? new AsyncBuildCacheUploader(serviceRegistry.get(ExecutorFactory.class), REMOTE_STORE_THREADS, remoteStoreQueueSize, Integer.getInteger(REMOTE_STORE_DRAIN_TIMEOUT_PROPERTY, 60))
+                    : null;
 
                 return BuildCacheControllerFactory.create(
                     buildOperationExecutor,
@@ -196,12 +256,20 @@ private BuildCacheController doCreateBuildCacheController(ServiceRegistry servic
                     remoteAccessMode,
                     logStackTraces,
                     emitDebugLogging,
-                    instantiatorFactory.inject(serviceRegistry)
+                    instantiatorFactory.inject(serviceRegistry),
+                    remoteEntryTranscoder,
+                    localEntryTranscoder,
+                    remoteUploader
                 );
             }
         });
     }
 
+    private static BuildCacheEntryCompression getCompression(String property) {
+        String name = System.getProperty(property);
+        return name == null ? BuildCacheEntryCompression.GZIP : BuildCacheEntryCompression.forName(name);
+    }
+
     private static final class FilePermissionsAccessAdapter implements FilePermissionAccess {
 
         private final FileSystem fileSystem;
@@ -38,6 +38,8 @@
 import org.gradle.internal.snapshot.MissingFileSnapshot;
 import org.gradle.internal.vfs.FileSystemAccess;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -86,11 +88,18 @@ public BuildCacheKey getKey() {
 
         @Override
         public BuildCacheLoadCommand.Result<LoadMetadata> load(InputStream input) throws IOException {
+            return load(input, null);
+        }
+
+        @Override
+        public BuildCacheLoadCommand.Result<LoadMetadata> load(InputStream input, @Nullable File linkedContentDirectory) throws IOException {
             ImmutableList.Builder<String> roots = ImmutableList.builder();
             entity.visitOutputTrees((name, type, root) -> roots.add(root.getAbsolutePath()));
             // TODO: Actually unpack the roots inside of the action
             fileSystemAccess.write(roots.build(), () -> {});
-            BuildCacheEntryPacker.UnpackResult unpackResult = packer.unpack(entity, input, originMetadataFactory.createReader(entity));
+            BuildCacheEntryPacker.UnpackResult unpackResult = linkedContentDirectory == null
+                ? packer.unpack(entity, input, originMetadataFactory.createReader(entity))
+                : packer.unpack(entity, input, originMetadataFactory.createReader(entity), linkedContentDirectory);
             // TODO: Update the snapshots from the action
             ImmutableSortedMap<String, CurrentFileCollectionFingerprint> snapshots = snapshotUnpackedData(unpackResult.getSnapshots());
             return new Result<LoadMetadata>() {
@@ -111,6 +120,11 @@ public OriginMetadata getOriginMetadata() {
                         public ImmutableSortedMap<String, CurrentFileCollectionFingerprint> getResultingSnapshots() {
                             return snapshots;
                         }
+
+                        @Override
+                        public boolean hasLinkedOutputs() {
+                            return linkedContentDirectory != null;
+                        }
                     };
                 }
             };
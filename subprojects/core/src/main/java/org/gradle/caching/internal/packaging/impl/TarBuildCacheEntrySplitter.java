@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import com.google.common.io.ByteStreams;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.gradle.caching.local.internal.BuildCacheEntrySplitter;
+import org.gradle.internal.hash.HashCode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits the tar archives written by {@link TarBuildCacheEntryPacker} into the contents of the archived files
+ * and the list of archive entries with their names, permissions and sizes.
+ *
+ * When the blob store provides the files to link the contents from, the assembled archive refers to these files
+ * instead of containing the contents, see {@link TarBuildCacheEntryPacker#LINKED_CONTENT_PAX_HEADER}.
+ *
+ * Assembled archives are compressed with the given compression. Since they are unpacked right after assembling,
+ * a fast compression is preferable.
+ */
+public class TarBuildCacheEntrySplitter implements BuildCacheEntrySplitter {
+    private static final Charset ENCODING = StandardCharsets.UTF_8;
+
+    private final BuildCacheEntryCompression assembledCompression;
+
+    public TarBuildCacheEntrySplitter(BuildCacheEntryCompression assembledCompression) {
+        this.assembledCompression = assembledCompression;
+    }
+
+    @Override
+    public void split(InputStream entry, OutputStream structure, BlobStore blobs) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(structure));
+        try (TarArchiveInputStream tarInput = new TarArchiveInputStream(BuildCacheEntryCompression.decompressDetectingFormat(entry), ENCODING.name())) {
+            TarArchiveEntry tarEntry;
+            while ((tarEntry = tarInput.getNextTarEntry()) != null) {
+                output.writeBoolean(true);
+                byte[] name = tarEntry.getName().getBytes(ENCODING);
+                output.writeInt(name.length);
+                output.write(name);
+                output.writeInt(tarEntry.getMode());
+                output.writeLong(tarEntry.getSize());
+                if (tarEntry.getSize() > 0) {
+                    byte[] hash = blobs.store(tarInput, tarEntry.getSize()).toByteArray();
+                    output.writeByte(hash.length);
+                    output.write(hash);
+                }
+            }
+        }
+        output.writeBoolean(false);
+        output.flush();
+    }
+
+    @Override
+    public void assemble(InputStream structure, BlobStore blobs, OutputStream entry) throws IOException {
+        DataInputStream input = new DataInputStream(structure);
+        try (TarArchiveOutputStream tarOutput = new TarArchiveOutputStream(new BufferedOutputStream(assembledCompression.compress(entry, null)), ENCODING.name())) {
+            tarOutput.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tarOutput.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            tarOutput.setAddPaxHeadersForNonAsciiNames(true);
+            while (input.readBoolean()) {
+                byte[] name = new byte[input.readInt()];
+                input.readFully(name);
+                TarArchiveEntry tarEntry = new TarArchiveEntry(new String(name, ENCODING), true);
+                tarEntry.setMode(input.readInt());
+                long size = input.readLong();
+                if (size == 0) {
+                    tarOutput.putArchiveEntry(tarEntry);
+                } else {
+                    byte[] hashBytes = new byte[input.readUnsignedByte()];
+                    input.readFully(hashBytes);
+                    HashCode hash = HashCode.fromBytes(hashBytes);
+                    File contentToLink = blobs.fileToLink(hash);
+                    if (contentToLink != null) {
+                        tarEntry.addPaxHeader(TarBuildCacheEntryPacker.LINKED_CONTENT_PAX_HEADER, contentToLink.getAbsolutePath());
+                        tarOutput.putArchiveEntry(tarEntry);
+                    } else {
+                        tarEntry.setSize(size);
+                        tarOutput.putArchiveEntry(tarEntry);
+                        try (InputStream content = blobs.load(hash)) {
+                            ByteStreams.copy(content, tarOutput);
+                        }
+                    }
+                }
+                tarOutput.closeArchiveEntry();
+            }
+        }
+    }
+}
@@ -24,7 +24,9 @@
 import org.gradle.caching.configuration.BuildCache;
 import org.gradle.caching.configuration.internal.BuildCacheConfigurationInternal;
 import org.gradle.caching.internal.FinalizeBuildCacheConfigurationBuildOperationType;
+import org.gradle.caching.internal.controller.AsyncBuildCacheUploader;
 import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.caching.internal.controller.BuildCacheEntryTranscoder;
 import org.gradle.caching.internal.controller.DefaultBuildCacheController;
 import org.gradle.caching.internal.controller.NoOpBuildCacheController;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
@@ -71,7 +73,10 @@ public static BuildCacheController create(
         final RemoteAccessMode remoteAccessMode,
         final boolean logStackTraces,
         final boolean emitDebugLogging,
-        final Instantiator instantiator
+        final Instantiator instantiator,
+        @Nullable final BuildCacheEntryTranscoder remoteEntryTranscoder,
+        @Nullable final BuildCacheEntryTranscoder localEntryTranscoder,
+        @Nullable final AsyncBuildCacheUploader remoteUploader
     ) {
         return buildOperationExecutor.call(new CallableBuildOperation<BuildCacheController>() {
             @Override
@@ -123,7 +128,10 @@ public BuildCacheController call(BuildOperationContext context) {
                         gradleUserHomeDir,
                         logStackTraces,
                         emitDebugLogging,
-                        !Boolean.getBoolean(REMOTE_CONTINUE_ON_ERROR_PROPERTY)
+                        !Boolean.getBoolean(REMOTE_CONTINUE_ON_ERROR_PROPERTY),
+                        remoteEntryTranscoder,
+                        localEntryTranscoder,
+                        remoteUploader
                     );
                 }
             }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * The longest chain of dependent nodes in an execution plan, weighted by node duration.
+ */
+public class CriticalPath {
+    public static final CriticalPath EMPTY = new CriticalPath(ImmutableList.of(), 0);
+
+    private final List<Node> nodes;
+    private final long durationMillis;
+
+    private CriticalPath(List<Node> nodes, long durationMillis) {
+        this.nodes = nodes;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * The nodes on the critical path, in execution order.
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Calculates for each node the duration of the longest chain of nodes that can only start once the node has completed, including the node itself.
+     *
+     * @param plannedNodes the nodes in plan order, i.e. each node comes after the nodes it depends on.
+     * @param durations the duration of each node in milliseconds, unknown durations are treated as zero.
+     * @param remainingDurations receives the calculated durations for each node.
+     * @return the critical path of the plan.
+     */
+    static CriticalPath calculate(List<Node> plannedNodes, ToLongFunction<Node> durations, Map<Node, Long> remainingDurations) {
+        Map<Node, Node> nextOnPath = new IdentityHashMap<>();
+        Node start = null;
+        long longest = 0;
+        for (ListIterator<Node> iterator = plannedNodes.listIterator(plannedNodes.size()); iterator.hasPrevious();) {
+            Node node = iterator.previous();
+            Node next = null;
+            long remainingAfterNode = 0;
+            for (Node predecessor : node.getAllPredecessors()) {
+                Long remaining = remainingDurations.get(predecessor);
+                if (remaining != null && (next == null || remaining > remainingAfterNode)) {
+                    remainingAfterNode = remaining;
+                    next = predecessor;
+                }
+            }
+            long remaining = Math.max(0, durations.applyAsLong(node)) + remainingAfterNode;
+            remainingDurations.put(node, remaining);
+            if (next != null) {
+                nextOnPath.put(node, next);
+            }
+            if (remaining >= longest) {
+                start = node;
+                longest = remaining;
+            }
+        }
+        if (start == null) {
+            return EMPTY;
+        }
+        List<Node> path = new ArrayList<>();
+        for (Node node = start; node != null; node = nextOnPath.get(node)) {
+            path.add(node);
+        }
+        return new CriticalPath(ImmutableList.copyOf(path), longest);
+    }
+}
@@ -38,6 +38,7 @@
 import org.gradle.internal.logging.text.StyledTextOutput;
 import org.gradle.internal.resources.ResourceLock;
 import org.gradle.internal.resources.ResourceLockState;
+import org.gradle.internal.time.Time;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,13 +51,18 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * A reusable implementation of ExecutionPlan. The {@link #addEntryTasks(java.util.Collection)} and {@link #clear()} methods are NOT threadsafe, and callers must synchronize access to these methods.
@@ -66,12 +72,18 @@ public class DefaultExecutionPlan implements ExecutionPlan {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultExecutionPlan.class);
 
     private final Set<Node> entryNodes = new LinkedHashSet<>();
+    private final List<Node> nodesInPreviousExecutionOrder = new ArrayList<>();
+    private boolean hasEntryTasks;
     private final NodeMapping nodeMapping = new NodeMapping();
-    private final List<Node> executionQueue = Lists.newLinkedList();
+    private final Set<Node> executionQueue = new LinkedHashSet<>();
+    private final NavigableSet<Node> nodesWithCompleteDependencies = new TreeSet<>(Comparator.comparingInt(Node::getExecutionQueuePosition));
+    private final Deque<Node> nodesToPrefetch = new ArrayDeque<>();
+    private final Set<Node> nodesQueuedForPrefetch = Sets.newIdentityHashSet();
     private final Set<ResourceLock> projectLocks = Sets.newHashSet();
     private final FailureCollector failureCollector = new FailureCollector();
     private final TaskNodeFactory taskNodeFactory;
     private final TaskDependencyResolver dependencyResolver;
+    private final NodeDurationEstimator nodeDurationEstimator;
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     private boolean continueOnFailure;
@@ -86,10 +98,23 @@ public class DefaultExecutionPlan implements ExecutionPlan {
 
     private boolean buildCancelled;
 
+    private final Map<Node, Long> remainingDurations = new IdentityHashMap<>();
+    private final Map<Node, Long> executionDurations = new IdentityHashMap<>();
+    private CriticalPath estimatedCriticalPath = CriticalPath.EMPTY;
+
     public DefaultExecutionPlan(GradleInternal gradle, TaskNodeFactory taskNodeFactory, TaskDependencyResolver dependencyResolver) {
+        this(gradle, taskNodeFactory, dependencyResolver, NodeDurationEstimator.NONE);
+    }
+
+    /**
+     * Creates a plan that hands out ready nodes by their estimated remaining critical path, using the given estimator.
+     * When no estimates are available, nodes are handed out in plan order.
+     */
+    public DefaultExecutionPlan(GradleInternal gradle, TaskNodeFactory taskNodeFactory, TaskDependencyResolver dependencyResolver, NodeDurationEstimator nodeDurationEstimator) {
         this.gradle = gradle;
         this.taskNodeFactory = taskNodeFactory;
         this.dependencyResolver = dependencyResolver;
+        this.nodeDurationEstimator = nodeDurationEstimator;
     }
 
     @Override
@@ -102,7 +127,12 @@ public TaskNode getNode(Task task) {
         return nodeMapping.get(task);
     }
 
+    /**
+     * Adds nodes whose dependencies have already been resolved, in the order of a previously determined execution plan,
+     * for example when loading the plan from the configuration cache.
+     */
     public void addNodes(Collection<? extends Node> nodes) {
+        nodesInPreviousExecutionOrder.addAll(nodes);
         Deque<Node> queue = new ArrayDeque<>(nodes);
         for (Node node : nodes) {
             assert node.getDependenciesProcessed();
@@ -115,6 +145,7 @@ public void addNodes(Collection<? extends Node> nodes) {
     }
 
     public void addEntryTasks(Collection<? extends Task> tasks) {
+        hasEntryTasks = true;
         final Deque<Node> queue = new ArrayDeque<>();
 
         List<Task> sortedTasks = new ArrayList<>(tasks);
@@ -233,6 +264,68 @@ private void requireWithDependencies(Node node) {
     }
 
     public void determineExecutionPlan() {
+        Set<Node> dependenciesWhichRequireMonitoring = Sets.newHashSet();
+        if (!addNodesInPreviousExecutionOrder(dependenciesWhichRequireMonitoring)) {
+            walkEntryNodes(dependenciesWhichRequireMonitoring);
+        }
+        nodesInPreviousExecutionOrder.clear();
+        executionQueue.clear();
+        nodesWithCompleteDependencies.clear();
+        nodesToPrefetch.clear();
+        dependencyResolver.clear();
+        List<Node> plannedNodes = new ArrayList<>(nodeMapping);
+        if (isPrioritizingByCriticalPath()) {
+            prioritizeByCriticalPath(plannedNodes);
+        }
+        for (Node node : plannedNodes) {
+            node.setExecutionQueuePosition(executionQueue.size());
+            executionQueue.add(node);
+        }
+        for (Node node : plannedNodes) {
+            updateAllDependenciesComplete(node);
+        }
+        this.dependenciesWhichRequireMonitoring.addAll(dependenciesWhichRequireMonitoring);
+    }
+
+    /**
+     * Uses the order of the nodes added using {@link #addNodes(Collection)} as the execution plan, rather than walking the graph again,
+     * when those nodes form a complete plan in which every node comes after its successors and before its finalizers.
+     */
+    private boolean addNodesInPreviousExecutionOrder(Set<Node> dependenciesWhichRequireMonitoring) {
+        if (hasEntryTasks || nodesInPreviousExecutionOrder.isEmpty() || !nodeMapping.isEmpty()) {
+            return false;
+        }
+        Set<Node> plannedNodes = Sets.newHashSetWithExpectedSize(nodesInPreviousExecutionOrder.size());
+        for (Node node : nodesInPreviousExecutionOrder) {
+            if (!node.isIncludeInGraph()) {
+                return false;
+            }
+            for (Node successor : node.getAllSuccessors()) {
+                if (successor.isIncludeInGraph() && !plannedNodes.contains(successor)) {
+                    return false;
+                }
+            }
+            plannedNodes.add(node);
+        }
+        for (Node node : nodesInPreviousExecutionOrder) {
+            if (!plannedNodes.containsAll(node.getFinalizers())) {
+                return false;
+            }
+        }
+
+        for (Node node : nodesInPreviousExecutionOrder) {
+            for (Node successor : node.getAllSuccessors()) {
+                if (!successor.isIncludeInGraph() && successor.requiresMonitoring()) {
+                    dependenciesWhichRequireMonitoring.add(successor);
+                }
+            }
+            addToPlan(node, dependenciesWhichRequireMonitoring);
+        }
+        LOGGER.debug("Using the previously determined execution order of {} nodes.", nodeMapping.size());
+        return true;
+    }
+
+    private void walkEntryNodes(Set<Node> dependenciesWhichRequireMonitoring) {
         LinkedList<NodeInVisitingSegment> nodeQueue = Lists.newLinkedList(Iterables.transform(entryNodes, new Function<Node, NodeInVisitingSegment>() {
             private int index;
 
@@ -243,7 +336,6 @@ public NodeInVisitingSegment apply(Node node) {
             }
         }));
         int visitingSegmentCounter = nodeQueue.size();
-        Set<Node> dependenciesWhichRequireMonitoring = Sets.newHashSet();
 
         HashMultimap<Node, Integer> visitingNodes = HashMultimap.create();
         Deque<GraphEdge> walkedShouldRunAfterEdges = new ArrayDeque<>();
@@ -301,19 +393,7 @@ public NodeInVisitingSegment apply(Node node) {
                 maybeRemoveProcessedShouldRunAfterEdge(walkedShouldRunAfterEdges, node);
                 visitingNodes.remove(node, currentSegment);
                 path.pop();
-                nodeMapping.add(node);
-                if (node.requiresMonitoring()) {
-                    dependenciesWhichRequireMonitoring.add(node);
-                }
-
-                for (Node dependency : node.getDependencySuccessors()) {
-                    dependency.getMutationInfo().consumingNodes.add(node);
-                }
-
-                ResourceLock projectLock = node.getProjectToLock();
-                if (projectLock != null) {
-                    projectLocks.add(projectLock);
-                }
+                addToPlan(node, dependenciesWhichRequireMonitoring);
 
                 // Add any finalizers to the queue
                 for (Node finalizer : node.getFinalizers()) {
@@ -324,13 +404,100 @@ public NodeInVisitingSegment apply(Node node) {
                 }
             }
         }
-        executionQueue.clear();
-        dependencyResolver.clear();
-        Iterables.addAll(executionQueue, nodeMapping);
-        for (Node node : executionQueue) {
-            maybeNodesReady |= node.updateAllDependenciesComplete() && node.isReady();
+    }
+
+    private void addToPlan(Node node, Set<Node> dependenciesWhichRequireMonitoring) {
+        nodeMapping.add(node);
+        if (node.requiresMonitoring()) {
+            dependenciesWhichRequireMonitoring.add(node);
         }
-        this.dependenciesWhichRequireMonitoring.addAll(dependenciesWhichRequireMonitoring);
+
+        for (Node dependency : node.getDependencySuccessors()) {
+            dependency.getMutationInfo().consumingNodes.add(node);
+        }
+
+        ResourceLock projectLock = node.getProjectToLock();
+        if (projectLock != null) {
+            projectLocks.add(projectLock);
+        }
+    }
+
+    /**
+     * Orders the execution queue so that the ready node with the longest estimated chain of work behind it is selected first.
+     * The sort is stable, so nodes without any estimate keep their plan order.
+     */
+    private void prioritizeByCriticalPath(List<Node> plannedNodes) {
+        remainingDurations.clear();
+        estimatedCriticalPath = CriticalPath.calculate(plannedNodes, nodeDurationEstimator::estimateDurationMillis, remainingDurations);
+        LOGGER.debug("Estimated critical path takes {} ms: {}", estimatedCriticalPath.getDurationMillis(), estimatedCriticalPath.getNodes());
+        if (estimatedCriticalPath.getDurationMillis() > 0) {
+            plannedNodes.sort(Comparator.comparingLong((Node node) -> remainingDurations.get(node)).reversed());
+        }
+    }
+
+    public boolean isPrioritizingByCriticalPath() {
+        return nodeDurationEstimator != NodeDurationEstimator.NONE;
+    }
+
+    /**
+     * Returns the critical path as estimated from previous executions when the plan was determined.
+     */
+    public CriticalPath getEstimatedCriticalPath() {
+        return estimatedCriticalPath;
+    }
+
+    /**
+     * Returns the critical path of the plan, using the execution times measured for the nodes of this plan.
+     * Only available when prioritizing by critical path.
+     */
+    public CriticalPath getActualCriticalPath() {
+        return CriticalPath.calculate(ImmutableList.copyOf(nodeMapping), node -> executionDurations.getOrDefault(node, 0L), new IdentityHashMap<>());
+    }
+
+    /**
+     * Summarizes how long the nodes of this plan waited to be started after their dependencies had completed.
+     * The wait time of nodes which were never blocked by one of their locks is reported separately.
+     */
+    public SchedulingSummary getSchedulingSummary() {
+        int startedNodeCount = 0;
+        EnumMap<SchedulingDelayReason, Long> waitTimeMillis = new EnumMap<>(SchedulingDelayReason.class);
+        EnumMap<SchedulingDelayReason, Integer> delayedNodeCounts = new EnumMap<>(SchedulingDelayReason.class);
+        for (Node node : nodeMapping) {
+            SchedulingInfo schedulingInfo = node.getSchedulingInfo();
+            if (schedulingInfo.startTime == 0) {
+                continue;
+            }
+            startedNodeCount++;
+            long waitTime = schedulingInfo.getWaitTimeMillis();
+            if (waitTime > 0 || schedulingInfo.delayedBy != null) {
+                SchedulingDelayReason reason = schedulingInfo.delayedBy == null ? SchedulingDelayReason.NONE : schedulingInfo.delayedBy;
+                waitTimeMillis.merge(reason, waitTime, Long::sum);
+                delayedNodeCounts.merge(reason, 1, Integer::sum);
+            }
+        }
+        return new SchedulingSummary(startedNodeCount, waitTimeMillis, delayedNodeCounts);
+    }
+
+    /**
+     * Returns when the given node became ready to run, or 0 when its dependencies have not completed.
+     */
+    public long getReadyTime(Node node) {
+        return node.getSchedulingInfo().readyTime;
+    }
+
+    /**
+     * Returns when the given node was started, or 0 when it has not been started.
+     */
+    public long getStartTime(Node node) {
+        return node.getSchedulingInfo().startTime;
+    }
+
+    /**
+     * Returns the last resource which prevented the given node from being started while it was ready, if any.
+     */
+    @Nullable
+    public SchedulingDelayReason getDelayReason(Node node) {
+        return node.getSchedulingInfo().delayedBy;
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Deque<GraphEdge> walkedShouldRunAfterEdges, Node node) {
@@ -466,14 +633,22 @@ public void clear() {
         taskNodeFactory.clear();
         dependencyResolver.clear();
         entryNodes.clear();
+        nodesInPreviousExecutionOrder.clear();
+        hasEntryTasks = false;
         nodeMapping.clear();
         executionQueue.clear();
+        nodesWithCompleteDependencies.clear();
+        nodesToPrefetch.clear();
+        nodesQueuedForPrefetch.clear();
         projectLocks.clear();
         failureCollector.clearFailures();
         producedButNotYetConsumed.clear();
         reachableCache.clear();
         dependenciesWhichRequireMonitoring.clear();
         runningNodes.clear();
+        remainingDurations.clear();
+        executionDurations.clear();
+        estimatedCriticalPath = CriticalPath.EMPTY;
     }
 
     @Override
@@ -523,7 +698,8 @@ public Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLock
         if (!maybeNodesReady) {
             return null;
         }
-        Iterator<Node> iterator = executionQueue.iterator();
+        // Only nodes whose dependencies have completed can be ready, so there is no need to look at the rest of the queue
+        Iterator<Node> iterator = nodesWithCompleteDependencies.iterator();
         boolean foundReadyNode = false;
         while (iterator.hasNext()) {
             Node node = iterator.next();
@@ -531,7 +707,9 @@ public Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLock
                 foundReadyNode = true;
                 MutationInfo mutations = getResolvedMutationInfo(node);
 
-                if (!tryAcquireLocksForNode(node, workerLease, mutations)) {
+                SchedulingDelayReason delayReason = tryAcquireLocksForNode(node, workerLease, mutations);
+                if (delayReason != null) {
+                    node.getSchedulingInfo().delayedBy = delayReason;
                     resourceLockState.releaseLocks();
                     continue;
                 }
@@ -542,6 +720,7 @@ public Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLock
                     node.skipExecution(this::recordNodeCompleted);
                 }
                 iterator.remove();
+                executionQueue.remove(node);
                 return node;
             }
         }
@@ -550,30 +729,69 @@ public Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLock
         return null;
     }
 
-    private boolean tryAcquireLocksForNode(Node node, WorkerLeaseRegistry.WorkerLease workerLease, MutationInfo mutations) {
+    /**
+     * Tries to acquire the locks required to run the node, returning the resource which is not available or null if all the locks have been acquired.
+     */
+    @Nullable
+    private SchedulingDelayReason tryAcquireLocksForNode(Node node, WorkerLeaseRegistry.WorkerLease workerLease, MutationInfo mutations) {
         if (!tryLockProjectFor(node)) {
             LOGGER.debug("Cannot acquire project lock for node {}", node);
-            return false;
+            return SchedulingDelayReason.PROJECT_LOCK;
         } else if (!tryLockSharedResourceFor(node)) {
             LOGGER.debug("Cannot acquire shared resource lock for node {}", node);
-            return false;
+            return SchedulingDelayReason.SHARED_RESOURCE;
         } else if (!workerLease.tryLock()) {
             LOGGER.debug("Cannot acquire worker lease lock for node {}", node);
-            return false;
+            return SchedulingDelayReason.WORKER_LEASE;
             // TODO: convert output file checks to a resource lock
         } else if (!canRunWithCurrentlyExecutedNodes(node, mutations)) {
             LOGGER.debug("Node {} cannot run with currently running nodes {}", node, runningNodes);
-            return false;
+            return SchedulingDelayReason.OUTPUT_MUTATION;
         }
-        return true;
+        return null;
     }
 
     private void updateAllDependenciesCompleteForPredecessors(Node node) {
         for (Node predecessor : node.getAllPredecessors()) {
-            maybeNodesReady |= predecessor.updateAllDependenciesComplete() && predecessor.isReady();
+            updateAllDependenciesComplete(predecessor);
+        }
+    }
+
+    private void updateAllDependenciesComplete(Node node) {
+        maybeNodesReady |= node.updateAllDependenciesComplete() && node.isReady();
+        recordIfAllDependenciesComplete(node);
+    }
+
+    /**
+     * Tracks the nodes still waiting in the execution queue whose dependencies have completed, so that selecting
+     * the next node only needs to look at those. This has to be called whenever the dependencies of a node may have become complete.
+     */
+    private void recordIfAllDependenciesComplete(Node node) {
+        if (node.allDependenciesComplete() && executionQueue.contains(node)) {
+            if (nodesWithCompleteDependencies.add(node)) {
+                SchedulingInfo schedulingInfo = node.getSchedulingInfo();
+                if (schedulingInfo.readyTime == 0) {
+                    schedulingInfo.readyTime = Time.currentTimeMillis();
+                }
+                if (nodesQueuedForPrefetch.add(node)) {
+                    nodesToPrefetch.add(node);
+                }
+            }
         }
     }
 
+    @Override
+    @Nullable
+    public Node selectNextToPrefetch() {
+        while (!nodesToPrefetch.isEmpty()) {
+            Node node = nodesToPrefetch.removeFirst();
+            if (executionQueue.contains(node) && node.isReady()) {
+                return node;
+            }
+        }
+        return null;
+    }
+
     private boolean tryLockProjectFor(Node node) {
         ResourceLock toLock = node.getProjectToLock();
         if (toLock != null) {
@@ -729,6 +947,16 @@ private static String getOverLappedPath(String firstPath, String secondPath) {
 
     private void recordNodeExecutionStarted(Node node) {
         runningNodes.add(node);
+        node.getSchedulingInfo().startTime = Time.currentTimeMillis();
+    }
+
+    private void recordNodeExecutionFinished(Node node) {
+        if (isPrioritizingByCriticalPath()) {
+            long startTime = node.getSchedulingInfo().startTime;
+            if (startTime != 0) {
+                executionDurations.put(node, Time.currentTimeMillis() - startTime);
+            }
+        }
     }
 
     private void recordNodeCompleted(Node node) {
@@ -762,6 +990,7 @@ public void finishedExecuting(Node node) {
                 }
 
                 runningNodes.remove(node);
+                recordNodeExecutionFinished(node);
                 node.finishExecution(this::recordNodeCompleted);
             } else {
                 LOGGER.debug("Already completed node {} reported as finished executing", node);
@@ -772,7 +1001,7 @@ public void finishedExecuting(Node node) {
         }
     }
 
-    private static void enforceFinalizers(Node node) {
+    private void enforceFinalizers(Node node) {
         for (Node finalizerNode : node.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
                 Set<Node> enforcedNodes = Sets.newHashSet();
@@ -781,7 +1010,7 @@ private static void enforceFinalizers(Node node) {
         }
     }
 
-    private static void enforceWithDependencies(Node nodeInfo, Set<Node> enforcedNodes) {
+    private void enforceWithDependencies(Node nodeInfo, Set<Node> enforcedNodes) {
         Deque<Node> candidateNodes = new ArrayDeque<>();
         candidateNodes.add(nodeInfo);
 
@@ -797,6 +1026,7 @@ private static void enforceWithDependencies(Node nodeInfo, Set<Node> enforcedNod
                     // Completed changed from true to false - inform all nodes depending on this one.
                     for (Node predecessor : node.getAllPredecessors()) {
                         predecessor.forceAllDependenciesCompleteUpdate();
+                        recordIfAllDependenciesComplete(predecessor);
                     }
                 }
             }
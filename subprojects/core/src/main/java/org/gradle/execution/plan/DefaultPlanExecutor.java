@@ -49,9 +49,15 @@ public class DefaultPlanExecutor implements PlanExecutor {
     private final WorkerLeaseService workerLeaseService;
     private final BuildCancellationToken cancellationToken;
     private final ResourceLockCoordinationService coordinationService;
+    private final NodeInputPrefetcher inputPrefetcher;
 
     public DefaultPlanExecutor(ParallelismConfiguration parallelismConfiguration, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService, BuildCancellationToken cancellationToken, ResourceLockCoordinationService coordinationService) {
+        this(parallelismConfiguration, executorFactory, workerLeaseService, cancellationToken, coordinationService, NodeInputPrefetcher.NONE);
+    }
+
+    public DefaultPlanExecutor(ParallelismConfiguration parallelismConfiguration, ExecutorFactory executorFactory, WorkerLeaseService workerLeaseService, BuildCancellationToken cancellationToken, ResourceLockCoordinationService coordinationService, NodeInputPrefetcher inputPrefetcher) {
         this.executorFactory = executorFactory;
+        this.inputPrefetcher = inputPrefetcher;
         this.cancellationToken = cancellationToken;
         this.coordinationService = coordinationService;
         int numberOfParallelExecutors = parallelismConfiguration.getMaxWorkerCount();
@@ -69,7 +75,7 @@ public void process(ExecutionPlan executionPlan, Collection<? super Throwable> f
         try {
             WorkerLease parentWorkerLease = workerLeaseService.getCurrentWorkerLease();
             startAdditionalWorkers(executionPlan, nodeExecutor, executor, parentWorkerLease);
-            new ExecutorWorker(executionPlan, nodeExecutor, parentWorkerLease, cancellationToken, coordinationService).run();
+            new ExecutorWorker(executionPlan, nodeExecutor, parentWorkerLease, cancellationToken, coordinationService, inputPrefetcher).run();
             awaitCompletion(executionPlan, failures);
         } finally {
             executor.stop();
@@ -94,7 +100,7 @@ private void startAdditionalWorkers(ExecutionPlan executionPlan, Action<? super
         LOGGER.debug("Using {} parallel executor threads", executorCount);
 
         for (int i = 1; i < executorCount; i++) {
-            executor.execute(new ExecutorWorker(executionPlan, nodeExecutor, parentWorkerLease, cancellationToken, coordinationService));
+            executor.execute(new ExecutorWorker(executionPlan, nodeExecutor, parentWorkerLease, cancellationToken, coordinationService, inputPrefetcher));
         }
     }
 
@@ -104,13 +110,15 @@ private static class ExecutorWorker implements Runnable {
         private final WorkerLease parentWorkerLease;
         private final BuildCancellationToken cancellationToken;
         private final ResourceLockCoordinationService coordinationService;
+        private final NodeInputPrefetcher inputPrefetcher;
 
-        private ExecutorWorker(ExecutionPlan executionPlan, Action<? super Node> nodeExecutor, WorkerLease parentWorkerLease, BuildCancellationToken cancellationToken, ResourceLockCoordinationService coordinationService) {
+        private ExecutorWorker(ExecutionPlan executionPlan, Action<? super Node> nodeExecutor, WorkerLease parentWorkerLease, BuildCancellationToken cancellationToken, ResourceLockCoordinationService coordinationService, NodeInputPrefetcher inputPrefetcher) {
             this.executionPlan = executionPlan;
             this.nodeExecutor = nodeExecutor;
             this.parentWorkerLease = parentWorkerLease;
             this.cancellationToken = cancellationToken;
             this.coordinationService = coordinationService;
+            this.inputPrefetcher = inputPrefetcher;
         }
 
         @Override
@@ -120,8 +128,9 @@ public void run() {
             final Timer executionTimer = Time.startTimer();
 
             WorkerLease childLease = parentWorkerLease.createChild();
+            final MutableReference<Node> previous = MutableReference.empty();
             while (true) {
-                boolean nodesRemaining = executeNextNode(childLease, work -> {
+                boolean nodesRemaining = executeNextNode(childLease, previous, work -> {
                     LOGGER.info("{} ({}) started.", work, Thread.currentThread());
                     executionTimer.reset();
                     nodeExecutor.execute(work);
@@ -144,15 +153,22 @@ public void run() {
         }
 
         /**
-         * Selects a node that's ready to execute and executes the provided action against it. If no node is ready, blocks until some
-         * can be executed.
+         * Selects a node that's ready to execute and executes the provided action against it. If no node is ready, uses the
+         * idle thread to snapshot the inputs of a node that is waiting for other resources, or blocks until some node can be executed.
+         *
+         * The node executed previously by this worker is marked as finished while holding the same state lock that is used to select
+         * the next node, so that each node requires only a single acquisition of the state lock.
          *
+         * @param previous the node executed previously by this worker which still needs to be marked as finished, will be replaced with the node executed now.
          * @return {@code true} if there are more nodes waiting to execute, {@code false} if all nodes have been executed.
          */
-        private boolean executeNextNode(final WorkerLease workerLease, final Action<Node> nodeExecutor) {
+        private boolean executeNextNode(final WorkerLease workerLease, final MutableReference<Node> previous, final Action<Node> nodeExecutor) {
             final MutableReference<Node> selected = MutableReference.empty();
+            final MutableReference<Node> toPrefetch = MutableReference.empty();
             final MutableBoolean nodesRemaining = new MutableBoolean();
             coordinationService.withStateLock(resourceLockState -> {
+                finishPreviousNode(workerLease, previous);
+
                 if (cancellationToken.isCancellationRequested()) {
                     executionPlan.cancelExecution();
                 }
@@ -171,6 +187,12 @@ private boolean executeNextNode(final WorkerLease workerLease, final Action<Node
                 }
 
                 if (selected.get() == null && nodesRemaining.get()) {
+                    if (inputPrefetcher != NodeInputPrefetcher.NONE) {
+                        toPrefetch.set(executionPlan.selectNextToPrefetch());
+                        if (toPrefetch.get() != null) {
+                            return FINISHED;
+                        }
+                    }
                     return RETRY;
                 } else {
                     return FINISHED;
@@ -179,26 +201,51 @@ private boolean executeNextNode(final WorkerLease workerLease, final Action<Node
 
             Node selectedNode = selected.get();
             if (selectedNode != null) {
-                execute(selectedNode, workerLease, nodeExecutor);
+                execute(selectedNode, nodeExecutor);
+                previous.set(selectedNode);
+            }
+            Node prefetchNode = toPrefetch.get();
+            if (prefetchNode != null) {
+                prefetch(prefetchNode);
             }
             return nodesRemaining.get();
         }
 
-        private void execute(final Node selected, final WorkerLease workerLease, Action<Node> nodeExecutor) {
+        /**
+         * Snapshots the inputs of a node without holding a worker lease. This worker could not start any node,
+         * so its thread is otherwise idle, while other workers can still take the lease to start a node that becomes ready.
+         */
+        private void prefetch(Node node) {
             try {
-                if (!selected.isComplete()) {
-                    try {
-                        nodeExecutor.execute(selected);
-                    } catch (Throwable e) {
-                        selected.setExecutionFailure(e);
-                    }
-                }
-            } finally {
+                inputPrefetcher.prefetchInputs(node);
+            } catch (Exception e) {
+                LOGGER.debug("Could not snapshot the inputs of {} ahead of time.", node, e);
+            }
+        }
+
+        /**
+         * Marks the previous node as finished. Must be called while holding the state lock. Uses a nested state, so that
+         * the released locks are not mixed up with the locks acquired while selecting the next node.
+         */
+        private void finishPreviousNode(final WorkerLease workerLease, final MutableReference<Node> previous) {
+            final Node previousNode = previous.get();
+            if (previousNode != null) {
+                previous.set(null);
                 coordinationService.withStateLock(state -> {
-                    executionPlan.finishedExecuting(selected);
+                    executionPlan.finishedExecuting(previousNode);
                     return unlock(workerLease).transform(state);
                 });
             }
         }
+
+        private void execute(final Node selected, Action<Node> nodeExecutor) {
+            if (!selected.isComplete()) {
+                try {
+                    nodeExecutor.execute(selected);
+                } catch (Throwable e) {
+                    selected.setExecutionFailure(e);
+                }
+            }
+        }
     }
 }
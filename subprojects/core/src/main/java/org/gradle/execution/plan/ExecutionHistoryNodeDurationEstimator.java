@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.execution.history.ExecutionHistoryStore;
+
+import java.util.function.Supplier;
+
+/**
+ * Estimates the duration of task nodes by looking at the execution time recorded in the execution history of the previous run.
+ *
+ * Only task nodes are estimated, as no history is kept for other kinds of nodes.
+ */
+public class ExecutionHistoryNodeDurationEstimator implements NodeDurationEstimator {
+    private final Supplier<ExecutionHistoryStore> executionHistoryStore;
+
+    public ExecutionHistoryNodeDurationEstimator(Supplier<ExecutionHistoryStore> executionHistoryStore) {
+        this.executionHistoryStore = executionHistoryStore;
+    }
+
+    @Override
+    public long estimateDurationMillis(Node node) {
+        if (!(node instanceof LocalTaskNode)) {
+            return UNKNOWN;
+        }
+        String uniqueId = ((LocalTaskNode) node).getTask().getPath();
+        return executionHistoryStore.get().loadExecutionTime(uniqueId).orElse(UNKNOWN);
+    }
+}
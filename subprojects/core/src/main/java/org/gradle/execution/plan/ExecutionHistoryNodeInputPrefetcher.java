@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution.plan;
+
+import org.gradle.internal.execution.history.AfterPreviousExecutionState;
+import org.gradle.internal.execution.history.impl.PrefetchingExecutionHistoryStore;
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.vfs.FileSystemAccess;
+
+import java.io.File;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Snapshots the input file roots that task nodes had in their previous execution into the virtual file system.
+ * The inputs of a task usually don't change between builds, so the snapshots are likely to be reused when the task is executed.
+ * The loaded execution history is kept for the execution of the task, so it is only loaded once.
+ *
+ * Directory roots that contain the outputs of the task, such as a project directory, are skipped,
+ * as the task most likely only uses a few files from them.
+ */
+public class ExecutionHistoryNodeInputPrefetcher implements NodeInputPrefetcher {
+    private final Supplier<PrefetchingExecutionHistoryStore> executionHistoryStore;
+    private final FileSystemAccess fileSystemAccess;
+
+    public ExecutionHistoryNodeInputPrefetcher(Supplier<PrefetchingExecutionHistoryStore> executionHistoryStore, FileSystemAccess fileSystemAccess) {
+        this.executionHistoryStore = executionHistoryStore;
+        this.fileSystemAccess = fileSystemAccess;
+    }
+
+    @Override
+    public void prefetchInputs(Node node) {
+        if (!(node instanceof LocalTaskNode)) {
+            return;
+        }
+        String uniqueId = ((LocalTaskNode) node).getTask().getPath();
+        Optional<AfterPreviousExecutionState> previousExecutionState = executionHistoryStore.get().prefetch(uniqueId);
+        if (!previousExecutionState.isPresent()) {
+            return;
+        }
+        AfterPreviousExecutionState previous = previousExecutionState.get();
+        for (FileCollectionFingerprint inputFingerprint : previous.getInputFileProperties().values()) {
+            for (String rootPath : inputFingerprint.getRootPaths()) {
+                if (shouldPrefetch(rootPath, inputFingerprint, previous)) {
+                    fileSystemAccess.read(rootPath, snapshot -> snapshot);
+                }
+            }
+        }
+    }
+
+    private static boolean shouldPrefetch(String rootPath, FileCollectionFingerprint inputFingerprint, AfterPreviousExecutionState previous) {
+        FileSystemLocationFingerprint rootFingerprint = inputFingerprint.getFingerprints().get(rootPath);
+        if (rootFingerprint != null && rootFingerprint.getType() == FileType.RegularFile) {
+            return true;
+        }
+        String rootPrefix = rootPath + File.separatorChar;
+        for (FileCollectionFingerprint outputFingerprint : previous.getOutputFileProperties().values()) {
+            for (String outputRootPath : outputFingerprint.getRootPaths()) {
+                if (outputRootPath.equals(rootPath) || outputRootPath.startsWith(rootPrefix)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -35,6 +35,13 @@ public interface ExecutionPlan extends Describable {
     @Nullable
     Node selectNext(WorkerLeaseRegistry.WorkerLease workerLease, ResourceLockState resourceLockState);
 
+    /**
+     * Selects a work item whose dependencies have completed but which has not been started yet, so that its inputs can be snapshotted
+     * ahead of time. Returns null if there is no such work item. Each work item is selected at most once.
+     */
+    @Nullable
+    Node selectNextToPrefetch();
+
     void finishedExecuting(Node node);
 
     void abortAllAndFail(Throwable t);
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.resources.ResourceLock;
+import org.gradle.internal.resources.ResourceLockCoordinationService;
+import org.gradle.internal.resources.SharedResourceLeaseRegistry;
+
+import javax.annotation.Nullable;
+
+/**
+ * Limits the estimated memory used by the nodes and work items running in parallel. One budget is shared by all builds of a build session.
+ *
+ * <p>Each node declaring a memory weight holds a lease of that many megabytes while it runs, so the execution plan only starts a node once
+ * the weights of the running nodes leave enough of the budget. A node whose weight exceeds the whole budget holds the complete budget and runs on its own.</p>
+ *
+ * <p>Work items submitted by a node that holds a lease run within the lease of the node. Only work items submitted without a lease take a lease of their own,
+ * so a node never waits for its work items while they wait for the budget held by the node.</p>
+ */
+public class MemoryBudget {
+    public static final MemoryBudget UNLIMITED = new MemoryBudget(null, 0);
+
+    private static final String SHARED_RESOURCE_NAME = "memory budget";
+
+    private final SharedResourceLeaseRegistry leaseRegistry;
+    private final int budgetInMegabytes;
+
+    public MemoryBudget(@Nullable ResourceLockCoordinationService coordinationService, int budgetInMegabytes) {
+        // A registry of its own, so that all leases held by a thread are leases of the budget
+        this.leaseRegistry = coordinationService == null ? null : new SharedResourceLeaseRegistry(coordinationService);
+        this.budgetInMegabytes = leaseRegistry == null ? 0 : budgetInMegabytes;
+        if (this.budgetInMegabytes > 0) {
+            leaseRegistry.registerSharedResource(SHARED_RESOURCE_NAME, this.budgetInMegabytes);
+        }
+    }
+
+    public int getBudgetInMegabytes() {
+        return budgetInMegabytes;
+    }
+
+    /**
+     * Returns the lock a node with the given memory weight needs to hold while running, or {@code null} when the node is not limited.
+     */
+    @Nullable
+    public ResourceLock getResourceLock(int weightInMegabytes) {
+        if (budgetInMegabytes <= 0 || weightInMegabytes <= 0) {
+            return null;
+        }
+        return leaseRegistry.getResourceLock(SHARED_RESOURCE_NAME, Math.min(weightInMegabytes, budgetInMegabytes));
+    }
+
+    /**
+     * Returns the lock a work item with the given memory weight, submitted from the current thread, needs to hold while running,
+     * or {@code null} when the work item is not limited because it runs within the lease held by the current thread.
+     */
+    @Nullable
+    public ResourceLock getResourceLockForWorkItem(int weightInMegabytes) {
+        if (budgetInMegabytes <= 0 || !leaseRegistry.getResourceLocksByCurrentThread().isEmpty()) {
+            return null;
+        }
+        return getResourceLock(weightInMegabytes);
+    }
+}
@@ -49,6 +49,8 @@ enum ExecutionState {
     private final NavigableSet<Node> dependencySuccessors = Sets.newTreeSet();
     private final NavigableSet<Node> dependencyPredecessors = Sets.newTreeSet();
     private final MutationInfo mutationInfo = new MutationInfo(this);
+    private final SchedulingInfo schedulingInfo = new SchedulingInfo();
+    private int executionQueuePosition;
 
     public Node() {
         this.state = ExecutionState.UNKNOWN;
@@ -266,6 +268,21 @@ public MutationInfo getMutationInfo() {
         return mutationInfo;
     }
 
+    SchedulingInfo getSchedulingInfo() {
+        return schedulingInfo;
+    }
+
+    /**
+     * The position of this node in the execution queue of the plan, nodes with a lower position are preferred when several nodes are ready.
+     */
+    int getExecutionQueuePosition() {
+        return executionQueuePosition;
+    }
+
+    void setExecutionQueuePosition(int executionQueuePosition) {
+        this.executionQueuePosition = executionQueuePosition;
+    }
+
     public abstract void resolveMutations();
 
     public abstract boolean isPublicNode();
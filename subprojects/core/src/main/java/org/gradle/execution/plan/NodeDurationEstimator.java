@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+/**
+ * Estimates how long a node of the execution plan is going to take to execute.
+ */
+public interface NodeDurationEstimator {
+    /**
+     * Returned when no estimate is available for a node.
+     */
+    long UNKNOWN = -1;
+
+    /**
+     * An estimator that never knows anything. Using it keeps the nodes in plan order.
+     */
+    NodeDurationEstimator NONE = node -> UNKNOWN;
+
+    /**
+     * Returns the estimated execution time of the given node in milliseconds, or {@link #UNKNOWN}.
+     */
+    long estimateDurationMillis(Node node);
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution.plan;
+
+/**
+ * Snapshots the inputs of a node ahead of its execution, so the snapshots are already available when the node is executed.
+ */
+public interface NodeInputPrefetcher {
+    /**
+     * A prefetcher that does nothing.
+     */
+    NodeInputPrefetcher NONE = node -> {};
+
+    /**
+     * Snapshots the inputs of the given node. This is only a hint, so implementations should not fail when the inputs cannot be snapshotted.
+     */
+    void prefetchInputs(Node node);
+}
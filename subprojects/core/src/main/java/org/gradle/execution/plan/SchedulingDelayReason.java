@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+/**
+ * The resource which delayed a node whose dependencies had completed from being started.
+ */
+public enum SchedulingDelayReason {
+    /**
+     * The lock of the project owning the node was held by another node.
+     */
+    PROJECT_LOCK("Project lock"),
+    /**
+     * A shared build service had reached its maximum number of parallel usages, or the memory budget was used up by the running nodes.
+     */
+    SHARED_RESOURCE("Shared resource"),
+    /**
+     * No worker lease was available.
+     */
+    WORKER_LEASE("Worker lease"),
+    /**
+     * The outputs or destroyables of the node overlapped with a running node.
+     */
+    OUTPUT_MUTATION("Overlapping outputs"),
+    /**
+     * The node was never blocked by a resource, but had to wait until a worker selected it.
+     */
+    NONE("No resource");
+
+    private final String displayName;
+
+    SchedulingDelayReason(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
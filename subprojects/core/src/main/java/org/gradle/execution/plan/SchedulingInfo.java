@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import javax.annotation.Nullable;
+
+/**
+ * Scheduling telemetry of a node. Only updated by the execution plan while holding the state lock.
+ */
+class SchedulingInfo {
+    /**
+     * When the dependencies of the node completed, or 0 when they have not completed yet.
+     */
+    long readyTime;
+    /**
+     * When the node was started, or 0 when it has not been started.
+     */
+    long startTime;
+    /**
+     * The last resource which prevented the node from being started while it was ready.
+     */
+    @Nullable
+    SchedulingDelayReason delayedBy;
+
+    /**
+     * The time the node spent waiting between becoming ready and being started, or 0 when it was not started.
+     */
+    long getWaitTimeMillis() {
+        if (readyTime == 0 || startTime == 0) {
+            return 0;
+        }
+        return Math.max(0, startTime - readyTime);
+    }
+}
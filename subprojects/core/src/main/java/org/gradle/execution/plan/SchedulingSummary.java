@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The time nodes of an execution plan spent waiting to be started after their dependencies had completed, grouped by the resource that delayed them.
+ */
+public class SchedulingSummary {
+    public static final SchedulingSummary EMPTY = new SchedulingSummary(0, new EnumMap<>(SchedulingDelayReason.class), new EnumMap<>(SchedulingDelayReason.class));
+
+    private final int startedNodeCount;
+    private final Map<SchedulingDelayReason, Long> waitTimeMillis;
+    private final Map<SchedulingDelayReason, Integer> delayedNodeCounts;
+
+    public SchedulingSummary(int startedNodeCount, EnumMap<SchedulingDelayReason, Long> waitTimeMillis, EnumMap<SchedulingDelayReason, Integer> delayedNodeCounts) {
+        this.startedNodeCount = startedNodeCount;
+        this.waitTimeMillis = ImmutableMap.copyOf(waitTimeMillis);
+        this.delayedNodeCounts = ImmutableMap.copyOf(delayedNodeCounts);
+    }
+
+    /**
+     * The number of nodes which were started.
+     */
+    public int getStartedNodeCount() {
+        return startedNodeCount;
+    }
+
+    /**
+     * The total time nodes spent waiting for each resource.
+     */
+    public long getWaitTimeMillis(SchedulingDelayReason reason) {
+        return waitTimeMillis.getOrDefault(reason, 0L);
+    }
+
+    /**
+     * The number of nodes which had to wait for each resource.
+     */
+    public int getDelayedNodeCount(SchedulingDelayReason reason) {
+        return delayedNodeCounts.getOrDefault(reason, 0);
+    }
+
+    public long getTotalWaitTimeMillis() {
+        long total = 0;
+        for (Long millis : waitTimeMillis.values()) {
+            total += millis;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulingSummary{startedNodeCount=" + startedNodeCount + ", waitTimeMillis=" + waitTimeMillis + ", delayedNodeCounts=" + delayedNodeCounts + "}";
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.execution.taskgraph;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import groovy.lang.Closure;
@@ -36,10 +37,14 @@
 import org.gradle.api.tasks.TaskState;
 import org.gradle.configuration.internal.ListenerBuildOperationDecorator;
 import org.gradle.execution.ProjectExecutionServiceRegistry;
+import org.gradle.execution.plan.CriticalPath;
 import org.gradle.execution.plan.DefaultExecutionPlan;
 import org.gradle.execution.plan.Node;
+import org.gradle.execution.plan.NodeDurationEstimator;
 import org.gradle.execution.plan.NodeExecutor;
 import org.gradle.execution.plan.PlanExecutor;
+import org.gradle.execution.plan.SchedulingDelayReason;
+import org.gradle.execution.plan.SchedulingSummary;
 import org.gradle.execution.plan.TaskDependencyResolver;
 import org.gradle.execution.plan.TaskNode;
 import org.gradle.execution.plan.TaskNodeFactory;
@@ -60,9 +65,12 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @NonNullApi
@@ -80,6 +88,8 @@ private enum GraphState {
     private final ListenerBroadcast<TaskExecutionGraphListener> graphListeners;
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
     private final BuildScopeListenerRegistrationListener buildScopeListenerRegistrationListener;
+    private final TaskGraphCalculationListener taskGraphCalculationListener;
+    private final TaskSchedulingListener taskSchedulingListener;
     private final ProjectStateRegistry projectStateRegistry;
     private final ServiceRegistry globalServices;
     private final DefaultExecutionPlan executionPlan;
@@ -100,9 +110,12 @@ public DefaultTaskExecutionGraph(
         GradleInternal gradleInternal,
         TaskNodeFactory taskNodeFactory,
         TaskDependencyResolver dependencyResolver,
+        NodeDurationEstimator nodeDurationEstimator,
         ListenerBroadcast<TaskExecutionGraphListener> graphListeners,
         ListenerBroadcast<TaskExecutionListener> taskListeners,
         BuildScopeListenerRegistrationListener buildScopeListenerRegistrationListener,
+        TaskGraphCalculationListener taskGraphCalculationListener,
+        TaskSchedulingListener taskSchedulingListener,
         ProjectStateRegistry projectStateRegistry,
         ServiceRegistry globalServices
     ) {
@@ -115,9 +128,11 @@ public DefaultTaskExecutionGraph(
         this.graphListeners = graphListeners;
         this.taskListeners = taskListeners;
         this.buildScopeListenerRegistrationListener = buildScopeListenerRegistrationListener;
+        this.taskGraphCalculationListener = taskGraphCalculationListener;
+        this.taskSchedulingListener = taskSchedulingListener;
         this.projectStateRegistry = projectStateRegistry;
         this.globalServices = globalServices;
-        this.executionPlan = new DefaultExecutionPlan(gradleInternal, taskNodeFactory, dependencyResolver);
+        this.executionPlan = new DefaultExecutionPlan(gradleInternal, taskNodeFactory, dependencyResolver, nodeDurationEstimator);
     }
 
     @Override
@@ -144,7 +159,12 @@ public void addEntryTasks(Iterable<? extends Task> tasks) {
             requestedTasks.add(task);
         }
 
-        executionPlan.addEntryTasks(taskSet);
+        taskGraphCalculationListener.beforeTaskGraphCalculation(gradleInternal.getIdentityPath());
+        try {
+            executionPlan.addEntryTasks(taskSet);
+        } finally {
+            taskGraphCalculationListener.afterTaskGraphCalculation(gradleInternal.getIdentityPath());
+        }
         graphState = GraphState.DIRTY;
 
         LOGGER.debug("Timing: Creating the DAG took " + clock.getElapsed());
@@ -152,7 +172,12 @@ public void addEntryTasks(Iterable<? extends Task> tasks) {
 
     @Override
     public void addNodes(Collection<? extends Node> nodes) {
-        executionPlan.addNodes(nodes);
+        taskGraphCalculationListener.beforeTaskGraphCalculation(gradleInternal.getIdentityPath());
+        try {
+            executionPlan.addNodes(nodes);
+        } finally {
+            taskGraphCalculationListener.afterTaskGraphCalculation(gradleInternal.getIdentityPath());
+        }
         graphState = GraphState.DIRTY;
     }
 
@@ -188,6 +213,12 @@ private void executeWithServices(ProjectExecutionServiceRegistry projectExecutio
                 )
             );
             LOGGER.debug("Timing: Executing the DAG took " + clock.getElapsed());
+            if (executionPlan.isPrioritizingByCriticalPath()) {
+                buildOperationExecutor.run(new ReportCriticalPath(executionPlan, clock.getElapsedMillis(), gradleInternal));
+            }
+            SchedulingSummary schedulingSummary = executionPlan.getSchedulingSummary();
+            buildOperationExecutor.run(new ReportTaskScheduling(executionPlan, schedulingSummary, gradleInternal));
+            taskSchedulingListener.afterTaskGraphExecution(schedulingSummary);
         } finally {
             coordinationService.withStateLock(resourceLockState -> {
                 executionPlan.clear();
@@ -324,7 +355,12 @@ private void ensurePopulated() {
                 throw new IllegalStateException(
                     "Task information is not available, as this task execution graph has not been populated.");
             case DIRTY:
-                executionPlan.determineExecutionPlan();
+                taskGraphCalculationListener.beforeTaskGraphCalculation(gradleInternal.getIdentityPath());
+                try {
+                    executionPlan.determineExecutionPlan();
+                } finally {
+                    taskGraphCalculationListener.afterTaskGraphCalculation(gradleInternal.getIdentityPath());
+                }
                 allTasks = null;
                 graphState = GraphState.POPULATED;
                 return;
@@ -395,6 +431,160 @@ public Set<Task> getFilteredTasks() {
         return executionPlan.getFilteredTasks();
     }
 
+    private static class ReportCriticalPath implements RunnableBuildOperation {
+
+        private final DefaultExecutionPlan executionPlan;
+        private final long executionTimeMillis;
+        private final GradleInternal gradleInternal;
+
+        private ReportCriticalPath(DefaultExecutionPlan executionPlan, long executionTimeMillis, GradleInternal gradleInternal) {
+            this.executionPlan = executionPlan;
+            this.executionTimeMillis = executionTimeMillis;
+            this.gradleInternal = gradleInternal;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            CriticalPath estimated = executionPlan.getEstimatedCriticalPath();
+            CriticalPath actual = executionPlan.getActualCriticalPath();
+            LOGGER.info("Critical path of {}: estimated {} ms, actual {} ms, task graph executed in {} ms.",
+                gradleInternal.getIdentityPath(), estimated.getDurationMillis(), actual.getDurationMillis(), executionTimeMillis);
+            List<String> estimatedTasks = taskPaths(estimated);
+            List<String> actualTasks = taskPaths(actual);
+            context.setResult(new ReportCriticalPathBuildOperationType.Result() {
+                @Override
+                public long getEstimatedCriticalPathMillis() {
+                    return estimated.getDurationMillis();
+                }
+
+                @Override
+                public List<String> getEstimatedCriticalPath() {
+                    return estimatedTasks;
+                }
+
+                @Override
+                public long getActualCriticalPathMillis() {
+                    return actual.getDurationMillis();
+                }
+
+                @Override
+                public List<String> getActualCriticalPath() {
+                    return actualTasks;
+                }
+
+                @Override
+                public long getExecutionTimeMillis() {
+                    return executionTimeMillis;
+                }
+            });
+        }
+
+        private static List<String> taskPaths(CriticalPath criticalPath) {
+            ImmutableList.Builder<String> builder = ImmutableList.builder();
+            for (Node node : criticalPath.getNodes()) {
+                if (node instanceof TaskNode) {
+                    builder.add(((TaskNode) node).getTask().getIdentityPath().getPath());
+                }
+            }
+            return builder.build();
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName(gradleInternal.contextualize("Report critical path"))
+                .details(new ReportCriticalPathBuildOperationType.DetailsImpl(
+                    gradleInternal.getIdentityPath()
+                ));
+        }
+    }
+
+    private static class ReportTaskScheduling implements RunnableBuildOperation {
+
+        private final DefaultExecutionPlan executionPlan;
+        private final SchedulingSummary summary;
+        private final GradleInternal gradleInternal;
+
+        private ReportTaskScheduling(DefaultExecutionPlan executionPlan, SchedulingSummary summary, GradleInternal gradleInternal) {
+            this.executionPlan = executionPlan;
+            this.summary = summary;
+            this.gradleInternal = gradleInternal;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            LOGGER.debug("Scheduling of {}: {}", gradleInternal.getIdentityPath(), summary);
+            List<ReportTaskSchedulingBuildOperationType.ScheduledTask> scheduledTasks = scheduledTasks(executionPlan);
+            ImmutableMap.Builder<String, Long> waitTimeMillis = ImmutableMap.builder();
+            ImmutableMap.Builder<String, Integer> delayedTaskCounts = ImmutableMap.builder();
+            for (SchedulingDelayReason reason : SchedulingDelayReason.values()) {
+                waitTimeMillis.put(reason.name(), summary.getWaitTimeMillis(reason));
+                delayedTaskCounts.put(reason.name(), summary.getDelayedNodeCount(reason));
+            }
+            Map<String, Long> waitTimes = waitTimeMillis.build();
+            Map<String, Integer> delayedCounts = delayedTaskCounts.build();
+            context.setResult(new ReportTaskSchedulingBuildOperationType.Result() {
+                @Override
+                public List<ReportTaskSchedulingBuildOperationType.ScheduledTask> getScheduledTasks() {
+                    return scheduledTasks;
+                }
+
+                @Override
+                public Map<String, Long> getWaitTimeMillis() {
+                    return waitTimes;
+                }
+
+                @Override
+                public Map<String, Integer> getDelayedTaskCounts() {
+                    return delayedCounts;
+                }
+            });
+        }
+
+        private static List<ReportTaskSchedulingBuildOperationType.ScheduledTask> scheduledTasks(DefaultExecutionPlan executionPlan) {
+            ImmutableList.Builder<ReportTaskSchedulingBuildOperationType.ScheduledTask> builder = ImmutableList.builder();
+            for (Node node : executionPlan.getScheduledNodes()) {
+                long startTime = executionPlan.getStartTime(node);
+                if (node instanceof TaskNode && startTime != 0) {
+                    String taskPath = ((TaskNode) node).getTask().getIdentityPath().getPath();
+                    long readyTime = executionPlan.getReadyTime(node);
+                    SchedulingDelayReason delayReason = executionPlan.getDelayReason(node);
+                    String delayedBy = delayReason == null ? null : delayReason.name();
+                    builder.add(new ReportTaskSchedulingBuildOperationType.ScheduledTask() {
+                        @Override
+                        public String getTaskPath() {
+                            return taskPath;
+                        }
+
+                        @Override
+                        public long getReadyTime() {
+                            return readyTime;
+                        }
+
+                        @Override
+                        public long getStartTime() {
+                            return startTime;
+                        }
+
+                        @Nullable
+                        @Override
+                        public String getDelayedBy() {
+                            return delayedBy;
+                        }
+                    });
+                }
+            }
+            return builder.build();
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName(gradleInternal.contextualize("Report task scheduling"))
+                .details(new ReportTaskSchedulingBuildOperationType.DetailsImpl(
+                    gradleInternal.getIdentityPath()
+                ));
+        }
+    }
+
     private static class NotifyTaskGraphWhenReady implements RunnableBuildOperation {
 
         private final TaskExecutionGraph taskExecutionGraph;
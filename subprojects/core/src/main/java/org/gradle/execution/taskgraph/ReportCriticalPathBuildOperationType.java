@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.internal.operations.BuildOperationType;
+import org.gradle.util.Path;
+
+import java.util.List;
+
+/**
+ * Reports the critical path of a build's task graph, as estimated from previous executions and as measured during execution.
+ * Only emitted when nodes are prioritized by their critical path.
+ *
+ * @since 6.8
+ */
+public class ReportCriticalPathBuildOperationType implements BuildOperationType<ReportCriticalPathBuildOperationType.Details, ReportCriticalPathBuildOperationType.Result> {
+
+    public interface Details {
+
+        String getBuildPath();
+
+    }
+
+    public interface Result {
+
+        /**
+         * The duration of the critical path estimated from previous executions when the plan was determined.
+         */
+        long getEstimatedCriticalPathMillis();
+
+        /**
+         * The identity paths of the tasks on the estimated critical path, in execution order.
+         */
+        List<String> getEstimatedCriticalPath();
+
+        /**
+         * The duration of the critical path measured during execution.
+         */
+        long getActualCriticalPathMillis();
+
+        /**
+         * The identity paths of the tasks on the measured critical path, in execution order.
+         */
+        List<String> getActualCriticalPath();
+
+        /**
+         * The wall-clock time it took to execute the task graph.
+         */
+        long getExecutionTimeMillis();
+
+    }
+
+    static class DetailsImpl implements ReportCriticalPathBuildOperationType.Details {
+
+        private final Path buildPath;
+
+        DetailsImpl(Path buildPath) {
+            this.buildPath = buildPath;
+        }
+
+        @Override
+        public String getBuildPath() {
+            return buildPath.getPath();
+        }
+
+    }
+
+    private ReportCriticalPathBuildOperationType() {
+    }
+}
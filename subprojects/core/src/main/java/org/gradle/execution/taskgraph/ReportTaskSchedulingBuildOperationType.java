@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.internal.operations.BuildOperationType;
+import org.gradle.util.Path;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports when the tasks of a build's task graph became ready to run, when they were started and which resource delayed them in between.
+ *
+ * @since 6.8
+ */
+public class ReportTaskSchedulingBuildOperationType implements BuildOperationType<ReportTaskSchedulingBuildOperationType.Details, ReportTaskSchedulingBuildOperationType.Result> {
+
+    public interface Details {
+
+        String getBuildPath();
+
+    }
+
+    public interface Result {
+
+        /**
+         * The tasks which were started, in the order they were scheduled.
+         */
+        List<ScheduledTask> getScheduledTasks();
+
+        /**
+         * The total time tasks spent waiting after their dependencies had completed, keyed by the resource which delayed them.
+         * The keys are the names of {@link org.gradle.execution.plan.SchedulingDelayReason}.
+         */
+        Map<String, Long> getWaitTimeMillis();
+
+        /**
+         * The number of tasks which were delayed, keyed by the resource which delayed them.
+         * The keys are the names of {@link org.gradle.execution.plan.SchedulingDelayReason}.
+         */
+        Map<String, Integer> getDelayedTaskCounts();
+
+    }
+
+    public interface ScheduledTask {
+
+        String getTaskPath();
+
+        /**
+         * When the dependencies of the task had completed, in milliseconds since the epoch.
+         */
+        long getReadyTime();
+
+        /**
+         * When the task was started, in milliseconds since the epoch.
+         */
+        long getStartTime();
+
+        /**
+         * The name of the last resource which prevented the task from being started while it was ready, or null if it was only waiting for a free worker.
+         */
+        @Nullable
+        String getDelayedBy();
+
+    }
+
+    static class DetailsImpl implements ReportTaskSchedulingBuildOperationType.Details {
+
+        private final Path buildPath;
+
+        DetailsImpl(Path buildPath) {
+            this.buildPath = buildPath;
+        }
+
+        @Override
+        public String getBuildPath() {
+            return buildPath.getPath();
+        }
+
+    }
+
+    private ReportTaskSchedulingBuildOperationType() {
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.internal.service.scopes.EventScope;
+import org.gradle.internal.service.scopes.Scopes;
+import org.gradle.util.Path;
+
+/**
+ * Notified when work is done to calculate the task graph of a build. The task graph may be calculated in several steps,
+ * so these methods can be called several times for a build. The task graphs of different builds, such as included builds,
+ * may be calculated at the same time.
+ */
+@EventScope(Scopes.Build.class)
+public interface TaskGraphCalculationListener {
+    /**
+     * Called before resolving the dependencies of the tasks added to the graph, or determining the execution plan.
+     */
+    void beforeTaskGraphCalculation(Path buildPath);
+
+    /**
+     * Called after the dependencies of the tasks added to the graph have been resolved, or the execution plan has been determined.
+     */
+    void afterTaskGraphCalculation(Path buildPath);
+}
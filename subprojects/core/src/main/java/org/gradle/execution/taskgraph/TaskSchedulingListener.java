@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.execution.plan.SchedulingSummary;
+import org.gradle.internal.service.scopes.EventScope;
+import org.gradle.internal.service.scopes.Scopes;
+
+/**
+ * Notified of how long the tasks of a build waited to be started once their dependencies had completed.
+ * The task graph may be executed several times for a build, so this can be called several times for a build.
+ */
+@EventScope(Scopes.Build.class)
+public interface TaskSchedulingListener {
+    /**
+     * Called after the task graph has been executed.
+     */
+    void afterTaskGraphExecution(SchedulingSummary summary);
+}
@@ -27,6 +27,9 @@
 import org.gradle.internal.fingerprint.classpath.ClasspathFingerprinter;
 import org.gradle.internal.fingerprint.impl.AbstractFileCollectionFingerprinter;
 
+import javax.annotation.Nullable;
+import java.util.concurrent.ForkJoinPool;
+
 public class DefaultClasspathFingerprinter extends AbstractFileCollectionFingerprinter implements ClasspathFingerprinter {
     public DefaultClasspathFingerprinter(
         ResourceSnapshotterCacheService cacheService,
@@ -34,7 +37,8 @@ public DefaultClasspathFingerprinter(
         ResourceFilter classpathResourceFilter,
         ResourceEntryFilter manifestAttributeResourceEntryFilter,
         ResourceEntryFilter manifestPropertyResourceEntryFilter,
-        StringInterner stringInterner
+        StringInterner stringInterner,
+        @Nullable ForkJoinPool hashingPool
     ) {
         super(
             ClasspathFingerprintingStrategy.runtimeClasspath(
@@ -43,7 +47,8 @@ public DefaultClasspathFingerprinter(
                 manifestPropertyResourceEntryFilter,
                 new RuntimeClasspathResourceHasher(),
                 cacheService,
-                stringInterner
+                stringInterner,
+                hashingPool
             ),
             fileCollectionSnapshotter
         );
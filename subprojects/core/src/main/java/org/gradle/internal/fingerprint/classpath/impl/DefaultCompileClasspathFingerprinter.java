@@ -18,7 +18,6 @@
 
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.AbiExtractingClasspathResourceHasher;
-import org.gradle.api.internal.changedetection.state.CachingResourceHasher;
 import org.gradle.api.internal.changedetection.state.ResourceSnapshotterCacheService;
 import org.gradle.api.tasks.CompileClasspathNormalizer;
 import org.gradle.api.tasks.FileNormalizer;
@@ -26,12 +25,16 @@
 import org.gradle.internal.fingerprint.classpath.CompileClasspathFingerprinter;
 import org.gradle.internal.fingerprint.impl.AbstractFileCollectionFingerprinter;
 
+import javax.annotation.Nullable;
+import java.util.concurrent.ForkJoinPool;
+
 public class DefaultCompileClasspathFingerprinter extends AbstractFileCollectionFingerprinter implements CompileClasspathFingerprinter {
-    public DefaultCompileClasspathFingerprinter(ResourceSnapshotterCacheService cacheService, FileCollectionSnapshotter fileCollectionSnapshotter, StringInterner stringInterner) {
+    public DefaultCompileClasspathFingerprinter(AbiExtractingClasspathResourceHasher classpathResourceHasher, ResourceSnapshotterCacheService cacheService, FileCollectionSnapshotter fileCollectionSnapshotter, StringInterner stringInterner, @Nullable ForkJoinPool hashingPool) {
         super(ClasspathFingerprintingStrategy.compileClasspath(
-                    new CachingResourceHasher(new AbiExtractingClasspathResourceHasher(), cacheService),
+                    classpathResourceHasher,
                     cacheService,
-                    stringInterner
+                    stringInterner,
+                    hashingPool
                 ), fileCollectionSnapshotter);
     }
 
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.gradle.internal.concurrent.ManagedForkJoinPool;
+
+/**
+ * The pool files and zip entries are hashed on in parallel, shared by the file system accesses and classpath fingerprinters of a Gradle user home.
+ */
+public class ParallelHashingPool extends ManagedForkJoinPool {
+    public ParallelHashingPool() {
+        super("File hashing", Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -27,6 +27,10 @@
 import org.gradle.caching.internal.controller.BuildCacheController;
 import org.gradle.concurrent.ParallelismConfiguration;
 import org.gradle.execution.plan.DefaultPlanExecutor;
+import org.gradle.execution.plan.ExecutionHistoryNodeDurationEstimator;
+import org.gradle.execution.plan.ExecutionHistoryNodeInputPrefetcher;
+import org.gradle.execution.plan.NodeDurationEstimator;
+import org.gradle.execution.plan.NodeInputPrefetcher;
 import org.gradle.execution.plan.PlanExecutor;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -41,6 +45,7 @@
 import org.gradle.internal.execution.history.changes.ExecutionStateChangeDetector;
 import org.gradle.internal.execution.history.impl.DefaultExecutionHistoryStore;
 import org.gradle.internal.execution.history.impl.DefaultOutputFilesRepository;
+import org.gradle.internal.execution.history.impl.PrefetchingExecutionHistoryStore;
 import org.gradle.internal.execution.impl.DefaultWorkExecutor;
 import org.gradle.internal.execution.steps.AssignWorkspaceStep;
 import org.gradle.internal.execution.steps.BroadcastChangingOutputsStep;
@@ -73,7 +78,9 @@
 import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.resources.SharedResourceLeaseRegistry;
 import org.gradle.internal.scopeids.id.BuildInvocationScopeId;
+import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.snapshot.ValueSnapshotter;
+import org.gradle.internal.vfs.FileSystemAccess;
 import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.util.GradleVersion;
 
@@ -82,6 +89,10 @@
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class ExecutionGradleServices {
+    public static final String CRITICAL_PATH_SCHEDULING_PROPERTY = "org.gradle.internal.tasks.scheduling.critical-path";
+    public static final String PREFETCH_INPUTS_PROPERTY = "org.gradle.internal.tasks.scheduling.prefetch-inputs";
+    public static final String WRITE_BEHIND_EXECUTION_HISTORY_PROPERTY = "org.gradle.internal.execution.history.write-behind";
+
     ExecutionHistoryCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository) {
         return new DefaultExecutionHistoryCacheAccess(gradle, cacheRepository);
     }
@@ -89,13 +100,34 @@ ExecutionHistoryCacheAccess createCacheAccess(Gradle gradle, CacheRepository cac
     ExecutionHistoryStore createExecutionHistoryStore(
         ExecutionHistoryCacheAccess executionHistoryCacheAccess,
         InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory,
-        StringInterner stringInterner
+        StringInterner stringInterner,
+        ExecutorFactory executorFactory
     ) {
-        return new DefaultExecutionHistoryStore(
+        DefaultExecutionHistoryStore executionHistoryStore = new DefaultExecutionHistoryStore(
             executionHistoryCacheAccess,
             inMemoryCacheDecoratorFactory,
-            stringInterner
+            stringInterner,
+            Boolean.getBoolean(WRITE_BEHIND_EXECUTION_HISTORY_PROPERTY) ? executorFactory : null
         );
+        return Boolean.getBoolean(PREFETCH_INPUTS_PROPERTY)
+            ? new PrefetchingExecutionHistoryStore(executionHistoryStore)
+            : executionHistoryStore;
+    }
+
+    NodeDurationEstimator createNodeDurationEstimator(ServiceRegistry gradleScopedServices) {
+        if (!Boolean.getBoolean(CRITICAL_PATH_SCHEDULING_PROPERTY)) {
+            return NodeDurationEstimator.NONE;
+        }
+        // Look up the history lazily, so the cache is only opened when the execution plan is determined
+        return new ExecutionHistoryNodeDurationEstimator(() -> gradleScopedServices.get(ExecutionHistoryStore.class));
+    }
+
+    NodeInputPrefetcher createNodeInputPrefetcher(ServiceRegistry gradleScopedServices, FileSystemAccess fileSystemAccess) {
+        if (!Boolean.getBoolean(PREFETCH_INPUTS_PROPERTY)) {
+            return NodeInputPrefetcher.NONE;
+        }
+        // The execution history store is a prefetching store when prefetching is enabled
+        return new ExecutionHistoryNodeInputPrefetcher(() -> (PrefetchingExecutionHistoryStore) gradleScopedServices.get(ExecutionHistoryStore.class), fileSystemAccess);
     }
 
     OutputFilesRepository createOutputFilesRepository(CacheRepository cacheRepository, Gradle gradle, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
@@ -114,7 +146,8 @@ PlanExecutor createPlanExecutor(
         ExecutorFactory executorFactory,
         WorkerLeaseService workerLeaseService,
         BuildCancellationToken cancellationToken,
-        ResourceLockCoordinationService coordinationService) {
+        ResourceLockCoordinationService coordinationService,
+        NodeInputPrefetcher inputPrefetcher) {
         int parallelThreads = parallelismConfiguration.getMaxWorkerCount();
         if (parallelThreads < 1) {
             throw new IllegalStateException(String.format("Cannot create executor for requested number of worker threads: %s.", parallelThreads));
@@ -125,7 +158,8 @@ PlanExecutor createPlanExecutor(
             executorFactory,
             workerLeaseService,
             cancellationToken,
-            coordinationService
+            coordinationService,
+            inputPrefetcher
         );
     }
 
@@ -65,6 +65,7 @@
 import org.gradle.execution.commandline.CommandLineTaskParser;
 import org.gradle.execution.plan.DependencyResolver;
 import org.gradle.execution.plan.LocalTaskNodeExecutor;
+import org.gradle.execution.plan.NodeDurationEstimator;
 import org.gradle.execution.plan.NodeExecutor;
 import org.gradle.execution.plan.PlanExecutor;
 import org.gradle.execution.plan.TaskDependencyResolver;
@@ -74,7 +75,9 @@
 import org.gradle.execution.plan.WorkNodeExecutor;
 import org.gradle.execution.taskgraph.DefaultTaskExecutionGraph;
 import org.gradle.execution.taskgraph.TaskExecutionGraphInternal;
+import org.gradle.execution.taskgraph.TaskGraphCalculationListener;
 import org.gradle.execution.taskgraph.TaskListenerInternal;
+import org.gradle.execution.taskgraph.TaskSchedulingListener;
 import org.gradle.initialization.BuildOperationFiringTaskExecutionPreparer;
 import org.gradle.initialization.DefaultTaskExecutionPreparer;
 import org.gradle.initialization.TaskExecutionPreparer;
@@ -224,6 +227,7 @@ TaskExecutionGraphInternal createTaskExecutionGraph(
         GradleInternal gradleInternal,
         TaskNodeFactory taskNodeFactory,
         TaskDependencyResolver dependencyResolver,
+        NodeDurationEstimator nodeDurationEstimator,
         ListenerBroadcast<TaskExecutionListener> taskListeners,
         ListenerBroadcast<TaskExecutionGraphListener> graphListeners,
         ListenerManager listenerManager,
@@ -239,9 +243,12 @@ TaskExecutionGraphInternal createTaskExecutionGraph(
             gradleInternal,
             taskNodeFactory,
             dependencyResolver,
+            nodeDurationEstimator,
             graphListeners,
             taskListeners,
             listenerManager.getBroadcaster(BuildScopeListenerRegistrationListener.class),
+            listenerManager.getBroadcaster(TaskGraphCalculationListener.class),
+            listenerManager.getBroadcaster(TaskSchedulingListener.class),
             projectStateRegistry,
             gradleScopedServices
         );
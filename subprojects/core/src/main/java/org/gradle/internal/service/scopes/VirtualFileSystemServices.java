@@ -25,11 +25,13 @@
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.changedetection.state.AbiExtractingClasspathResourceHasher;
 import org.gradle.api.internal.changedetection.state.BuildSessionScopeFileTimeStampInspector;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
 import org.gradle.api.internal.changedetection.state.CrossBuildFileHashCache;
 import org.gradle.api.internal.changedetection.state.DefaultResourceSnapshotterCacheService;
 import org.gradle.api.internal.changedetection.state.GradleUserHomeScopeFileTimeStampInspector;
+import org.gradle.api.internal.changedetection.state.HashedBytesCounter;
 import org.gradle.api.internal.changedetection.state.ResourceEntryFilter;
 import org.gradle.api.internal.changedetection.state.ResourceFilter;
 import org.gradle.api.internal.changedetection.state.ResourceSnapshotterCacheService;
@@ -71,17 +73,26 @@
 import org.gradle.internal.fingerprint.impl.NameOnlyFileCollectionFingerprinter;
 import org.gradle.internal.fingerprint.impl.OutputFileCollectionFingerprinter;
 import org.gradle.internal.fingerprint.impl.RelativePathFileCollectionFingerprinter;
+import org.gradle.internal.hash.ContentHashFunction;
 import org.gradle.internal.hash.DefaultFileHasher;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.ParallelHashingPool;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeintegration.NativeCapabilities;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.snapshot.CaseSensitivity;
 import org.gradle.internal.vfs.FileSystemAccess;
+import org.gradle.internal.vfs.FileSystemAccessStatistics;
+import org.gradle.internal.vfs.FileSystemAccessStatisticsBuildOperationType;
+import org.gradle.internal.vfs.FileSystemAccessStatisticsListener;
 import org.gradle.internal.vfs.VirtualFileSystem;
 import org.gradle.internal.vfs.impl.DefaultFileSystemAccess;
 import org.gradle.internal.vfs.impl.DefaultSnapshotHierarchy;
@@ -92,8 +103,10 @@
 import org.gradle.internal.watch.registry.impl.WindowsFileWatcherRegistryFactory;
 import org.gradle.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem;
 import org.gradle.internal.watch.vfs.impl.LocationsWrittenByCurrentBuild;
+import org.gradle.internal.watch.vfs.impl.VfsStatePersistence;
 import org.gradle.internal.watch.vfs.impl.WatchingNotSupportedVirtualFileSystem;
 import org.gradle.internal.watch.vfs.impl.WatchingVirtualFileSystem;
+import org.gradle.util.GradleVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -102,6 +115,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
 import java.util.function.Predicate;
 
 import static org.gradle.internal.snapshot.CaseSensitivity.CASE_INSENSITIVE;
@@ -138,6 +153,20 @@ public class VirtualFileSystemServices extends AbstractPluginServiceRegistry {
     private static final int DEFAULT_MAX_HIERARCHIES_TO_WATCH = 50;
     public static final String MAX_HIERARCHIES_TO_WATCH_PROPERTY = "org.gradle.vfs.watch.hierarchies.max";
 
+    /**
+     * When enabled, the files in directories are hashed in parallel while snapshotting the directory,
+     * and the entries of zip files are hashed in parallel while fingerprinting classpaths.
+     */
+    public static final String PARALLEL_HASHING_PROPERTY = "org.gradle.internal.vfs.parallel-hashing";
+
+    /**
+     * The pool to hash on when parallel hashing is enabled via {@link #PARALLEL_HASHING_PROPERTY}, or {@code null} otherwise.
+     */
+    @Nullable
+    public static ForkJoinPool parallelHashingPool(ParallelHashingPool pool) {
+        return Boolean.getBoolean(PARALLEL_HASHING_PROPERTY) ? pool : null;
+    }
+
     public static boolean isDropVfs(StartParameter startParameter) {
         if (getSystemProperty(DEPRECATED_VFS_DROP_PROPERTY, startParameter.getSystemPropertiesArgs()) != null) {
             DeprecationLogger
@@ -182,16 +211,94 @@ public void registerBuildSessionServices(ServiceRegistration registration) {
         registration.addProvider(new BuildSessionServices());
     }
 
+    private static void logCoalescedRequestsAtEndOfBuild(ListenerManager listenerManager, String requests, LongSupplier coalescedRequests) {
+        listenerManager.addListener(new RootBuildLifecycleListener() {
+            @Override
+            public void afterStart(GradleInternal gradle) {
+            }
+
+            @Override
+            public void beforeComplete(GradleInternal gradle) {
+                long count = coalescedRequests.getAsLong();
+                if (count > 0) {
+                    LOGGER.info("Avoided {} redundant {} by waiting for concurrent requests for the same files", count, requests);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reports the statistics of the file system access as a build operation result and to the build profile at the end of each build.
+     */
+    private static void reportStatisticsAtEndOfBuild(ListenerManager listenerManager, String scope, DefaultFileSystemAccess fileSystemAccess) {
+        listenerManager.addListener(new RootBuildLifecycleListener() {
+            @Override
+            public void afterStart(GradleInternal gradle) {
+                // Only report what happened during the build
+                fileSystemAccess.getAndResetStatistics();
+            }
+
+            @Override
+            public void beforeComplete(GradleInternal gradle) {
+                FileSystemAccessStatistics statistics = fileSystemAccess.getAndResetStatistics();
+                LOGGER.info("File system access for the {}: {}", scope, statistics);
+                gradle.getServices().get(BuildOperationRunner.class).run(new RunnableBuildOperation() {
+                    @Override
+                    public void run(BuildOperationContext context) {
+                        context.setResult((FileSystemAccessStatisticsBuildOperationType.Result) () -> statistics);
+                    }
+
+                    @Override
+                    public BuildOperationDescriptor.Builder description() {
+                        return BuildOperationDescriptor.displayName(FileSystemAccessStatisticsBuildOperationType.DISPLAY_NAME + " for the " + scope)
+                            .details((FileSystemAccessStatisticsBuildOperationType.Details) () -> scope);
+                    }
+                });
+                gradle.getServices().get(ListenerManager.class).getBroadcaster(FileSystemAccessStatisticsListener.class).fileSystemAccessStatistics(scope, statistics);
+            }
+        });
+    }
+
+    /**
+     * Logs how many classes the ABI extraction hashed for compile classpaths during each build.
+     */
+    private static void logAbiExtractionStatisticsAtEndOfBuild(ListenerManager listenerManager, AbiExtractingClasspathResourceHasher classpathResourceHasher) {
+        listenerManager.addListener(new RootBuildLifecycleListener() {
+            @Override
+            public void afterStart(GradleInternal gradle) {
+                // Only report what happened during the build
+                classpathResourceHasher.getAndResetStatistics();
+            }
+
+            @Override
+            public void beforeComplete(GradleInternal gradle) {
+                AbiExtractingClasspathResourceHasher.Statistics statistics = classpathResourceHasher.getAndResetStatistics();
+                if (statistics.getHashedClasses() > 0) {
+                    LOGGER.info("ABI extraction for compile classpaths: {}", statistics);
+                }
+            }
+        });
+    }
+
     @VisibleForTesting
     static class GradleUserHomeServices {
 
-        CrossBuildFileHashCache createCrossBuildFileHashCache(CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
-            return new CrossBuildFileHashCache(null, cacheRepository, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES);
+        ParallelHashingPool createParallelHashingPool() {
+            return new ParallelHashingPool();
+        }
+
+        CrossBuildFileHashCache createCrossBuildFileHashCache(CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, ContentHashFunction contentHashFunction) {
+            return new CrossBuildFileHashCache(null, cacheRepository, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES, contentHashFunction);
+        }
+
+        HashedBytesCounter createHashedBytesCounter() {
+            return new HashedBytesCounter();
         }
 
-        FileHasher createCachingFileHasher(StringInterner stringInterner, CrossBuildFileHashCache fileStore, FileSystem fileSystem, GradleUserHomeScopeFileTimeStampInspector fileTimeStampInspector, StreamHasher streamHasher) {
-            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem);
+        FileHasher createCachingFileHasher(StringInterner stringInterner, CrossBuildFileHashCache fileStore, FileSystem fileSystem, GradleUserHomeScopeFileTimeStampInspector fileTimeStampInspector, StreamHasher streamHasher, HashedBytesCounter hashedBytesCounter, ListenerManager listenerManager) {
+            CachingFileHasher fileHasher = new CachingFileHasher(hashedBytesCounter.countBytesHashedBy(new DefaultFileHasher(streamHasher)), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem);
             fileTimeStampInspector.attach(fileHasher);
+            logCoalescedRequestsAtEndOfBuild(listenerManager, "hashes of files in the Gradle user home", fileHasher::getAndResetCoalescedHashes);
             return fileHasher;
         }
 
@@ -215,9 +322,10 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
             LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild,
             DocumentationRegistry documentationRegistry,
             NativeCapabilities nativeCapabilities,
-            ListenerManager listenerManager,
             FileSystem fileSystem,
-            GlobalCacheLocations globalCacheLocations
+            Stat stat,
+            GlobalCacheLocations globalCacheLocations,
+            ContentHashFunction contentHashFunction
         ) {
             CaseSensitivity caseSensitivity = fileSystem.isCaseSensitive() ? CASE_SENSITIVE : CASE_INSENSITIVE;
             VfsRootReference rootReference = new VfsRootReference(DefaultSnapshotHierarchy.empty(caseSensitivity));
@@ -225,35 +333,36 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
             // to minimize the number of watches we don't watch anything within the global caches.
             Predicate<String> watchFilter = path -> !globalCacheLocations.isInsideGlobalCache(path);
 
-            BuildLifecycleAwareVirtualFileSystem virtualFileSystem = determineWatcherRegistryFactory(OperatingSystem.current(), nativeCapabilities, watchFilter)
+            return determineWatcherRegistryFactory(OperatingSystem.current(), nativeCapabilities, watchFilter)
                 .<BuildLifecycleAwareVirtualFileSystem>map(watcherRegistryFactory -> new WatchingVirtualFileSystem(
                     watcherRegistryFactory,
                     rootReference,
                     sectionId -> documentationRegistry.getDocumentationFor("gradle_daemon", sectionId),
-                    locationsWrittenByCurrentBuild
+                    locationsWrittenByCurrentBuild,
+                    new VfsStatePersistence(stat, GradleVersion.current().getVersion(), contentHashFunction)
                 ))
                 .orElse(new WatchingNotSupportedVirtualFileSystem(rootReference));
-            listenerManager.addListener((BuildAddedListener) buildState ->
-                virtualFileSystem.registerWatchableHierarchy(buildState.getBuildRootDir())
-            );
-            return virtualFileSystem;
         }
 
         FileSystemAccess createFileSystemAccess(
             FileHasher hasher,
+            HashedBytesCounter hashedBytesCounter,
             VirtualFileSystem virtualFileSystem,
             Stat stat,
             StringInterner stringInterner,
             ListenerManager listenerManager,
             PatternSpecFactory patternSpecFactory,
-            FileSystemAccess.WriteListener writeListener
+            FileSystemAccess.WriteListener writeListener,
+            ParallelHashingPool parallelHashingPool
         ) {
             DefaultFileSystemAccess fileSystemAccess = new DefaultFileSystemAccess(
                 hasher,
+                hashedBytesCounter::getAndResetHashedBytes,
                 stringInterner,
                 stat,
                 virtualFileSystem,
                 writeListener,
+                parallelHashingPool(parallelHashingPool),
                 DirectoryScanner.getDefaultExcludes()
             );
             listenerManager.addListener(new DefaultExcludesBuildListener(fileSystemAccess) {
@@ -279,6 +388,7 @@ public void afterStart(GradleInternal gradle) {
                 public void beforeComplete(GradleInternal gradle) {
                 }
             });
+            reportStatisticsAtEndOfBuild(listenerManager, "Gradle user home", fileSystemAccess);
             return fileSystemAccess;
         }
 
@@ -315,8 +425,8 @@ ResourceSnapshotterCacheService createResourceSnapshotterCacheService(CrossBuild
             return new DefaultResourceSnapshotterCacheService(resourceHashesCache);
         }
 
-        ClasspathFingerprinter createClasspathFingerprinter(ResourceSnapshotterCacheService resourceSnapshotterCacheService, FileCollectionSnapshotter fileCollectionSnapshotter, StringInterner stringInterner) {
-            return new DefaultClasspathFingerprinter(resourceSnapshotterCacheService, fileCollectionSnapshotter, ResourceFilter.FILTER_NOTHING, ResourceEntryFilter.FILTER_NOTHING, ResourceEntryFilter.FILTER_NOTHING, stringInterner);
+        ClasspathFingerprinter createClasspathFingerprinter(ResourceSnapshotterCacheService resourceSnapshotterCacheService, FileCollectionSnapshotter fileCollectionSnapshotter, StringInterner stringInterner, ParallelHashingPool parallelHashingPool) {
+            return new DefaultClasspathFingerprinter(resourceSnapshotterCacheService, fileCollectionSnapshotter, ResourceFilter.FILTER_NOTHING, ResourceEntryFilter.FILTER_NOTHING, ResourceEntryFilter.FILTER_NOTHING, stringInterner, parallelHashingPool(parallelHashingPool));
         }
 
         ClasspathHasher createClasspathHasher(ClasspathFingerprinter fingerprinter, FileCollectionFactory fileCollectionFactory) {
@@ -326,9 +436,19 @@ ClasspathHasher createClasspathHasher(ClasspathFingerprinter fingerprinter, File
 
     @VisibleForTesting
     static class BuildSessionServices {
-        CrossBuildFileHashCache createCrossBuildFileHashCache(ProjectCacheDir projectCacheDir, CacheScopeMapping cacheScopeMapping, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
+        void configure(ServiceRegistration registration, ListenerManager listenerManager, BuildLifecycleAwareVirtualFileSystem virtualFileSystem, ProjectCacheDir projectCacheDir) {
+            listenerManager.addListener((BuildAddedListener) buildState ->
+                virtualFileSystem.registerWatchableHierarchy(buildState.getBuildRootDir(), projectCacheDir.getDir())
+            );
+        }
+
+        CrossBuildFileHashCache createCrossBuildFileHashCache(ProjectCacheDir projectCacheDir, CacheScopeMapping cacheScopeMapping, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, ContentHashFunction contentHashFunction) {
             File cacheDir = cacheScopeMapping.getBaseDirectory(projectCacheDir.getDir(), "fileHashes", VersionStrategy.CachePerVersion);
-            return new CrossBuildFileHashCache(cacheDir, cacheRepository, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES);
+            return new CrossBuildFileHashCache(cacheDir, cacheRepository, inMemoryCacheDecoratorFactory, CrossBuildFileHashCache.Kind.FILE_HASHES, contentHashFunction);
+        }
+
+        HashedBytesCounter createHashedBytesCounter() {
+            return new HashedBytesCounter();
         }
 
         FileHasher createFileHasher(
@@ -338,31 +458,39 @@ FileHasher createFileHasher(
             FileHasher globalHasher,
             FileSystem fileSystem,
             StreamHasher streamHasher,
-            StringInterner stringInterner
+            StringInterner stringInterner,
+            HashedBytesCounter hashedBytesCounter,
+            ListenerManager listenerManager
         ) {
-            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem);
+            CachingFileHasher localHasher = new CachingFileHasher(hashedBytesCounter.countBytesHashedBy(new DefaultFileHasher(streamHasher)), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem);
+            logCoalescedRequestsAtEndOfBuild(listenerManager, "hashes of files in the build", localHasher::getAndResetCoalescedHashes);
             return new SplitFileHasher(globalHasher, localHasher, globalCacheLocations);
         }
 
         FileSystemAccess createFileSystemAccess(
             FileHasher hasher,
+            HashedBytesCounter hashedBytesCounter,
             ListenerManager listenerManager,
             Stat stat,
             StringInterner stringInterner,
             VirtualFileSystem root,
-            FileSystemAccess.WriteListener writeListener
+            FileSystemAccess.WriteListener writeListener,
+            ParallelHashingPool parallelHashingPool
         ) {
             DefaultFileSystemAccess buildSessionsScopedVirtualFileSystem = new DefaultFileSystemAccess(
                 hasher,
+                hashedBytesCounter::getAndResetHashedBytes,
                 stringInterner,
                 stat,
                 root,
                 writeListener,
+                parallelHashingPool(parallelHashingPool),
                 DirectoryScanner.getDefaultExcludes()
             );
 
             listenerManager.addListener(new DefaultExcludesBuildListener(buildSessionsScopedVirtualFileSystem));
             listenerManager.addListener((OutputChangeListener) affectedOutputPaths -> buildSessionsScopedVirtualFileSystem.write(affectedOutputPaths, () -> {}));
+            reportStatisticsAtEndOfBuild(listenerManager, "build", buildSessionsScopedVirtualFileSystem);
 
             return buildSessionsScopedVirtualFileSystem;
         }
@@ -413,8 +541,10 @@ ResourceSnapshotterCacheService createResourceSnapshotterCacheService(
             return new SplitResourceSnapshotterCacheService(globalCache, localCache, globalCacheLocations);
         }
 
-        CompileClasspathFingerprinter createCompileClasspathFingerprinter(ResourceSnapshotterCacheService resourceSnapshotterCacheService, FileCollectionSnapshotter fileCollectionSnapshotter, StringInterner stringInterner) {
-            return new DefaultCompileClasspathFingerprinter(resourceSnapshotterCacheService, fileCollectionSnapshotter, stringInterner);
+        CompileClasspathFingerprinter createCompileClasspathFingerprinter(ResourceSnapshotterCacheService resourceSnapshotterCacheService, FileCollectionSnapshotter fileCollectionSnapshotter, StringInterner stringInterner, ListenerManager listenerManager, ParallelHashingPool parallelHashingPool) {
+            AbiExtractingClasspathResourceHasher classpathResourceHasher = new AbiExtractingClasspathResourceHasher(resourceSnapshotterCacheService);
+            logAbiExtractionStatisticsAtEndOfBuild(listenerManager, classpathResourceHasher);
+            return new DefaultCompileClasspathFingerprinter(classpathResourceHasher, resourceSnapshotterCacheService, fileCollectionSnapshotter, stringInterner, parallelHashingPool(parallelHashingPool));
         }
     }
 
@@ -40,6 +40,7 @@
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.impl.DefaultDeleter;
+import org.gradle.internal.hash.ContentHashFunction;
 import org.gradle.internal.hash.DefaultStreamHasher;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.instantiation.InstantiatorFactory;
@@ -105,8 +106,13 @@ DefaultFilePropertyFactory createFilePropertyFactory(PropertyHost propertyHost,
         return new DefaultFilePropertyFactory(propertyHost, fileResolver, fileCollectionFactory);
     }
 
-    StreamHasher createStreamHasher() {
-        return new DefaultStreamHasher();
+    ContentHashFunction createContentHashFunction() {
+        // Resolved once per process, so everything hashing or persisting content hashes agrees on the function
+        return ContentHashFunction.current();
+    }
+
+    StreamHasher createStreamHasher(ContentHashFunction contentHashFunction) {
+        return new DefaultStreamHasher(contentHashFunction.getHashFunction());
     }
 
     TemporaryFileProvider createTemporaryFileProvider() {
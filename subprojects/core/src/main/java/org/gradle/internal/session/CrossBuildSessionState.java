@@ -24,6 +24,7 @@
 import org.gradle.configuration.internal.DefaultUserCodeApplicationContext;
 import org.gradle.configuration.internal.ListenerBuildOperationDecorator;
 import org.gradle.configuration.internal.UserCodeApplicationContext;
+import org.gradle.execution.plan.MemoryBudget;
 import org.gradle.initialization.DefaultGradleLauncherFactory;
 import org.gradle.initialization.GradleLauncherFactory;
 import org.gradle.internal.concurrent.CompositeStoppable;
@@ -63,6 +64,8 @@
  * This set of services is added as a parent of each build session scope.
  */
 public class CrossBuildSessionState implements Closeable {
+    public static final String MEMORY_BUDGET_PROPERTY = "org.gradle.internal.tasks.scheduling.memory-budget";
+
     private final ServiceRegistry services;
 
     public CrossBuildSessionState(ServiceRegistry parent, StartParameter startParameter) {
@@ -107,6 +110,14 @@ WorkerLeaseService createWorkerLeaseService(ResourceLockCoordinationService reso
             return new DefaultWorkerLeaseService(resourceLockCoordinationService, parallelismConfiguration);
         }
 
+        MemoryBudget createMemoryBudget(ResourceLockCoordinationService resourceLockCoordinationService) {
+            int budgetInMegabytes = Integer.getInteger(MEMORY_BUDGET_PROPERTY, 0);
+            if (budgetInMegabytes <= 0) {
+                return MemoryBudget.UNLIMITED;
+            }
+            return new MemoryBudget(resourceLockCoordinationService, budgetInMegabytes);
+        }
+
         BuildOperationExecutor createBuildOperationExecutor(
             Clock clock,
             ProgressLoggerFactory progressLoggerFactory,
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.vfs;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Reports how the file system access of a scope served its requests during a build.
+ */
+public interface FileSystemAccessStatisticsBuildOperationType extends BuildOperationType<FileSystemAccessStatisticsBuildOperationType.Details, FileSystemAccessStatisticsBuildOperationType.Result> {
+    String DISPLAY_NAME = "File system access statistics";
+
+    interface Details {
+        /**
+         * The scope of the file system access, either the Gradle user home or the build.
+         */
+        String getScope();
+    }
+
+    interface Result {
+        FileSystemAccessStatistics getStatistics();
+    }
+}
@@ -22,6 +22,7 @@
 import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.api.logging.LogLevel;
+import org.gradle.internal.hash.ContentHashFunction;
 import org.gradle.internal.io.StreamByteBuffer;
 import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.process.ArgWriter;
@@ -44,6 +45,7 @@
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -73,13 +75,15 @@ public class ApplicationClassesInSystemClassLoaderWorkerImplementationFactory im
     private final TemporaryFileProvider temporaryFileProvider;
     private final JvmVersionDetector jvmVersionDetector;
     private final File gradleUserHomeDir;
+    private final ContentHashFunction contentHashFunction;
 
     public ApplicationClassesInSystemClassLoaderWorkerImplementationFactory(ClassPathRegistry classPathRegistry, TemporaryFileProvider temporaryFileProvider,
-                                                                            JvmVersionDetector jvmVersionDetector, File gradleUserHomeDir) {
+                                                                            JvmVersionDetector jvmVersionDetector, File gradleUserHomeDir, ContentHashFunction contentHashFunction) {
         this.classPathRegistry = classPathRegistry;
         this.temporaryFileProvider = temporaryFileProvider;
         this.jvmVersionDetector = jvmVersionDetector;
         this.gradleUserHomeDir = gradleUserHomeDir;
+        this.contentHashFunction = contentHashFunction;
     }
 
     @Override
@@ -106,6 +110,9 @@ public void prepareJavaCommand(long workerId, String displayName, WorkerProcessB
             execSpec.systemProperty("java.security.manager", "worker." + BootstrapSecurityManager.class.getName());
         }
 
+        // The worker hashes file content with the same function as the build process
+        execSpec.systemProperty(ContentHashFunction.CONTENT_HASH_FUNCTION_PROPERTY, contentHashFunction.name().toLowerCase(Locale.ROOT));
+
         // Serialize configuration for the worker process to it stdin
 
         StreamByteBuffer buffer = new StreamByteBuffer();
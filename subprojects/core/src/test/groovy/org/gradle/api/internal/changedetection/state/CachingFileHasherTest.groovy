@@ -24,10 +24,17 @@ import org.gradle.internal.file.FileMetadata.AccessType
 import org.gradle.internal.file.impl.DefaultFileMetadata
 import org.gradle.internal.hash.FileHasher
 import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.ConcurrentTestUtil
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
+
 class CachingFileHasherTest extends Specification {
     @Rule
     TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
@@ -167,4 +174,45 @@ class CachingFileHasherTest extends Specification {
         }
         0 * _._
     }
+
+    def concurrentRequestsForTheSameFileWaitForTheHashInFlight() {
+        def hashingStarted = new CountDownLatch(1)
+        def releaseHash = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(2)
+        def secondThread = new AtomicReference<Thread>()
+
+        when:
+        def first = executor.submit({ hasher.hash(file) } as Callable)
+        hashingStarted.await(10, TimeUnit.SECONDS)
+        def second = executor.submit({
+            secondThread.set(Thread.currentThread())
+            hasher.hash(file)
+        } as Callable)
+        // Only finish the first hash once the second request waits for it
+        ConcurrentTestUtil.poll {
+            assert secondThread.get()?.state == Thread.State.WAITING
+        }
+        releaseHash.countDown()
+        def results = [first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS)]
+
+        then:
+        results == [hash, hash]
+        hasher.getAndResetCoalescedHashes() == 1
+        hasher.getAndResetCoalescedHashes() == 0
+
+        and:
+        2 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, _) >> true
+        2 * cache.get(file.absolutePath) >> null
+        1 * target.hash(file) >> {
+            hashingStarted.countDown()
+            releaseHash.await(10, TimeUnit.SECONDS)
+            hash
+        }
+        1 * cache.put(file.absolutePath, _)
+        0 * _._
+
+        cleanup:
+        releaseHash.countDown()
+        executor.shutdown()
+    }
 }
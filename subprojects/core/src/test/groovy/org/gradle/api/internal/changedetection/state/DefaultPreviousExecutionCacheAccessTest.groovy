@@ -21,6 +21,7 @@ import org.gradle.cache.CacheRepository
 import org.gradle.cache.FileLockManager
 import org.gradle.cache.PersistentCache
 import org.gradle.cache.internal.filelock.LockOptionsBuilder
+import org.gradle.internal.execution.history.impl.FileCollectionFingerprintSerializer
 import spock.lang.Specification
 
 class DefaultPreviousExecutionCacheAccessTest extends Specification {
@@ -37,6 +38,7 @@ class DefaultPreviousExecutionCacheAccessTest extends Specification {
         then:
         1 * cacheRepository.cache(gradle, "executionHistory") >> cacheBuilder
         1 * cacheBuilder.withDisplayName(_) >> cacheBuilder
+        1 * cacheBuilder.withProperties([fingerprintFormatVersion: String.valueOf(FileCollectionFingerprintSerializer.FORMAT_VERSION)]) >> cacheBuilder
         1 * cacheBuilder.withLockOptions(LockOptionsBuilder.mode(FileLockManager.LockMode.OnDemand)) >> cacheBuilder
         1 * cacheBuilder.open() >> backingCache
         0 * _._
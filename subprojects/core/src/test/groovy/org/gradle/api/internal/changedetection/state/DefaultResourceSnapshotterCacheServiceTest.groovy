@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.api.internal.file.archive.ZipEntry
 import org.gradle.internal.file.FileMetadata
 import org.gradle.internal.file.impl.DefaultFileMetadata
 import org.gradle.internal.hash.HashCode
@@ -75,6 +76,26 @@ class DefaultResourceSnapshotterCacheServiceTest extends Specification {
         0 * _
     }
 
+    def "caches the result of hashing zip entries by their content key"() {
+        def zipEntryContext = new ZipEntryContext(Mock(ZipEntry), "nested.jar", "outer.jar")
+        def otherZipEntryContext = new ZipEntryContext(Mock(ZipEntry), "other/nested.jar", "other.jar")
+        def contentKey = HashCode.fromInt(789)
+        def expectedHash = HashCode.fromInt(123)
+
+        when:
+        def actualHash = snapshotterCache.hashZipEntry(zipEntryContext, contentKey, delegate, configurationHash)
+        then:
+        1 * delegate.hash(zipEntryContext) >> expectedHash
+        actualHash == expectedHash
+        0 * _
+
+        when:
+        actualHash = snapshotterCache.hashZipEntry(otherZipEntryContext, contentKey, delegate, configurationHash)
+        then:
+        actualHash == expectedHash
+        0 * _
+    }
+
     private HashCode getConfigurationHash() {
         def hasher = Hashing.newHasher()
         hasher.putString(delegate.getClass().getName())
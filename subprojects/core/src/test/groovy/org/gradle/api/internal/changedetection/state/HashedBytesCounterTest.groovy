@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.hash.FileHasher
+import org.gradle.internal.hash.HashCode
+import spock.lang.Specification
+
+class HashedBytesCounterTest extends Specification {
+    def delegate = Mock(FileHasher)
+    def counter = new HashedBytesCounter()
+    def hasher = counter.countBytesHashedBy(delegate)
+
+    def "counts the bytes hashed by the delegate since the last call"() {
+        def file = new File("file")
+        def hash = HashCode.fromInt(1)
+
+        when:
+        def result = hasher.hash(file, 10, 1)
+        hasher.hash(file, 20, 2)
+
+        then:
+        result == hash
+        1 * delegate.hash(file, 10, 1) >> hash
+        1 * delegate.hash(file, 20, 2) >> hash
+        counter.getAndResetHashedBytes() == 30
+        counter.getAndResetHashedBytes() == 0
+    }
+
+    def "does not count failed hashing"() {
+        def file = new File("file")
+
+        when:
+        hasher.hash(file, 10, 1)
+
+        then:
+        1 * delegate.hash(file, 10, 1) >> { throw new UncheckedIOException(new IOException("failed")) }
+        thrown(UncheckedIOException)
+        counter.getAndResetHashedBytes() == 0
+    }
+}
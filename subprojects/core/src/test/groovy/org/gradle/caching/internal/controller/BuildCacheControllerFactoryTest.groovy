@@ -66,7 +66,10 @@ class BuildCacheControllerFactoryTest extends Specification {
             ONLINE,
             logStacktraces,
             emitDebugLogging,
-            TestUtil.instantiatorFactory().inject()
+            TestUtil.instantiatorFactory().inject(),
+            null,
+            null,
+            null
         )
         assert controllerType.isInstance(controller)
         controllerType.cast(controller)
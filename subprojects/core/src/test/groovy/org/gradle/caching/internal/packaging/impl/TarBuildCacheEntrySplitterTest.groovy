@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.origin.OriginMetadata
+import org.gradle.caching.internal.origin.OriginReader
+import org.gradle.caching.internal.origin.OriginWriter
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import org.gradle.caching.local.internal.BuildCacheEntrySplitter
+import org.gradle.internal.file.TreeType
+import org.gradle.internal.hash.DefaultStreamHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.nativeintegration.filesystem.FileSystem
+import org.gradle.internal.snapshot.FileSystemSnapshot
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.file.Files
+import java.util.function.Function
+
+import static org.gradle.internal.file.TreeType.DIRECTORY
+import static org.gradle.internal.file.TreeType.FILE
+
+@CleanupTestDirectory
+class TarBuildCacheEntrySplitterTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def filePermissionAccess = new FilePermissionAccess() {
+        @Delegate
+        FileSystem fileSystem = TestFiles.fileSystem()
+    }
+    def streamHasher = new DefaultStreamHasher()
+    def packer = new GZipBuildCacheEntryPacker(
+        new TarBuildCacheEntryPacker(new DefaultTarPackerFileSystemSupport(TestFiles.deleter()), filePermissionAccess, streamHasher, new StringInterner())
+    )
+    def fileSystemAccess = TestFiles.fileSystemAccess()
+    def splitter = new TarBuildCacheEntrySplitter(BuildCacheEntryCompression.LZ4)
+    def blobs = new InMemoryBlobStore()
+
+    def writeOrigin = { OutputStream output -> output.write("origin".bytes) } as OriginWriter
+    def readOrigin = { InputStream input -> new OriginMetadata(input.text, 123) } as OriginReader
+
+    def "assembles the split entry"() {
+        def source = temporaryFolder.createDir("source")
+        source.file("data.txt") << "data"
+        source.file("sub/nested.txt") << "nested"
+        def sourceFile = temporaryFolder.file("source.txt") << "file"
+
+        when:
+        def result = roundTrip(directory: source, file: sourceFile)
+
+        then:
+        result.originMetadata.buildInvocationId == "origin"
+        target("directory").file("data.txt").text == "data"
+        target("directory").file("sub/nested.txt").text == "nested"
+        target("file").text == "file"
+    }
+
+    def "stores empty files and directories without contents"() {
+        def source = temporaryFolder.createDir("source")
+        source.createFile("empty.txt")
+        source.createDir("empty-dir")
+
+        when:
+        roundTrip(directory: source)
+
+        then:
+        blobs.contents.size() == 1 // the origin metadata
+        target("directory").file("empty.txt").assertIsFile()
+        target("directory").file("empty.txt").length() == 0
+        target("directory").file("empty-dir").assertIsEmptyDir()
+    }
+
+    @Requires(TestPrecondition.UNIX_DERIVATIVE)
+    def "keeps the permissions of files and directories"() {
+        def source = temporaryFolder.createDir("source")
+        def executable = source.file("run.sh") << "#!/bin/sh"
+        filePermissionAccess.chmod(executable, 0755)
+        def privateFile = source.file("private.txt") << "secret"
+        filePermissionAccess.chmod(privateFile, 0600)
+        def privateDir = source.createDir("private-dir")
+        filePermissionAccess.chmod(privateDir, 0700)
+
+        when:
+        roundTrip(directory: source)
+
+        then:
+        filePermissionAccess.getUnixMode(target("directory").file("run.sh")) == 0755
+        filePermissionAccess.getUnixMode(target("directory").file("private.txt")) == 0600
+        filePermissionAccess.getUnixMode(target("directory").file("private-dir")) == 0700
+    }
+
+    @Unroll
+    def "keeps #type names"() {
+        def source = temporaryFolder.createDir("source")
+        source.file(name) << "content"
+
+        when:
+        roundTrip(directory: source)
+
+        then:
+        target("directory").file(name).text == "content"
+
+        where:
+        type        | name
+        "long"      | ("long-directory-name/" * 10) + ("x" * 120) + ".txt"
+        "non-ASCII" | "dezső/árvíztűrő tükörfúrógép.txt"
+    }
+
+    def "stores identical contents once"() {
+        def source = temporaryFolder.createDir("source")
+        source.file("first.txt") << "shared"
+        source.file("sub/second.txt") << "shared"
+
+        when:
+        roundTrip(directory: source)
+
+        then:
+        blobs.contents.size() == 2 // the shared content and the origin metadata
+        target("directory").file("first.txt").text == "shared"
+        target("directory").file("sub/second.txt").text == "shared"
+    }
+
+    @Requires(TestPrecondition.UNIX_DERIVATIVE)
+    def "assembled entry refers to the files to link"() {
+        def source = temporaryFolder.createDir("source")
+        def data = source.file("data.txt") << "data"
+        filePermissionAccess.chmod(data, 0644)
+        def blobsDir = temporaryFolder.createDir("blobs")
+        blobs.linkedContentDirectory = blobsDir
+
+        when:
+        def result = roundTrip(blobsDir, directory: source)
+
+        then:
+        result.originMetadata.buildInvocationId == "origin"
+        target("directory").file("data.txt").text == "data"
+        Files.getAttribute(target("directory").file("data.txt").toPath(), "unix:nlink") == 2
+    }
+
+    private BuildCacheEntryPacker.UnpackResult roundTrip(Map<String, File> trees, File linkedContentDirectory = null) {
+        def types = trees.collectEntries { name, root -> [(name): root.directory ? DIRECTORY : FILE] } as Map<String, TreeType>
+        def snapshots = trees.collectEntries { name, root ->
+            [(name): fileSystemAccess.read(root.absolutePath, { snapshot -> snapshot } as Function)]
+        } as Map<String, FileSystemSnapshot>
+        def packed = new ByteArrayOutputStream()
+        def packResult = packer.pack(entity(types, trees), snapshots, packed, writeOrigin)
+
+        def structure = new ByteArrayOutputStream()
+        splitter.split(new ByteArrayInputStream(packed.toByteArray()), structure, blobs)
+        def assembled = new ByteArrayOutputStream()
+        splitter.assemble(new ByteArrayInputStream(structure.toByteArray()), blobs, assembled)
+
+        def targets = trees.collectEntries { name, root -> [(name): target(name)] } as Map<String, File>
+        def result = packer.unpack(entity(types, targets), new ByteArrayInputStream(assembled.toByteArray()), readOrigin, linkedContentDirectory)
+        assert result.entries == packResult.entries
+        result
+    }
+
+    private TestFile target(String treeName) {
+        temporaryFolder.file("target", treeName)
+    }
+
+    private CacheableEntity entity(Map<String, TreeType> types, Map<String, File> roots) {
+        Stub(CacheableEntity) {
+            visitOutputTrees(_ as CacheableEntity.CacheableTreeVisitor) >> { CacheableEntity.CacheableTreeVisitor visitor ->
+                roots.each { name, root ->
+                    visitor.visitOutputTree(name, types[name], root)
+                }
+            }
+        }
+    }
+
+    private class InMemoryBlobStore implements BuildCacheEntrySplitter.BlobStore {
+        final Map<HashCode, byte[]> contents = [:]
+        File linkedContentDirectory
+
+        @Override
+        HashCode store(InputStream content, long size) throws IOException {
+            def bytes = new byte[(int) size]
+            new DataInputStream(content).readFully(bytes)
+            def hash = Hashing.hashBytes(bytes)
+            contents[hash] = bytes
+            hash
+        }
+
+        @Override
+        InputStream load(HashCode hash) throws IOException {
+            new ByteArrayInputStream(contents[hash])
+        }
+
+        @Override
+        File fileToLink(HashCode hash) throws IOException {
+            if (linkedContentDirectory == null) {
+                return null
+            }
+            def file = new File(linkedContentDirectory, hash.toString())
+            if (!file.exists()) {
+                file.bytes = contents[hash]
+                filePermissionAccess.chmod(file, 0644)
+            }
+            file
+        }
+    }
+}
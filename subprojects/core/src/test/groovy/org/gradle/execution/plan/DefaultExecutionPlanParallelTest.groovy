@@ -30,6 +30,8 @@ import org.gradle.api.tasks.OutputFile
 import org.gradle.api.tasks.OutputFiles
 import org.gradle.composite.internal.IncludedBuildTaskGraph
 import org.gradle.internal.nativeintegration.filesystem.FileSystem
+import org.gradle.internal.resources.ResourceLockCoordinationService
+import org.gradle.internal.resources.ResourceLockState
 import org.gradle.internal.work.WorkerLeaseRegistry
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.testfixtures.internal.NativeServicesTestFixture
@@ -148,6 +150,83 @@ class DefaultExecutionPlanParallelTest extends AbstractExecutionPlanSpec {
         lockedProjects.empty
     }
 
+    def "records the resource that delayed a ready task"() {
+        def sharedFile = file("output")
+
+        given:
+        def otherProject = project(project, "other")
+        def a = task("a")
+        def b = task("b")
+        Task c = task("c", type: AsyncWithOutputFile, project: otherProject)
+        _ * c.outputFile >> sharedFile
+        Task d = task("d", type: AsyncWithOutputFile, project: otherProject)
+        _ * d.outputFile >> sharedFile
+
+        when:
+        addToGraphAndPopulate(a, b, c, d)
+        def firstTaskNode = selectNextTaskNode()
+        def secondTaskNode = selectNextTaskNode()
+
+        then:
+        firstTaskNode.task == a
+        secondTaskNode.task == c
+        selectNextTask() == null
+        executionPlan.getDelayReason(executionPlan.getNode(b)) == SchedulingDelayReason.PROJECT_LOCK
+        executionPlan.getDelayReason(executionPlan.getNode(d)) == SchedulingDelayReason.OUTPUT_MUTATION
+        executionPlan.getReadyTime(executionPlan.getNode(b)) > 0
+        executionPlan.getStartTime(executionPlan.getNode(b)) == 0
+
+        when:
+        executionPlan.finishedExecuting(firstTaskNode)
+        executionPlan.finishedExecuting(secondTaskNode)
+        def remainingTasks = [selectNextTask(), selectNextTask()] as Set
+        def summary = executionPlan.schedulingSummary
+
+        then:
+        remainingTasks == [b, d] as Set
+        executionPlan.getStartTime(executionPlan.getNode(b)) >= executionPlan.getReadyTime(executionPlan.getNode(b))
+        summary.startedNodeCount == 4
+        summary.getDelayedNodeCount(SchedulingDelayReason.PROJECT_LOCK) == 1
+        summary.getDelayedNodeCount(SchedulingDelayReason.OUTPUT_MUTATION) == 1
+        summary.getDelayedNodeCount(SchedulingDelayReason.SHARED_RESOURCE) == 0
+        summary.getDelayedNodeCount(SchedulingDelayReason.WORKER_LEASE) == 0
+    }
+
+    def "tasks are only started while their memory weights fit into the memory budget"() {
+        given:
+        def coordinationService = Stub(ResourceLockCoordinationService) {
+            getCurrent() >> Stub(ResourceLockState)
+        }
+        def memoryBudget = new MemoryBudget(coordinationService, 1000)
+        Task a = task("a", type: Async, resources: [memoryBudget.getResourceLock(600)])
+        Task b = task("b", type: Async, resources: [memoryBudget.getResourceLock(600)])
+        Task c = task("c", type: Async, resources: [memoryBudget.getResourceLock(2000)])
+
+        when:
+        addToGraphAndPopulate(a, b, c)
+        def firstTaskNode = selectNextTaskNode()
+
+        then:
+        firstTaskNode.task == a
+        selectNextTask() == null
+        executionPlan.getDelayReason(executionPlan.getNode(b)) == SchedulingDelayReason.SHARED_RESOURCE
+
+        when:
+        executionPlan.finishedExecuting(firstTaskNode)
+        def secondTaskNode = selectNextTaskNode()
+
+        then:
+        secondTaskNode.task == b
+        selectNextTask() == null
+
+        when:
+        executionPlan.finishedExecuting(secondTaskNode)
+
+        then:
+        selectNextTask() == c
+        memoryBudget.getResourceLock(0) == null
+    }
+
     @Unroll
     def "two tasks with #relation relationship are not executed in parallel"() {
         given:
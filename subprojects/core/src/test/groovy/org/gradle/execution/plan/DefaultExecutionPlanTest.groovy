@@ -35,11 +35,13 @@ import static org.gradle.util.WrapUtil.toList
 
 class DefaultExecutionPlanTest extends AbstractExecutionPlanSpec {
     DefaultExecutionPlan executionPlan
+    TaskNodeFactory taskNodeFactory
+    TaskDependencyResolver dependencyResolver
     def workerLease = Mock(WorkerLeaseRegistry.WorkerLease)
 
     def setup() {
-        def taskNodeFactory = new TaskNodeFactory(thisBuild, Stub(IncludedBuildTaskGraph))
-        def dependencyResolver = new TaskDependencyResolver([new TaskNodeDependencyResolver(taskNodeFactory)])
+        taskNodeFactory = new TaskNodeFactory(thisBuild, Stub(IncludedBuildTaskGraph))
+        dependencyResolver = new TaskDependencyResolver([new TaskNodeDependencyResolver(taskNodeFactory)])
         executionPlan = new DefaultExecutionPlan(thisBuild, taskNodeFactory, dependencyResolver)
         _ * workerLease.tryLock() >> true
     }
@@ -843,6 +845,150 @@ class DefaultExecutionPlanTest extends AbstractExecutionPlanSpec {
         executesNodes(node1, node2, node3)
     }
 
+    def "uses the order of nodes added in a previously determined execution order"() {
+        given:
+        def node1 = requiredNode()
+        def node2 = requiredNode()
+        def node3 = requiredNode(node1)
+        executionPlan.addNodes([node2, node1, node3])
+
+        when:
+        executionPlan.determineExecutionPlan()
+
+        then:
+        executionPlan.scheduledNodes == [node2, node1, node3]
+        executesNodes(node2, node1, node3)
+    }
+
+    def "selects ready nodes in execution queue order"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        Task d = task("d")
+        addToGraphAndPopulate([a, c, d])
+
+        expect:
+        executionPlan.tasks as List == [a, b, c, d]
+
+        when:
+        def first = selectNextNode()
+        def second = selectNextNode()
+        executionPlan.finishedExecuting(second)
+        def third = selectNextNode()
+        def fourth = selectNextNode()
+
+        then:
+        // c becomes ready after d, but comes first in the execution queue
+        [first, second, third, fourth]*.task == [a, b, c, d]
+        selectNextNode() == null
+    }
+
+    def "selects a node only after all its dependencies have completed"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [a, b])
+        addToGraphAndPopulate([c])
+
+        when:
+        def nodeA = selectNextNode()
+        def nodeB = selectNextNode()
+        executionPlan.finishedExecuting(nodeA)
+
+        then:
+        selectNextNode() == null
+
+        when:
+        executionPlan.finishedExecuting(nodeB)
+
+        then:
+        selectNextNode().task == c
+        selectNextNode() == null
+    }
+
+    def "selects nodes in execution queue order after they were reordered by the critical path"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        Task d = task("d", dependsOn: [b])
+        usePlanWithEstimatedDurations(a: 1, b: 1, c: 5, d: 10)
+        addToGraphAndPopulate([a, c, d])
+
+        when:
+        def first = selectNextNode()
+        executionPlan.finishedExecuting(first)
+
+        then:
+        first.task == b
+        [selectNextNode(), selectNextNode(), selectNextNode()]*.task == [d, c, a]
+    }
+
+    def "selects nodes with completed dependencies for snapshotting their inputs once"() {
+        given:
+        Task a = task("a")
+        Task b = task("b", dependsOn: [a])
+        Task c = task("c")
+        addToGraphAndPopulate([b, c])
+
+        expect:
+        executionPlan.selectNextToPrefetch() == executionPlan.getNode(a)
+        executionPlan.selectNextToPrefetch() == executionPlan.getNode(c)
+        executionPlan.selectNextToPrefetch() == null
+    }
+
+    def "schedules ready tasks with the longest estimated critical path first"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        usePlanWithEstimatedDurations(a: 1, b: 10, c: 10)
+
+        when:
+        addToGraphAndPopulate([a, c])
+
+        then:
+        executionPlan.tasks as List == [a, b, c]
+        executedTasks == [b, c, a]
+        executionPlan.estimatedCriticalPath.durationMillis == 20
+        executionPlan.estimatedCriticalPath.nodes*.task == [b, c]
+    }
+
+    def "schedules tasks in plan order when no durations are known"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        usePlanWithEstimatedDurations([:])
+
+        when:
+        addToGraphAndPopulate([a, c])
+
+        then:
+        executes(a, b, c)
+        executionPlan.estimatedCriticalPath.durationMillis == 0
+    }
+
+    def "measures the actual critical path of executed tasks"() {
+        given:
+        Task a = task("a")
+        Task b = task("b", dependsOn: [a])
+        usePlanWithEstimatedDurations(a: 5)
+
+        when:
+        addToGraphAndPopulate([b])
+
+        then:
+        executes(a, b)
+        executionPlan.actualCriticalPath.nodes*.task == [a, b]
+    }
+
+    private void usePlanWithEstimatedDurations(Map<String, Long> durations) {
+        executionPlan = new DefaultExecutionPlan(thisBuild, taskNodeFactory, dependencyResolver, { Node node ->
+            node instanceof TaskNode && durations.containsKey(node.task.name) ? durations[node.task.name] : NodeDurationEstimator.UNKNOWN
+        } as NodeDurationEstimator)
+    }
 
     private Node requiredNode(Node... dependencies) {
         node(dependencies).tap {
@@ -880,6 +1026,10 @@ class DefaultExecutionPlanTest extends AbstractExecutionPlanSpec {
         assert executionPlan.filteredTasks == expectedTasks as Set
     }
 
+    Node selectNextNode() {
+        return executionPlan.selectNext(workerLease, Mock(ResourceLockState))
+    }
+
     List<Task> getExecutedTasks() {
         return executedNodes*.task
     }
@@ -27,6 +27,7 @@ import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.concurrent.ManagedExecutor
 import org.gradle.internal.resources.ResourceLockCoordinationService
 import org.gradle.internal.resources.ResourceLockState
+import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease
 import org.gradle.internal.work.WorkerLeaseService
 import spock.lang.Specification
 
@@ -99,4 +100,76 @@ class DefaultPlanExecutorTest extends Specification {
         1 * executionPlan.collectFailures([])
         0 * executionPlan._
     }
+
+    def "finishes a node and selects the next one while holding the state lock once"() {
+        def node1 = Mock(LocalTaskNode)
+        def node2 = Mock(LocalTaskNode)
+        def stateLockDepth = 0
+        def stateLockAcquisitions = 0
+        def coordinationService = Stub(ResourceLockCoordinationService) {
+            withStateLock(_) >> { transformer ->
+                if (stateLockDepth++ == 0) {
+                    stateLockAcquisitions++
+                }
+                try {
+                    transformer[0].transform(Stub(ResourceLockState))
+                } finally {
+                    stateLockDepth--
+                }
+            }
+        }
+        def executor = new DefaultPlanExecutor(new DefaultParallelismConfiguration(false, 1), executorFactory, Stub(WorkerLeaseService), cancellationHandler, coordinationService)
+
+        when:
+        executor.process(executionPlan, [], worker)
+
+        then:
+        1 * executorFactory.create(_) >> Mock(ManagedExecutor)
+        1 * executionPlan.hasNodesRemaining() >> true
+        1 * executionPlan.selectNext(_, _) >> node1
+        1 * worker.execute(node1)
+
+        then:
+        1 * executionPlan.finishedExecuting(node1) >> { assert stateLockAcquisitions == 2 }
+        1 * executionPlan.hasNodesRemaining() >> true
+        1 * executionPlan.selectNext(_, _) >> { assert stateLockAcquisitions == 2; node2 }
+        1 * worker.execute(node2)
+
+        then:
+        1 * executionPlan.finishedExecuting(node2) >> { assert stateLockAcquisitions == 3 }
+        1 * executionPlan.hasNodesRemaining() >> false
+        1 * executionPlan.allNodesComplete() >> true
+        1 * executionPlan.collectFailures([])
+        0 * executionPlan.selectNext(_, _)
+    }
+
+    def "snapshots inputs of a waiting node without a worker lease when no node can be started"() {
+        def node = Mock(LocalTaskNode)
+        def inputPrefetcher = Mock(NodeInputPrefetcher)
+        def workerLease = Mock(WorkerLease)
+        def workerLeaseService = Stub(WorkerLeaseService) {
+            getCurrentWorkerLease() >> Stub(WorkerLease) {
+                createChild() >> workerLease
+            }
+        }
+        def executor = new DefaultPlanExecutor(new DefaultParallelismConfiguration(false, 1), executorFactory, workerLeaseService, cancellationHandler, coordinationService, inputPrefetcher)
+
+        when:
+        executor.process(executionPlan, [], worker)
+
+        then:
+        1 * executorFactory.create(_) >> Mock(ManagedExecutor)
+        1 * executionPlan.hasNodesRemaining() >> true
+        1 * executionPlan.selectNext(_, _) >> null
+        1 * executionPlan.selectNextToPrefetch() >> node
+        1 * inputPrefetcher.prefetchInputs(node)
+        0 * workerLease.tryLock()
+
+        then:
+        1 * executionPlan.hasNodesRemaining() >> false
+        1 * executionPlan.allNodesComplete() >> true
+        1 * executionPlan.collectFailures([])
+        0 * worker._
+        0 * inputPrefetcher._
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan
+
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService
+import spock.lang.Specification
+
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.lock
+import static org.gradle.internal.resources.DefaultResourceLockCoordinationService.unlock
+
+class MemoryBudgetTest extends Specification {
+    def coordinationService = new DefaultResourceLockCoordinationService()
+    def memoryBudget = new MemoryBudget(coordinationService, 1000)
+
+    def "work items submitted without a lease take a lease of their own"() {
+        expect:
+        memoryBudget.getResourceLockForWorkItem(600).displayName == "lease of 600 for memory budget"
+        memoryBudget.getResourceLockForWorkItem(2000).displayName == "lease of 1000 for memory budget"
+        memoryBudget.getResourceLockForWorkItem(0) == null
+    }
+
+    def "work items submitted while holding a lease run within that lease"() {
+        given:
+        def nodeLock = memoryBudget.getResourceLock(600)
+        coordinationService.withStateLock(lock(nodeLock))
+
+        expect:
+        memoryBudget.getResourceLockForWorkItem(600) == null
+
+        cleanup:
+        coordinationService.withStateLock(unlock(nodeLock))
+    }
+
+    def "nothing is limited without a budget"() {
+        expect:
+        MemoryBudget.UNLIMITED.getResourceLock(600) == null
+        MemoryBudget.UNLIMITED.getResourceLockForWorkItem(600) == null
+    }
+}
@@ -42,8 +42,10 @@ import org.gradle.execution.plan.AbstractExecutionPlanSpec
 import org.gradle.execution.plan.DefaultPlanExecutor
 import org.gradle.execution.plan.LocalTaskNode
 import org.gradle.execution.plan.Node
+import org.gradle.execution.plan.NodeDurationEstimator
 import org.gradle.execution.plan.NodeExecutor
 import org.gradle.execution.plan.PlanExecutor
+import org.gradle.execution.plan.SchedulingDelayReason
 import org.gradle.execution.plan.TaskDependencyResolver
 import org.gradle.execution.plan.TaskNodeDependencyResolver
 import org.gradle.execution.plan.TaskNodeFactory
@@ -65,6 +67,8 @@ class DefaultTaskExecutionGraphSpec extends AbstractExecutionPlanSpec {
     def graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class)
     def taskExecutionListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class)
     def listenerRegistrationListener = listenerManager.getBroadcaster(BuildScopeListenerRegistrationListener.class)
+    def taskGraphCalculationListener = Mock(TaskGraphCalculationListener)
+    def taskSchedulingListener = Mock(TaskSchedulingListener)
     def nodeExecutor = Mock(NodeExecutor)
     def buildOperationExecutor = new TestBuildOperationExecutor()
     def listenerBuildOperationDecorator = new TestListenerBuildOperationDecorator()
@@ -75,7 +79,7 @@ class DefaultTaskExecutionGraphSpec extends AbstractExecutionPlanSpec {
     def taskNodeFactory = new TaskNodeFactory(thisBuild, Stub(IncludedBuildTaskGraph))
     def dependencyResolver = new TaskDependencyResolver([new TaskNodeDependencyResolver(taskNodeFactory)])
     def projectStateRegistry = Stub(ProjectStateRegistry)
-    def taskGraph = new DefaultTaskExecutionGraph(new DefaultPlanExecutor(parallelismConfiguration, executorFactory, workerLeases, cancellationToken, coordinationService), [nodeExecutor], buildOperationExecutor, listenerBuildOperationDecorator, coordinationService, thisBuild, taskNodeFactory, dependencyResolver, graphListeners, taskExecutionListeners, listenerRegistrationListener, projectStateRegistry, Stub(ServiceRegistry))
+    def taskGraph = new DefaultTaskExecutionGraph(new DefaultPlanExecutor(parallelismConfiguration, executorFactory, workerLeases, cancellationToken, coordinationService), [nodeExecutor], buildOperationExecutor, listenerBuildOperationDecorator, coordinationService, thisBuild, taskNodeFactory, dependencyResolver, NodeDurationEstimator.NONE, graphListeners, taskExecutionListeners, listenerRegistrationListener, taskGraphCalculationListener, taskSchedulingListener, projectStateRegistry, Stub(ServiceRegistry))
     WorkerLeaseRegistry.WorkerLeaseCompletion parentWorkerLease
     def executedTasks = []
     def failures = []
@@ -363,7 +367,7 @@ class DefaultTaskExecutionGraphSpec extends AbstractExecutionPlanSpec {
 
     def "notifies graph listener before first execute"() {
         def planExecutor = Mock(PlanExecutor)
-        def taskGraph = new DefaultTaskExecutionGraph(planExecutor, [nodeExecutor], buildOperationExecutor, listenerBuildOperationDecorator, coordinationService, thisBuild, taskNodeFactory, dependencyResolver, graphListeners, taskExecutionListeners, listenerRegistrationListener, projectStateRegistry, Stub(ServiceRegistry))
+        def taskGraph = new DefaultTaskExecutionGraph(planExecutor, [nodeExecutor], buildOperationExecutor, listenerBuildOperationDecorator, coordinationService, thisBuild, taskNodeFactory, dependencyResolver, NodeDurationEstimator.NONE, graphListeners, taskExecutionListeners, listenerRegistrationListener, taskGraphCalculationListener, taskSchedulingListener, projectStateRegistry, Stub(ServiceRegistry))
         TaskExecutionGraphListener listener = Mock(TaskExecutionGraphListener)
         Task a = task("a")
 
@@ -386,9 +390,53 @@ class DefaultTaskExecutionGraphSpec extends AbstractExecutionPlanSpec {
         0 * listener._
     }
 
+    def "notifies task graph calculation listener when calculating the graph"() {
+        Task a = task("a")
+
+        when:
+        taskGraph.addEntryTasks([a])
+
+        then:
+        1 * taskGraphCalculationListener.beforeTaskGraphCalculation(_)
+
+        then:
+        1 * taskGraphCalculationListener.afterTaskGraphCalculation(_)
+
+        when:
+        taskGraph.populate()
+
+        then:
+        1 * taskGraphCalculationListener.beforeTaskGraphCalculation(_)
+
+        then:
+        1 * taskGraphCalculationListener.afterTaskGraphCalculation(_)
+        0 * taskGraphCalculationListener._
+    }
+
+    def "reports scheduling of tasks after execution"() {
+        Task a = task("a")
+        Task b = task("b", a)
+
+        given:
+        taskGraph.addEntryTasks([b])
+        taskGraph.populate()
+
+        when:
+        taskGraph.execute(failures)
+
+        then:
+        1 * taskSchedulingListener.afterTaskGraphExecution({ it.startedNodeCount == 2 })
+
+        and:
+        def result = buildOperationExecutor.log.mostRecentResult(ReportTaskSchedulingBuildOperationType)
+        result.scheduledTasks*.taskPath == [':a', ':b']
+        result.scheduledTasks.every { it.readyTime > 0 && it.startTime >= it.readyTime }
+        result.waitTimeMillis.keySet() == SchedulingDelayReason.values()*.name() as Set
+    }
+
     def "executes whenReady listener before first execute"() {
         def planExecutor = Mock(PlanExecutor)
-        def taskGraph = new DefaultTaskExecutionGraph(planExecutor, [nodeExecutor], buildOperationExecutor, listenerBuildOperationDecorator, coordinationService, thisBuild, taskNodeFactory, dependencyResolver, graphListeners, taskExecutionListeners, listenerRegistrationListener, projectStateRegistry, Stub(ServiceRegistry))
+        def taskGraph = new DefaultTaskExecutionGraph(planExecutor, [nodeExecutor], buildOperationExecutor, listenerBuildOperationDecorator, coordinationService, thisBuild, taskNodeFactory, dependencyResolver, NodeDurationEstimator.NONE, graphListeners, taskExecutionListeners, listenerRegistrationListener, taskGraphCalculationListener, taskSchedulingListener, projectStateRegistry, Stub(ServiceRegistry))
         def closure = Mock(Closure)
         def action = Mock(Action)
         Task a = task("a")
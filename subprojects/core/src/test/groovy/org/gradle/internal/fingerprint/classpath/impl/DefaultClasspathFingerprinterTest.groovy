@@ -52,7 +52,8 @@ class DefaultClasspathFingerprinterTest extends Specification {
         ResourceFilter.FILTER_NOTHING,
         ResourceEntryFilter.FILTER_NOTHING,
         ResourceEntryFilter.FILTER_NOTHING,
-        stringInterner)
+        stringInterner,
+        null)
 
     def "directories and missing files are ignored"() {
         def emptyDir = file('root/emptyDir').createDir()
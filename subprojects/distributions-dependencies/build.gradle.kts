@@ -50,6 +50,7 @@ dependencies {
         api(libs.aetherImpl)            { version { strictly(aetherVersion) }}
         api(libs.aetherSpi)             { version { strictly(aetherVersion) }}
         api(libs.aetherUtil)            { version { strictly(aetherVersion) }}
+        api(libs.aircompressor)         { version { strictly("0.16") }}
         api(libs.ansiControlSequenceUtil) { version { strictly("0.2") }}
         api(libs.ant)                   { version { strictly(antVersion) }}
         api(libs.antLauncher)           { version { strictly(antVersion) }}
@@ -147,7 +148,6 @@ dependencies {
         api(libs.xmlApis)               { version { strictly("1.4.01"); because("2.0.x has a POM with relocation Gradle does not handle well") }}
 
         // test only
-        api(libs.aircompressor)         { version { strictly("0.8") }}
         api(libs.archunit)              { version { strictly(archunitVersion) }}
         api(libs.archunitJunit4)        { version { strictly(archunitVersion) }}
         api(libs.awaitility)            { version { strictly("3.1.6") }}
@@ -37,7 +37,7 @@ import static org.hamcrest.MatcherAssert.assertThat
 
 abstract class DistributionIntegrationSpec extends AbstractIntegrationSpec {
 
-    protected static final THIRD_PARTY_LIB_COUNT = 140
+    protected static final THIRD_PARTY_LIB_COUNT = 141
 
     @Rule public final PreconditionVerifier preconditionVerifier = new PreconditionVerifier()
 
@@ -15,6 +15,7 @@
  */
 plugins {
     id("gradlebuild.distribution.api-java")
+    id("gradlebuild.jmh")
 }
 
 description = "Execution engine that takes a unit of work and makes it happen"
@@ -48,6 +49,9 @@ dependencies {
     testImplementation(testFixtures(project(":snapshots")))
     testImplementation(testFixtures(project(":core")))
 
+    jmhImplementation(platform(project(":distributions-dependencies")))
+    jmhImplementation(testFixtures(project(":core")))
+
     testFixturesImplementation(libs.guava)
     testFixturesImplementation(project(":base-services"))
     testFixturesImplementation(project(":build-cache"))
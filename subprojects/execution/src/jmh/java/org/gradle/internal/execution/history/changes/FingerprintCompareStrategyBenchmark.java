@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.changes;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import org.gradle.internal.execution.history.impl.SerializableFileCollectionFingerprint;
+import org.gradle.internal.file.FileType;
+import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.fingerprint.impl.DefaultFileSystemLocationFingerprint;
+import org.gradle.internal.hash.HashCode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the fingerprints of an input property with many files, where either a few or most of the files changed.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FingerprintCompareStrategyBenchmark {
+
+    @Param({"ABSOLUTE", "NORMALIZED"})
+    String strategyName;
+
+    @Param({"mostly-unchanged", "mostly-changed"})
+    String changes;
+
+    @Param({"100000"})
+    int numberOfFiles;
+
+    FingerprintCompareStrategy strategy;
+    FileCollectionFingerprint previous;
+    FileCollectionFingerprint current;
+
+    @Setup(Level.Trial)
+    public void setupFingerprints() {
+        strategy = strategyName.equals("ABSOLUTE")
+            ? AbsolutePathFingerprintCompareStrategy.INSTANCE
+            : NormalizedPathFingerprintCompareStrategy.INSTANCE;
+        // Every 100th file changes for mostly unchanged inputs, 9 out of 10 files change for mostly changed inputs
+        int changedFilesPerHundred = changes.equals("mostly-unchanged") ? 1 : 90;
+
+        ImmutableMap.Builder<String, FileSystemLocationFingerprint> previousFingerprints = ImmutableMap.builder();
+        ImmutableMap.Builder<String, FileSystemLocationFingerprint> currentFingerprints = ImmutableMap.builder();
+        for (int i = 0; i < numberOfFiles; i++) {
+            String normalizedPath = "org/gradle/package" + (i / 100) + "/Source" + i + ".java";
+            String absolutePath = "/project/src/main/java/" + normalizedPath;
+            previousFingerprints.put(absolutePath, new DefaultFileSystemLocationFingerprint(normalizedPath, FileType.RegularFile, HashCode.fromInt(i)));
+            boolean changed = i % 100 < changedFilesPerHundred;
+            currentFingerprints.put(absolutePath, new DefaultFileSystemLocationFingerprint(normalizedPath, FileType.RegularFile, HashCode.fromInt(changed ? -i : i)));
+        }
+        previous = new SerializableFileCollectionFingerprint(previousFingerprints.build(), ImmutableMultimap.of("/project/src/main/java", HashCode.fromInt(1)));
+        current = new SerializableFileCollectionFingerprint(currentFingerprints.build(), ImmutableMultimap.of("/project/src/main/java", HashCode.fromInt(2)));
+    }
+
+    @Benchmark
+    public boolean visitChanges(Blackhole blackhole) {
+        return strategy.visitChangesSince(current, previous, "sources", change -> {
+            blackhole.consume(change);
+            return true;
+        });
+    }
+}
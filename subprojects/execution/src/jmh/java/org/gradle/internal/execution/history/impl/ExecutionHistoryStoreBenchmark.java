@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.cache.CacheBuilder;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.DefaultCacheFactory;
+import org.gradle.cache.internal.DefaultCrossBuildInMemoryCacheFactory;
+import org.gradle.cache.internal.DefaultFileLockManagerTestHelper;
+import org.gradle.cache.internal.DefaultInMemoryCacheDecoratorFactory;
+import org.gradle.caching.internal.origin.OriginMetadata;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.event.DefaultListenerManager;
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
+import org.gradle.internal.fingerprint.impl.AbsolutePathFingerprintingStrategy;
+import org.gradle.internal.fingerprint.impl.DefaultCurrentFileCollectionFingerprint;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.progress.NoOpProgressLoggerFactory;
+import org.gradle.internal.service.scopes.Scope.Global;
+import org.gradle.internal.snapshot.CompositeFileSystemSnapshot;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.snapshot.ValueSnapshot;
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
+import org.gradle.internal.snapshot.impl.StringValueSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Measures the time a worker thread spends storing the execution state of a task in the execution history.
+ * With write-behind, the state is written from a background thread, whose work is not included in the measured time.
+ */
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ExecutionHistoryStoreBenchmark {
+
+    @Param({"false", "true"})
+    boolean writeBehind;
+
+    @Param({"20"})
+    int filesPerProperty;
+
+    private final AtomicInteger taskCounter = new AtomicInteger();
+
+    File cacheDir;
+    DefaultExecutorFactory executorFactory;
+    DefaultCacheFactory cacheFactory;
+    PersistentCache cache;
+    DefaultExecutionHistoryStore store;
+
+    OriginMetadata originMetadata;
+    ImplementationSnapshot implementation;
+    ImmutableSortedMap<String, ValueSnapshot> inputProperties;
+    ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileProperties;
+    ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileProperties;
+
+    @Setup(Level.Trial)
+    public void setupExecutionState() {
+        originMetadata = new OriginMetadata("build-invocation-id", 1234);
+        implementation = ImplementationSnapshot.of("org.gradle.SomeTask", Hashing.signature("classloader"));
+        inputProperties = ImmutableSortedMap.of(
+            "name", new StringValueSnapshot("some-value"),
+            "version", new StringValueSnapshot("1.0")
+        );
+        inputFileProperties = ImmutableSortedMap.of(
+            "sources", fingerprint("/project/src/main/java/org/gradle/Source"),
+            "classpath", fingerprint("/project/libs/lib")
+        );
+        outputFileProperties = ImmutableSortedMap.of(
+            "destinationDir", fingerprint("/project/build/classes/java/main/org/gradle/Source")
+        );
+    }
+
+    private CurrentFileCollectionFingerprint fingerprint(String pathPrefix) {
+        List<FileSystemSnapshot> files = new ArrayList<>();
+        for (int i = 0; i < filesPerProperty; i++) {
+            String path = pathPrefix + i + ".java";
+            files.add(new RegularFileSnapshot(path, path.substring(path.lastIndexOf('/') + 1), Hashing.signature(path), DefaultFileMetadata.file(i, i, AccessType.DIRECT)));
+        }
+        return DefaultCurrentFileCollectionFingerprint.from(Collections.singleton(CompositeFileSystemSnapshot.of(files)), AbsolutePathFingerprintingStrategy.IGNORE_MISSING);
+    }
+
+    @Setup(Level.Iteration)
+    public void openStore() throws IOException {
+        cacheDir = Files.createTempDirectory("execution-history").toFile();
+        executorFactory = new DefaultExecutorFactory();
+        cacheFactory = new DefaultCacheFactory(DefaultFileLockManagerTestHelper.createDefaultFileLockManager(), executorFactory, new NoOpProgressLoggerFactory());
+        cache = cacheFactory.open(cacheDir, "execution history", Collections.emptyMap(), CacheBuilder.LockTarget.DefaultTarget, mode(FileLockManager.LockMode.OnDemand), null, null);
+        DefaultInMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory = new DefaultInMemoryCacheDecoratorFactory(true, new DefaultCrossBuildInMemoryCacheFactory(new DefaultListenerManager(Global.class)));
+        store = new DefaultExecutionHistoryStore(() -> cache, inMemoryCacheDecoratorFactory, new StringInterner(), writeBehind ? executorFactory : null);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeStore() throws IOException {
+        store.close();
+        cache.close();
+        cacheFactory.close();
+        executorFactory.stop();
+        FileUtils.deleteDirectory(cacheDir);
+    }
+
+    @Benchmark
+    public void storeExecutionState() {
+        store.store(
+            ":task" + taskCounter.incrementAndGet(),
+            originMetadata,
+            implementation,
+            ImmutableList.of(),
+            inputProperties,
+            inputFileProperties,
+            outputFileProperties,
+            true,
+            false
+        );
+    }
+}
@@ -40,4 +40,9 @@ public interface CurrentSnapshotResult extends SnapshotResult {
      * Did we reuse the output from some previous execution?
      */
     boolean isReused();
+
+    /**
+     * Were the outputs linked to the contents of the local build cache when reusing them?
+     */
+    boolean hasLinkedOutputs();
 }
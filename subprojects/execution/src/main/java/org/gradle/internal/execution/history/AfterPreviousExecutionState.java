@@ -35,6 +35,11 @@ public interface AfterPreviousExecutionState extends ExecutionState {
      */
     boolean isSuccessful();
 
+    /**
+     * Whether or not the output files were linked to the contents of the local build cache when loading them.
+     */
+    boolean hasLinkedOutputs();
+
     @Override
     ImmutableSortedMap<String, FileCollectionFingerprint> getInputFileProperties();
 
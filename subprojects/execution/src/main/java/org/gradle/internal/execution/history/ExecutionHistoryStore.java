@@ -24,10 +24,16 @@
 import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
 
 import java.util.Optional;
+import java.util.OptionalLong;
 
 public interface ExecutionHistoryStore {
     Optional<AfterPreviousExecutionState> load(String key);
 
+    /**
+     * Loads the execution time of the last execution, without loading the rest of its state.
+     */
+    OptionalLong loadExecutionTime(String key);
+
     void store(String key,
                OriginMetadata originMetadata,
                ImplementationSnapshot implementation,
@@ -35,7 +41,8 @@ void store(String key,
                ImmutableSortedMap<String, ValueSnapshot> inputProperties,
                ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileProperties,
                ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileProperties,
-               boolean successful);
+               boolean successful,
+               boolean linkedOutputs);
 
     void remove(String key);
 }
@@ -19,9 +19,7 @@
 import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
 import org.gradle.internal.hash.HashCode;
 
-import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Compares by absolute paths and file contents. Order does not matter.
@@ -33,16 +31,23 @@ public class AbsolutePathFingerprintCompareStrategy extends AbstractFingerprintC
     private AbsolutePathFingerprintCompareStrategy() {
     }
 
+    /**
+     * Determines changes by looking up the fingerprint with the same absolute path in the other fingerprint collection.
+     * Unchanged files are skipped without allocating anything.
+     */
     @Override
     protected boolean doVisitChangesSince(ChangeVisitor visitor, Map<String, FileSystemLocationFingerprint> current, Map<String, FileSystemLocationFingerprint> previous, String propertyTitle) {
-        Set<String> unaccountedForPreviousFingerprints = new LinkedHashSet<String>(previous.keySet());
-
         for (Map.Entry<String, FileSystemLocationFingerprint> currentEntry : current.entrySet()) {
             String currentAbsolutePath = currentEntry.getKey();
             FileSystemLocationFingerprint currentFingerprint = currentEntry.getValue();
-            HashCode currentContentHash = currentFingerprint.getNormalizedContentHash();
-            if (unaccountedForPreviousFingerprints.remove(currentAbsolutePath)) {
-                FileSystemLocationFingerprint previousFingerprint = previous.get(currentAbsolutePath);
+            FileSystemLocationFingerprint previousFingerprint = previous.get(currentAbsolutePath);
+            if (previousFingerprint == null) {
+                DefaultFileChange added = DefaultFileChange.added(currentAbsolutePath, propertyTitle, currentFingerprint.getType(), currentAbsolutePath);
+                if (!visitor.visitChange(added)) {
+                    return false;
+                }
+            } else {
+                HashCode currentContentHash = currentFingerprint.getNormalizedContentHash();
                 HashCode previousContentHash = previousFingerprint.getNormalizedContentHash();
                 if (!currentContentHash.equals(previousContentHash)) {
                     DefaultFileChange modified = DefaultFileChange.modified(currentAbsolutePath, propertyTitle, previousFingerprint.getType(), currentFingerprint.getType(), currentAbsolutePath);
@@ -51,18 +56,16 @@ protected boolean doVisitChangesSince(ChangeVisitor visitor, Map<String, FileSys
                     }
                 }
                 // else, unchanged; check next file
-            } else {
-                DefaultFileChange added = DefaultFileChange.added(currentAbsolutePath, propertyTitle, currentFingerprint.getType(), currentAbsolutePath);
-                if (!visitor.visitChange(added)) {
-                    return false;
-                }
             }
         }
 
-        for (String previousAbsolutePath : unaccountedForPreviousFingerprints) {
-            DefaultFileChange removed = DefaultFileChange.removed(previousAbsolutePath, propertyTitle, previous.get(previousAbsolutePath).getType(), previousAbsolutePath);
-            if (!visitor.visitChange(removed)) {
-                return false;
+        for (Map.Entry<String, FileSystemLocationFingerprint> previousEntry : previous.entrySet()) {
+            String previousAbsolutePath = previousEntry.getKey();
+            if (!current.containsKey(previousAbsolutePath)) {
+                DefaultFileChange removed = DefaultFileChange.removed(previousAbsolutePath, propertyTitle, previousEntry.getValue().getType(), previousAbsolutePath);
+                if (!visitor.visitChange(removed)) {
+                    return false;
+                }
             }
         }
         return true;
@@ -26,7 +26,6 @@
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
 
 import static java.util.Map.Entry.comparingByKey;
 
@@ -49,6 +48,9 @@ private NormalizedPathFingerprintCompareStrategy() {
      *         If it is, file is reported as modified, if not as removed.
      *     </li>
      * </ul>
+     *
+     * Both fingerprint collections are walked in their iteration order, which is the same for both as long as the files did not change.
+     * Unchanged files are skipped without allocating anything, so only the changed files end up in the intermediate collections.
      */
     @Override
     protected boolean doVisitChangesSince(
@@ -57,8 +59,11 @@ protected boolean doVisitChangesSince(
         Map<String, FileSystemLocationFingerprint> previousFingerprints,
         String propertyTitle
     ) {
-        ListMultimap<FileSystemLocationFingerprint, FilePathWithType> unaccountedForPreviousFiles = getUnaccountedForPreviousFingerprints(previousFingerprints, currentFingerprints.entrySet());
-        ListMultimap<String, FilePathWithType> addedFilesByNormalizedPath = getAddedFilesByNormalizedPath(currentFingerprints, unaccountedForPreviousFiles, previousFingerprints.entrySet());
+        ListMultimap<FileSystemLocationFingerprint, FilePathWithType> unaccountedForPreviousFiles = getUnaccountedForPreviousFingerprints(previousFingerprints, currentFingerprints);
+        ListMultimap<String, FilePathWithType> addedFilesByNormalizedPath = getAddedFilesByNormalizedPath(currentFingerprints, unaccountedForPreviousFiles, previousFingerprints);
+        if (unaccountedForPreviousFiles.isEmpty() && addedFilesByNormalizedPath.isEmpty()) {
+            return true;
+        }
 
         Iterator<Entry<FileSystemLocationFingerprint, FilePathWithType>> iterator = unaccountedForPreviousFiles.entries().stream().sorted(comparingByKey()).iterator();
         while (iterator.hasNext()) {
@@ -103,15 +108,16 @@ private Change getChange(
 
     private static ListMultimap<FileSystemLocationFingerprint, FilePathWithType> getUnaccountedForPreviousFingerprints(
         Map<String, FileSystemLocationFingerprint> previousFingerprints,
-        Set<Entry<String, FileSystemLocationFingerprint>> currentEntries
+        Map<String, FileSystemLocationFingerprint> currentFingerprints
     ) {
         ListMultimap<FileSystemLocationFingerprint, FilePathWithType> results = MultimapBuilder
-            .hashKeys(previousFingerprints.size())
+            .hashKeys()
             .linkedListValues()
             .build();
+        Iterator<Entry<String, FileSystemLocationFingerprint>> currentEntries = currentFingerprints.entrySet().iterator();
         for (Entry<String, FileSystemLocationFingerprint> previousEntry : previousFingerprints.entrySet()) {
             // skip exact matches
-            if (currentEntries.contains(previousEntry)) {
+            if (isExactMatch(previousEntry, currentEntries, currentFingerprints)) {
                 continue;
             }
 
@@ -127,15 +133,16 @@ private static ListMultimap<FileSystemLocationFingerprint, FilePathWithType> get
     private static ListMultimap<String, FilePathWithType> getAddedFilesByNormalizedPath(
         Map<String, FileSystemLocationFingerprint> currentFingerprints,
         ListMultimap<FileSystemLocationFingerprint, FilePathWithType> unaccountedForPreviousFiles,
-        Set<Entry<String, FileSystemLocationFingerprint>> previousEntries
+        Map<String, FileSystemLocationFingerprint> previousFingerprints
     ) {
         ListMultimap<String, FilePathWithType> results = MultimapBuilder
             .linkedHashKeys()
             .arrayListValues(1)
             .build();
+        Iterator<Entry<String, FileSystemLocationFingerprint>> previousEntries = previousFingerprints.entrySet().iterator();
         for (Entry<String, FileSystemLocationFingerprint> currentEntry : currentFingerprints.entrySet()) {
             // skip exact matches
-            if (previousEntries.contains(currentEntry)) {
+            if (isExactMatch(currentEntry, previousEntries, previousFingerprints)) {
                 continue;
             }
 
@@ -153,6 +160,26 @@ private static ListMultimap<String, FilePathWithType> getAddedFilesByNormalizedP
         return results;
     }
 
+    /**
+     * Checks whether the other fingerprint collection contains the same entry.
+     *
+     * The entry at the same position in the other collection is checked first, only falling back to a lookup by absolute path when the paths differ.
+     * The iterator over the other collection is advanced by one entry.
+     */
+    private static boolean isExactMatch(
+        Entry<String, FileSystemLocationFingerprint> entry,
+        Iterator<Entry<String, FileSystemLocationFingerprint>> otherEntries,
+        Map<String, FileSystemLocationFingerprint> otherFingerprints
+    ) {
+        if (otherEntries.hasNext()) {
+            Entry<String, FileSystemLocationFingerprint> entryAtSamePosition = otherEntries.next();
+            if (entry.getKey().equals(entryAtSamePosition.getKey())) {
+                return entry.getValue().equals(entryAtSamePosition.getValue());
+            }
+        }
+        return entry.getValue().equals(otherFingerprints.get(entry.getKey()));
+    }
+
     private static Change modified(
         String propertyTitle,
         FileType previousFingerprintType,
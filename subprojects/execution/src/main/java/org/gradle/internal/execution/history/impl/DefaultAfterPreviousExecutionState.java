@@ -27,6 +27,7 @@
 public class DefaultAfterPreviousExecutionState extends AbstractExecutionState<FileCollectionFingerprint> implements AfterPreviousExecutionState {
     private final OriginMetadata originMetadata;
     private final boolean successful;
+    private final boolean linkedOutputs;
 
     public DefaultAfterPreviousExecutionState(
         OriginMetadata originMetadata,
@@ -35,11 +36,13 @@ public DefaultAfterPreviousExecutionState(
         ImmutableSortedMap<String, ValueSnapshot> inputProperties,
         ImmutableSortedMap<String, FileCollectionFingerprint> inputFileProperties,
         ImmutableSortedMap<String, FileCollectionFingerprint> outputFileProperties,
-        boolean successful
+        boolean successful,
+        boolean linkedOutputs
     ) {
         super(implementation, additionalImplementations, inputProperties, inputFileProperties, outputFileProperties);
         this.originMetadata = originMetadata;
         this.successful = successful;
+        this.linkedOutputs = linkedOutputs;
     }
 
     @Override
@@ -51,4 +54,9 @@ public OriginMetadata getOriginMetadata() {
     public boolean isSuccessful() {
         return successful;
     }
+
+    @Override
+    public boolean hasLinkedOutputs() {
+        return linkedOutputs;
+    }
 }
@@ -25,36 +25,70 @@
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
 import org.gradle.caching.internal.origin.OriginMetadata;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.execution.history.AfterPreviousExecutionState;
 import org.gradle.internal.execution.history.ExecutionHistoryStore;
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
+import org.gradle.internal.serialize.BaseSerializerFactory;
 import org.gradle.internal.snapshot.ValueSnapshot;
 import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
 
+import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.function.Supplier;
 
 import static com.google.common.collect.ImmutableSortedMap.copyOfSorted;
 import static com.google.common.collect.Maps.transformValues;
 
-public class DefaultExecutionHistoryStore implements ExecutionHistoryStore {
+public class DefaultExecutionHistoryStore implements ExecutionHistoryStore, Closeable {
 
     private final PersistentIndexedCache<String, AfterPreviousExecutionState> store;
+    // Kept separately, so that the execution time can be looked up without deserializing the fingerprints
+    private final PersistentIndexedCache<String, Long> executionTimes;
 
     public DefaultExecutionHistoryStore(
         Supplier<PersistentCache> cache,
         InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory,
         StringInterner stringInterner
+    ) {
+        this(cache, inMemoryCacheDecoratorFactory, stringInterner, null);
+    }
+
+    /**
+     * Creates a store which writes the execution state in batches from a background thread when an executor factory is given.
+     * The store then needs to be closed to write the remaining execution state.
+     */
+    public DefaultExecutionHistoryStore(
+        Supplier<PersistentCache> cache,
+        InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory,
+        StringInterner stringInterner,
+        @Nullable ExecutorFactory writeBehindExecutorFactory
     ) {
         DefaultPreviousExecutionStateSerializer serializer = new DefaultPreviousExecutionStateSerializer(
             new FileCollectionFingerprintSerializer(stringInterner));
 
         CacheDecorator inMemoryCacheDecorator = inMemoryCacheDecoratorFactory.decorator(10000, false);
-        this.store = cache.get().createCache(
+        PersistentCache persistentCache = cache.get();
+        PersistentIndexedCache<String, AfterPreviousExecutionState> store = persistentCache.createCache(
             PersistentIndexedCacheParameters.of("executionHistory", String.class, serializer)
             .withCacheDecorator(inMemoryCacheDecorator)
         );
+        PersistentIndexedCache<String, Long> executionTimes = persistentCache.createCache(
+            PersistentIndexedCacheParameters.of("executionTimes", String.class, BaseSerializerFactory.LONG_SERIALIZER)
+            .withCacheDecorator(inMemoryCacheDecorator)
+        );
+        this.store = writeBehind(store, persistentCache, writeBehindExecutorFactory, "Execution history");
+        this.executionTimes = writeBehind(executionTimes, persistentCache, writeBehindExecutorFactory, "Execution times");
+    }
+
+    private static <V> PersistentIndexedCache<String, V> writeBehind(PersistentIndexedCache<String, V> cache, PersistentCache persistentCache, @Nullable ExecutorFactory writeBehindExecutorFactory, String displayName) {
+        return writeBehindExecutorFactory == null
+            ? cache
+            : new WriteBehindIndexedCache<>(cache, persistentCache, writeBehindExecutorFactory, displayName);
     }
 
     @Override
@@ -62,6 +96,12 @@ public Optional<AfterPreviousExecutionState> load(String key) {
         return Optional.ofNullable(store.get(key));
     }
 
+    @Override
+    public OptionalLong loadExecutionTime(String key) {
+        Long executionTime = executionTimes.get(key);
+        return executionTime == null ? OptionalLong.empty() : OptionalLong.of(executionTime);
+    }
+
     @Override
     public void store(
         String key,
@@ -71,7 +111,8 @@ public void store(
         ImmutableSortedMap<String, ValueSnapshot> inputProperties,
         ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileProperties,
         ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileProperties,
-        boolean successful
+        boolean successful,
+        boolean linkedOutputs
     ) {
         store.put(key, new DefaultAfterPreviousExecutionState(
             originMetadata,
@@ -80,13 +121,21 @@ public void store(
             inputProperties,
             prepareForSerialization(inputFileProperties),
             prepareForSerialization(outputFileProperties),
-            successful
+            successful,
+            linkedOutputs
         ));
+        executionTimes.put(key, originMetadata.getExecutionTime());
     }
 
     @Override
     public void remove(String key) {
         store.remove(key);
+        executionTimes.remove(key);
+    }
+
+    @Override
+    public void close() {
+        CompositeStoppable.stoppable(store, executionTimes).stop();
     }
 
     private static ImmutableSortedMap<String, FileCollectionFingerprint> prepareForSerialization(ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprints) {
@@ -66,6 +66,7 @@ public AfterPreviousExecutionState read(Decoder decoder) throws Exception {
         ImmutableSortedMap<String, FileCollectionFingerprint> outputFilesFingerprints = readFingerprints(decoder);
 
         boolean successful = decoder.readBoolean();
+        boolean linkedOutputs = decoder.readBoolean();
 
         return new DefaultAfterPreviousExecutionState(
             originMetadata,
@@ -74,7 +75,8 @@ public AfterPreviousExecutionState read(Decoder decoder) throws Exception {
             inputProperties,
             inputFilesFingerprints,
             outputFilesFingerprints,
-            successful
+            successful,
+            linkedOutputs
         );
     }
 
@@ -96,6 +98,7 @@ public void write(Encoder encoder, AfterPreviousExecutionState execution) throws
         writeFingerprints(encoder, execution.getOutputFileProperties());
 
         encoder.writeBoolean(execution.isSuccessful());
+        encoder.writeBoolean(execution.hasLinkedOutputs());
     }
 
     public ImmutableSortedMap<String, ValueSnapshot> readInputProperties(Decoder decoder) throws Exception {
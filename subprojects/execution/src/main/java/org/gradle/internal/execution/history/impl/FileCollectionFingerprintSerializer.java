@@ -32,6 +32,12 @@
 
 public class FileCollectionFingerprintSerializer implements Serializer<FileCollectionFingerprint> {
 
+    /**
+     * The version of the serialized format, which needs to be changed whenever the format changes.
+     * Persistent caches containing fingerprints should be discarded when the version changes.
+     */
+    public static final int FORMAT_VERSION = 2;
+
     private final FingerprintMapSerializer fingerprintMapSerializer;
     private final StringInterner stringInterner;
     private final HashCodeSerializer hashCodeSerializer;
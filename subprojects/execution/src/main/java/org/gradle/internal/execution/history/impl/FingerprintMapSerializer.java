@@ -16,7 +16,6 @@
 
 package org.gradle.internal.execution.history.impl;
 
-import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableMap;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.internal.file.FileType;
@@ -27,20 +26,31 @@
 import org.gradle.internal.serialize.AbstractSerializer;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
-import org.gradle.internal.serialize.HashCodeSerializer;
 
 import java.io.IOException;
 import java.util.Map;
 
+/**
+ * Serializes fingerprints in a compact format.
+ *
+ * <p>Files in a fingerprint collection usually share long path prefixes, so both the absolute and the normalized path
+ * of each entry are written as the length of the prefix shared with the path of the previous entry followed by the remaining suffix.
+ * The file type and the kind of normalization are packed into a single header byte per entry.
+ * Content hashes are written as raw bytes, since all of them usually have the same length;
+ * the length is only written when it differs from the length of the previous content hash.</p>
+ */
 public class FingerprintMapSerializer extends AbstractSerializer<Map<String, FileSystemLocationFingerprint>> {
-    private static final byte DEFAULT_NORMALIZATION = 1;
-    private static final byte IGNORED_PATH_NORMALIZATION = 2;
+    private static final int DIR_FINGERPRINT = 1;
+    private static final int MISSING_FILE_FINGERPRINT = 2;
+    private static final int REGULAR_FILE_FINGERPRINT = 3;
+    private static final int FILE_TYPE_MASK = 0x03;
+
+    private static final int DEFAULT_NORMALIZATION = 1 << 2;
+    private static final int IGNORED_PATH_NORMALIZATION = 2 << 2;
+    private static final int NORMALIZATION_MASK = 0x03 << 2;
 
-    private static final byte DIR_FINGERPRINT = 1;
-    private static final byte MISSING_FILE_FINGERPRINT = 2;
-    private static final byte REGULAR_FILE_FINGERPRINT = 3;
+    private static final int HASH_LENGTH_CHANGED = 1 << 4;
 
-    private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
     private final StringInterner stringInterner;
 
     public FingerprintMapSerializer(StringInterner stringInterner) {
@@ -51,46 +61,67 @@ public FingerprintMapSerializer(StringInterner stringInterner) {
     public Map<String, FileSystemLocationFingerprint> read(Decoder decoder) throws IOException {
         int fingerprintCount = decoder.readSmallInt();
         ImmutableMap.Builder<String, FileSystemLocationFingerprint> fingerprints = ImmutableMap.builderWithExpectedSize(fingerprintCount);
+        String previousAbsolutePath = "";
+        String previousNormalizedPath = "";
+        int hashLength = 0;
         for (int i = 0; i < fingerprintCount; i++) {
-            String absolutePath = stringInterner.intern(decoder.readString());
-            FileSystemLocationFingerprint fingerprint = readFingerprint(decoder);
+            int header = decoder.readByte() & 0xff;
+            String absolutePath = stringInterner.intern(readPath(decoder, previousAbsolutePath));
+            previousAbsolutePath = absolutePath;
+
+            FileType fileType = readFileType(header);
+            HashCode contentHash;
+            switch (fileType) {
+                case Directory:
+                    contentHash = FileSystemLocationFingerprint.DIR_SIGNATURE;
+                    break;
+                case Missing:
+                    contentHash = FileSystemLocationFingerprint.MISSING_FILE_SIGNATURE;
+                    break;
+                case RegularFile:
+                    if ((header & HASH_LENGTH_CHANGED) != 0) {
+                        hashLength = decoder.readByte() & 0xff;
+                    }
+                    byte[] hash = new byte[hashLength];
+                    decoder.readBytes(hash);
+                    contentHash = HashCode.fromBytes(hash);
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+
+            FileSystemLocationFingerprint fingerprint;
+            switch (header & NORMALIZATION_MASK) {
+                case DEFAULT_NORMALIZATION:
+                    String normalizedPath = stringInterner.intern(readPath(decoder, previousNormalizedPath));
+                    previousNormalizedPath = normalizedPath;
+                    fingerprint = new DefaultFileSystemLocationFingerprint(normalizedPath, fileType, contentHash);
+                    break;
+                case IGNORED_PATH_NORMALIZATION:
+                    fingerprint = IgnoredPathFileSystemLocationFingerprint.create(fileType, contentHash);
+                    break;
+                default:
+                    throw new RuntimeException("Unable to read serialized file fingerprint. Unrecognized value found in the data stream.");
+            }
             fingerprints.put(absolutePath, fingerprint);
         }
         return fingerprints.build();
     }
 
-    private FileSystemLocationFingerprint readFingerprint(Decoder decoder) throws IOException {
-        FileType fileType = readFileType(decoder);
-        HashCode contentHash = readContentHash(fileType, decoder);
-
-        byte fingerprintKind = decoder.readByte();
-        switch (fingerprintKind) {
-            case DEFAULT_NORMALIZATION:
-                String normalizedPath = decoder.readString();
-                return new DefaultFileSystemLocationFingerprint(stringInterner.intern(normalizedPath), fileType, contentHash);
-            case IGNORED_PATH_NORMALIZATION:
-                return IgnoredPathFileSystemLocationFingerprint.create(fileType, contentHash);
-            default:
-                throw new RuntimeException("Unable to read serialized file fingerprint. Unrecognized value found in the data stream.");
+    private static String readPath(Decoder decoder, String previousPath) throws IOException {
+        int sharedPrefixLength = decoder.readSmallInt();
+        String suffix = decoder.readString();
+        if (sharedPrefixLength == 0) {
+            return suffix;
         }
-    }
-
-    private HashCode readContentHash(FileType fileType, Decoder decoder) throws IOException {
-        switch (fileType) {
-            case Directory:
-                return FileSystemLocationFingerprint.DIR_SIGNATURE;
-            case Missing:
-                return FileSystemLocationFingerprint.MISSING_FILE_SIGNATURE;
-            case RegularFile:
-                return hashCodeSerializer.read(decoder);
-            default:
-                throw new RuntimeException("Unable to read serialized file fingerprint. Unrecognized value found in the data stream.");
+        if (sharedPrefixLength > previousPath.length()) {
+            throw new RuntimeException("Unable to read serialized file fingerprint. Unrecognized value found in the data stream.");
         }
+        return previousPath.substring(0, sharedPrefixLength).concat(suffix);
     }
 
-    private FileType readFileType(Decoder decoder) throws IOException {
-        byte fileKind = decoder.readByte();
-        switch (fileKind) {
+    private static FileType readFileType(int header) {
+        switch (header & FILE_TYPE_MASK) {
             case DIR_FINGERPRINT:
                 return FileType.Directory;
             case MISSING_FILE_FINGERPRINT:
@@ -105,51 +136,74 @@ private FileType readFileType(Decoder decoder) throws IOException {
     @Override
     public void write(Encoder encoder, Map<String, FileSystemLocationFingerprint> value) throws Exception {
         encoder.writeSmallInt(value.size());
-        for (String key : value.keySet()) {
-            encoder.writeString(key);
-            FileSystemLocationFingerprint fingerprint = value.get(key);
-            writeFingerprint(encoder, fingerprint);
-        }
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (!super.equals(obj)) {
-            return false;
+        String previousAbsolutePath = "";
+        String previousNormalizedPath = "";
+        int hashLength = 0;
+        for (Map.Entry<String, FileSystemLocationFingerprint> entry : value.entrySet()) {
+            String absolutePath = entry.getKey();
+            FileSystemLocationFingerprint fingerprint = entry.getValue();
+
+            byte[] hash = null;
+            int header;
+            switch (fingerprint.getType()) {
+                case Directory:
+                    header = DIR_FINGERPRINT;
+                    break;
+                case Missing:
+                    header = MISSING_FILE_FINGERPRINT;
+                    break;
+                case RegularFile:
+                    header = REGULAR_FILE_FINGERPRINT;
+                    hash = fingerprint.getNormalizedContentHash().toByteArray();
+                    if (hash.length != hashLength) {
+                        header |= HASH_LENGTH_CHANGED;
+                    }
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+            if (fingerprint instanceof DefaultFileSystemLocationFingerprint) {
+                header |= DEFAULT_NORMALIZATION;
+            } else if (fingerprint instanceof IgnoredPathFileSystemLocationFingerprint) {
+                header |= IGNORED_PATH_NORMALIZATION;
+            } else {
+                throw new AssertionError();
+            }
+
+            encoder.writeByte((byte) header);
+            writePath(encoder, absolutePath, previousAbsolutePath);
+            previousAbsolutePath = absolutePath;
+            if (hash != null) {
+                if ((header & HASH_LENGTH_CHANGED) != 0) {
+                    hashLength = hash.length;
+                    encoder.writeByte((byte) hashLength);
+                }
+                encoder.writeBytes(hash);
+            }
+            if ((header & NORMALIZATION_MASK) == DEFAULT_NORMALIZATION) {
+                String normalizedPath = fingerprint.getNormalizedPath();
+                writePath(encoder, normalizedPath, previousNormalizedPath);
+                previousNormalizedPath = normalizedPath;
+            }
         }
-
-        FingerprintMapSerializer rhs = (FingerprintMapSerializer) obj;
-        return Objects.equal(hashCodeSerializer, rhs.hashCodeSerializer);
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hashCode(super.hashCode(), hashCodeSerializer);
+    private static void writePath(Encoder encoder, String path, String previousPath) throws IOException {
+        int sharedPrefixLength = sharedPrefixLength(path, previousPath);
+        encoder.writeSmallInt(sharedPrefixLength);
+        encoder.writeString(path.substring(sharedPrefixLength));
     }
 
-    private void writeFingerprint(Encoder encoder, FileSystemLocationFingerprint value) throws IOException {
-        switch (value.getType()) {
-            case Directory:
-                encoder.writeByte(DIR_FINGERPRINT);
-                break;
-            case Missing:
-                encoder.writeByte(MISSING_FILE_FINGERPRINT);
-                break;
-            case RegularFile:
-                encoder.writeByte(REGULAR_FILE_FINGERPRINT);
-                hashCodeSerializer.write(encoder, value.getNormalizedContentHash());
-                break;
-            default:
-                throw new AssertionError();
+    private static int sharedPrefixLength(String path, String previousPath) {
+        int maxLength = Math.min(path.length(), previousPath.length());
+        int length = 0;
+        while (length < maxLength && path.charAt(length) == previousPath.charAt(length)) {
+            length++;
         }
-
-        if (value instanceof DefaultFileSystemLocationFingerprint) {
-            encoder.writeByte(DEFAULT_NORMALIZATION);
-            encoder.writeString(value.getNormalizedPath());
-        } else if (value instanceof IgnoredPathFileSystemLocationFingerprint) {
-            encoder.writeByte(IGNORED_PATH_NORMALIZATION);
-        } else {
-            throw new AssertionError();
+        // Don't split surrogate pairs
+        if (length > 0 && Character.isHighSurrogate(path.charAt(length - 1))) {
+            length--;
         }
+        return length;
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import org.gradle.caching.internal.origin.OriginMetadata;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.execution.history.AfterPreviousExecutionState;
+import org.gradle.internal.execution.history.ExecutionHistoryStore;
+import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
+import org.gradle.internal.snapshot.ValueSnapshot;
+import org.gradle.internal.snapshot.impl.ImplementationSnapshot;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An execution history store that keeps the state loaded ahead of an execution,
+ * so that the execution itself doesn't need to load it again.
+ */
+public class PrefetchingExecutionHistoryStore implements ExecutionHistoryStore, Closeable {
+    private final ExecutionHistoryStore delegate;
+    private final Map<String, AfterPreviousExecutionState> prefetched = new ConcurrentHashMap<>();
+
+    public PrefetchingExecutionHistoryStore(ExecutionHistoryStore delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Loads the state of the last execution and keeps it until it is loaded by the next execution.
+     */
+    public Optional<AfterPreviousExecutionState> prefetch(String key) {
+        AfterPreviousExecutionState state = prefetched.get(key);
+        if (state != null) {
+            return Optional.of(state);
+        }
+        Optional<AfterPreviousExecutionState> loaded = delegate.load(key);
+        loaded.ifPresent(value -> prefetched.putIfAbsent(key, value));
+        return loaded;
+    }
+
+    @Override
+    public Optional<AfterPreviousExecutionState> load(String key) {
+        AfterPreviousExecutionState state = prefetched.remove(key);
+        return state != null ? Optional.of(state) : delegate.load(key);
+    }
+
+    @Override
+    public OptionalLong loadExecutionTime(String key) {
+        return delegate.loadExecutionTime(key);
+    }
+
+    @Override
+    public void store(
+        String key,
+        OriginMetadata originMetadata,
+        ImplementationSnapshot implementation,
+        ImmutableList<ImplementationSnapshot> additionalImplementations,
+        ImmutableSortedMap<String, ValueSnapshot> inputProperties,
+        ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileProperties,
+        ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileProperties,
+        boolean successful,
+        boolean linkedOutputs
+    ) {
+        prefetched.remove(key);
+        delegate.store(key, originMetadata, implementation, additionalImplementations, inputProperties, inputFileProperties, outputFileProperties, successful, linkedOutputs);
+    }
+
+    @Override
+    public void remove(String key) {
+        prefetched.remove(key);
+        delegate.remove(key);
+    }
+
+    @Override
+    public void close() {
+        prefetched.clear();
+        CompositeStoppable.stoppable(delegate).stop();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl;
+
+import org.gradle.api.Transformer;
+import org.gradle.cache.CacheAccess;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Cast;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Queues updates to a persistent indexed cache and writes them in batches from a background thread,
+ * so that the threads updating the cache don't need to acquire the file lock or wait for space in the cache's write queue.
+ *
+ * Reads see the queued updates, and only the latest update of a key is written.
+ * Once the given number of keys have queued updates, or once the cache has been closed, updates of other keys are written directly.
+ * Closing the cache writes all queued updates.
+ */
+class WriteBehindIndexedCache<K, V> implements PersistentIndexedCache<K, V>, Closeable {
+    private static final Object REMOVED = new Object();
+    private static final int DEFAULT_MAX_PENDING_UPDATES = 10000;
+
+    private final PersistentIndexedCache<K, V> delegate;
+    private final CacheAccess cacheAccess;
+    private final ManagedExecutor executor;
+    // Values are either of type V, or REMOVED
+    private final ConcurrentMap<K, Object> pendingUpdates = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final int maxPendingUpdates;
+    // Updates are queued while holding the read lock, closing the cache holds the write lock
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    WriteBehindIndexedCache(PersistentIndexedCache<K, V> delegate, CacheAccess cacheAccess, ExecutorFactory executorFactory, String displayName) {
+        this(delegate, cacheAccess, executorFactory, displayName, DEFAULT_MAX_PENDING_UPDATES);
+    }
+
+    WriteBehindIndexedCache(PersistentIndexedCache<K, V> delegate, CacheAccess cacheAccess, ExecutorFactory executorFactory, String displayName, int maxPendingUpdates) {
+        this.delegate = delegate;
+        this.cacheAccess = cacheAccess;
+        this.maxPendingUpdates = maxPendingUpdates;
+        // A single thread, so that updates of the same key are never written out of order
+        this.executor = executorFactory.create(displayName + " writer", 1);
+    }
+
+    @Nullable
+    @Override
+    public V get(K key) {
+        Object pending = pendingUpdates.get(key);
+        if (pending == REMOVED) {
+            return null;
+        }
+        if (pending != null) {
+            return Cast.uncheckedNonnullCast(pending);
+        }
+        return delegate.get(key);
+    }
+
+    @Override
+    public V get(K key, Transformer<? extends V, ? super K> producer) {
+        V value = get(key);
+        if (value == null) {
+            value = producer.transform(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        update(key, value);
+    }
+
+    @Override
+    public void remove(K key) {
+        update(key, REMOVED);
+    }
+
+    private void update(K key, Object value) {
+        closeLock.readLock().lock();
+        try {
+            // An update of a key that is already queued replaces the queued update, so it never needs to be written directly
+            if (!closed && (pendingUpdates.size() < maxPendingUpdates || pendingUpdates.containsKey(key))) {
+                pendingUpdates.put(key, value);
+                scheduleFlush();
+                return;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        cacheAccess.withFileLock(() -> write(key, value));
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Writes all queued updates to the backing cache while holding the file lock once.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        if (pendingUpdates.isEmpty()) {
+            return;
+        }
+        cacheAccess.withFileLock(() -> {
+            for (Map.Entry<K, Object> entry : pendingUpdates.entrySet()) {
+                K key = entry.getKey();
+                Object value = entry.getValue();
+                write(key, value);
+                // Keep the entry when it has been updated again in the meantime, it will be written by the next flush
+                pendingUpdates.remove(key, value);
+            }
+        });
+    }
+
+    private void write(K key, Object value) {
+        if (value == REMOVED) {
+            delegate.remove(key);
+        } else {
+            delegate.put(key, Cast.uncheckedNonnullCast(value));
+        }
+    }
+
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            executor.stop();
+        } finally {
+            flush();
+        }
+    }
+}
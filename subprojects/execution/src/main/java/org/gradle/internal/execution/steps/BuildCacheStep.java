@@ -89,6 +89,7 @@ private CurrentSnapshotResult executeWithCache(IncrementalChangesContext context
                     }
                     cleanLocalState(work);
                     OriginMetadata originMetadata = cacheHit.getOriginMetadata();
+                    boolean linkedOutputs = cacheHit.hasLinkedOutputs();
                     ImmutableSortedMap<String, CurrentFileCollectionFingerprint> finalOutputs = cacheHit.getResultingSnapshots();
                     return (CurrentSnapshotResult) new CurrentSnapshotResult() {
                         @Override
@@ -116,6 +117,11 @@ public boolean isReused() {
                             return true;
                         }
 
+                        @Override
+                        public boolean hasLinkedOutputs() {
+                            return linkedOutputs;
+                        }
+
                         @Override
                         public ImmutableSortedMap<String, CurrentFileCollectionFingerprint> getFinalOutputs() {
                             return finalOutputs;
@@ -25,12 +25,21 @@
 import org.gradle.internal.execution.history.BeforeExecutionState;
 import org.gradle.internal.execution.impl.OutputsCleaner;
 import org.gradle.internal.file.Deleter;
+import org.gradle.internal.file.FileType;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class CleanupOutputsStep<C extends InputChangesContext, R extends Result> implements Step<C, R> {
@@ -64,9 +73,62 @@ public R execute(C context) {
                 }
             }
         }
+        breakLinkedOutputs(context);
         return delegate.execute(context);
     }
 
+    /**
+     * Replaces previous output files linked to the contents of the local build cache with copies of themselves,
+     * so that the work cannot change the cached contents.
+     */
+    private void breakLinkedOutputs(BeforeExecutionContext context) {
+        context.getAfterPreviousExecutionState().ifPresent(previousOutputs -> {
+            // Only outputs loaded from the local build cache are linked, so other outputs do not need to be checked
+            if (!previousOutputs.hasLinkedOutputs()) {
+                return;
+            }
+            List<String> linkedFiles = new ArrayList<>();
+            for (FileCollectionFingerprint fileCollectionFingerprint : previousOutputs.getOutputFileProperties().values()) {
+                fileCollectionFingerprint.getFingerprints().forEach((absolutePath, fingerprint) -> {
+                    if (fingerprint.getType() == FileType.RegularFile && hasOtherLinks(Paths.get(absolutePath))) {
+                        linkedFiles.add(absolutePath);
+                    }
+                });
+            }
+            if (linkedFiles.isEmpty()) {
+                return;
+            }
+            outputChangeListener.beforeOutputChange(linkedFiles);
+            for (String linkedFile : linkedFiles) {
+                replaceWithCopy(Paths.get(linkedFile));
+            }
+        });
+    }
+
+    private static boolean hasOtherLinks(Path file) {
+        try {
+            return ((Number) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS)).intValue() > 1;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void replaceWithCopy(Path file) {
+        try {
+            Path copy = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".copy");
+            try {
+                Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                Files.move(copy, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(copy);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replace linked output file " + file, e);
+        }
+    }
+
     private void cleanupOverlappingOutputs(BeforeExecutionContext context, UnitOfWork work) {
         context.getAfterPreviousExecutionState().ifPresent(previousOutputs -> {
             Set<File> outputDirectoriesToPreserve = new HashSet<>();
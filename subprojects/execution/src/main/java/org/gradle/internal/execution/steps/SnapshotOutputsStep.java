@@ -96,6 +96,11 @@ public Try<ExecutionResult> getExecutionResult() {
             public boolean isReused() {
                 return false;
             }
+
+            @Override
+            public boolean hasLinkedOutputs() {
+                return false;
+            }
         };
     }
 
@@ -64,7 +64,8 @@ private void storeState(C context, ExecutionHistoryStore executionHistoryStore,
                     beforeExecutionState.getInputProperties(),
                     beforeExecutionState.getInputFileProperties(),
                     finalOutputs,
-                    successful
+                    successful,
+                    result.hasLinkedOutputs()
                 );
             }
         });
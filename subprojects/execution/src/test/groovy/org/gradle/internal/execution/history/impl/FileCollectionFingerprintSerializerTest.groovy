@@ -90,4 +90,41 @@ class FileCollectionFingerprintSerializerTest extends SerializerSpec {
         out.fingerprints.keySet() as List == ["/3", "/2", "/1"]
         out.rootHashes.keySet() as List == ["/3", "/2", "/1"]
     }
+
+    def "reads and writes paths sharing prefixes with the previous entry"() {
+        def fingerprints = [
+            '/root/dir': new DefaultFileSystemLocationFingerprint("dir", FileType.Directory, FileSystemLocationFingerprint.DIR_SIGNATURE),
+            '/root/dir/file1.txt': new DefaultFileSystemLocationFingerprint("dir/file1.txt", FileType.RegularFile, HashCode.fromInt(1)),
+            '/root/dir/file2.txt': IgnoredPathFileSystemLocationFingerprint.create(FileType.RegularFile, HashCode.fromString("0123456789abcdef0123456789abcdef")),
+            '/root/dir/file3.txt': new DefaultFileSystemLocationFingerprint("dir/file3.txt", FileType.RegularFile, HashCode.fromString("0123456789abcdef0123456789abcdef")),
+            '/root/d': new DefaultFileSystemLocationFingerprint("d", FileType.Missing, FileSystemLocationFingerprint.MISSING_FILE_SIGNATURE),
+            '/root/d\uD83D\uDE00': new DefaultFileSystemLocationFingerprint("d\uD83D\uDE00", FileType.RegularFile, HashCode.fromInt(2)),
+            '/root/d\uD83D\uDE01': new DefaultFileSystemLocationFingerprint("d\uD83D\uDE01", FileType.RegularFile, HashCode.fromInt(3)),
+            '/other': new DefaultFileSystemLocationFingerprint("", FileType.RegularFile, HashCode.fromInt(4)),
+        ]
+
+        when:
+        def out = serialize(new SerializableFileCollectionFingerprint(fingerprints, ImmutableMultimap.of("/root", HashCode.fromInt(5))), serializer)
+
+        then:
+        out.fingerprints.keySet() as List == fingerprints.keySet() as List
+        fingerprints.each { absolutePath, fingerprint ->
+            assert out.fingerprints[absolutePath] == fingerprint
+        }
+    }
+
+    def "does not write shared path prefixes repeatedly"() {
+        def fingerprints = (1..1000).collectEntries { i ->
+            def normalizedPath = "org/gradle/some/package/SomeClass${i}.class"
+            ["/home/user/project/build/classes/java/main/${normalizedPath}".toString(), new DefaultFileSystemLocationFingerprint(normalizedPath, FileType.RegularFile, HashCode.fromString("0123456789abcdef0123456789abcdef"))]
+        }
+
+        when:
+        def bytes = toBytes(new SerializableFileCollectionFingerprint(fingerprints, ImmutableMultimap.of()), serializer)
+
+        then:
+        // Header byte, path suffixes and 16 byte hash per entry
+        bytes.length < 1000 * 40
+        fromBytes(bytes, serializer).fingerprints == fingerprints
+    }
 }
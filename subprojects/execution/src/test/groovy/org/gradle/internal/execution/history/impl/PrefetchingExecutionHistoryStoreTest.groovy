@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl
+
+import org.gradle.internal.execution.history.AfterPreviousExecutionState
+import org.gradle.internal.execution.history.ExecutionHistoryStore
+import spock.lang.Specification
+
+class PrefetchingExecutionHistoryStoreTest extends Specification {
+    def delegate = Mock(ExecutionHistoryStore)
+    def store = new PrefetchingExecutionHistoryStore(delegate)
+    def state = Stub(AfterPreviousExecutionState)
+
+    def "execution reuses the prefetched state"() {
+        when:
+        def prefetched = store.prefetch("key")
+
+        then:
+        prefetched.get() == state
+        1 * delegate.load("key") >> Optional.of(state)
+
+        when:
+        def loaded = store.load("key")
+
+        then:
+        loaded.get() == state
+        0 * delegate._
+    }
+
+    def "prefetched state is only reused once"() {
+        given:
+        delegate.load("key") >> Optional.of(state)
+        store.prefetch("key")
+        store.load("key")
+
+        when:
+        store.load("key")
+
+        then:
+        1 * delegate.load("key") >> Optional.empty()
+    }
+
+    def "storing a new state discards the prefetched state"() {
+        given:
+        delegate.load("key") >> Optional.of(state)
+        store.prefetch("key")
+
+        when:
+        store.store("key", null, null, null, null, null, null, true, false)
+        store.load("key")
+
+        then:
+        1 * delegate.store("key", null, null, null, null, null, null, true)
+        1 * delegate.load("key") >> Optional.empty()
+    }
+
+    def "removing the state discards the prefetched state"() {
+        given:
+        delegate.load("key") >> Optional.of(state)
+        store.prefetch("key")
+
+        when:
+        store.remove("key")
+        store.load("key")
+
+        then:
+        1 * delegate.remove("key")
+        1 * delegate.load("key") >> Optional.empty()
+    }
+}
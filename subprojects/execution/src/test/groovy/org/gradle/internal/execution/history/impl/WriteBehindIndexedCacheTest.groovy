@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.execution.history.impl
+
+import org.gradle.cache.CacheAccess
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.testfixtures.internal.InMemoryIndexedCache
+import spock.lang.Specification
+
+class WriteBehindIndexedCacheTest extends Specification {
+
+    def delegate = new InMemoryIndexedCache<String, String>(BaseSerializerFactory.STRING_SERIALIZER)
+    def cacheAccess = Mock(CacheAccess) {
+        withFileLock(_ as Runnable) >> { Runnable action -> action.run() }
+    }
+    def scheduledFlushes = []
+    def executor = Mock(ManagedExecutor) {
+        execute(_) >> { Runnable action -> scheduledFlushes << action }
+    }
+    def executorFactory = Mock(ExecutorFactory) {
+        create(_, 1) >> executor
+    }
+    def cache = new WriteBehindIndexedCache<String, String>(delegate, cacheAccess, executorFactory, "test cache")
+
+    def "reads queued updates before they are written"() {
+        given:
+        delegate.put("removed", "old")
+
+        when:
+        cache.put("key", "value")
+        cache.remove("removed")
+
+        then:
+        cache.get("key") == "value"
+        cache.get("removed") == null
+        delegate.get("key") == null
+        delegate.get("removed") == "old"
+    }
+
+    def "writes queued updates in a single batch"() {
+        given:
+        delegate.put("removed", "old")
+
+        when:
+        cache.put("key", "value")
+        cache.put("other", "first")
+        cache.put("other", "second")
+        cache.remove("removed")
+
+        then:
+        scheduledFlushes.size() == 1
+
+        when:
+        scheduledFlushes.remove(0).run()
+
+        then:
+        delegate.get("key") == "value"
+        delegate.get("other") == "second"
+        delegate.get("removed") == null
+        cache.get("other") == "second"
+    }
+
+    def "schedules another write for updates queued after a write started"() {
+        when:
+        cache.put("key", "first")
+        scheduledFlushes.remove(0).run()
+        cache.put("key", "second")
+
+        then:
+        scheduledFlushes.size() == 1
+        delegate.get("key") == "first"
+        cache.get("key") == "second"
+    }
+
+    def "writes queued updates when closed"() {
+        when:
+        cache.put("key", "value")
+        cache.close()
+
+        then:
+        1 * executor.stop()
+        delegate.get("key") == "value"
+    }
+
+    def "writes updates directly once the queue is full"() {
+        given:
+        def cache = new WriteBehindIndexedCache<String, String>(delegate, cacheAccess, executorFactory, "test cache", 1)
+
+        when:
+        cache.put("key", "first")
+        cache.put("key", "second")
+        cache.put("other", "value")
+        cache.remove("removed")
+
+        then:
+        delegate.get("key") == null
+        delegate.get("other") == "value"
+        cache.get("key") == "second"
+        cache.get("other") == "value"
+
+        when:
+        scheduledFlushes.remove(0).run()
+
+        then:
+        delegate.get("key") == "second"
+    }
+
+    def "writes updates directly after the cache has been closed"() {
+        given:
+        delegate.put("removed", "old")
+        cache.close()
+
+        when:
+        cache.put("key", "value")
+        cache.remove("removed")
+
+        then:
+        delegate.get("key") == "value"
+        delegate.get("removed") == null
+        scheduledFlushes.empty
+    }
+
+    def "produces and queues missing values"() {
+        when:
+        def value = cache.get("key") { "produced" }
+
+        then:
+        value == "produced"
+        cache.get("key") == "produced"
+        delegate.get("key") == null
+    }
+}
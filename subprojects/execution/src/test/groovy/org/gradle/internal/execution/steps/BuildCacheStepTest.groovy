@@ -68,6 +68,7 @@ class BuildCacheStepTest extends StepSpec<IncrementalChangesContext> implements
         result.reused
         result.originMetadata == cachedOriginMetadata
         result.finalOutputs == outputsFromCache
+        result.hasLinkedOutputs()
 
         interaction { withValidCacheKey() }
 
@@ -88,6 +89,7 @@ class BuildCacheStepTest extends StepSpec<IncrementalChangesContext> implements
 
         then:
         1 * loadMetadata.originMetadata >> cachedOriginMetadata
+        1 * loadMetadata.hasLinkedOutputs() >> true
         1 * loadMetadata.resultingSnapshots >> outputsFromCache
 
         0 * _
@@ -28,8 +28,12 @@ import org.gradle.internal.file.TreeType
 import org.gradle.internal.fingerprint.FileCollectionFingerprint
 import org.gradle.internal.fingerprint.overlap.OverlappingOutputs
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
 import org.junit.Rule
 
+import java.nio.file.Files
+
 class CleanupOutputsStepTest extends StepSpec<InputChangesContext> implements FingerprinterFixture {
     @Rule
     TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
@@ -179,6 +183,56 @@ class CleanupOutputsStepTest extends StepSpec<InputChangesContext> implements Fi
         0 * _
     }
 
+    @Requires(TestPrecondition.NOT_WINDOWS)
+    def "replaces hard-linked previous outputs with copies when they were linked on load"() {
+        def outputs = new WorkOutputs()
+        outputs.createContents()
+        def cachedContent = temporaryFolder.file("cache/content")
+        cachedContent.text = "cached"
+        outputs.file.delete()
+        Files.createLink(outputs.file.toPath(), cachedContent.toPath())
+        outputs.fingerprint()
+
+        when:
+        step.execute(context)
+        then:
+        _ * context.incrementalExecution >> true
+        _ * context.afterPreviousExecutionState >> Optional.of(afterPreviousExecution)
+        1 * afterPreviousExecution.hasLinkedOutputs() >> true
+        1 * afterPreviousExecution.outputFileProperties >> ImmutableSortedMap.<String, FileCollectionFingerprint>of("dir", outputs.dirFingerprint, "file", outputs.fileFingerprint)
+        1 * outputChangeListener.beforeOutputChange([outputs.file.absolutePath])
+        1 * delegate.execute(_) >> delegateResult
+        0 * _
+
+        when:
+        outputs.file.text = "changed"
+        then:
+        cachedContent.text == "cached"
+        outputs.dir.file("some/dir/output1.txt").text == "output1"
+    }
+
+    @Requires(TestPrecondition.NOT_WINDOWS)
+    def "does not check previous outputs which were not linked on load"() {
+        def outputs = new WorkOutputs()
+        outputs.createContents()
+        def cachedContent = temporaryFolder.file("cache/content")
+        cachedContent.text = "cached"
+        outputs.file.delete()
+        Files.createLink(outputs.file.toPath(), cachedContent.toPath())
+        outputs.fingerprint()
+
+        when:
+        step.execute(context)
+        then:
+        _ * context.incrementalExecution >> true
+        _ * context.afterPreviousExecutionState >> Optional.of(afterPreviousExecution)
+        1 * afterPreviousExecution.hasLinkedOutputs() >> false
+        1 * delegate.execute(_) >> delegateResult
+        0 * _
+
+        Files.isSameFile(outputs.file.toPath(), cachedContent.toPath())
+    }
+
     void cleanupOverlappingOutputs(WorkOutputs outputs) {
         _ * context.incrementalExecution >> false
         _ * work.shouldCleanupOutputsOnNonIncrementalExecution() >> true
@@ -189,6 +243,7 @@ class CleanupOutputsStepTest extends StepSpec<InputChangesContext> implements Fi
             visitor.visitOutputProperty("file", TreeType.FILE, outputs.file, TestFiles.fixed(outputs.file))
         }
         _ * context.afterPreviousExecutionState >> Optional.of(afterPreviousExecution)
+        _ * afterPreviousExecution.hasLinkedOutputs() >> false
         1 * afterPreviousExecution.outputFileProperties >> ImmutableSortedMap.<String, FileCollectionFingerprint>of("dir", outputs.dirFingerprint, "file", outputs.fileFingerprint)
         1 * outputChangeListener.beforeOutputChange(outputs.dirFingerprint.rootPaths)
         1 * outputChangeListener.beforeOutputChange(outputs.fileFingerprint.rootPaths)
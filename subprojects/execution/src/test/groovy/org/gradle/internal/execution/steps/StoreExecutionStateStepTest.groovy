@@ -78,6 +78,23 @@ class StoreExecutionStateStepTest extends StepSpec<BeforeExecutionContext> imple
         0 * _
     }
 
+    def "records outputs linked to the local build cache"() {
+        when:
+        step.execute(context)
+
+        then:
+        1 * delegate.execute(context) >> delegateResult
+
+        then:
+        1 * delegateResult.finalOutputs >> finalOutputs
+        _ * context.beforeExecutionState >> Optional.of(beforeExecutionState)
+        1 * delegateResult.executionResult >> Try.successful(Mock(Result.ExecutionResult))
+
+        then:
+        interaction { expectStore(true, finalOutputs, true) }
+        0 * _
+    }
+
     def "output snapshots are stored after failed execution when there's no previous state available"() {
         when:
         def result = step.execute(context)
@@ -144,8 +161,9 @@ class StoreExecutionStateStepTest extends StepSpec<BeforeExecutionContext> imple
         0 * _
     }
 
-    void expectStore(boolean successful, ImmutableSortedMap<String, CurrentFileCollectionFingerprint> finalOutputs) {
+    void expectStore(boolean successful, ImmutableSortedMap<String, CurrentFileCollectionFingerprint> finalOutputs, boolean linkedOutputs = false) {
         1 * delegateResult.originMetadata >> originMetadata
+        1 * delegateResult.hasLinkedOutputs() >> linkedOutputs
         1 * executionHistoryStore.store(
             identity.uniqueId,
             originMetadata,
@@ -154,7 +172,8 @@ class StoreExecutionStateStepTest extends StepSpec<BeforeExecutionContext> imple
             inputProperties,
             inputFileProperties,
             finalOutputs,
-            successful
+            successful,
+            linkedOutputs
         )
     }
 }
@@ -31,6 +31,7 @@
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static com.google.common.collect.ImmutableSortedMap.copyOfSorted;
 import static com.google.common.collect.Maps.transformValues;
@@ -45,7 +46,13 @@ public Optional<AfterPreviousExecutionState> load(String key) {
     }
 
     @Override
-    public void store(String key, OriginMetadata originMetadata, ImplementationSnapshot implementation, ImmutableList<ImplementationSnapshot> additionalImplementations, ImmutableSortedMap<String, ValueSnapshot> inputProperties, ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileProperties, ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileProperties, boolean successful) {
+    public OptionalLong loadExecutionTime(String key) {
+        AfterPreviousExecutionState state = executionHistory.get(key);
+        return state == null ? OptionalLong.empty() : OptionalLong.of(state.getOriginMetadata().getExecutionTime());
+    }
+
+    @Override
+    public void store(String key, OriginMetadata originMetadata, ImplementationSnapshot implementation, ImmutableList<ImplementationSnapshot> additionalImplementations, ImmutableSortedMap<String, ValueSnapshot> inputProperties, ImmutableSortedMap<String, CurrentFileCollectionFingerprint> inputFileProperties, ImmutableSortedMap<String, CurrentFileCollectionFingerprint> outputFileProperties, boolean successful, boolean linkedOutputs) {
         executionHistory.put(key, new DefaultAfterPreviousExecutionState(
             originMetadata,
             implementation,
@@ -53,7 +60,8 @@ public void store(String key, OriginMetadata originMetadata, ImplementationSnaps
             inputProperties,
             prepareForSerialization(inputFileProperties),
             prepareForSerialization(outputFileProperties),
-            successful
+            successful,
+            linkedOutputs
         ));
     }
 
@@ -25,6 +25,7 @@ dependencies {
 
     implementation(project(":base-annotations"))
     implementation(project(":build-operations"))
+    implementation(project(":messaging"))
 
     implementation(libs.guava)
     implementation(libs.nativePlatform)
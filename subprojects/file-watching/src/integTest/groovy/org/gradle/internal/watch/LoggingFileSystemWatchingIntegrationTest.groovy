@@ -38,15 +38,21 @@ class LoggingFileSystemWatchingIntegrationTest extends AbstractFileSystemWatchin
         !(result.output =~ /Received \d+ file system events since last build while watching \d+ hierarchies/)
         !(result.output =~ /Virtual file system retained information about \d+ files, \d+ directories and \d+ missing files since last build/)
         result.output =~ /Received \d+ file system events during the current build while watching \d+ hierarchies/
+        result.output =~ /File system events invalidated \d+ nodes in the virtual file system during the current build/
         result.output =~ /Virtual file system retains information about \d+ files, \d+ directories and \d+ missing files until next build/
+        result.output =~ /Virtual file system retains an estimated \d+ KB of heap until next build/
 
         when:
         withWatchFs().run("assemble", "-D${StartParameterBuildOptions.VfsVerboseLoggingOption.GRADLE_PROPERTY}=true")
         then:
         result.output =~ /Received \d+ file system events since last build while watching \d+ hierarchies/
+        result.output =~ /File system events invalidated \d+ nodes in the virtual file system since last build/
         result.output =~ /Virtual file system retained information about \d+ files, \d+ directories and \d+ missing files since last build/
+        result.output =~ /Virtual file system retained an estimated \d+ KB of heap since last build/
         result.output =~ /Received \d+ file system events during the current build while watching \d+ hierarchies/
+        result.output =~ /File system events invalidated \d+ nodes in the virtual file system during the current build/
         result.output =~ /Virtual file system retains information about \d+ files, \d+ directories and \d+ missing files until next build/
+        result.output =~ /Virtual file system retains an estimated \d+ KB of heap until next build/
 
         when:
         withWatchFs().run("assemble", "-D${StartParameterBuildOptions.VfsVerboseLoggingOption.GRADLE_PROPERTY}=false")
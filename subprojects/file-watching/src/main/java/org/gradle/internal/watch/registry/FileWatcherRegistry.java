@@ -92,5 +92,6 @@ interface FileWatchingStatistics {
         boolean isUnknownEventEncountered();
         int getNumberOfReceivedEvents();
         int getNumberOfWatchedHierarchies();
+        int getNumberOfEvictedHierarchies();
     }
 }
@@ -47,4 +47,9 @@ public interface FileWatcherUpdater {
     SnapshotHierarchy buildFinished(SnapshotHierarchy root, int maximumNumberOfWatchedHierarchies);
 
     int getNumberOfWatchedHierarchies();
+
+    /**
+     * The number of watchable hierarchies removed from the virtual file system since the last call because of the limits on watching.
+     */
+    int getAndResetNumberOfEvictedHierarchies();
 }
@@ -158,6 +158,7 @@ private static Type convertType(FileWatchEvent.ChangeType type) {
     public FileWatchingStatistics getAndResetStatistics() {
         MutableFileWatchingStatistics currentStatistics = fileWatchingStatistics.getAndSet(new MutableFileWatchingStatistics());
         int numberOfWatchedHierarchies = fileWatcherUpdater.getNumberOfWatchedHierarchies();
+        int numberOfEvictedHierarchies = fileWatcherUpdater.getAndResetNumberOfEvictedHierarchies();
         return new FileWatchingStatistics() {
             @Override
             public Optional<Throwable> getErrorWhileReceivingFileChanges() {
@@ -178,6 +179,11 @@ public int getNumberOfReceivedEvents() {
             public int getNumberOfWatchedHierarchies() {
                 return numberOfWatchedHierarchies;
             }
+
+            @Override
+            public int getNumberOfEvictedHierarchies() {
+                return numberOfEvictedHierarchies;
+            }
         };
     }
 
@@ -116,6 +116,11 @@ public int getNumberOfWatchedHierarchies() {
         return watchedHierarchies.getWatchedRoots().size();
     }
 
+    @Override
+    public int getAndResetNumberOfEvictedHierarchies() {
+        return watchableHierarchies.getAndResetNumberOfEvictedHierarchies();
+    }
+
     private void updateWatchedHierarchies(SnapshotHierarchy root) {
         Set<Path> oldWatchedRoots = watchedHierarchies.getWatchedRoots();
         watchedHierarchies.updateWatchedHierarchies(watchableHierarchies, root);
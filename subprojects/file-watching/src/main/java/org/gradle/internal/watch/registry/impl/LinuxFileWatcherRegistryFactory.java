@@ -22,11 +22,20 @@
 import net.rubygrapefruit.platform.file.FileWatcher;
 import net.rubygrapefruit.platform.internal.jni.LinuxFileEventFunctions;
 import org.gradle.internal.watch.registry.FileWatcherUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.BlockingQueue;
 import java.util.function.Predicate;
 
 public class LinuxFileWatcherRegistryFactory extends AbstractFileWatcherRegistryFactory<LinuxFileEventFunctions> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LinuxFileWatcherRegistryFactory.class);
+    private static final Path MAX_USER_WATCHES = Paths.get("/proc/sys/fs/inotify/max_user_watches");
 
     public LinuxFileWatcherRegistryFactory(Predicate<String> watchFilter) throws NativeIntegrationUnavailableException {
         super(FileEvents.get(LinuxFileEventFunctions.class), watchFilter);
@@ -40,6 +49,23 @@ protected FileWatcher createFileWatcher(BlockingQueue<FileWatchEvent> fileEvents
 
     @Override
     protected FileWatcherUpdater createFileWatcherUpdater(FileWatcher watcher, Predicate<String> watchFilter) {
-        return new NonHierarchicalFileWatcherUpdater(watcher, watchFilter);
+        return new NonHierarchicalFileWatcherUpdater(watcher, watchFilter, determineWatchBudget(MAX_USER_WATCHES));
+    }
+
+    /**
+     * Determines how many directories can be watched from the inotify watches limit of the current user.
+     *
+     * The limit is shared with all the other processes of the user, e.g. IDEs, so we leave a tenth of it to them.
+     */
+    static int determineWatchBudget(Path maxUserWatchesFile) {
+        try {
+            int maxUserWatches = Integer.parseInt(new String(Files.readAllBytes(maxUserWatchesFile), StandardCharsets.UTF_8).trim());
+            int watchBudget = maxUserWatches - maxUserWatches / 10;
+            LOGGER.info("Watching at most {} directories (inotify watches limit is {})", watchBudget, maxUserWatches);
+            return watchBudget;
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.info("Unable to determine the inotify watches limit from {}", maxUserWatchesFile, e);
+            return Integer.MAX_VALUE;
+        }
     }
 }
@@ -34,8 +34,10 @@
 import java.io.File;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -47,13 +49,27 @@ public class NonHierarchicalFileWatcherUpdater implements FileWatcherUpdater {
 
     private final Multiset<String> watchedDirectories = HashMultiset.create();
     private final Map<String, ImmutableList<String>> watchedDirectoriesForSnapshot = new HashMap<>();
+    private final Set<String> directoriesOverWatchBudget = new HashSet<>();
     private final FileWatcher fileWatcher;
+    private final int watchBudget;
 
     private final WatchableHierarchies watchableHierarchies;
 
     public NonHierarchicalFileWatcherUpdater(FileWatcher fileWatcher, Predicate<String> watchFilter) {
+        this(fileWatcher, watchFilter, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates an updater which watches at most {@code watchBudget} directories.
+     *
+     * During a build, directories which do not fit into the budget are not watched.
+     * When the build finishes, the least valuable hierarchies are removed from the virtual file system
+     * until all the remaining directories can be watched, instead of failing to watch anything.
+     */
+    public NonHierarchicalFileWatcherUpdater(FileWatcher fileWatcher, Predicate<String> watchFilter, int watchBudget) {
         this.fileWatcher = fileWatcher;
         this.watchableHierarchies = new WatchableHierarchies(watchFilter);
+        this.watchBudget = watchBudget;
     }
 
     @Override
@@ -98,10 +114,17 @@ public SnapshotHierarchy buildFinished(SnapshotHierarchy root, int maximumNumber
             maximumNumberOfWatchedHierarchies,
             invalidator
         );
+        newRoot = watchableHierarchies.removeWatchedHierarchiesOverBudget(
+            newRoot,
+            () -> watchedDirectories.elementSet().size(),
+            watchBudget,
+            invalidator
+        );
         newRoot = watchableHierarchies.removeUnwatchedSnapshots(
             newRoot,
             invalidator
         );
+        startWatchingDirectoriesOverWatchBudget();
         LOGGER.info("Watching {} directories to track changes", watchedDirectories.entrySet().size());
         return newRoot;
     }
@@ -111,6 +134,11 @@ public int getNumberOfWatchedHierarchies() {
         return watchableHierarchies.getWatchableHierarchies().size();
     }
 
+    @Override
+    public int getAndResetNumberOfEvictedHierarchies() {
+        return watchableHierarchies.getAndResetNumberOfEvictedHierarchies();
+    }
+
     private boolean containsSnapshots(Path location, SnapshotHierarchy root) {
         CheckIfNonEmptySnapshotVisitor checkIfNonEmptySnapshotVisitor = new CheckIfNonEmptySnapshotVisitor(watchableHierarchies);
         root.visitSnapshotRoots(location.toString(), checkIfNonEmptySnapshotVisitor);
@@ -128,7 +156,7 @@ private void updateWatchedDirectories(Map<String, Integer> changedWatchDirectori
             if (count < 0) {
                 int toRemove = -count;
                 int contained = watchedDirectories.remove(absolutePath, toRemove);
-                if (contained <= toRemove) {
+                if (contained <= toRemove && !directoriesOverWatchBudget.remove(absolutePath)) {
                     directoriesToStopWatching.add(new File(absolutePath));
                 }
             } else if (count > 0) {
@@ -141,7 +169,38 @@ private void updateWatchedDirectories(Map<String, Integer> changedWatchDirectori
         if (watchedDirectories.isEmpty()) {
             LOGGER.info("Not watching anything anymore");
         }
+        int availableWatches = watchBudget - (watchedDirectories.elementSet().size() - directoriesToStartWatching.size() - directoriesOverWatchBudget.size());
+        if (directoriesToStartWatching.size() > availableWatches) {
+            // Watch what fits into the budget, the rest is dropped from the VFS when the build finishes
+            Iterator<File> iterator = directoriesToStartWatching.iterator();
+            for (int skipped = 0; skipped < availableWatches; skipped++) {
+                iterator.next();
+            }
+            while (iterator.hasNext()) {
+                directoriesOverWatchBudget.add(iterator.next().getAbsolutePath());
+                iterator.remove();
+            }
+            LOGGER.info("Not watching {} directories since they exceed the watch budget of {}", directoriesOverWatchBudget.size(), watchBudget);
+        }
         LOGGER.info("Watching {} directories to track changes", watchedDirectories.entrySet().size());
+        updateWatchers(directoriesToStopWatching, directoriesToStartWatching);
+    }
+
+    private void startWatchingDirectoriesOverWatchBudget() {
+        if (directoriesOverWatchBudget.isEmpty()) {
+            return;
+        }
+        int availableWatches = watchBudget - (watchedDirectories.elementSet().size() - directoriesOverWatchBudget.size());
+        Set<File> directoriesToStartWatching = new HashSet<>();
+        Iterator<String> iterator = directoriesOverWatchBudget.iterator();
+        while (iterator.hasNext() && directoriesToStartWatching.size() < availableWatches) {
+            directoriesToStartWatching.add(new File(iterator.next()));
+            iterator.remove();
+        }
+        updateWatchers(Collections.emptySet(), directoriesToStartWatching);
+    }
+
+    private void updateWatchers(Set<File> directoriesToStopWatching, Set<File> directoriesToStartWatching) {
         try {
             if (!directoriesToStopWatching.isEmpty()) {
                 fileWatcher.stopWatching(directoriesToStopWatching);
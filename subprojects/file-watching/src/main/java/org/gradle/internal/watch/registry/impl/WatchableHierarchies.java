@@ -31,8 +31,15 @@
 import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class WatchableHierarchies {
     private static final Logger LOGGER = LoggerFactory.getLogger(WatchableHierarchies.class);
@@ -41,6 +48,9 @@ public class WatchableHierarchies {
 
     private FileHierarchySet watchableHierarchies = DefaultFileHierarchySet.of();
     private final Deque<Path> recentlyUsedHierarchies = new ArrayDeque<>();
+    private final Map<Path, HierarchyUsage> hierarchyUsages = new HashMap<>();
+    private int currentBuild;
+    private int numberOfEvictedHierarchies;
 
     public WatchableHierarchies(Predicate<String> watchFilter) {
         this.watchFilter = watchFilter;
@@ -63,6 +73,7 @@ public void registerWatchableHierarchy(File watchableHierarchy, SnapshotHierarch
             recentlyUsedHierarchies.remove(watchableHierarchyPath);
             recentlyUsedHierarchies.addFirst(watchableHierarchyPath);
         }
+        hierarchyUsages.computeIfAbsent(watchableHierarchyPath, path -> new HierarchyUsage()).usedInBuild(currentBuild);
         LOGGER.info("Now considering {} as hierarchies to watch", recentlyUsedHierarchies);
     }
 
@@ -88,11 +99,67 @@ public SnapshotHierarchy removeWatchedHierarchiesOverLimit(SnapshotHierarchy roo
                 Path locationToRemove = recentlyUsedHierarchies.removeLast();
                 result = invalidator.invalidate(locationToRemove.toString(), result);
             }
+            numberOfEvictedHierarchies += toRemove;
         }
+        hierarchyUsages.keySet().retainAll(recentlyUsedHierarchies);
         this.watchableHierarchies = DefaultFileHierarchySet.of(recentlyUsedHierarchies.stream().map(Path::toFile)::iterator);
         return result;
     }
 
+    /**
+     * Removes the least valuable hierarchies until the number of watches fits into the watch budget.
+     *
+     * Hierarchies used in the current build are the most valuable and are only removed when all others are gone.
+     * Other hierarchies lose value with every build they are not used in, so a hierarchy used in many builds is kept longer than one used only once.
+     */
+    @CheckReturnValue
+    public SnapshotHierarchy removeWatchedHierarchiesOverBudget(SnapshotHierarchy root, IntSupplier numberOfWatches, int watchBudget, Invalidator invalidator) {
+        SnapshotHierarchy result = root;
+        int watchesBeforeEviction = numberOfWatches.getAsInt();
+        if (watchesBeforeEviction > watchBudget) {
+            List<Path> leastValuableFirst = recentlyUsedHierarchies.stream()
+                .sorted(Comparator.comparing(this::isUsedInCurrentBuild).thenComparingDouble(this::getValue))
+                .collect(Collectors.toList());
+            int evicted = 0;
+            Iterator<Path> iterator = leastValuableFirst.iterator();
+            while (numberOfWatches.getAsInt() > watchBudget && iterator.hasNext()) {
+                Path locationToRemove = iterator.next();
+                result = invalidator.invalidate(locationToRemove.toString(), result);
+                recentlyUsedHierarchies.remove(locationToRemove);
+                evicted++;
+            }
+            LOGGER.warn(
+                "Watching too many directories in the file system (watching {}, budget {}), dropped {} hierarchies from the virtual file system",
+                watchesBeforeEviction,
+                watchBudget,
+                evicted
+            );
+            numberOfEvictedHierarchies += evicted;
+            this.watchableHierarchies = DefaultFileHierarchySet.of(recentlyUsedHierarchies.stream().map(Path::toFile)::iterator);
+        }
+        currentBuild++;
+        return result;
+    }
+
+    private boolean isUsedInCurrentBuild(Path hierarchy) {
+        HierarchyUsage usage = hierarchyUsages.get(hierarchy);
+        return usage != null && usage.lastUsedInBuild == currentBuild;
+    }
+
+    private double getValue(Path hierarchy) {
+        HierarchyUsage usage = hierarchyUsages.get(hierarchy);
+        return usage == null ? 0 : usage.getValue(currentBuild);
+    }
+
+    /**
+     * The number of hierarchies removed since the last call because of the limits on watching.
+     */
+    public int getAndResetNumberOfEvictedHierarchies() {
+        int result = numberOfEvictedHierarchies;
+        numberOfEvictedHierarchies = 0;
+        return result;
+    }
+
     public Collection<Path> getWatchableHierarchies() {
         return recentlyUsedHierarchies;
     }
@@ -164,6 +231,22 @@ public SnapshotHierarchy getRootWithUnwatchedFilesRemoved() {
         }
     }
 
+    private static class HierarchyUsage {
+        private int numberOfBuilds;
+        private int lastUsedInBuild = -1;
+
+        public void usedInBuild(int build) {
+            if (lastUsedInBuild != build) {
+                numberOfBuilds++;
+                lastUsedInBuild = build;
+            }
+        }
+
+        public double getValue(int currentBuild) {
+            return (double) numberOfBuilds / (1 + currentBuild - lastUsedInBuild);
+        }
+    }
+
     public interface Invalidator {
         SnapshotHierarchy invalidate(String absolutePath, SnapshotHierarchy currentRoot);
     }
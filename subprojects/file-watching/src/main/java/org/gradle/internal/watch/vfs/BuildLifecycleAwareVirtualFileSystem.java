@@ -37,8 +37,10 @@ public interface BuildLifecycleAwareVirtualFileSystem extends VirtualFileSystem
      * Only locations within watchable hierarchies will be watched for changes.
      * This method is first called for the root directory of the root project.
      * It is also called for the root directories of included builds, and all other nested builds.
+     *
+     * The state of the hierarchy is persisted in the project cache directory of the build.
      */
-    void registerWatchableHierarchy(File rootDirectoryForWatching);
+    void registerWatchableHierarchy(File rootDirectoryForWatching, File projectCacheDir);
 
     /**
      * Called when the build is finished.
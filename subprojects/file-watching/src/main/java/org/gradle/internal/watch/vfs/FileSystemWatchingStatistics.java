@@ -20,7 +20,24 @@ public interface FileSystemWatchingStatistics {
     int getNumberOfReceivedEvents();
     int getNumberOfWatchedHierarchies();
 
+    /**
+     * The number of watchable hierarchies dropped from the virtual file system because of the limits on watching.
+     *
+     * Hierarchies are dropped when a build finishes, so they are reported in the statistics since the last build.
+     */
+    int getNumberOfEvictedHierarchies();
+
+    /**
+     * The number of nodes removed from the virtual file system because of file system events.
+     */
+    int getNumberOfInvalidatedNodes();
+
     int getRetainedRegularFiles();
     int getRetainedDirectories();
     int getRetainedMissingFiles();
+
+    /**
+     * An estimate of the heap retained by the snapshots in the virtual file system, assuming compressed object pointers.
+     */
+    long getEstimatedRetainedBytes();
 }
@@ -22,19 +22,32 @@
 import org.gradle.internal.snapshot.CompleteDirectorySnapshot;
 import org.gradle.internal.snapshot.CompleteFileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemSnapshotVisitor;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
 import org.gradle.internal.snapshot.SnapshotHierarchy;
 import org.gradle.internal.watch.registry.FileWatcherRegistry;
 import org.gradle.internal.watch.vfs.FileSystemWatchingStatistics;
 
 public class DefaultFileSystemWatchingStatistics implements FileSystemWatchingStatistics {
+    // Shallow sizes of the snapshot objects, assuming compressed object pointers and 8 byte alignment
+    private static final int MISSING_FILE_SNAPSHOT_BYTES = 24;
+    private static final int REGULAR_FILE_SNAPSHOT_BYTES = 40;
+    private static final int DIRECTORY_SNAPSHOT_BYTES = 32;
+    private static final int HASH_CODE_BYTES = 32;
+    private static final int CHILD_LIST_BYTES = 32;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int STRING_BYTES = 40;
+
     private final FileWatcherRegistry.FileWatchingStatistics fileWatchingStatistics;
+    private final int numberOfInvalidatedNodes;
     private final VirtualFileSystemStatistics vfsStatistics;
 
     public DefaultFileSystemWatchingStatistics(
         FileWatcherRegistry.FileWatchingStatistics fileWatchingStatistics,
+        int numberOfInvalidatedNodes,
         SnapshotHierarchy vfsRoot
     ) {
         this.fileWatchingStatistics = fileWatchingStatistics;
+        this.numberOfInvalidatedNodes = numberOfInvalidatedNodes;
         this.vfsStatistics = getStatistics(vfsRoot);
     }
 
@@ -48,6 +61,16 @@ public int getNumberOfWatchedHierarchies() {
         return fileWatchingStatistics.getNumberOfWatchedHierarchies();
     }
 
+    @Override
+    public int getNumberOfEvictedHierarchies() {
+        return fileWatchingStatistics.getNumberOfEvictedHierarchies();
+    }
+
+    @Override
+    public int getNumberOfInvalidatedNodes() {
+        return numberOfInvalidatedNodes;
+    }
+
     @Override
     public int getRetainedRegularFiles() {
         return vfsStatistics.getRetained(FileType.RegularFile);
@@ -63,36 +86,60 @@ public int getRetainedMissingFiles() {
         return vfsStatistics.getRetained(FileType.Missing);
     }
 
+    @Override
+    public long getEstimatedRetainedBytes() {
+        return vfsStatistics.getEstimatedRetainedBytes();
+    }
+
     private static VirtualFileSystemStatistics getStatistics(SnapshotHierarchy root) {
         EnumMultiset<FileType> retained = EnumMultiset.create(FileType.class);
+        long[] retainedBytes = new long[1];
         root.visitSnapshotRoots(snapshot -> snapshot.accept(new FileSystemSnapshotVisitor() {
             @Override
             public boolean preVisitDirectory(CompleteDirectorySnapshot directorySnapshot) {
                 retained.add(directorySnapshot.getType());
+                retainedBytes[0] += DIRECTORY_SNAPSHOT_BYTES + HASH_CODE_BYTES + CHILD_LIST_BYTES + estimatePathBytes(directorySnapshot);
                 return true;
             }
 
             @Override
             public void visitFile(CompleteFileSystemLocationSnapshot fileSnapshot) {
                 retained.add(fileSnapshot.getType());
+                retainedBytes[0] += fileSnapshot instanceof RegularFileSnapshot
+                    ? REGULAR_FILE_SNAPSHOT_BYTES + HASH_CODE_BYTES + estimatePathBytes(fileSnapshot)
+                    : MISSING_FILE_SNAPSHOT_BYTES + estimatePathBytes(fileSnapshot);
             }
 
             @Override
             public void postVisitDirectory(CompleteDirectorySnapshot directorySnapshot) {
             }
         }));
-        return new VirtualFileSystemStatistics(retained);
+        return new VirtualFileSystemStatistics(retained, retainedBytes[0]);
+    }
+
+    /**
+     * The absolute path is unique per snapshot, while names are interned and mostly shared with other snapshots.
+     * Also accounts for the reference to the snapshot from the child list of its parent.
+     */
+    private static long estimatePathBytes(CompleteFileSystemLocationSnapshot snapshot) {
+        return STRING_BYTES + snapshot.getAbsolutePath().length() + REFERENCE_BYTES;
     }
 
     private static class VirtualFileSystemStatistics {
         private final Multiset<FileType> retained;
+        private final long estimatedRetainedBytes;
 
-        public VirtualFileSystemStatistics(Multiset<FileType> retained) {
+        public VirtualFileSystemStatistics(Multiset<FileType> retained, long estimatedRetainedBytes) {
             this.retained = retained;
+            this.estimatedRetainedBytes = estimatedRetainedBytes;
         }
 
         public int getRetained(FileType fileType) {
             return retained.count(fileType);
         }
+
+        public long getEstimatedRetainedBytes() {
+            return estimatedRetainedBytes;
+        }
     }
 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl;
+
+import org.gradle.internal.file.FileMetadata;
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.Stat;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.ContentHashFunction;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.internal.snapshot.CompleteDirectorySnapshot;
+import org.gradle.internal.snapshot.CompleteFileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MissingFileSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Persists the snapshots of a watchable hierarchy to the project cache directory, so a new daemon doesn't need to snapshot the hierarchy from scratch.
+ *
+ * <p>The file system is not watched while no daemon is running, so restored snapshots need to be checked for changes.
+ * Regular files are compared by their modification time and length, and directories by the names of their children.</p>
+ */
+public class VfsStatePersistence {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VfsStatePersistence.class);
+
+    private static final String STATE_DIR_NAME = "vfs";
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte REGULAR_FILE = 0;
+    private static final byte DIRECTORY = 1;
+    private static final byte MISSING = 2;
+
+    private final Stat stat;
+    private final String gradleVersion;
+    private final ContentHashFunction contentHashFunction;
+    private final HashCodeSerializer hashCodeSerializer = new HashCodeSerializer();
+
+    /**
+     * Creates a persistence which only restores snapshots saved with the same Gradle version and content hash function.
+     */
+    public VfsStatePersistence(Stat stat, String gradleVersion, ContentHashFunction contentHashFunction) {
+        this.stat = stat;
+        this.gradleVersion = gradleVersion;
+        this.contentHashFunction = contentHashFunction;
+    }
+
+    /**
+     * Writes the snapshots below the watchable hierarchy to its state file in the project cache directory, replacing any previously saved state.
+     */
+    public void save(File watchableHierarchy, File projectCacheDir, Collection<CompleteFileSystemLocationSnapshot> snapshots) {
+        if (snapshots.isEmpty() || !watchableHierarchy.isDirectory()) {
+            return;
+        }
+        File stateFile = stateFile(watchableHierarchy, projectCacheDir);
+        File tempFile = new File(stateFile.getParentFile(), stateFile.getName() + ".tmp");
+        try {
+            Files.createDirectories(stateFile.getParentFile().toPath());
+            try (KryoBackedEncoder encoder = new KryoBackedEncoder(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                encoder.writeSmallInt(FORMAT_VERSION);
+                encoder.writeString(gradleVersion);
+                encoder.writeString(contentHashFunction.name());
+                encoder.writeSmallInt(snapshots.size());
+                for (CompleteFileSystemLocationSnapshot snapshot : snapshots) {
+                    encoder.writeString(snapshot.getAbsolutePath());
+                    writeSnapshot(encoder, snapshot);
+                }
+            }
+            Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.info("Saved {} file system snapshots of {}", snapshots.size(), watchableHierarchy);
+        } catch (Exception e) {
+            LOGGER.info("Could not save file system snapshots of {}", watchableHierarchy, e);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Reads and removes the saved snapshots of the watchable hierarchy.
+     *
+     * The returned snapshots may be out-of-date, see {@link #findChangedLocations(CompleteFileSystemLocationSnapshot)}.
+     */
+    public List<CompleteFileSystemLocationSnapshot> load(File watchableHierarchy, File projectCacheDir) {
+        File stateFile = stateFile(watchableHierarchy, projectCacheDir);
+        if (!stateFile.isFile()) {
+            return Collections.emptyList();
+        }
+        try {
+            try (KryoBackedDecoder decoder = new KryoBackedDecoder(new BufferedInputStream(new FileInputStream(stateFile)))) {
+                if (decoder.readSmallInt() != FORMAT_VERSION || !gradleVersion.equals(decoder.readString()) || !contentHashFunction.name().equals(decoder.readString())) {
+                    return Collections.emptyList();
+                }
+                int count = decoder.readSmallInt();
+                List<CompleteFileSystemLocationSnapshot> snapshots = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String absolutePath = decoder.readString();
+                    snapshots.add(readSnapshot(decoder, absolutePath, decoder.readString()));
+                }
+                return snapshots;
+            }
+        } catch (Exception e) {
+            LOGGER.info("Could not load file system snapshots of {}", watchableHierarchy, e);
+            return Collections.emptyList();
+        } finally {
+            // The state is only valid for the next daemon, anything after it will have seen newer changes
+            stateFile.delete();
+        }
+    }
+
+    /**
+     * Included builds share the project cache directory of the root build, so each hierarchy has its own state file.
+     */
+    private static File stateFile(File watchableHierarchy, File projectCacheDir) {
+        String hierarchyKey = Hashing.hashString(watchableHierarchy.getAbsolutePath()).toString();
+        return new File(new File(projectCacheDir, STATE_DIR_NAME), "snapshots-" + hierarchyKey + ".bin");
+    }
+
+    /**
+     * Returns the locations in the snapshot which have changed on disk since the snapshot was taken.
+     *
+     * Invalidating the returned locations leaves only up-to-date information from the snapshot.
+     */
+    public List<String> findChangedLocations(CompleteFileSystemLocationSnapshot snapshot) {
+        List<String> changedLocations = new ArrayList<>();
+        collectChangedLocations(snapshot, changedLocations);
+        return changedLocations;
+    }
+
+    private void collectChangedLocations(CompleteFileSystemLocationSnapshot snapshot, List<String> changedLocations) {
+        String absolutePath = snapshot.getAbsolutePath();
+        File file = new File(absolutePath);
+        FileMetadata metadata;
+        try {
+            metadata = stat.stat(file);
+        } catch (Exception e) {
+            changedLocations.add(absolutePath);
+            return;
+        }
+        if (metadata.getType() != snapshot.getType() || metadata.getAccessType() != snapshot.getAccessType()) {
+            changedLocations.add(absolutePath);
+            return;
+        }
+        switch (snapshot.getType()) {
+            case RegularFile:
+                FileMetadata snapshotMetadata = ((RegularFileSnapshot) snapshot).getMetadata();
+                if (metadata.getLastModified() != snapshotMetadata.getLastModified() || metadata.getLength() != snapshotMetadata.getLength()) {
+                    changedLocations.add(absolutePath);
+                }
+                break;
+            case Directory:
+                String[] namesOnDisk = file.list();
+                if (namesOnDisk == null) {
+                    changedLocations.add(absolutePath);
+                    break;
+                }
+                List<CompleteFileSystemLocationSnapshot> children = ((CompleteDirectorySnapshot) snapshot).getChildren();
+                Set<String> namesInSnapshot = new HashSet<>(children.size());
+                for (CompleteFileSystemLocationSnapshot child : children) {
+                    namesInSnapshot.add(child.getName());
+                    collectChangedLocations(child, changedLocations);
+                }
+                for (String name : namesOnDisk) {
+                    if (!namesInSnapshot.contains(name)) {
+                        changedLocations.add(childPath(absolutePath, name));
+                    }
+                }
+                break;
+            case Missing:
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private void writeSnapshot(Encoder encoder, CompleteFileSystemLocationSnapshot snapshot) throws IOException {
+        encoder.writeString(snapshot.getName());
+        encoder.writeBoolean(snapshot.getAccessType() == AccessType.VIA_SYMLINK);
+        switch (snapshot.getType()) {
+            case RegularFile:
+                RegularFileSnapshot fileSnapshot = (RegularFileSnapshot) snapshot;
+                encoder.writeByte(REGULAR_FILE);
+                hashCodeSerializer.write(encoder, fileSnapshot.getHash());
+                encoder.writeLong(fileSnapshot.getMetadata().getLastModified());
+                encoder.writeSmallLong(fileSnapshot.getMetadata().getLength());
+                break;
+            case Directory:
+                CompleteDirectorySnapshot directorySnapshot = (CompleteDirectorySnapshot) snapshot;
+                encoder.writeByte(DIRECTORY);
+                hashCodeSerializer.write(encoder, directorySnapshot.getHash());
+                List<CompleteFileSystemLocationSnapshot> children = directorySnapshot.getChildren();
+                encoder.writeSmallInt(children.size());
+                for (CompleteFileSystemLocationSnapshot child : children) {
+                    writeSnapshot(encoder, child);
+                }
+                break;
+            case Missing:
+                encoder.writeByte(MISSING);
+                break;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    private CompleteFileSystemLocationSnapshot readSnapshot(Decoder decoder, String absolutePath, String name) throws IOException {
+        AccessType accessType = AccessType.viaSymlink(decoder.readBoolean());
+        byte type = decoder.readByte();
+        switch (type) {
+            case REGULAR_FILE:
+                HashCode contentHash = hashCodeSerializer.read(decoder);
+                long lastModified = decoder.readLong();
+                long length = decoder.readSmallLong();
+                return new RegularFileSnapshot(absolutePath, name, contentHash, DefaultFileMetadata.file(lastModified, length, accessType));
+            case DIRECTORY:
+                HashCode directoryHash = hashCodeSerializer.read(decoder);
+                int childCount = decoder.readSmallInt();
+                List<CompleteFileSystemLocationSnapshot> children = new ArrayList<>(childCount);
+                for (int i = 0; i < childCount; i++) {
+                    String childName = decoder.readString();
+                    children.add(readSnapshot(decoder, childPath(absolutePath, childName), childName));
+                }
+                return new CompleteDirectorySnapshot(absolutePath, name, children, directoryHash, accessType);
+            case MISSING:
+                return new MissingFileSnapshot(absolutePath, name, accessType);
+            default:
+                throw new IOException("Unexpected snapshot type " + type);
+        }
+    }
+
+    private static String childPath(String parentPath, String name) {
+        return parentPath + File.separatorChar + name;
+    }
+}
@@ -75,7 +75,7 @@ public BuildOperationDescriptor.Builder description() {
     }
 
     @Override
-    public void registerWatchableHierarchy(File rootDirectoryForWatching) {
+    public void registerWatchableHierarchy(File rootDirectoryForWatching, File projectCacheDir) {
     }
 
     @Override
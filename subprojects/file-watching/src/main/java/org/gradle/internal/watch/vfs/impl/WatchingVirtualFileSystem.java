@@ -22,6 +22,7 @@
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.snapshot.CompleteFileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemNode;
 import org.gradle.internal.snapshot.SnapshotHierarchy;
 import org.gradle.internal.vfs.impl.VfsRootReference;
@@ -41,8 +42,11 @@
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 public class WatchingVirtualFileSystem implements BuildLifecycleAwareVirtualFileSystem, Closeable {
@@ -54,7 +58,10 @@ public class WatchingVirtualFileSystem implements BuildLifecycleAwareVirtualFile
     private final VfsRootReference rootReference;
     private final DaemonDocumentationIndex daemonDocumentationIndex;
     private final LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild;
-    private final Set<File> watchableHierarchies = new HashSet<>();
+    private final VfsStatePersistence statePersistence;
+    private final Map<File, File> watchableHierarchies = new LinkedHashMap<>();
+    private final Map<File, File> persistableHierarchies = new LinkedHashMap<>();
+    private final AtomicInteger invalidatedNodes = new AtomicInteger();
 
     private FileWatcherRegistry watchRegistry;
     private Exception reasonForNotWatchingFiles;
@@ -63,12 +70,14 @@ public WatchingVirtualFileSystem(
         FileWatcherRegistryFactory watcherRegistryFactory,
         VfsRootReference rootReference,
         DaemonDocumentationIndex daemonDocumentationIndex,
-        LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild
+        LocationsWrittenByCurrentBuild locationsWrittenByCurrentBuild,
+        VfsStatePersistence statePersistence
     ) {
         this.watcherRegistryFactory = watcherRegistryFactory;
         this.rootReference = rootReference;
         this.daemonDocumentationIndex = daemonDocumentationIndex;
         this.locationsWrittenByCurrentBuild = locationsWrittenByCurrentBuild;
+        this.statePersistence = statePersistence;
     }
 
     @Override
@@ -104,8 +113,7 @@ public SnapshotHierarchy call(BuildOperationContext context) {
                     FileSystemWatchingStatistics statisticsSinceLastBuild;
                     if (watchRegistry == null) {
                         context.setStatus("Starting file system watching");
-                        startWatching(currentRoot);
-                        newRoot = currentRoot.empty();
+                        newRoot = startWatching(currentRoot.empty());
                         statisticsSinceLastBuild = null;
                     } else {
                         FileWatcherRegistry.FileWatchingStatistics statistics = watchRegistry.getAndResetStatistics();
@@ -114,16 +122,22 @@ public SnapshotHierarchy call(BuildOperationContext context) {
                         } else {
                             newRoot = currentRoot;
                         }
-                        statisticsSinceLastBuild = new DefaultFileSystemWatchingStatistics(statistics, newRoot);
+                        statisticsSinceLastBuild = new DefaultFileSystemWatchingStatistics(statistics, invalidatedNodes.getAndSet(0), newRoot);
                         if (vfsLogging == VfsLogging.VERBOSE) {
                             LOGGER.warn("Received {} file system events since last build while watching {} hierarchies",
                                 statisticsSinceLastBuild.getNumberOfReceivedEvents(),
                                 statisticsSinceLastBuild.getNumberOfWatchedHierarchies());
+                            LOGGER.warn("File system events invalidated {} nodes in the virtual file system since last build",
+                                statisticsSinceLastBuild.getNumberOfInvalidatedNodes());
+                            LOGGER.warn("Dropped {} watched hierarchies from the virtual file system at the end of the last build because of the limits on watching",
+                                statisticsSinceLastBuild.getNumberOfEvictedHierarchies());
                             LOGGER.warn("Virtual file system retained information about {} files, {} directories and {} missing files since last build",
                                 statisticsSinceLastBuild.getRetainedRegularFiles(),
                                 statisticsSinceLastBuild.getRetainedDirectories(),
                                 statisticsSinceLastBuild.getRetainedMissingFiles()
                             );
+                            LOGGER.warn("Virtual file system retained an estimated {} KB of heap since last build",
+                                statisticsSinceLastBuild.getEstimatedRetainedBytes() / 1024);
                         }
                     }
                     if (watchRegistry != null) {
@@ -162,19 +176,53 @@ public BuildOperationDescriptor.Builder description() {
     }
 
     @Override
-    public void registerWatchableHierarchy(File watchableHierarchy) {
+    public void registerWatchableHierarchy(File watchableHierarchy, File projectCacheDir) {
         rootReference.update(currentRoot -> {
             if (watchRegistry == null) {
-                watchableHierarchies.add(watchableHierarchy);
+                watchableHierarchies.put(watchableHierarchy, projectCacheDir);
                 return currentRoot;
             }
             return withWatcherChangeErrorHandling(
                 currentRoot,
-                () -> watchRegistry.registerWatchableHierarchy(watchableHierarchy, currentRoot)
+                () -> registerWatchableHierarchyRestoringState(watchableHierarchy, projectCacheDir, currentRoot)
             );
         });
     }
 
+    /**
+     * Registers the hierarchy with the watchers, and restores the snapshots a previous daemon saved for it.
+     *
+     * The restored snapshots are checked for changes only after they are watched, so no change to the file system can be missed.
+     */
+    private SnapshotHierarchy registerWatchableHierarchyRestoringState(File watchableHierarchy, File projectCacheDir, SnapshotHierarchy currentRoot) {
+        watchRegistry.registerWatchableHierarchy(watchableHierarchy, currentRoot);
+        persistableHierarchies.put(watchableHierarchy, projectCacheDir);
+        if (currentRoot.hasDescendantsUnder(watchableHierarchy.getAbsolutePath())) {
+            return currentRoot;
+        }
+        List<CompleteFileSystemLocationSnapshot> restoredSnapshots = statePersistence.load(watchableHierarchy, projectCacheDir);
+        if (restoredSnapshots.isEmpty()) {
+            return currentRoot;
+        }
+        SnapshotHierarchy restoredRoot = updateRootNotifyingWatchers(currentRoot, (root, diffListener) -> {
+            SnapshotHierarchy newRoot = root;
+            for (CompleteFileSystemLocationSnapshot snapshot : restoredSnapshots) {
+                newRoot = newRoot.store(snapshot.getAbsolutePath(), snapshot, diffListener);
+            }
+            return newRoot;
+        });
+        List<String> changedLocations = new ArrayList<>();
+        restoredSnapshots.forEach(snapshot -> changedLocations.addAll(statePersistence.findChangedLocations(snapshot)));
+        LOGGER.info("Restored {} file system snapshots of {}, {} locations changed since they were saved", restoredSnapshots.size(), watchableHierarchy, changedLocations.size());
+        return updateRootNotifyingWatchers(restoredRoot, (root, diffListener) -> {
+            SnapshotHierarchy newRoot = root;
+            for (String changedLocation : changedLocations) {
+                newRoot = newRoot.invalidate(changedLocation, diffListener);
+            }
+            return newRoot;
+        });
+    }
+
     @Override
     public void beforeBuildFinished(boolean watchingEnabled, VfsLogging vfsLogging, WatchLogging watchLogging, BuildOperationRunner buildOperationRunner, int maximumNumberOfWatchedHierarchies) {
         rootReference.update(currentRoot -> buildOperationRunner.call(new CallableBuildOperation<SnapshotHierarchy>() {
@@ -199,16 +247,20 @@ public SnapshotHierarchy call(BuildOperationContext context) {
                         } else {
                             newRoot = withWatcherChangeErrorHandling(currentRoot, () -> watchRegistry.buildFinished(currentRoot, maximumNumberOfWatchedHierarchies));
                         }
-                        statisticsDuringBuild = new DefaultFileSystemWatchingStatistics(statistics, newRoot);
+                        statisticsDuringBuild = new DefaultFileSystemWatchingStatistics(statistics, invalidatedNodes.getAndSet(0), newRoot);
                         if (vfsLogging == VfsLogging.VERBOSE) {
                             LOGGER.warn("Received {} file system events during the current build while watching {} hierarchies",
                                 statisticsDuringBuild.getNumberOfReceivedEvents(),
                                 statisticsDuringBuild.getNumberOfWatchedHierarchies());
+                            LOGGER.warn("File system events invalidated {} nodes in the virtual file system during the current build",
+                                statisticsDuringBuild.getNumberOfInvalidatedNodes());
                             LOGGER.warn("Virtual file system retains information about {} files, {} directories and {} missing files until next build",
                                 statisticsDuringBuild.getRetainedRegularFiles(),
                                 statisticsDuringBuild.getRetainedDirectories(),
                                 statisticsDuringBuild.getRetainedMissingFiles()
                             );
+                            LOGGER.warn("Virtual file system retains an estimated {} KB of heap until next build",
+                                statisticsDuringBuild.getEstimatedRetainedBytes() / 1024);
                         }
                     }
                     boolean stoppedWatchingDuringTheBuild = watchRegistry == null;
@@ -246,7 +298,7 @@ public BuildOperationDescriptor.Builder description() {
     /**
      * Start watching the known areas of the file system for changes.
      */
-    private void startWatching(SnapshotHierarchy currentRoot) {
+    private SnapshotHierarchy startWatching(SnapshotHierarchy currentRoot) {
         try {
             watchRegistry = watcherRegistryFactory.createFileWatcherRegistry(new FileWatcherRegistry.ChangeHandler() {
                 @Override
@@ -268,15 +320,20 @@ public void handleLostState() {
                     stopWatchingAndInvalidateHierarchy();
                 }
             });
-            watchableHierarchies.forEach(watchableHierarchy -> watchRegistry.registerWatchableHierarchy(watchableHierarchy, currentRoot));
+            SnapshotHierarchy newRoot = currentRoot;
+            for (Map.Entry<File, File> entry : watchableHierarchies.entrySet()) {
+                newRoot = registerWatchableHierarchyRestoringState(entry.getKey(), entry.getValue(), newRoot);
+            }
             watchableHierarchies.clear();
+            return newRoot;
         } catch (Exception ex) {
             logWatchingError(ex, FILE_WATCHING_ERROR_MESSAGE_DURING_BUILD);
             closeUnderLock();
+            return currentRoot.empty();
         }
     }
 
-    private static class VfsChangeLoggingNodeDiffListener implements SnapshotHierarchy.NodeDiffListener {
+    private class VfsChangeLoggingNodeDiffListener implements SnapshotHierarchy.NodeDiffListener {
         private final FileWatcherRegistry.Type type;
         private final Path path;
         private final SnapshotHierarchy.NodeDiffListener delegate;
@@ -291,6 +348,7 @@ public VfsChangeLoggingNodeDiffListener(FileWatcherRegistry.Type type, Path path
         @Override
         public void nodeRemoved(FileSystemNode node) {
             maybeLogVfsChangeMessage();
+            invalidatedNodes.incrementAndGet();
             delegate.nodeRemoved(node);
         }
 
@@ -350,6 +408,7 @@ private void stopWatchingAndInvalidateHierarchy() {
     }
 
     private SnapshotHierarchy stopWatchingAndInvalidateHierarchy(SnapshotHierarchy currentRoot) {
+        persistableHierarchies.clear();
         if (watchRegistry != null) {
             try {
                 FileWatcherRegistry toBeClosed = watchRegistry;
@@ -377,11 +436,33 @@ private boolean hasDroppedStateBecauseOfErrorsReceivedWhileWatching(FileWatcherR
     @Override
     public void close() {
         rootReference.update(currentRoot -> {
+            boolean stateIsValid = watchRegistry != null;
             closeUnderLock();
+            if (stateIsValid) {
+                saveState(currentRoot);
+            }
             return currentRoot.empty();
         });
     }
 
+    private void saveState(SnapshotHierarchy root) {
+        for (Map.Entry<File, File> entry : persistableHierarchies.entrySet()) {
+            File watchableHierarchy = entry.getKey();
+            if (persistableHierarchies.keySet().stream().anyMatch(other -> other != watchableHierarchy && isAncestor(other, watchableHierarchy))) {
+                // The snapshots are saved with the enclosing hierarchy
+                continue;
+            }
+            List<CompleteFileSystemLocationSnapshot> snapshots = new ArrayList<>();
+            root.visitSnapshotRoots(watchableHierarchy.getAbsolutePath(), snapshots::add);
+            statePersistence.save(watchableHierarchy, entry.getValue(), snapshots);
+        }
+        persistableHierarchies.clear();
+    }
+
+    private static boolean isAncestor(File ancestor, File file) {
+        return file.getAbsolutePath().startsWith(ancestor.getAbsolutePath() + File.separatorChar);
+    }
+
     private void closeUnderLock() {
         if (watchRegistry != null) {
             try {
@@ -85,4 +85,78 @@ class NonHierarchicalFileWatcherUpdaterTest extends AbstractFileWatcherUpdaterTe
         1 * watcher.stopWatching({ equalIgnoringOrder(it, [rootDir]) })
         0 * _
     }
+
+    def "drops least valuable hierarchies when exceeding the watch budget"() {
+        updater = new NonHierarchicalFileWatcherUpdater(watcher, watchFilter, 2)
+        def frequentlyUsedHierarchy = file("frequent").createDir()
+        def rarelyUsedHierarchy = file("rare").createDir()
+        def newHierarchy = file("new").createDir()
+
+        when:
+        registerWatchableHierarchies([frequentlyUsedHierarchy, rarelyUsedHierarchy])
+        [frequentlyUsedHierarchy, rarelyUsedHierarchy].each {
+            addSnapshot(snapshotRegularFile(it.file("watched.txt").createFile()))
+        }
+        buildFinished()
+        then:
+        1 * watcher.startWatching({ equalIgnoringOrder(it, [frequentlyUsedHierarchy]) })
+        1 * watcher.startWatching({ equalIgnoringOrder(it, [rarelyUsedHierarchy]) })
+        0 * _
+        updater.getAndResetNumberOfEvictedHierarchies() == 0
+
+        when:
+        registerWatchableHierarchies([frequentlyUsedHierarchy, newHierarchy])
+        addSnapshot(snapshotRegularFile(newHierarchy.file("watched.txt").createFile()))
+        then:
+        0 * _
+
+        when:
+        buildFinished()
+        then:
+        1 * watcher.stopWatching({ equalIgnoringOrder(it, [rarelyUsedHierarchy]) })
+        then:
+        1 * watcher.startWatching({ equalIgnoringOrder(it, [newHierarchy]) })
+        0 * _
+
+        !vfsHasSnapshotsAt(rarelyUsedHierarchy)
+        vfsHasSnapshotsAt(frequentlyUsedHierarchy)
+        vfsHasSnapshotsAt(newHierarchy)
+        updater.getAndResetNumberOfEvictedHierarchies() == 1
+    }
+
+    def "keeps hierarchies used in the current build when exceeding the watch budget"() {
+        updater = new NonHierarchicalFileWatcherUpdater(watcher, watchFilter, 1)
+        def previouslyUsedHierarchy = file("previous").createDir()
+        def currentHierarchy = file("current").createDir()
+
+        when:
+        registerWatchableHierarchies([previouslyUsedHierarchy])
+        addSnapshot(snapshotRegularFile(previouslyUsedHierarchy.file("watched.txt").createFile()))
+        buildFinished()
+        then:
+        1 * watcher.startWatching({ equalIgnoringOrder(it, [previouslyUsedHierarchy]) })
+        0 * _
+
+        when:
+        3.times {
+            registerWatchableHierarchies([previouslyUsedHierarchy])
+            buildFinished()
+        }
+        then:
+        0 * _
+
+        when:
+        registerWatchableHierarchies([currentHierarchy])
+        addSnapshot(snapshotRegularFile(currentHierarchy.file("watched.txt").createFile()))
+        buildFinished()
+        then:
+        1 * watcher.stopWatching({ equalIgnoringOrder(it, [previouslyUsedHierarchy]) })
+        then:
+        1 * watcher.startWatching({ equalIgnoringOrder(it, [currentHierarchy]) })
+        0 * _
+
+        !vfsHasSnapshotsAt(previouslyUsedHierarchy)
+        vfsHasSnapshotsAt(currentHierarchy)
+        updater.getAndResetNumberOfEvictedHierarchies() == 1
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.snapshot.CompleteDirectorySnapshot
+import org.gradle.internal.snapshot.CompleteFileSystemLocationSnapshot
+import org.gradle.internal.snapshot.impl.DirectorySnapshotter
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+import static org.gradle.internal.hash.ContentHashFunction.MD5
+import static org.gradle.internal.hash.ContentHashFunction.MURMUR3
+
+@CleanupTestDirectory
+class VfsStatePersistenceTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def directorySnapshotter = new DirectorySnapshotter(TestFiles.fileHasher(), new StringInterner(), [])
+    def persistence = new VfsStatePersistence(TestFiles.fileSystem(), "6.8", MD5)
+    def hierarchy = temporaryFolder.createDir("project")
+    def projectCacheDir = temporaryFolder.createDir("project-cache")
+
+    def "restores saved snapshots"() {
+        def sourceDir = hierarchy.createDir("src")
+        sourceDir.createFile("Foo.java") << "class Foo {}"
+        sourceDir.createDir("nested").createFile("Bar.java") << "class Bar {}"
+        def snapshot = snapshot(sourceDir)
+
+        when:
+        persistence.save(hierarchy, projectCacheDir, [snapshot])
+        def restored = persistence.load(hierarchy, projectCacheDir)
+
+        then:
+        restored.size() == 1
+        def restoredSnapshot = restored[0] as CompleteDirectorySnapshot
+        restoredSnapshot.absolutePath == sourceDir.absolutePath
+        restoredSnapshot.hash == snapshot.hash
+        restoredSnapshot.children*.absolutePath == (snapshot as CompleteDirectorySnapshot).children*.absolutePath
+        restoredSnapshot.children*.hash == (snapshot as CompleteDirectorySnapshot).children*.hash
+        persistence.findChangedLocations(restoredSnapshot).empty
+
+        and:
+        persistence.load(hierarchy, projectCacheDir).empty
+    }
+
+    def "stores the state in the project cache directory"() {
+        def sourceDir = hierarchy.createDir("src")
+        sourceDir.createFile("Foo.java") << "class Foo {}"
+        def includedBuild = temporaryFolder.createDir("included")
+
+        when:
+        persistence.save(hierarchy, projectCacheDir, [snapshot(sourceDir)])
+
+        then:
+        projectCacheDir.file("vfs").list().length == 1
+        !hierarchy.file(".gradle").exists()
+        persistence.load(includedBuild, projectCacheDir).empty
+        persistence.load(hierarchy, temporaryFolder.createDir("other-cache")).empty
+        persistence.load(hierarchy, projectCacheDir).size() == 1
+    }
+
+    def "finds locations changed since the snapshot was taken"() {
+        def sourceDir = hierarchy.createDir("src")
+        def changedFile = sourceDir.createFile("Changed.java") << "class Changed {}"
+        def removedFile = sourceDir.createFile("Removed.java") << "class Removed {}"
+        sourceDir.createFile("Unchanged.java") << "class Unchanged {}"
+        def snapshot = snapshot(sourceDir)
+
+        when:
+        changedFile << "// more content"
+        removedFile.delete()
+        def addedFile = sourceDir.createFile("Added.java") << "class Added {}"
+
+        then:
+        persistence.findChangedLocations(snapshot) as Set == [changedFile, removedFile, addedFile]*.absolutePath as Set
+    }
+
+    def "ignores snapshots saved by a different Gradle version"() {
+        def sourceDir = hierarchy.createDir("src")
+        sourceDir.createFile("Foo.java") << "class Foo {}"
+
+        when:
+        new VfsStatePersistence(TestFiles.fileSystem(), "6.7", MD5).save(hierarchy, projectCacheDir, [snapshot(sourceDir)])
+
+        then:
+        persistence.load(hierarchy, projectCacheDir).empty
+    }
+
+    def "ignores snapshots saved with a different content hash function"() {
+        def sourceDir = hierarchy.createDir("src")
+        sourceDir.createFile("Foo.java") << "class Foo {}"
+
+        when:
+        new VfsStatePersistence(TestFiles.fileSystem(), "6.8", MURMUR3).save(hierarchy, projectCacheDir, [snapshot(sourceDir)])
+
+        then:
+        persistence.load(hierarchy, projectCacheDir).empty
+    }
+
+    private CompleteFileSystemLocationSnapshot snapshot(File directory) {
+        directorySnapshotter.snapshot(directory.absolutePath, null, new AtomicBoolean())
+    }
+}
@@ -16,8 +16,13 @@
 
 package org.gradle.internal.watch.vfs.impl
 
+import org.gradle.internal.file.FileMetadata.AccessType
+import org.gradle.internal.file.impl.DefaultFileMetadata
+import org.gradle.internal.hash.HashCode
 import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.snapshot.CaseSensitivity
+import org.gradle.internal.snapshot.CompleteDirectorySnapshot
+import org.gradle.internal.snapshot.RegularFileSnapshot
 import org.gradle.internal.snapshot.SnapshotHierarchy
 import org.gradle.internal.vfs.impl.DefaultSnapshotHierarchy
 import org.gradle.internal.vfs.impl.VfsRootReference
@@ -39,11 +44,14 @@ class WatchingVirtualFileSystemTest extends Specification {
     def daemonDocumentationIndex = Mock(DaemonDocumentationIndex)
     def locationsUpdatedByCurrentBuild = Mock(LocationsWrittenByCurrentBuild)
     def buildOperationRunner = new TestBuildOperationExecutor()
+    def statePersistence = Stub(VfsStatePersistence)
+    def projectCacheDir = new File("projectCache")
     def watchingVirtualFileSystem = new WatchingVirtualFileSystem(
         watcherRegistryFactory,
         rootReference,
         daemonDocumentationIndex,
-        locationsUpdatedByCurrentBuild
+        locationsUpdatedByCurrentBuild,
+        statePersistence
     )
 
     def "invalidates the virtual file system before and after the build when watching is disabled"() {
@@ -121,7 +129,7 @@ class WatchingVirtualFileSystemTest extends Specification {
         def newWatchableHierarchy = new File("newWatchable")
 
         when:
-        watchingVirtualFileSystem.registerWatchableHierarchy(watchableHierarchy)
+        watchingVirtualFileSystem.registerWatchableHierarchy(watchableHierarchy, projectCacheDir)
         then:
         0 * _
 
@@ -134,7 +142,7 @@ class WatchingVirtualFileSystemTest extends Specification {
         0 * _
 
         when:
-        watchingVirtualFileSystem.registerWatchableHierarchy(anotherWatchableHierarchy)
+        watchingVirtualFileSystem.registerWatchableHierarchy(anotherWatchableHierarchy, projectCacheDir)
         then:
         1 * watcherRegistry.registerWatchableHierarchy(anotherWatchableHierarchy, _)
 
@@ -146,8 +154,55 @@ class WatchingVirtualFileSystemTest extends Specification {
         0 * _
 
         when:
-        watchingVirtualFileSystem.registerWatchableHierarchy(newWatchableHierarchy)
+        watchingVirtualFileSystem.registerWatchableHierarchy(newWatchableHierarchy, projectCacheDir)
         then:
         1 * watcherRegistry.registerWatchableHierarchy(newWatchableHierarchy, _)
     }
+
+    def "restores the snapshots saved by a previous daemon and saves them again when closed"() {
+        def watchableHierarchy = new File("watchable").absoluteFile
+        def directory = new File(watchableHierarchy, "src")
+        def changedFile = regularFileSnapshot(new File(directory, "Changed.java"))
+        def unchangedFile = regularFileSnapshot(new File(directory, "Unchanged.java"))
+        def directorySnapshot = new CompleteDirectorySnapshot(directory.absolutePath, directory.name, [changedFile, unchangedFile], HashCode.fromInt(3), AccessType.DIRECT)
+        def statePersistence = Mock(VfsStatePersistence)
+        def rootReference = new VfsRootReference(emptySnapshotHierarchy)
+        def watchingVirtualFileSystem = new WatchingVirtualFileSystem(
+            watcherRegistryFactory,
+            rootReference,
+            daemonDocumentationIndex,
+            locationsUpdatedByCurrentBuild,
+            statePersistence
+        )
+
+        when:
+        watchingVirtualFileSystem.registerWatchableHierarchy(watchableHierarchy, projectCacheDir)
+        watchingVirtualFileSystem.afterBuildStarted(true, VfsLogging.NORMAL, WatchLogging.NORMAL, buildOperationRunner)
+        then:
+        1 * watcherRegistryFactory.createFileWatcherRegistry(_) >> watcherRegistry
+        1 * watcherRegistry.registerWatchableHierarchy(watchableHierarchy, _)
+        1 * statePersistence.load(watchableHierarchy, projectCacheDir) >> [directorySnapshot]
+        1 * watcherRegistry.virtualFileSystemContentsChanged([], [directorySnapshot], _)
+        1 * statePersistence.findChangedLocations(directorySnapshot) >> [changedFile.absolutePath]
+        1 * watcherRegistry.virtualFileSystemContentsChanged([directorySnapshot], [unchangedFile], _)
+        1 * watcherRegistry.setDebugLoggingEnabled(false)
+        0 * _
+
+        !rootReference.root.getSnapshot(directory.absolutePath).present
+        !rootReference.root.getSnapshot(changedFile.absolutePath).present
+        rootReference.root.getSnapshot(unchangedFile.absolutePath).get() == unchangedFile
+
+        when:
+        watchingVirtualFileSystem.close()
+        then:
+        1 * watcherRegistry.close()
+        1 * statePersistence.save(watchableHierarchy, projectCacheDir, [unchangedFile])
+        0 * _
+
+        rootReference.root == emptySnapshotHierarchy
+    }
+
+    private static RegularFileSnapshot regularFileSnapshot(File file) {
+        new RegularFileSnapshot(file.absolutePath, file.name, HashCode.fromInt(file.name.hashCode()), DefaultFileMetadata.file(1, 1, AccessType.DIRECT))
+    }
 }
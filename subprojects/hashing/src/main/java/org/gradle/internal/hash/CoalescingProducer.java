@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import com.google.common.base.Throwables;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Makes sure a value for a key is only produced once at a time.
+ *
+ * Concurrent requests for a key wait for the production already in flight and share its result,
+ * instead of hashing the same file or walking the same directory again.
+ */
+public class CoalescingProducer<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedRequests;
+
+    public CoalescingProducer(AtomicLong coalescedRequests) {
+        this.coalescedRequests = coalescedRequests;
+    }
+
+    public V produce(K key, Supplier<V> producer) {
+        CompletableFuture<V> production = new CompletableFuture<>();
+        CompletableFuture<V> productionInFlight = inFlight.putIfAbsent(key, production);
+        if (productionInFlight != null) {
+            coalescedRequests.incrementAndGet();
+            try {
+                return productionInFlight.join();
+            } catch (CompletionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw e;
+            }
+        }
+        try {
+            V value = producer.get();
+            production.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            production.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, production);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import java.util.Locale;
+
+/**
+ * The hash functions available for hashing file content.
+ *
+ * Hashes of different functions must never be mixed, so anything persisting content hashes needs to be keyed by the function in use.
+ */
+public enum ContentHashFunction {
+    MD5(Hashing.md5()),
+    MURMUR3(Hashing.murmur3());
+
+    /**
+     * Selects the content hash function, either {@code md5} (the default) or {@code murmur3}.
+     */
+    public static final String CONTENT_HASH_FUNCTION_PROPERTY = "org.gradle.internal.hash.content-hash-function";
+
+    private final HashFunction hashFunction;
+
+    ContentHashFunction(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+    }
+
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
+
+    /**
+     * Returns the content hash function selected via {@link #CONTENT_HASH_FUNCTION_PROPERTY}.
+     */
+    public static ContentHashFunction current() {
+        String name = System.getProperty(CONTENT_HASH_FUNCTION_PROPERTY);
+        if (name == null) {
+            return MD5;
+        }
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown content hash function '%s' set via %s, supported are 'md5' and 'murmur3'.", name, CONTENT_HASH_FUNCTION_PROPERTY), e);
+        }
+    }
+}
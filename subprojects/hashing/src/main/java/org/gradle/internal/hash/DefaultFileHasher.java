@@ -22,6 +22,10 @@
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 
+/**
+ * Hashes files by passing a {@link FileInputStream} to the stream hasher.
+ * This allows {@link DefaultStreamHasher} to read the content straight from the file channel and to memory-map large files.
+ */
 public class DefaultFileHasher implements FileHasher {
     private final StreamHasher streamHasher;
 
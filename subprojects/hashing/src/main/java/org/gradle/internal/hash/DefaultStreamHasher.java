@@ -17,24 +17,68 @@
 
 import com.google.common.io.ByteStreams;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
+/**
+ * Hashes streams with the default hash function.
+ *
+ * <p>The content of file streams is read directly from the file channel, without copying it through a heap buffer.
+ * Files larger than {@link #MAPPED_HASHING_THRESHOLD} are memory-mapped, smaller files are read via a pooled direct buffer.
+ * Files truncated while being mapped are read via the direct buffer as well.
+ * Both produce the same hash as reading the stream.</p>
+ */
 public class DefaultStreamHasher implements StreamHasher {
     private static final HashCode SIGNATURE = Hashing.signature(DefaultStreamHasher.class);
 
+    /**
+     * Files of at least this size are memory-mapped for hashing.
+     */
+    public static final long MAPPED_HASHING_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Limits the address space used for mapping a single file at a time.
+     */
+    private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * A mapped file cannot be deleted on Windows until the mapping has been garbage collected,
+     * which would break deleting stale outputs and the like.
+     */
+    private static final boolean MAPPING_SUPPORTED = !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("windows");
+
+    private static final int DIRECT_BUFFER_SIZE = 64 * 1024;
+
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final Queue<ByteBuffer> directBuffers = new ArrayBlockingQueue<ByteBuffer>(16);
+    private final HashFunction hashFunction;
+
+    public DefaultStreamHasher() {
+        this(Hashing.defaultFunction());
+    }
+
+    public DefaultStreamHasher(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+    }
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
+            if (inputStream instanceof FileInputStream) {
+                return doHash(((FileInputStream) inputStream).getChannel());
+            }
             return doHash(inputStream, ByteStreams.nullOutputStream());
         } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
+            throw new UncheckedIOException("Failed to create hash for file content.", e);
         }
     }
 
@@ -46,7 +90,7 @@ public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) thr
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
-            PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
+            PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
             hasher.putHash(SIGNATURE);
             while (true) {
                 int nread = inputStream.read(buffer);
@@ -62,6 +106,59 @@ private HashCode doHash(InputStream inputStream, OutputStream outputStream) thro
         }
     }
 
+    private HashCode doHash(FileChannel channel) throws IOException {
+        long position = channel.position();
+        long size = channel.size();
+        if (MAPPING_SUPPORTED && size - position >= MAPPED_HASHING_THRESHOLD) {
+            try {
+                return doHashMapped(channel, position, size);
+            } catch (InternalError e) {
+                // Reading a mapped region of a file truncated in the meantime fails with an internal error instead of an IOException
+                channel.position(position);
+            }
+        }
+        PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+        hasher.putHash(SIGNATURE);
+        ByteBuffer buffer = takeDirectBuffer();
+        try {
+            while (channel.read(buffer) >= 0) {
+                Hashing.castBuffer(buffer).flip();
+                hasher.putBytes(buffer);
+                Hashing.castBuffer(buffer).clear();
+            }
+        } finally {
+            returnDirectBuffer(buffer);
+        }
+        return hasher.hash();
+    }
+
+    private HashCode doHashMapped(FileChannel channel, long position, long size) throws IOException {
+        PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+        hasher.putHash(SIGNATURE);
+        while (position < size) {
+            long regionSize = Math.min(MAPPED_REGION_SIZE, size - position);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+            hasher.putBytes(region);
+            position += regionSize;
+        }
+        channel.position(position);
+        return hasher.hash();
+    }
+
+    private void returnDirectBuffer(ByteBuffer buffer) {
+        Hashing.castBuffer(buffer).clear();
+        // Retain buffer if there is capacity in the queue, otherwise discard
+        directBuffers.offer(buffer);
+    }
+
+    private ByteBuffer takeDirectBuffer() {
+        ByteBuffer buffer = directBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
     private void returnBuffer(byte[] buffer) {
         // Retain buffer if there is capacity in the queue, otherwise discard
         buffers.offer(buffer);
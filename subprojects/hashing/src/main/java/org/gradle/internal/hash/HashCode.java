@@ -25,22 +25,23 @@
 /**
  * An immutable hash code. Must be 4-255 bytes long.
  * Inspired by the Google Guava project – https://github.com/google/guava.
+ *
+ * <p>Most hashes in Gradle are 128 bits long (MD5), and millions of them are retained by the virtual file system.
+ * Such hash codes are stored inline as two longs instead of a byte array, avoiding the array object and its header.</p>
  */
-public class HashCode implements Serializable, Comparable<HashCode> {
+public abstract class HashCode implements Serializable, Comparable<HashCode> {
     private static final int MIN_NUMBER_OF_BYTES = 4;
     private static final int MAX_NUMBER_OF_BYTES = 255;
     private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
-    private final byte[] bytes;
-
-    private long hashCode;
-
-    private HashCode(byte[] bytes) {
-        this.bytes = bytes;
+    private HashCode() {
     }
 
     static HashCode fromBytesNoCopy(byte[] bytes) {
-        return new HashCode(bytes);
+        if (bytes.length == HashCode128.LENGTH) {
+            return new HashCode128(bytesToLong(bytes, 0), bytesToLong(bytes, 8));
+        }
+        return new ByteArrayBackedHashCode(bytes);
     }
 
     public static HashCode fromBytes(byte[] bytes) {
@@ -88,63 +89,41 @@ private static int decode(char ch) {
         throw new IllegalArgumentException("Illegal hexadecimal character: " + ch);
     }
 
-    public int length() {
-        return bytes.length;
-    }
-
-    public byte[] toByteArray() {
-        return bytes.clone();
-    }
-
-    @Override
-    public int hashCode() {
-        if (hashCode == 0) {
-            hashCode = (bytes[0] & 0xFF)
-                | ((bytes[1] & 0xFF) << 8)
-                | ((bytes[2] & 0xFF) << 16)
-                | ((bytes[3] & 0xFF) << 24)
-                // Make sure it's always > 0 but without affecting the lower 32 bits
-                | (1L << 32);
-        }
-        return (int) hashCode;
-    }
-
-    @Override
-    public boolean equals(@Nullable Object obj) {
-        if (obj == this) {
-            return true;
+    /**
+     * Reads 8 bytes as a little-endian long, so the lower 32 bits of the first long match {@link #hashCode()}.
+     */
+    private static long bytesToLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
         }
+        return value;
+    }
 
-        if (obj == null || obj.getClass() != HashCode.class) {
-            return false;
-        }
-
-        byte[] a = bytes;
-        byte[] b = ((HashCode) obj).bytes;
-        int length = a.length;
-
-        if (b.length != length) {
-            return false;
-        }
+    public abstract int length();
 
+    public byte[] toByteArray() {
+        int length = length();
+        byte[] bytes = new byte[length];
         for (int i = 0; i < length; i++) {
-            if (a[i] != b[i]) {
-                return false;
-            }
+            bytes[i] = getByte(i);
         }
-
-        return true;
+        return bytes;
     }
 
+    abstract byte getByte(int index);
+
+    // Package private accessor used by MessageDigestHasher.putHash for performance reasons
+    abstract void appendToHasher(PrimitiveHasher hasher);
+
     @Override
     public int compareTo(@Nonnull HashCode o) {
-        byte[] bytes2 = o.bytes;
         int result;
-        int len1 = bytes.length;
-        int len2 = bytes2.length;
+        int len1 = length();
+        int len2 = o.length();
         int length = Math.min(len1, len2);
         for (int idx = 0; idx < length; idx++) {
-            result = bytes[idx] - bytes2[idx];
+            result = getByte(idx) - o.getByte(idx);
             if (result != 0) {
                 return result;
             }
@@ -154,15 +133,132 @@ public int compareTo(@Nonnull HashCode o) {
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder(2 * bytes.length);
-        for (byte b : bytes) {
+        int length = length();
+        StringBuilder sb = new StringBuilder(2 * length);
+        for (int i = 0; i < length; i++) {
+            byte b = getByte(i);
             sb.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
         }
         return sb.toString();
     }
 
-    // Package private accessor used by MessageDigestHasher.putHash for performance reasons
-    byte[] getBytes() {
-        return bytes;
+    /**
+     * A 128 bit hash code, with the bytes stored as two little-endian longs.
+     */
+    private static class HashCode128 extends HashCode {
+        private static final int LENGTH = 16;
+
+        private final long bits1;
+        private final long bits2;
+
+        HashCode128(long bits1, long bits2) {
+            this.bits1 = bits1;
+            this.bits2 = bits2;
+        }
+
+        @Override
+        public int length() {
+            return LENGTH;
+        }
+
+        @Override
+        byte getByte(int index) {
+            long bits = index < 8 ? bits1 : bits2;
+            return (byte) (bits >>> ((index & 7) * 8));
+        }
+
+        @Override
+        void appendToHasher(PrimitiveHasher hasher) {
+            // The message digest hasher writes longs in little-endian order
+            hasher.putLong(bits1);
+            hasher.putLong(bits2);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) bits1;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != HashCode128.class) {
+                return false;
+            }
+            HashCode128 other = (HashCode128) obj;
+            return bits1 == other.bits1 && bits2 == other.bits2;
+        }
+    }
+
+    private static class ByteArrayBackedHashCode extends HashCode {
+        private final byte[] bytes;
+
+        private long hashCode;
+
+        ByteArrayBackedHashCode(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.length;
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return bytes.clone();
+        }
+
+        @Override
+        byte getByte(int index) {
+            return bytes[index];
+        }
+
+        @Override
+        void appendToHasher(PrimitiveHasher hasher) {
+            hasher.putBytes(bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            if (hashCode == 0) {
+                hashCode = (bytes[0] & 0xFF)
+                    | ((bytes[1] & 0xFF) << 8)
+                    | ((bytes[2] & 0xFF) << 16)
+                    | ((bytes[3] & 0xFF) << 24)
+                    // Make sure it's always > 0 but without affecting the lower 32 bits
+                    | (1L << 32);
+            }
+            return (int) hashCode;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (obj == this) {
+                return true;
+            }
+
+            if (obj == null || obj.getClass() != ByteArrayBackedHashCode.class) {
+                return false;
+            }
+
+            byte[] a = bytes;
+            byte[] b = ((ByteArrayBackedHashCode) obj).bytes;
+            int length = a.length;
+
+            if (b.length != length) {
+                return false;
+            }
+
+            for (int i = 0; i < length; i++) {
+                if (a[i] != b[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
     }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import org.gradle.test.fixtures.ConcurrentTestUtil
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+import java.util.function.Supplier
+
+class CoalescingProducerTest extends Specification {
+    def coalescedRequests = new AtomicLong()
+    def producer = new CoalescingProducer<String, String>(coalescedRequests)
+    ExecutorService executor = Executors.newFixedThreadPool(2)
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "produces value for each sequential request"() {
+        def productions = new AtomicInteger()
+
+        when:
+        def first = producer.produce("key", { "value ${productions.incrementAndGet()}".toString() } as Supplier)
+        def second = producer.produce("key", { "value ${productions.incrementAndGet()}".toString() } as Supplier)
+
+        then:
+        first == "value 1"
+        second == "value 2"
+        coalescedRequests.get() == 0
+    }
+
+    def "concurrent request for the same key waits for the value in flight"() {
+        def productionStarted = new CountDownLatch(1)
+        def releaseProduction = new CountDownLatch(1)
+        def waitingThread = new AtomicReference<Thread>()
+
+        when:
+        def first = executor.submit({
+            producer.produce("key", {
+                productionStarted.countDown()
+                releaseProduction.await(10, TimeUnit.SECONDS)
+                "value"
+            } as Supplier)
+        } as Callable)
+        productionStarted.await(10, TimeUnit.SECONDS)
+        def second = executor.submit({
+            waitingThread.set(Thread.currentThread())
+            producer.produce("key", { throw new AssertionError("Should not produce the value again") } as Supplier)
+        } as Callable)
+        waitUntilWaiting(waitingThread)
+        releaseProduction.countDown()
+
+        then:
+        first.get(10, TimeUnit.SECONDS) == "value"
+        second.get(10, TimeUnit.SECONDS) == "value"
+        coalescedRequests.get() == 1
+
+        cleanup:
+        releaseProduction.countDown()
+    }
+
+    def "concurrent request for another key does not wait"() {
+        def releaseProduction = new CountDownLatch(1)
+        def productionStarted = new CountDownLatch(1)
+
+        when:
+        def first = executor.submit({
+            producer.produce("key", {
+                productionStarted.countDown()
+                releaseProduction.await(10, TimeUnit.SECONDS)
+                "value"
+            } as Supplier)
+        } as Callable)
+        productionStarted.await(10, TimeUnit.SECONDS)
+        def other = producer.produce("other", { "other value" } as Supplier)
+        releaseProduction.countDown()
+
+        then:
+        other == "other value"
+        first.get(10, TimeUnit.SECONDS) == "value"
+        coalescedRequests.get() == 0
+
+        cleanup:
+        releaseProduction.countDown()
+    }
+
+    def "concurrent request for the same key gets the failure of the production in flight"() {
+        def productionStarted = new CountDownLatch(1)
+        def releaseProduction = new CountDownLatch(1)
+        def waitingThread = new AtomicReference<Thread>()
+        def failure = new IllegalStateException("failed")
+
+        when:
+        def first = executor.submit({
+            producer.produce("key", {
+                productionStarted.countDown()
+                releaseProduction.await(10, TimeUnit.SECONDS)
+                throw failure
+            } as Supplier)
+        } as Callable)
+        productionStarted.await(10, TimeUnit.SECONDS)
+        def second = executor.submit({
+            waitingThread.set(Thread.currentThread())
+            try {
+                producer.produce("key", { "value" } as Supplier)
+            } catch (IllegalStateException e) {
+                e
+            }
+        } as Callable)
+        waitUntilWaiting(waitingThread)
+        releaseProduction.countDown()
+
+        then:
+        second.get(10, TimeUnit.SECONDS).is(failure)
+        coalescedRequests.get() == 1
+
+        when:
+        first.get(10, TimeUnit.SECONDS)
+
+        then:
+        def e = thrown(Exception)
+        e.cause.is(failure)
+
+        and: "the failed production is not reused"
+        producer.produce("key", { "value" } as Supplier) == "value"
+
+        cleanup:
+        releaseProduction.countDown()
+    }
+
+    private static void waitUntilWaiting(AtomicReference<Thread> thread) {
+        ConcurrentTestUtil.poll {
+            assert thread.get()?.state == Thread.State.WAITING
+        }
+    }
+}
@@ -16,9 +16,15 @@
 
 package org.gradle.internal.hash
 
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
 import spock.lang.Specification
+import spock.lang.Unroll
 
 class DefaultStreamHasherTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
     def "can hash input"() {
         def input = new ByteArrayInputStream("hello".bytes)
         when:
@@ -36,4 +42,24 @@ class DefaultStreamHasherTest extends Specification {
         hash.toString() == "af67a92e9f73b51572e9b94e343d2840"
         output.toByteArray() == "hello".bytes
     }
+
+    @Unroll
+    def "hashing a file stream of #length bytes with #hashFunction produces the same hash as hashing its content"() {
+        def content = new byte[length]
+        new Random(1234L).nextBytes(content)
+        def file = temporaryFolder.newFile()
+        file.bytes = content
+        def hasher = new DefaultStreamHasher(hashFunction.hashFunction)
+
+        when:
+        def fileHash = new FileInputStream(file).withCloseable { hasher.hash(it) }
+        then:
+        fileHash == hasher.hash(new ByteArrayInputStream(content))
+
+        where:
+        [length, hashFunction] << [
+            [0, 5, 100 * 1024, (int) DefaultStreamHasher.MAPPED_HASHING_THRESHOLD, 3 * (int) DefaultStreamHasher.MAPPED_HASHING_THRESHOLD + 17],
+            ContentHashFunction.values()
+        ].combinations()
+    }
 }
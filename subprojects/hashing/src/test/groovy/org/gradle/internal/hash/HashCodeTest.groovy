@@ -37,6 +37,7 @@ class HashCodeTest extends Specification {
         "abbaabba"     | 4      | "abbaabba"     | 0xBAABBAAB | toBytes([0xAB, 0xBA] * 2)
         "abbaabbaabba" | 6      | "abbaabbaabba" | 0xBAABBAAB | toBytes([0xAB, 0xBA] * 3)
         "aB" * 255     | 255    | "ab" * 255     | 0xABABABAB | toBytes([0xAB] * 255)
+        "0123456789abcdef" * 2 | 16 | "0123456789abcdef" * 2 | 0x67452301 | toBytes([0x01, 0x23, 0x45, 0x67, 0x89, 0xAB, 0xCD, 0xEF] * 2)
     }
 
     def "can parse int: #input"() {
@@ -70,6 +71,7 @@ class HashCodeTest extends Specification {
         toBytes(0xCA, 0xFE, 0xBA, 0xBE) | 4      | "cafebabe"     | 0xBEBAFECA | toBytes(0xCA, 0xFE, 0xBA, 0xBE)
         toBytes([0xAB, 0xBA] * 3)       | 6      | "abbaabbaabba" | 0xBAABBAAB | toBytes([0xAB, 0xBA] * 3)
         toBytes([0xAB] * 255)           | 255    | "ab" * 255     | 0xABABABAB | toBytes([0xAB] * 255)
+        toBytes([0xCA, 0xFE, 0xBA, 0xBE] * 4) | 16 | "cafebabe" * 4 | 0xBEBAFECA | toBytes([0xCA, 0xFE, 0xBA, 0xBE] * 4)
     }
 
     def "#a == #b: #equals"() {
@@ -85,6 +87,9 @@ class HashCodeTest extends Specification {
         "abcdef12"   | "abcdef12"   | true
         "abcdef12"   | "abcdef1234" | false
         "abcdef1234" | "abcdef12"   | false
+        "ab" * 16    | "ab" * 16    | true
+        "ab" * 16    | "ab" * 15 + "ac" | false
+        "ab" * 16    | "ab" * 17    | false
     }
 
     def "#a <=> #b: #expected"() {
@@ -104,6 +109,26 @@ class HashCodeTest extends Specification {
         "abcdef1234" | "abcdef12"   | 1
         "abcdef1234" | "bcdef123"   | -1
         "bcdef123"   | "abcdef12"   | 1
+        "ab" * 16    | "ab" * 16    | 0
+        "ab" * 16    | "ab" * 15 + "ac" | -1
+        "ab" * 8 + "7f" * 8 | "ab" * 8 + "80" * 8 | 1
+        "ab" * 16    | "ab" * 17    | -1
+    }
+
+    def "hashing a hash code of #length bytes feeds its bytes in order"() {
+        def bytes = toBytes((1..length).collect { it * 17 })
+        def hashCode = HashCode.fromBytes(bytes)
+
+        def hasherWithHash = Hashing.md5().newHasher()
+        hasherWithHash.putHash(hashCode)
+        def hasherWithBytes = Hashing.md5().newHasher()
+        hasherWithBytes.putBytes(bytes)
+
+        expect:
+        hasherWithHash.hash() == hasherWithBytes.hash()
+
+        where:
+        length << [4, 16, 20]
     }
 
     def "not equals with null"() {
@@ -126,4 +126,27 @@ class HashingTest extends Specification {
         }
         hasher.hash()
     }
+
+    def 'murmur3 hash function produces the hashes of the Guava implementation'() {
+        given:
+        def bytes = ('a'..'z').join().bytes
+
+        expect:
+        Hashing.murmur3().hashBytes(bytes).toByteArray() == com.google.common.hash.Hashing.murmur3_128().hashBytes(bytes).asBytes()
+        Hashing.murmur3().hashString('abc') == Hashing.murmur3().hashBytes('abc'.bytes)
+        Hashing.murmur3().hexDigits == 32
+    }
+
+    def 'cannot call murmur3 hash multiple times'() {
+        given:
+        def hasher = Hashing.murmur3().newHasher()
+        hasher.putInt(1)
+        hasher.hash()
+
+        when:
+        hasher.hash()
+
+        then:
+        thrown(IllegalStateException)
+    }
 }
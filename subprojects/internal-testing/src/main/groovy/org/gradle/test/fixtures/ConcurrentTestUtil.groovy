@@ -109,6 +109,15 @@ class ConcurrentTestUtil extends ExternalResource {
                 return new ManagedExecutorStub(ConcurrentTestUtil.this)
             }
 
+            ManagedExecutor createForBlockingIo(String displayName) {
+                return new ManagedExecutorStub(ConcurrentTestUtil.this)
+            }
+
+            ManagedExecutor createForBlockingIo(String displayName, int maxConcurrency) {
+                // Ignores the concurrency limit
+                return new ManagedExecutorStub(ConcurrentTestUtil.this)
+            }
+
             ManagedScheduledExecutor createScheduled(String displayName, int fixedSize) {
                 throw new UnsupportedOperationException()
             }
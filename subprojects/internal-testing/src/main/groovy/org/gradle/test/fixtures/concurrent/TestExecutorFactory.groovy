@@ -36,6 +36,15 @@ class TestExecutorFactory implements ExecutorFactory {
         return new TestManagedExecutor(executor)
     }
 
+    ManagedExecutor createForBlockingIo(String displayName) {
+        return new TestManagedExecutor(executor)
+    }
+
+    ManagedExecutor createForBlockingIo(String displayName, int maxConcurrency) {
+        // Ignores the concurrency limit
+        return new TestManagedExecutor(executor)
+    }
+
     ManagedScheduledExecutor createScheduled(String displayName, int fixedSize) {
         throw new UnsupportedOperationException()
     }
@@ -17,6 +17,7 @@
 plugins {
     id("gradlebuild.distribution.api-java")
     id("gradlebuild.publish-public-libraries")
+    id("gradlebuild.jmh")
 }
 
 description = "API extraction for Java"
@@ -34,4 +35,6 @@ dependencies {
 
     testImplementation(project(":base-services"))
     testImplementation(project(":internal-testing"))
+
+    jmhImplementation(platform(project(":distributions-dependencies")))
 }
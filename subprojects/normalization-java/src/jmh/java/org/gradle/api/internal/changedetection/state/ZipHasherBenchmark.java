@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Hashes a Spring Boot-style fat jar, which contains classes and many nested jars, with and without parallel entry hashing
+ * and with and without caching the hashes of the nested jars.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ZipHasherBenchmark {
+
+    @Param({"false", "true"})
+    boolean parallelHashing;
+
+    @Param({"false", "true"})
+    boolean cacheNestedZips;
+
+    @Param({"50"})
+    int nestedJars;
+
+    @Param({"200"})
+    int classesPerJar;
+
+    Path fatJar;
+    RegularFileSnapshot fatJarSnapshot;
+    ZipHasher zipHasher;
+
+    @Setup(Level.Trial)
+    public void createFatJar() throws IOException {
+        fatJar = Files.createTempFile("fat", ".jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(fatJar))) {
+            writeClasses(out, "BOOT-INF/classes/org/example/app/", classesPerJar);
+            for (int jar = 0; jar < nestedJars; jar++) {
+                // Nested jars are stored uncompressed, like Spring Boot does
+                ByteArrayOutputStream nestedJar = new ByteArrayOutputStream();
+                try (ZipOutputStream nestedOut = new ZipOutputStream(nestedJar)) {
+                    writeClasses(nestedOut, "org/example/lib" + jar + "/", classesPerJar);
+                }
+                byte[] nestedJarBytes = nestedJar.toByteArray();
+                CRC32 crc = new CRC32();
+                crc.update(nestedJarBytes);
+                ZipEntry entry = new ZipEntry("BOOT-INF/lib/lib" + jar + ".jar");
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(nestedJarBytes.length);
+                entry.setCrc(crc.getValue());
+                out.putNextEntry(entry);
+                out.write(nestedJarBytes);
+                out.closeEntry();
+            }
+        }
+        fatJarSnapshot = new RegularFileSnapshot(fatJar.toString(), fatJar.getFileName().toString(), HashCode.fromInt(0), DefaultFileMetadata.file(0, 0, AccessType.DIRECT));
+        zipHasher = new ZipHasher(
+            new RuntimeClasspathResourceHasher(),
+            ResourceFilter.FILTER_NOTHING,
+            cacheNestedZips ? new InMemoryResourceSnapshotterCacheService() : null,
+            parallelHashing ? ForkJoinPool.commonPool() : null
+        );
+    }
+
+    private static void writeClasses(ZipOutputStream out, String packagePrefix, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.putNextEntry(new ZipEntry(packagePrefix + "Class" + i + ".class"));
+            writeContent(out, packagePrefix + i);
+            out.closeEntry();
+        }
+    }
+
+    private static void writeContent(OutputStream out, String seed) throws IOException {
+        StringBuilder content = new StringBuilder(4096);
+        while (content.length() < 4096) {
+            content.append(seed);
+        }
+        out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFatJar() throws IOException {
+        Files.delete(fatJar);
+    }
+
+    @Benchmark
+    public HashCode hashFatJar() {
+        return zipHasher.hash(fatJarSnapshot);
+    }
+
+    private static class InMemoryResourceSnapshotterCacheService implements ResourceSnapshotterCacheService {
+        private final Map<HashCode, HashCode> cache = new ConcurrentHashMap<>();
+
+        @Override
+        public HashCode hashFile(RegularFileSnapshot fileSnapshot, RegularFileHasher hasher, HashCode configurationHash) {
+            return hasher.hash(fileSnapshot);
+        }
+
+        @Override
+        public HashCode hashZipEntry(ZipEntryContext zipEntryContext, HashCode contentKey, ZipEntryHasher hasher, HashCode configurationHash) throws IOException {
+            HashCode hash = cache.get(contentKey);
+            if (hash == null) {
+                hash = hasher.hash(zipEntryContext);
+                cache.put(contentKey, hash);
+            }
+            return hash;
+        }
+    }
+}
@@ -31,14 +31,32 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Hashes the ABI of class files, caching the hashes in a {@link ResourceSnapshotterCacheService} keyed by the content of the class file.
+ *
+ * Since the cache is content addressed, the ABI of a class file is only extracted once, even if the class is present in many jars.
+ */
 public class AbiExtractingClasspathResourceHasher implements ResourceHasher {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbiExtractingClasspathResourceHasher.class);
 
     private final ApiClassExtractor extractor = new ApiClassExtractor(Collections.emptySet());
+    private final ResourceSnapshotterCacheService cacheService;
+    private final HashCode configurationHash;
+    private final AtomicLong hashedClasses = new AtomicLong();
+    private final AtomicLong extractedClasses = new AtomicLong();
+
+    public AbiExtractingClasspathResourceHasher(ResourceSnapshotterCacheService cacheService) {
+        this.cacheService = cacheService;
+        Hasher hasher = Hashing.newHasher();
+        appendConfigurationToHasher(hasher);
+        this.configurationHash = hasher.hash();
+    }
 
     @Nullable
     private HashCode hashClassBytes(byte[] classBytes) {
+        extractedClasses.incrementAndGet();
         // Use the ABI as the hash
         ClassReader reader = new ClassReader(classBytes);
         return extractor.extractApiClassFrom(reader)
@@ -49,11 +67,16 @@ private HashCode hashClassBytes(byte[] classBytes) {
     @Nullable
     @Override
     public HashCode hash(RegularFileSnapshot fileSnapshot) {
-        try {
-            if (!isClassFile(fileSnapshot.getName())) {
-                return null;
-            }
+        if (!isClassFile(fileSnapshot.getName())) {
+            return null;
+        }
+        hashedClasses.incrementAndGet();
+        return cacheService.hashFile(fileSnapshot, this::hashClassFile, configurationHash);
+    }
 
+    @Nullable
+    private HashCode hashClassFile(RegularFileSnapshot fileSnapshot) {
+        try {
             Path path = Paths.get(fileSnapshot.getAbsolutePath());
             byte[] classBytes = Files.readAllBytes(path);
             return hashClassBytes(classBytes);
@@ -69,8 +92,9 @@ public HashCode hash(ZipEntryContext zipEntryContext) throws IOException {
         if (!isClassFile(zipEntry.getName())) {
             return null;
         }
+        hashedClasses.incrementAndGet();
         byte[] content = zipEntry.getContent();
-        return hashClassBytes(content);
+        return cacheService.hashZipEntry(zipEntryContext, Hashing.hashBytes(content), entry -> hashClassBytes(content), configurationHash);
     }
 
     private boolean isClassFile(String name) {
@@ -81,4 +105,41 @@ private boolean isClassFile(String name) {
     public void appendConfigurationToHasher(Hasher hasher) {
         hasher.putString(getClass().getName());
     }
+
+    /**
+     * Returns how many class files have been hashed since the last call, and for how many of them the ABI had to be extracted.
+     */
+    public Statistics getAndResetStatistics() {
+        return new Statistics(hashedClasses.getAndSet(0), extractedClasses.getAndSet(0));
+    }
+
+    public static class Statistics {
+        private final long hashedClasses;
+        private final long extractedClasses;
+
+        public Statistics(long hashedClasses, long extractedClasses) {
+            this.hashedClasses = hashedClasses;
+            this.extractedClasses = extractedClasses;
+        }
+
+        public long getHashedClasses() {
+            return hashedClasses;
+        }
+
+        public long getExtractedClasses() {
+            return extractedClasses;
+        }
+
+        /**
+         * The share of hashed class files which were served from the cache, between 0 and 1.
+         */
+        public double getHitRate() {
+            return hashedClasses == 0 ? 0 : (double) (hashedClasses - extractedClasses) / hashedClasses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hashed %d classes, extracted the ABI of %d classes, %.1f%% cache hit rate", hashedClasses, extractedClasses, getHitRate() * 100);
+        }
+    }
 }
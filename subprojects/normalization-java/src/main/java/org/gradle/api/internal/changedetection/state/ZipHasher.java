@@ -36,11 +36,16 @@
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Supplier;
 
 public class ZipHasher implements RegularFileHasher, ConfigurableNormalizer {
@@ -54,10 +59,26 @@ public static boolean isZipFile(final String name) {
 
     private final ResourceHasher resourceHasher;
     private final ResourceFilter resourceFilter;
+    private final ResourceSnapshotterCacheService cacheService;
+    private final ForkJoinPool hashingPool;
+    private final HashCode configurationHash;
 
     public ZipHasher(ResourceHasher resourceHasher, ResourceFilter resourceFilter) {
+        this(resourceHasher, resourceFilter, null, null);
+    }
+
+    /**
+     * Creates a hasher which caches the hashes of nested zips in the given cache service, keyed by their content,
+     * and which hashes the entries of zip files on the given pool.
+     */
+    public ZipHasher(ResourceHasher resourceHasher, ResourceFilter resourceFilter, @Nullable ResourceSnapshotterCacheService cacheService, @Nullable ForkJoinPool hashingPool) {
         this.resourceHasher = resourceHasher;
         this.resourceFilter = resourceFilter;
+        this.cacheService = cacheService;
+        this.hashingPool = hashingPool;
+        Hasher hasher = Hashing.newHasher();
+        appendConfigurationToHasher(hasher);
+        this.configurationHash = hasher.hash();
     }
 
     @Nullable
@@ -80,9 +101,7 @@ private HashCode hashZipContents(RegularFileSnapshot zipFileSnapshot) {
             if (fingerprints.isEmpty()) {
                 return null;
             }
-            Hasher hasher = Hashing.newHasher();
-            FingerprintHashingStrategy.SORT.appendToHasher(hasher, fingerprints);
-            return hasher.hash();
+            return hashFingerprints(fingerprints);
         } catch (Exception e) {
             return hashMalformedZip(zipFileSnapshot, e);
         }
@@ -94,9 +113,14 @@ private HashCode hashMalformedZip(RegularFileSnapshot zipFileSnapshot, Exception
     }
 
     private List<FileSystemLocationFingerprint> fingerprintZipEntries(String zipFile) throws IOException {
-        try(ZipInput input = FileZipInput.create(new File(zipFile))) {
+        try (ZipInput input = FileZipInput.create(new File(zipFile))) {
             List<FileSystemLocationFingerprint> fingerprints = Lists.newArrayList();
-            fingerprintZipEntries("", zipFile, fingerprints, input);
+            // Only a zip file opened with random access supports reading its entries concurrently
+            if (hashingPool != null && input instanceof FileZipInput) {
+                fingerprintZipEntriesInParallel(zipFile, fingerprints, input);
+            } else {
+                fingerprintZipEntries("", zipFile, fingerprints, input);
+            }
             return fingerprints;
         }
     }
@@ -104,25 +128,80 @@ private List<FileSystemLocationFingerprint> fingerprintZipEntries(String zipFile
     private void fingerprintZipEntries(String parentName, String rootParentName, List<FileSystemLocationFingerprint> fingerprints, ZipInput input) throws IOException {
         fingerprints.add(newZipMarker(parentName));
         for (ZipEntry zipEntry : input) {
-            ZipEntryRelativePath relativePath = new ZipEntryRelativePath(zipEntry);
-            if (zipEntry.isDirectory() || resourceFilter.shouldBeIgnored(relativePath)) {
-                continue;
+            if (shouldBeFingerprinted(zipEntry)) {
+                FileSystemLocationFingerprint fingerprint = fingerprintZipEntry(parentName, rootParentName, zipEntry);
+                if (fingerprint != null) {
+                    fingerprints.add(fingerprint);
+                }
             }
-            String fullName = parentName.isEmpty() ? zipEntry.getName() : parentName + "/" + zipEntry.getName();
-            ZipEntryContext zipEntryContext = new ZipEntryContext(zipEntry, fullName, rootParentName);
-            if (isZipFile(zipEntry.getName())) {
-                fingerprintZipEntries(fullName, rootParentName, fingerprints, new StreamZipInput(zipEntry.getInputStream()));
-            } else {
-                fingerprintZipEntry(zipEntryContext, fingerprints);
+        }
+    }
+
+    private void fingerprintZipEntriesInParallel(String rootParentName, List<FileSystemLocationFingerprint> fingerprints, ZipInput input) {
+        List<ForkJoinTask<FileSystemLocationFingerprint>> tasks = new ArrayList<>();
+        for (ZipEntry zipEntry : input) {
+            if (shouldBeFingerprinted(zipEntry)) {
+                tasks.add(hashingPool.submit(() -> fingerprintZipEntry("", rootParentName, zipEntry)));
+            }
+        }
+        fingerprints.add(newZipMarker(""));
+        // Wait for all the tasks before failing, so no task reads from the zip file after it has been closed
+        RuntimeException failure = null;
+        for (ForkJoinTask<FileSystemLocationFingerprint> task : tasks) {
+            try {
+                FileSystemLocationFingerprint fingerprint = task.join();
+                if (fingerprint != null) {
+                    fingerprints.add(fingerprint);
+                }
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
             }
         }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private boolean shouldBeFingerprinted(ZipEntry zipEntry) {
+        return !zipEntry.isDirectory() && !resourceFilter.shouldBeIgnored(new ZipEntryRelativePath(zipEntry));
+    }
+
+    @Nullable
+    private FileSystemLocationFingerprint fingerprintZipEntry(String parentName, String rootParentName, ZipEntry zipEntry) throws IOException {
+        String fullName = parentName.isEmpty() ? zipEntry.getName() : parentName + "/" + zipEntry.getName();
+        ZipEntryContext zipEntryContext = new ZipEntryContext(zipEntry, fullName, rootParentName);
+        HashCode hash = isZipFile(zipEntry.getName())
+            ? hashNestedZip(zipEntryContext)
+            : resourceHasher.hash(zipEntryContext);
+        return hash == null
+            ? null
+            : new DefaultFileSystemLocationFingerprint(fullName, FileType.RegularFile, hash);
     }
 
-    private void fingerprintZipEntry(ZipEntryContext zipEntryContext, List<FileSystemLocationFingerprint> fingerprints) throws IOException {
-        HashCode hash = resourceHasher.hash(zipEntryContext);
-        if (hash != null) {
-            fingerprints.add(new DefaultFileSystemLocationFingerprint(zipEntryContext.getFullName(), FileType.RegularFile, hash));
+    /**
+     * Nested zips are hashed on their own, so the hash can be reused for the same nested zip in a different zip file.
+     * Hashing the content of the nested zip is much cheaper than fingerprinting all of its entries.
+     */
+    private HashCode hashNestedZip(ZipEntryContext zipEntryContext) throws IOException {
+        if (cacheService == null) {
+            return fingerprintNestedZip(zipEntryContext, zipEntryContext.getEntry().getInputStream());
         }
+        byte[] content = zipEntryContext.getEntry().getContent();
+        return cacheService.hashZipEntry(zipEntryContext, Hashing.hashBytes(content), entry -> fingerprintNestedZip(entry, new ByteArrayInputStream(content)), configurationHash);
+    }
+
+    private HashCode fingerprintNestedZip(ZipEntryContext zipEntryContext, InputStream content) throws IOException {
+        List<FileSystemLocationFingerprint> fingerprints = Lists.newArrayList();
+        fingerprintZipEntries("", zipEntryContext.getRootParentName(), fingerprints, new StreamZipInput(content));
+        return hashFingerprints(fingerprints);
+    }
+
+    private static HashCode hashFingerprints(List<FileSystemLocationFingerprint> fingerprints) {
+        Hasher hasher = Hashing.newHasher();
+        FingerprintHashingStrategy.SORT.appendToHasher(hasher, fingerprints);
+        return hasher.hash();
     }
 
     private DefaultFileSystemLocationFingerprint newZipMarker(String relativePath) {
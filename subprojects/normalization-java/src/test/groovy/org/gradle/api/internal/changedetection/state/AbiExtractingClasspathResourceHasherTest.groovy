@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.file.archive.ZipEntry
+import org.gradle.internal.file.FileMetadata.AccessType
+import org.gradle.internal.file.impl.DefaultFileMetadata
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.normalization.java.ApiClassExtractor
+import org.gradle.internal.snapshot.RegularFileSnapshot
+import spock.lang.Specification
+
+class AbiExtractingClasspathResourceHasherTest extends Specification {
+    def cacheService = Mock(ResourceSnapshotterCacheService)
+    def hasher = new AbiExtractingClasspathResourceHasher(cacheService)
+    def classBytes = ApiClassExtractor.getResourceAsStream("ApiClassExtractor.class").bytes
+
+    def "caches the ABI hash of class files in jars by their content"() {
+        def zipEntryContext = classEntry("org/gradle/ApiClassExtractor.class")
+        HashCode abiHash = null
+
+        when:
+        def hash = hasher.hash(zipEntryContext)
+        then:
+        1 * cacheService.hashZipEntry(zipEntryContext, Hashing.hashBytes(classBytes), _, _) >> { ZipEntryContext context, HashCode contentKey, ZipEntryHasher delegate, HashCode configurationHash ->
+            abiHash = delegate.hash(context)
+        }
+        0 * cacheService._
+        hash != null
+        hash == abiHash
+        with(hasher.getAndResetStatistics()) {
+            hashedClasses == 1
+            extractedClasses == 1
+        }
+
+        when:
+        hash = hasher.hash(classEntry("other/ApiClassExtractor.class"))
+        then:
+        1 * cacheService.hashZipEntry(_, Hashing.hashBytes(classBytes), _, _) >> abiHash
+        0 * cacheService._
+        hash == abiHash
+        with(hasher.getAndResetStatistics()) {
+            hashedClasses == 1
+            extractedClasses == 0
+            hitRate == 1
+        }
+    }
+
+    def "uses the cache service for class files"() {
+        def classFile = new RegularFileSnapshot("/some/ApiClassExtractor.class", "ApiClassExtractor.class", HashCode.fromInt(123), DefaultFileMetadata.file(0, 0, AccessType.DIRECT))
+        def abiHash = HashCode.fromInt(456)
+
+        when:
+        def hash = hasher.hash(classFile)
+        then:
+        1 * cacheService.hashFile(classFile, _, _) >> abiHash
+        0 * _
+        hash == abiHash
+        hasher.getAndResetStatistics().hashedClasses == 1
+    }
+
+    def "ignores resources which are not class files"() {
+        def zipEntry = Mock(ZipEntry) {
+            getName() >> "META-INF/MANIFEST.MF"
+        }
+        def resource = new RegularFileSnapshot("/some/resource.txt", "resource.txt", HashCode.fromInt(123), DefaultFileMetadata.file(0, 0, AccessType.DIRECT))
+
+        expect:
+        hasher.hash(new ZipEntryContext(zipEntry, "META-INF/MANIFEST.MF", "some.jar")) == null
+        hasher.hash(resource) == null
+        hasher.getAndResetStatistics().hashedClasses == 0
+    }
+
+    private ZipEntryContext classEntry(String name) {
+        def zipEntry = Stub(ZipEntry) {
+            getName() >> name
+            getContent() >> classBytes
+        }
+        return new ZipEntryContext(zipEntry, name, "some.jar")
+    }
+}
@@ -23,9 +23,12 @@ import org.gradle.internal.hash.HashCode
 import org.gradle.internal.snapshot.RegularFileSnapshot
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.ForkJoinPool
 import java.util.jar.Attributes
 import java.util.jar.JarEntry
 import java.util.jar.JarOutputStream
@@ -89,6 +92,58 @@ class ZipHasherTest extends Specification {
         hash1 != hash2
     }
 
+    def "hashing entries in parallel gives the same hash"() {
+        given:
+        def outerContent = tmpDir.createDir("outer")
+        (1..20).each { outerContent.file("file${it}.txt") << "File ${it}" }
+        def innerContent = tmpDir.createDir("inner")
+        innerContent.file("foo") << "Foo"
+        innerContent.zipTo(outerContent.file("inner.jar"))
+        def outer = tmpDir.file("outer.jar")
+        outerContent.zipTo(outer)
+        def parallelZipHasher = new ZipHasher(resourceHasher(ResourceEntryFilter.FILTER_NOTHING, ResourceEntryFilter.FILTER_NOTHING), ResourceFilter.FILTER_NOTHING, null, ForkJoinPool.commonPool())
+
+        expect:
+        parallelZipHasher.hash(snapshot(outer)) == zipHasher.hash(snapshot(outer))
+    }
+
+    @Requires(TestPrecondition.JDK11_OR_LATER)
+    def "caches the hash of nested zips by their content"() {
+        given:
+        def cacheService = Mock(ResourceSnapshotterCacheService)
+        def cachingZipHasher = new ZipHasher(resourceHasher(ResourceEntryFilter.FILTER_NOTHING, ResourceEntryFilter.FILTER_NOTHING), ResourceFilter.FILTER_NOTHING, cacheService, null)
+        def innerContent = tmpDir.createDir("inner")
+        innerContent.file("foo") << "Foo"
+        def innerJar = tmpDir.file("inner.jar")
+        innerContent.zipTo(innerJar)
+        def otherInnerContent = tmpDir.createDir("otherInner")
+        otherInnerContent.file("foo") << "Bar"
+        def otherInnerJar = tmpDir.file("otherInner.jar")
+        otherInnerContent.zipTo(otherInnerJar)
+        def outers = ["outer1": innerJar, "outer2": innerJar, "outer3": otherInnerJar].collect { name, nestedJar ->
+            def outerContent = tmpDir.createDir(name)
+            outerContent.file("${name}.txt") << name
+            nestedJar.copyTo(outerContent.file("inner.jar"))
+            def outer = tmpDir.file("${name}.jar")
+            outerContent.zipTo(outer)
+            return outer
+        }
+        def contentKeys = []
+
+        when:
+        def hashes = outers.collect { cachingZipHasher.hash(snapshot(it)) }
+
+        then:
+        3 * cacheService.hashZipEntry(_, _, _, _) >> { ZipEntryContext zipEntryContext, HashCode contentKey, ZipEntryHasher hasher, HashCode configurationHash ->
+            contentKeys << contentKey
+            hasher.hash(zipEntryContext)
+        }
+        0 * _
+        contentKeys[0] == contentKeys[1]
+        contentKeys[0] != contentKeys[2]
+        hashes == outers.collect { zipHasher.hash(snapshot(it)) }
+    }
+
     def "changing manifest attributes changes the hashcode"() {
         given:
         def jarfile = tmpDir.file("test.jar")
@@ -174,11 +174,11 @@ public void start(long lockId, Action<FileLockReleasedSignal> whenContended) {
                 throw new IllegalStateException("Must initialize the handler by reserving the port first.");
             }
             if (fileLockRequestListener == null) {
-                fileLockRequestListener = executorFactory.create("File lock request listener");
+                fileLockRequestListener = executorFactory.createForBlockingIo("File lock request listener");
                 fileLockRequestListener.execute(listener());
             }
             if (unlockActionExecutor == null) {
-                unlockActionExecutor = executorFactory.create("File lock release action executor");
+                unlockActionExecutor = executorFactory.createForBlockingIo("File lock release action executor");
             }
             if (contendedActions.containsKey(lockId)) {
                 throw new UnsupportedOperationException("Multiple contention actions for a given lock are currently not supported.");
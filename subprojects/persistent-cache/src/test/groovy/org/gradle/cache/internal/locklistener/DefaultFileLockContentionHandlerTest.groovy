@@ -85,7 +85,7 @@ class DefaultFileLockContentionHandlerTest extends ConcurrentSpecification {
         handler.start(12, {})
 
         then:
-        2 * factory.create(_ as String) >> Mock(ManagedExecutor)
+        2 * factory.createForBlockingIo(_ as String) >> Mock(ManagedExecutor)
     }
 
     def "cannot start contention handling when the handler was stopped"() {
@@ -183,8 +183,8 @@ class DefaultFileLockContentionHandlerTest extends ConcurrentSpecification {
         handler.stop()
 
         then:
-        1 * factory.create(_ as String) >> lockRequestListener
-        1 * factory.create(_ as String) >> releaseLockActionExecutor
+        1 * factory.createForBlockingIo(_ as String) >> lockRequestListener
+        1 * factory.createForBlockingIo(_ as String) >> releaseLockActionExecutor
         1 * lockRequestListener.stop()
         1 * releaseLockActionExecutor.stop()
     }
@@ -17,6 +17,7 @@
 plugins {
     id("gradlebuild.distribution.implementation-java")
     id("gradlebuild.publish-public-libraries")
+    id("gradlebuild.jmh")
 }
 
 description = "Tools to take immutable, comparable snapshots of files and other things"
@@ -45,6 +46,8 @@ dependencies {
     testFixturesImplementation(project(":core-api"))
     testFixturesImplementation(project(":file-collections"))
 
+    jmhImplementation(platform(project(":distributions-dependencies")))
+
     integTestDistributionRuntimeOnly(project(":distributions-core"))
 }
 
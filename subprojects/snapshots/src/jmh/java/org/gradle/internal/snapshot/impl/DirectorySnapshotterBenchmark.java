@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interners;
+import org.gradle.internal.hash.DefaultFileHasher;
+import org.gradle.internal.hash.DefaultStreamHasher;
+import org.gradle.internal.snapshot.CompleteFileSystemLocationSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Compares snapshotting a directory tree with sequential and with parallel file hashing.
+ *
+ * The wide tree has a few directories with many files each, the deep tree has a long chain of nested directories with few files each.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DirectorySnapshotterBenchmark {
+
+    @Param({"wide", "deep"})
+    String treeShape;
+
+    @Param({"false", "true"})
+    boolean parallelHashing;
+
+    @Param({"4096"})
+    int fileSize;
+
+    Path root;
+    DirectorySnapshotter snapshotter;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        root = Files.createTempDirectory("directory-snapshotter");
+        if (treeShape.equals("wide")) {
+            // 4 directories with 1000 files each
+            for (int dir = 0; dir < 4; dir++) {
+                createFiles(root.resolve("dir" + dir), 1000);
+            }
+        } else {
+            // 200 levels of nested directories with 20 files each
+            Path current = root;
+            for (int level = 0; level < 200; level++) {
+                current = current.resolve("level" + level);
+                createFiles(current, 20);
+            }
+        }
+        snapshotter = new DirectorySnapshotter(
+            new DefaultFileHasher(new DefaultStreamHasher()),
+            Interners.newStrongInterner(),
+            ImmutableList.of(),
+            parallelHashing ? ForkJoinPool.commonPool() : null
+        );
+    }
+
+    private void createFiles(Path directory, int count) throws IOException {
+        Files.createDirectories(directory);
+        StringBuilder content = new StringBuilder(fileSize);
+        for (int i = 0; i < count; i++) {
+            content.setLength(0);
+            while (content.length() < fileSize) {
+                content.append(directory.getFileName()).append(i);
+            }
+            Files.write(directory.resolve("file" + i + ".txt"), content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public CompleteFileSystemLocationSnapshot snapshotDirectory() {
+        return snapshotter.snapshot(root.toString(), null, new AtomicBoolean());
+    }
+}
@@ -29,6 +29,7 @@
 import org.gradle.internal.snapshot.MerkleDirectorySnapshotBuilder;
 import org.gradle.internal.snapshot.MissingFileSnapshot;
 import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.snapshot.RelativePathSegmentsTracker;
 import org.gradle.internal.snapshot.SnapshottingFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,12 +46,16 @@
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public class DirectorySnapshotter {
@@ -60,17 +65,30 @@ public class DirectorySnapshotter {
     private final FileHasher hasher;
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
+    private final ForkJoinPool hashingPool;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes) {
+        this(hasher, stringInterner, defaultExcludes, null);
+    }
+
+    /**
+     * Creates a snapshotter which hashes the regular files of a directory on the given pool, in parallel to walking the directory.
+     * The files are still walked by a single thread, and the snapshot is the same as the one taken without a pool.
+     */
+    public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, @Nullable ForkJoinPool hashingPool) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
+        this.hashingPool = hashingPool;
     }
 
     public CompleteFileSystemLocationSnapshot snapshot(String absolutePath, @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate, final AtomicBoolean hasBeenFiltered) {
         try {
             Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes);
+            SnapshotBuilder builder = hashingPool == null
+                ? new HashingSnapshotBuilder(hasher)
+                : new ParallelHashingSnapshotBuilder(hasher, hashingPool);
+            PathVisitor visitor = new PathVisitor(builder, predicate, hasBeenFiltered, stringInterner, defaultExcludes);
             Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
             return visitor.getResult();
         } catch (IOException e) {
@@ -171,27 +189,158 @@ public boolean test(String element) {
         }
     }
 
+    /**
+     * Receives the results of walking a directory in depth-first order, and assembles them into a {@link CompleteFileSystemLocationSnapshot}.
+     */
+    private interface SnapshotBuilder {
+        void preVisitDirectory(String absolutePath, String name);
+
+        void visitRegularFile(Path file, String absolutePath, String name, FileMetadata metadata);
+
+        void visitMissingFile(String absolutePath, String name, AccessType accessType);
+
+        void postVisitDirectory(AccessType accessType);
+
+        boolean isRoot();
+
+        Iterable<String> getRelativePath();
+
+        CompleteFileSystemLocationSnapshot getResult();
+    }
+
+    private static CompleteFileSystemLocationSnapshot snapshotRegularFile(FileHasher hasher, Path file, String absolutePath, String name, FileMetadata metadata) {
+        try {
+            HashCode hash = hasher.hash(file.toFile(), metadata.getLength(), metadata.getLastModified());
+            return new RegularFileSnapshot(absolutePath, name, hash, metadata);
+        } catch (UncheckedIOException e) {
+            LOGGER.info("Could not read file path '{}'.", file, e);
+            return new MissingFileSnapshot(absolutePath, name, metadata.getAccessType());
+        }
+    }
+
+    /**
+     * Hashes each regular file as soon as it is visited.
+     */
+    private static class HashingSnapshotBuilder implements SnapshotBuilder {
+        private final MerkleDirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.sortingRequired();
+        private final FileHasher hasher;
+
+        public HashingSnapshotBuilder(FileHasher hasher) {
+            this.hasher = hasher;
+        }
+
+        @Override
+        public void preVisitDirectory(String absolutePath, String name) {
+            builder.preVisitDirectory(absolutePath, name);
+        }
+
+        @Override
+        public void visitRegularFile(Path file, String absolutePath, String name, FileMetadata metadata) {
+            builder.visitFile(snapshotRegularFile(hasher, file, absolutePath, name, metadata));
+        }
+
+        @Override
+        public void visitMissingFile(String absolutePath, String name, AccessType accessType) {
+            builder.visitFile(new MissingFileSnapshot(absolutePath, name, accessType));
+        }
+
+        @Override
+        public void postVisitDirectory(AccessType accessType) {
+            builder.postVisitDirectory(accessType);
+        }
+
+        @Override
+        public boolean isRoot() {
+            return builder.isRoot();
+        }
+
+        @Override
+        public Iterable<String> getRelativePath() {
+            return builder.getRelativePath();
+        }
+
+        @Override
+        public CompleteFileSystemLocationSnapshot getResult() {
+            return builder.getResult();
+        }
+    }
+
+    /**
+     * Forks a hashing task for each regular file, and records the walk.
+     * The recorded walk is replayed into a {@link MerkleDirectorySnapshotBuilder} once all files are hashed.
+     */
+    private static class ParallelHashingSnapshotBuilder implements SnapshotBuilder {
+        private final RelativePathSegmentsTracker relativePathSegmentsTracker = new RelativePathSegmentsTracker();
+        private final List<Consumer<MerkleDirectorySnapshotBuilder>> recordedWalk = new ArrayList<>();
+        private final FileHasher hasher;
+        private final ForkJoinPool hashingPool;
+
+        public ParallelHashingSnapshotBuilder(FileHasher hasher, ForkJoinPool hashingPool) {
+            this.hasher = hasher;
+            this.hashingPool = hashingPool;
+        }
+
+        @Override
+        public void preVisitDirectory(String absolutePath, String name) {
+            relativePathSegmentsTracker.enter(name);
+            recordedWalk.add(builder -> builder.preVisitDirectory(absolutePath, name));
+        }
+
+        @Override
+        public void visitRegularFile(Path file, String absolutePath, String name, FileMetadata metadata) {
+            ForkJoinTask<CompleteFileSystemLocationSnapshot> snapshot = hashingPool.submit(() -> snapshotRegularFile(hasher, file, absolutePath, name, metadata));
+            recordedWalk.add(builder -> builder.visitFile(snapshot.join()));
+        }
+
+        @Override
+        public void visitMissingFile(String absolutePath, String name, AccessType accessType) {
+            MissingFileSnapshot snapshot = new MissingFileSnapshot(absolutePath, name, accessType);
+            recordedWalk.add(builder -> builder.visitFile(snapshot));
+        }
+
+        @Override
+        public void postVisitDirectory(AccessType accessType) {
+            relativePathSegmentsTracker.leave();
+            recordedWalk.add(builder -> builder.postVisitDirectory(accessType));
+        }
+
+        @Override
+        public boolean isRoot() {
+            return relativePathSegmentsTracker.isRoot();
+        }
+
+        @Override
+        public Iterable<String> getRelativePath() {
+            return relativePathSegmentsTracker.getRelativePath();
+        }
+
+        @Override
+        public CompleteFileSystemLocationSnapshot getResult() {
+            MerkleDirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.sortingRequired();
+            recordedWalk.forEach(step -> step.accept(builder));
+            return builder.getResult();
+        }
+    }
+
     private static class PathVisitor implements java.nio.file.FileVisitor<Path> {
-        private final MerkleDirectorySnapshotBuilder builder;
+        private final SnapshotBuilder builder;
         private final SnapshottingFilter.DirectoryWalkerPredicate predicate;
         private final AtomicBoolean hasBeenFiltered;
-        private final FileHasher hasher;
         private final Interner<String> stringInterner;
         private final DefaultExcludes defaultExcludes;
         private final Deque<SymbolicLinkMapping> symbolicLinkMappings = new ArrayDeque<>();
         private final Deque<String> parentDirectories = new ArrayDeque<>();
 
         public PathVisitor(
+            SnapshotBuilder builder,
             @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
             AtomicBoolean hasBeenFiltered,
-            FileHasher hasher,
             Interner<String> stringInterner,
             DefaultExcludes defaultExcludes
         ) {
-            this.builder = MerkleDirectorySnapshotBuilder.sortingRequired();
+            this.builder = builder;
             this.predicate = predicate;
             this.hasBeenFiltered = hasBeenFiltered;
-            this.hasher = hasher;
             this.stringInterner = stringInterner;
             this.defaultExcludes = defaultExcludes;
         }
@@ -258,7 +407,13 @@ private String remapAbsolutePath(Path dir) {
         private void visitResolvedFile(Path file, BasicFileAttributes targetAttributes, AccessType accessType) {
             String internedName = intern(file.getFileName().toString());
             if (shouldVisit(file, internedName, false, builder.getRelativePath())) {
-                builder.visitFile(snapshotFile(file, internedName, targetAttributes, accessType));
+                String internedAbsoluteFilePath = intern(remapAbsolutePath(file));
+                if (targetAttributes.isRegularFile()) {
+                    FileMetadata metadata = DefaultFileMetadata.file(targetAttributes.lastModifiedTime().toMillis(), targetAttributes.size(), accessType);
+                    builder.visitRegularFile(file, internedAbsoluteFilePath, internedName, metadata);
+                } else {
+                    builder.visitMissingFile(internedAbsoluteFilePath, internedName, accessType);
+                }
             }
         }
 
@@ -272,22 +427,6 @@ private BasicFileAttributes readAttributesOfSymlinkTarget(Path symlink, BasicFil
             }
         }
 
-        private CompleteFileSystemLocationSnapshot snapshotFile(Path absoluteFilePath, String internedName, BasicFileAttributes attrs, AccessType accessType) {
-            String internedAbsoluteFilePath = intern(remapAbsolutePath(absoluteFilePath));
-            if (attrs.isRegularFile()) {
-                try {
-                    long lastModified = attrs.lastModifiedTime().toMillis();
-                    long fileLength = attrs.size();
-                    FileMetadata metadata = DefaultFileMetadata.file(lastModified, fileLength, accessType);
-                    HashCode hash = hasher.hash(absoluteFilePath.toFile(), fileLength, lastModified);
-                    return new RegularFileSnapshot(internedAbsoluteFilePath, internedName, hash, metadata);
-                } catch (UncheckedIOException e) {
-                    LOGGER.info("Could not read file path '{}'.", absoluteFilePath, e);
-                }
-            }
-            return new MissingFileSnapshot(internedAbsoluteFilePath, internedName, accessType);
-        }
-
         /** unlistable directories (and maybe some locked files) will stop here */
         @Override
         public FileVisitResult visitFileFailed(Path file, IOException exc) {
@@ -300,7 +439,7 @@ public FileVisitResult visitFileFailed(Path file, IOException exc) {
                 if (shouldVisit(file, internedName, isDirectory, builder.getRelativePath())) {
                     LOGGER.info("Could not read file path '{}'.", file);
                     String internedAbsolutePath = intern(file.toString());
-                    builder.visitFile(new MissingFileSnapshot(internedAbsolutePath, internedName, AccessType.DIRECT));
+                    builder.visitMissingFile(internedAbsolutePath, internedName, AccessType.DIRECT);
                 }
             }
             return FileVisitResult.CONTINUE;
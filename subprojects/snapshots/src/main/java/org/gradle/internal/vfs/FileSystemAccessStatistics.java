@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.vfs;
+
+/**
+ * Statistics about how a {@link FileSystemAccess} served its requests since the statistics were last collected.
+ */
+public interface FileSystemAccessStatistics {
+    /**
+     * The number of requests served from the virtual file system without accessing the file system.
+     */
+    long getVirtualFileSystemHits();
+
+    /**
+     * The number of requests which had to read the file system since the location was not in the virtual file system.
+     */
+    long getFileSystemReads();
+
+    /**
+     * The number of requests which waited for a concurrent request for the same location instead of reading the file system themselves.
+     */
+    long getCoalescedReads();
+
+    /**
+     * The number of bytes the file hasher of this scope read to hash file contents.
+     * Hashes served from the file hash cache are not included.
+     */
+    long getHashedBytes();
+
+    /**
+     * The time spent walking and hashing directories, summed over all threads.
+     */
+    long getDirectorySnapshottingTimeMillis();
+}
@@ -23,6 +23,7 @@
 import org.gradle.internal.file.FileMetadata.AccessType;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.file.Stat;
+import org.gradle.internal.hash.CoalescingProducer;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.snapshot.CompleteFileSystemLocationSnapshot;
@@ -33,16 +34,22 @@
 import org.gradle.internal.snapshot.impl.DirectorySnapshotter;
 import org.gradle.internal.snapshot.impl.FileSystemSnapshotFilter;
 import org.gradle.internal.vfs.FileSystemAccess;
+import org.gradle.internal.vfs.FileSystemAccessStatistics;
 import org.gradle.internal.vfs.VirtualFileSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 public class DefaultFileSystemAccess implements FileSystemAccess {
@@ -55,7 +62,15 @@ public class DefaultFileSystemAccess implements FileSystemAccess {
     private ImmutableList<String> defaultExcludes;
     private DirectorySnapshotter directorySnapshotter;
     private final FileHasher hasher;
+    private final ForkJoinPool hashingPool;
     private final StripedProducerGuard<String> producingSnapshots = new StripedProducerGuard<>();
+    private final AtomicLong virtualFileSystemHits = new AtomicLong();
+    private final AtomicLong fileSystemReads = new AtomicLong();
+    private final AtomicLong coalescedReads = new AtomicLong();
+    private final LongSupplier hashedBytes;
+    private final AtomicLong directorySnapshottingTime = new AtomicLong();
+    private final CoalescingProducer<String, Optional<HashCode>> producingHashes = new CoalescingProducer<>(coalescedReads);
+    private final CoalescingProducer<String, CompleteFileSystemLocationSnapshot> producingCompleteSnapshots = new CoalescingProducer<>(coalescedReads);
 
     public DefaultFileSystemAccess(
         FileHasher hasher,
@@ -64,13 +79,32 @@ public DefaultFileSystemAccess(
         VirtualFileSystem virtualFileSystem,
         WriteListener writeListener,
         String... defaultExcludes
+    ) {
+        this(hasher, () -> 0, stringInterner, stat, virtualFileSystem, writeListener, null, defaultExcludes);
+    }
+
+    /**
+     * @param hashedBytes returns the number of bytes the hasher read to hash file contents since it was last called.
+     * @param hashingPool when present, the files in directories are hashed in parallel on this pool.
+     */
+    public DefaultFileSystemAccess(
+        FileHasher hasher,
+        LongSupplier hashedBytes,
+        Interner<String> stringInterner,
+        Stat stat,
+        VirtualFileSystem virtualFileSystem,
+        WriteListener writeListener,
+        @Nullable ForkJoinPool hashingPool,
+        String... defaultExcludes
     ) {
         this.stringInterner = stringInterner;
         this.stat = stat;
         this.writeListener = writeListener;
         this.defaultExcludes = ImmutableList.copyOf(defaultExcludes);
-        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes);
+        this.hashingPool = hashingPool;
         this.hasher = hasher;
+        this.hashedBytes = hashedBytes;
+        this.directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, this.defaultExcludes, hashingPool);
         this.virtualFileSystem = virtualFileSystem;
     }
 
@@ -84,35 +118,39 @@ public <T> Optional<T> readRegularFileContentHash(String location, Function<Hash
         return virtualFileSystem.getRoot().getMetadata(location)
             .<Optional<HashCode>>flatMap(snapshot -> {
                 if (snapshot.getType() != FileType.RegularFile) {
+                    virtualFileSystemHits.incrementAndGet();
                     return Optional.of(Optional.empty());
                 }
                 if (snapshot instanceof CompleteFileSystemLocationSnapshot) {
+                    virtualFileSystemHits.incrementAndGet();
                     return Optional.of(Optional.of(((CompleteFileSystemLocationSnapshot) snapshot).getHash()));
                 }
                 return Optional.empty();
             })
-            .orElseGet(() -> {
-                File file = new File(location);
-                FileMetadata fileMetadata = this.stat.stat(file);
-                if (fileMetadata.getType() == FileType.Missing) {
-                    storeMetadataForMissingFile(location, fileMetadata.getAccessType());
-                }
-                if (fileMetadata.getType() != FileType.RegularFile) {
-                    return Optional.empty();
-                }
-                HashCode hash = producingSnapshots.guardByKey(location,
-                    () -> virtualFileSystem.getRoot().getSnapshot(location)
-                        .orElseGet(() -> {
-                            HashCode hashCode = hasher.hash(file, fileMetadata.getLength(), fileMetadata.getLastModified());
-                            RegularFileSnapshot snapshot = new RegularFileSnapshot(location, file.getName(), hashCode, fileMetadata);
-                            virtualFileSystem.update((root, changeListener) -> root.store(snapshot.getAbsolutePath(), snapshot, changeListener));
-                            return snapshot;
-                        }).getHash());
-                return Optional.of(hash);
-            })
+            .orElseGet(() -> producingHashes.produce(location,
+                () -> getSnapshotFromVirtualFileSystem(location)
+                    .map(snapshot -> snapshot.getType() == FileType.RegularFile ? Optional.of(snapshot.getHash()) : Optional.<HashCode>empty())
+                    .orElseGet(() -> readRegularFileContentHashFromFileSystem(location))
+            ))
             .map(visitor);
     }
 
+    private Optional<HashCode> readRegularFileContentHashFromFileSystem(String location) {
+        fileSystemReads.incrementAndGet();
+        File file = new File(location);
+        FileMetadata fileMetadata = this.stat.stat(file);
+        if (fileMetadata.getType() == FileType.Missing) {
+            storeMetadataForMissingFile(location, fileMetadata.getAccessType());
+        }
+        if (fileMetadata.getType() != FileType.RegularFile) {
+            return Optional.empty();
+        }
+        HashCode hash = hasher.hash(file, fileMetadata.getLength(), fileMetadata.getLastModified());
+        RegularFileSnapshot snapshot = new RegularFileSnapshot(location, stringInterner.intern(file.getName()), hash, fileMetadata);
+        virtualFileSystem.update((root, changeListener) -> root.store(snapshot.getAbsolutePath(), snapshot, changeListener));
+        return Optional.of(hash);
+    }
+
     private void storeMetadataForMissingFile(String location, AccessType accessType) {
         virtualFileSystem.update((root, changeListener) -> root.store(location, new MissingFileSnapshot(location, accessType), changeListener));
     }
@@ -122,10 +160,10 @@ public void read(String location, SnapshottingFilter filter, Consumer<CompleteFi
         if (filter.isEmpty()) {
             visitor.accept(readLocation(location));
         } else {
-            FileSystemSnapshot filteredSnapshot = virtualFileSystem.getRoot().getSnapshot(location)
+            FileSystemSnapshot filteredSnapshot = getSnapshotFromVirtualFileSystem(location)
                 .map(snapshot -> FileSystemSnapshotFilter.filterSnapshot(filter.getAsSnapshotPredicate(), snapshot))
                 .orElseGet(() -> producingSnapshots.guardByKey(location,
-                    () -> virtualFileSystem.getRoot().getSnapshot(location)
+                    () -> getSnapshotFromVirtualFileSystem(location)
                         .map(snapshot -> FileSystemSnapshotFilter.filterSnapshot(filter.getAsSnapshotPredicate(), snapshot))
                         .orElseGet(() -> {
                             CompleteFileSystemLocationSnapshot snapshot = snapshot(location, filter);
@@ -142,13 +180,22 @@ public void read(String location, SnapshottingFilter filter, Consumer<CompleteFi
         }
     }
 
+    private Optional<CompleteFileSystemLocationSnapshot> getSnapshotFromVirtualFileSystem(String location) {
+        Optional<CompleteFileSystemLocationSnapshot> snapshot = virtualFileSystem.getRoot().getSnapshot(location);
+        if (snapshot.isPresent()) {
+            virtualFileSystemHits.incrementAndGet();
+        }
+        return snapshot;
+    }
+
     private CompleteFileSystemLocationSnapshot snapshot(String location, SnapshottingFilter filter) {
+        fileSystemReads.incrementAndGet();
         File file = new File(location);
         FileMetadata fileMetadata = this.stat.stat(file);
         switch (fileMetadata.getType()) {
             case RegularFile:
                 HashCode hash = hasher.hash(file, fileMetadata.getLength(), fileMetadata.getLastModified());
-                RegularFileSnapshot regularFileSnapshot = new RegularFileSnapshot(location, file.getName(), hash, fileMetadata);
+                RegularFileSnapshot regularFileSnapshot = new RegularFileSnapshot(location, stringInterner.intern(file.getName()), hash, fileMetadata);
                 virtualFileSystem.update((root, changeListener) -> root.store(regularFileSnapshot.getAbsolutePath(), regularFileSnapshot, changeListener));
                 return regularFileSnapshot;
             case Missing:
@@ -157,7 +204,13 @@ private CompleteFileSystemLocationSnapshot snapshot(String location, Snapshottin
                 return missingFileSnapshot;
             case Directory:
                 AtomicBoolean hasBeenFiltered = new AtomicBoolean(false);
-                CompleteFileSystemLocationSnapshot directorySnapshot = directorySnapshotter.snapshot(location, filter.isEmpty() ? null : filter.getAsDirectoryWalkerPredicate(), hasBeenFiltered);
+                long startTime = System.nanoTime();
+                CompleteFileSystemLocationSnapshot directorySnapshot;
+                try {
+                    directorySnapshot = directorySnapshotter.snapshot(location, filter.isEmpty() ? null : filter.getAsDirectoryWalkerPredicate(), hasBeenFiltered);
+                } finally {
+                    directorySnapshottingTime.addAndGet(System.nanoTime() - startTime);
+                }
                 if (!hasBeenFiltered.get()) {
                     virtualFileSystem.update((root, changeListener) -> root.store(directorySnapshot.getAbsolutePath(), directorySnapshot, changeListener));
                 }
@@ -168,9 +221,9 @@ private CompleteFileSystemLocationSnapshot snapshot(String location, Snapshottin
     }
 
     private CompleteFileSystemLocationSnapshot readLocation(String location) {
-        return virtualFileSystem.getRoot().getSnapshot(location)
-            .orElseGet(() -> producingSnapshots.guardByKey(location,
-                () -> virtualFileSystem.getRoot().getSnapshot(location).orElseGet(() -> snapshot(location, SnapshottingFilter.EMPTY)))
+        return getSnapshotFromVirtualFileSystem(location)
+            .orElseGet(() -> producingCompleteSnapshots.produce(location,
+                () -> getSnapshotFromVirtualFileSystem(location).orElseGet(() -> snapshot(location, SnapshottingFilter.EMPTY)))
             );
     }
 
@@ -205,12 +258,25 @@ public <V> V guardByKey(T key, Supplier<V> supplier) {
         }
     }
 
+    /**
+     * Returns the statistics about the requests served since the last call, and starts collecting new statistics.
+     */
+    public FileSystemAccessStatistics getAndResetStatistics() {
+        return new DefaultFileSystemAccessStatistics(
+            virtualFileSystemHits.getAndSet(0),
+            fileSystemReads.getAndSet(0),
+            coalescedReads.getAndSet(0),
+            hashedBytes.getAsLong(),
+            TimeUnit.NANOSECONDS.toMillis(directorySnapshottingTime.getAndSet(0))
+        );
+    }
+
     public void updateDefaultExcludes(String... newDefaultExcludesArgs) {
         ImmutableList<String> newDefaultExcludes = ImmutableList.copyOf(newDefaultExcludesArgs);
         if (!defaultExcludes.equals(newDefaultExcludes)) {
             LOGGER.debug("Default excludes changes from {} to {}", defaultExcludes, newDefaultExcludes);
             defaultExcludes = newDefaultExcludes;
-            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes);
+            directorySnapshotter = new DirectorySnapshotter(hasher, stringInterner, newDefaultExcludes, hashingPool);
             virtualFileSystem.update(VirtualFileSystem.INVALIDATE_ALL);
         }
     }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.vfs.impl;
+
+import org.gradle.internal.vfs.FileSystemAccessStatistics;
+
+public class DefaultFileSystemAccessStatistics implements FileSystemAccessStatistics {
+    private final long virtualFileSystemHits;
+    private final long fileSystemReads;
+    private final long coalescedReads;
+    private final long hashedBytes;
+    private final long directorySnapshottingTimeMillis;
+
+    public DefaultFileSystemAccessStatistics(long virtualFileSystemHits, long fileSystemReads, long coalescedReads, long hashedBytes, long directorySnapshottingTimeMillis) {
+        this.virtualFileSystemHits = virtualFileSystemHits;
+        this.fileSystemReads = fileSystemReads;
+        this.coalescedReads = coalescedReads;
+        this.hashedBytes = hashedBytes;
+        this.directorySnapshottingTimeMillis = directorySnapshottingTimeMillis;
+    }
+
+    @Override
+    public long getVirtualFileSystemHits() {
+        return virtualFileSystemHits;
+    }
+
+    @Override
+    public long getFileSystemReads() {
+        return fileSystemReads;
+    }
+
+    @Override
+    public long getCoalescedReads() {
+        return coalescedReads;
+    }
+
+    @Override
+    public long getHashedBytes() {
+        return hashedBytes;
+    }
+
+    @Override
+    public long getDirectorySnapshottingTimeMillis() {
+        return directorySnapshottingTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("virtual file system hits: %d, file system reads: %d, coalesced reads: %d, hashed bytes: %d, directory snapshotting time: %d ms",
+            virtualFileSystemHits, fileSystemReads, coalescedReads, hashedBytes, directorySnapshottingTimeMillis);
+    }
+}
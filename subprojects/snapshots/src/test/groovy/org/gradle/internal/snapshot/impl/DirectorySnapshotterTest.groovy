@@ -39,6 +39,7 @@ import spock.lang.Issue
 import spock.lang.Specification
 
 import java.nio.file.Paths
+import java.util.concurrent.ForkJoinPool
 import java.util.concurrent.atomic.AtomicBoolean
 
 @UsesNativeServices
@@ -258,6 +259,53 @@ class DirectorySnapshotterTest extends Specification {
         pipe.delete()
     }
 
+    def "hashing files in parallel produces the same snapshot"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        (1..5).each { dir ->
+            (1..20).each { file ->
+                rootDir.file("dir${dir}/nested/file${file}.txt") << "content of ${dir}/${file}"
+                rootDir.file("dir${dir}/file${file}.html") << "content of ${file}"
+            }
+        }
+        rootDir.file("dir1/empty").createDir()
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], new ForkJoinPool(4))
+
+        when:
+        def snapshot = directorySnapshotter.snapshot(rootDir.absolutePath, predicate, new AtomicBoolean(false))
+        def parallelFiltered = new AtomicBoolean(false)
+        def parallelSnapshot = parallelSnapshotter.snapshot(rootDir.absolutePath, predicate, parallelFiltered)
+
+        then:
+        parallelSnapshot.hash == snapshot.hash
+        flatten(parallelSnapshot) == flatten(snapshot)
+        parallelFiltered.get() == (predicate != null)
+
+        where:
+        predicate << [null, directoryWalkerPredicate(new PatternSet().exclude("**/*.html"))]
+    }
+
+    private static List<String> flatten(CompleteFileSystemLocationSnapshot snapshot) {
+        def result = []
+        snapshot.accept(new FileSystemSnapshotVisitor() {
+            @Override
+            boolean preVisitDirectory(CompleteDirectorySnapshot directorySnapshot) {
+                result << "${directorySnapshot.absolutePath} ${directorySnapshot.hash}".toString()
+                return true
+            }
+
+            @Override
+            void visitFile(CompleteFileSystemLocationSnapshot fileSnapshot) {
+                result << "${fileSnapshot.absolutePath} ${fileSnapshot.hash}".toString()
+            }
+
+            @Override
+            void postVisitDirectory(CompleteDirectorySnapshot directorySnapshot) {
+            }
+        })
+        return result
+    }
+
     def "default excludes are correctly parsed"() {
         def defaultExcludes = new DirectorySnapshotter.DefaultExcludes(DirectoryScanner.getDefaultExcludes() as List)
 
@@ -36,6 +36,8 @@ import org.junit.Rule
 import spock.lang.Specification
 
 import java.nio.file.Path
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.LongSupplier
 import java.util.function.Predicate
 
 @CleanupTestDirectory
@@ -48,10 +50,12 @@ abstract class AbstractFileSystemAccessTest extends Specification {
     def updateListener = Mock(FileSystemAccess.WriteListener)
     def fileSystemAccess = new DefaultFileSystemAccess(
         fileHasher,
+        { fileHasher.getAndResetHashedBytes() } as LongSupplier,
         new StringInterner(),
         stat,
         TestFiles.virtualFileSystem(),
-        updateListener
+        updateListener,
+        null
     )
 
     void allowFileSystemAccess(boolean allow) {
@@ -72,6 +76,7 @@ abstract class AbstractFileSystemAccessTest extends Specification {
     static class AllowingHasher implements FileHasher {
 
         private final FileHasher delegate
+        private final AtomicLong hashedBytes = new AtomicLong()
         private boolean hashingAllowed
 
         AllowingHasher(FileHasher delegate) {
@@ -81,12 +86,14 @@ abstract class AbstractFileSystemAccessTest extends Specification {
         @Override
         HashCode hash(File file) {
             checkIfAllowed()
+            hashedBytes.addAndGet(file.length())
             return delegate.hash(file)
         }
 
         @Override
         HashCode hash(File file, long length, long lastModified) {
             checkIfAllowed()
+            hashedBytes.addAndGet(length)
             return delegate.hash(file, length, lastModified)
         }
 
@@ -99,6 +106,10 @@ abstract class AbstractFileSystemAccessTest extends Specification {
         void allowHashing(boolean allowed) {
             this.hashingAllowed = allowed
         }
+
+        long getAndResetHashedBytes() {
+            hashedBytes.getAndSet(0)
+        }
     }
 
     static class AllowingStat implements Stat {
@@ -16,12 +16,23 @@
 
 package org.gradle.internal.vfs.impl
 
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.hash.FileHasher
+import org.gradle.internal.hash.HashCode
 import org.gradle.internal.snapshot.CompleteDirectorySnapshot
 import org.gradle.internal.snapshot.CompleteFileSystemLocationSnapshot
 import org.gradle.internal.snapshot.FileSystemSnapshotVisitor
+import org.gradle.test.fixtures.ConcurrentTestUtil
 import org.gradle.test.fixtures.file.TestFile
 import spock.lang.Unroll
 
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
+
 @Unroll
 class DefaultFileSystemAccessTest extends AbstractFileSystemAccessTest {
 
@@ -282,4 +293,84 @@ class DefaultFileSystemAccessTest extends AbstractFileSystemAccessTest {
         then: "The filtered tree uses the cached state"
         relativePaths == ["d1", "d1/f1", "f1"] as Set
     }
+
+    def "collects statistics about the requests served"() {
+        def d = temporaryFolder.createDir("d")
+        d.file("f1").text = "abc"
+        d.file("d1/f2").text = "de"
+        def file = temporaryFolder.file("file.txt")
+        file.text = "fghij"
+
+        when:
+        allowFileSystemAccess(true)
+        read(d)
+        fileSystemAccess.readRegularFileContentHash(file.absolutePath, { it })
+        def statistics = fileSystemAccess.getAndResetStatistics()
+        then:
+        statistics.virtualFileSystemHits == 0
+        statistics.fileSystemReads == 2
+        statistics.coalescedReads == 0
+        statistics.hashedBytes == 10
+
+        when:
+        allowFileSystemAccess(false)
+        read(d)
+        read(d.file("d1"))
+        fileSystemAccess.readRegularFileContentHash(file.absolutePath, { it })
+        statistics = fileSystemAccess.getAndResetStatistics()
+        then:
+        statistics.virtualFileSystemHits == 3
+        statistics.fileSystemReads == 0
+        statistics.hashedBytes == 0
+        statistics.directorySnapshottingTimeMillis == 0
+    }
+
+    def "counts concurrent requests for the hash of the same file as a single file system read"() {
+        def file = temporaryFolder.file("file.txt")
+        file.text = "abc"
+        def hashingStarted = new CountDownLatch(1)
+        def releaseHashing = new CountDownLatch(1)
+        def waitingThread = new AtomicReference<Thread>()
+        def delegate = TestFiles.fileHasher()
+        def blockingHasher = new FileHasher() {
+            @Override
+            HashCode hash(File f) {
+                return delegate.hash(f)
+            }
+
+            @Override
+            HashCode hash(File f, long length, long lastModified) {
+                hashingStarted.countDown()
+                releaseHashing.await(10, TimeUnit.SECONDS)
+                return delegate.hash(f, length, lastModified)
+            }
+        }
+        def concurrentFileSystemAccess = new DefaultFileSystemAccess(blockingHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.virtualFileSystem(), updateListener)
+        def executor = Executors.newFixedThreadPool(2)
+
+        when:
+        def first = executor.submit({
+            concurrentFileSystemAccess.readRegularFileContentHash(file.absolutePath, { it }).get()
+        } as Callable)
+        hashingStarted.await(10, TimeUnit.SECONDS)
+        def second = executor.submit({
+            waitingThread.set(Thread.currentThread())
+            concurrentFileSystemAccess.readRegularFileContentHash(file.absolutePath, { it }).get()
+        } as Callable)
+        ConcurrentTestUtil.poll {
+            assert waitingThread.get()?.state == Thread.State.WAITING
+        }
+        releaseHashing.countDown()
+
+        then:
+        first.get(10, TimeUnit.SECONDS) == delegate.hash(file)
+        second.get(10, TimeUnit.SECONDS) == delegate.hash(file)
+        def statistics = concurrentFileSystemAccess.getAndResetStatistics()
+        statistics.fileSystemReads == 1
+        statistics.coalescedReads == 1
+
+        cleanup:
+        releaseHashing.countDown()
+        executor?.shutdownNow()
+    }
 }
@@ -17,6 +17,7 @@
 package org.gradle.workers;
 
 import org.gradle.api.Incubating;
+import org.gradle.api.provider.Property;
 import org.gradle.internal.HasInternalProtocol;
 
 /**
@@ -28,4 +29,17 @@
 @Incubating
 @HasInternalProtocol
 public interface WorkerSpec {
+    /**
+     * The estimated amount of memory, in megabytes, each work item submitted with this spec needs while it runs.
+     *
+     * <p>
+     * When a memory budget is configured for the build, a work item submitted by a task without a memory weight is only started
+     * while the weights of the running tasks and work items leave enough of the budget for it.
+     * Work items submitted by a task with a memory weight run within the weight of the task.
+     * </p>
+     * <p>By default, work items have no memory weight.</p>
+     *
+     * @since 6.8
+     */
+    Property<Integer> getMemoryWeight();
 }
@@ -27,6 +27,7 @@ public class DefaultClassLoaderWorkerSpec extends DefaultWorkerSpec implements C
 
     @Inject
     public DefaultClassLoaderWorkerSpec(ObjectFactory objectFactory) {
+        super(objectFactory);
         this.classpath = objectFactory.fileCollection();
     }
 
@@ -20,6 +20,9 @@
 import org.gradle.api.Action;
 import org.gradle.api.ActionConfiguration;
 import org.gradle.api.internal.DefaultActionConfiguration;
+import org.gradle.api.internal.provider.DefaultProperty;
+import org.gradle.api.internal.provider.PropertyHost;
+import org.gradle.api.provider.Property;
 import org.gradle.process.JavaForkOptions;
 import org.gradle.process.internal.JavaForkOptionsFactory;
 import org.gradle.util.GUtil;
@@ -40,6 +43,7 @@ public class DefaultWorkerConfiguration extends DefaultActionConfiguration imple
     private JavaForkOptions forkOptions;
     private String displayName;
     private List<File> classpath = Lists.newArrayList();
+    private final Property<Integer> memoryWeight = new DefaultProperty<>(PropertyHost.NO_OP, Integer.class);
 
     public DefaultWorkerConfiguration(JavaForkOptionsFactory forkOptionsFactory) {
         this.forkOptionsFactory = forkOptionsFactory;
@@ -140,7 +144,14 @@ public void setForkMode(ForkMode forkMode) {
         }
     }
 
+    @Override
+    public Property<Integer> getMemoryWeight() {
+        return memoryWeight;
+    }
+
     void adaptTo(WorkerSpec workerSpec) {
+        workerSpec.getMemoryWeight().set(memoryWeight);
+
         if (workerSpec instanceof ClassLoaderWorkerSpec) {
             ClassLoaderWorkerSpec classLoaderWorkerSpec = (ClassLoaderWorkerSpec) workerSpec;
             classLoaderWorkerSpec.getClasspath().from(getClasspath());
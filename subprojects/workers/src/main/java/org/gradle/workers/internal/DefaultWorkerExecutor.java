@@ -18,6 +18,7 @@
 
 import com.google.common.collect.Lists;
 import org.gradle.api.Action;
+import org.gradle.execution.plan.MemoryBudget;
 import org.gradle.internal.Actions;
 import org.gradle.internal.Cast;
 import org.gradle.internal.exceptions.Contextual;
@@ -49,6 +50,7 @@
 import org.gradle.workers.WorkerExecutor;
 import org.gradle.workers.WorkerSpec;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.File;
 import java.util.List;
@@ -64,6 +66,7 @@ public class DefaultWorkerExecutor implements WorkerExecutor {
     private final WorkerFactory noIsolationWorkerFactory;
     private final JavaForkOptionsFactory forkOptionsFactory;
     private final WorkerLeaseRegistry workerLeaseRegistry;
+    private final MemoryBudget memoryBudget;
     private final BuildOperationExecutor buildOperationExecutor;
     private final AsyncWorkTracker asyncWorkTracker;
     private final WorkerDirectoryProvider workerDirectoryProvider;
@@ -74,7 +77,7 @@ public class DefaultWorkerExecutor implements WorkerExecutor {
     private final File baseDir;
 
     public DefaultWorkerExecutor(WorkerFactory daemonWorkerFactory, WorkerFactory isolatedClassloaderWorkerFactory, WorkerFactory noIsolationWorkerFactory,
-                                 JavaForkOptionsFactory forkOptionsFactory, WorkerLeaseRegistry workerLeaseRegistry, BuildOperationExecutor buildOperationExecutor,
+                                 JavaForkOptionsFactory forkOptionsFactory, WorkerLeaseRegistry workerLeaseRegistry, MemoryBudget memoryBudget, BuildOperationExecutor buildOperationExecutor,
                                  AsyncWorkTracker asyncWorkTracker, WorkerDirectoryProvider workerDirectoryProvider, WorkerExecutionQueueFactory workerExecutionQueueFactory,
                                  ClassLoaderStructureProvider classLoaderStructureProvider, ActionExecutionSpecFactory actionExecutionSpecFactory, Instantiator instantiator, File baseDir) {
         this.daemonWorkerFactory = daemonWorkerFactory;
@@ -83,6 +86,7 @@ public DefaultWorkerExecutor(WorkerFactory daemonWorkerFactory, WorkerFactory is
         this.forkOptionsFactory = forkOptionsFactory;
         this.executionQueue = workerExecutionQueueFactory.create();
         this.workerLeaseRegistry = workerLeaseRegistry;
+        this.memoryBudget = memoryBudget;
         this.buildOperationExecutor = buildOperationExecutor;
         this.asyncWorkTracker = asyncWorkTracker;
         this.workerDirectoryProvider = workerDirectoryProvider;
@@ -188,13 +192,15 @@ private <T extends WorkParameters> AsyncWorkCompletion submitWork(Class<? extend
             throw new WorkExecutionException(description, t);
         }
 
-        return submitWork(spec, workerFactory, workerRequirement);
+        // Determine the memory lease in the submitting thread, as work submitted by a task holding a lease runs within that lease
+        ResourceLock memoryLock = workerSpec.getMemoryWeight().isPresent() ? memoryBudget.getResourceLockForWorkItem(workerSpec.getMemoryWeight().get()) : null;
+        return submitWork(spec, workerFactory, workerRequirement, memoryLock);
     }
 
-    private AsyncWorkCompletion submitWork(IsolatedParametersActionExecutionSpec<?> spec, WorkerFactory workerFactory, WorkerRequirement workerRequirement) {
+    private AsyncWorkCompletion submitWork(IsolatedParametersActionExecutionSpec<?> spec, WorkerFactory workerFactory, WorkerRequirement workerRequirement, @Nullable ResourceLock memoryLock) {
         final WorkerLease currentWorkerWorkerLease = getCurrentWorkerLease();
         final BuildOperationRef currentBuildOperation = buildOperationExecutor.getCurrentOperation();
-        WorkItemExecution execution = new WorkItemExecution(spec.getDisplayName(), currentWorkerWorkerLease, () -> {
+        WorkItemExecution execution = new WorkItemExecution(spec.getDisplayName(), currentWorkerWorkerLease, memoryLock, () -> {
             try {
                 BuildOperationAwareWorker worker = workerFactory.getWorker(workerRequirement);
                 return worker.execute(spec, currentBuildOperation);
@@ -324,8 +330,8 @@ private static String toMessage(String description) {
     private static class WorkItemExecution extends AbstractConditionalExecution<DefaultWorkResult> implements AsyncWorkCompletion {
         private final String description;
 
-        public WorkItemExecution(String description, WorkerLease parentWorkerLease, Callable<DefaultWorkResult> callable) {
-            super(callable, new LazyChildWorkerLeaseLock(parentWorkerLease));
+        public WorkItemExecution(String description, WorkerLease parentWorkerLease, @Nullable ResourceLock memoryLock, Callable<DefaultWorkResult> callable) {
+            super(callable, memoryLock == null ? new LazyChildWorkerLeaseLock(parentWorkerLease) : new MemoryLimitedWorkerLeaseLock(new LazyChildWorkerLeaseLock(parentWorkerLease), memoryLock));
             this.description = description;
         }
 
@@ -385,6 +391,55 @@ private WorkerLease getChild() {
         }
     }
 
+    /**
+     * Holds a lease of the memory budget in addition to the worker lease. Both are acquired together, or not at all.
+     */
+    private static class MemoryLimitedWorkerLeaseLock implements ResourceLock {
+        private final ResourceLock workerLeaseLock;
+        private final ResourceLock memoryLock;
+
+        public MemoryLimitedWorkerLeaseLock(ResourceLock workerLeaseLock, ResourceLock memoryLock) {
+            this.workerLeaseLock = workerLeaseLock;
+            this.memoryLock = memoryLock;
+        }
+
+        @Override
+        public boolean isLocked() {
+            return workerLeaseLock.isLocked() && memoryLock.isLocked();
+        }
+
+        @Override
+        public boolean isLockedByCurrentThread() {
+            return workerLeaseLock.isLockedByCurrentThread() && memoryLock.isLockedByCurrentThread();
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!workerLeaseLock.tryLock()) {
+                return false;
+            }
+            if (memoryLock.tryLock()) {
+                return true;
+            }
+            workerLeaseLock.unlock();
+            return false;
+        }
+
+        @Override
+        public void unlock() {
+            try {
+                memoryLock.unlock();
+            } finally {
+                workerLeaseLock.unlock();
+            }
+        }
+
+        @Override
+        public String getDisplayName() {
+            return workerLeaseLock.getDisplayName() + " and " + memoryLock.getDisplayName();
+        }
+    }
+
     @NotThreadSafe
     static class DefaultWorkQueue implements WorkQueue {
         private final DefaultWorkerExecutor workerExecutor;
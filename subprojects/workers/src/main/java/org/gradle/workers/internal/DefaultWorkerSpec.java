@@ -16,7 +16,22 @@
 
 package org.gradle.workers.internal;
 
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
 import org.gradle.workers.WorkerSpec;
 
+import javax.inject.Inject;
+
 public class DefaultWorkerSpec implements WorkerSpec {
+    private final Property<Integer> memoryWeight;
+
+    @Inject
+    public DefaultWorkerSpec(ObjectFactory objectFactory) {
+        this.memoryWeight = objectFactory.property(Integer.class);
+    }
+
+    @Override
+    public Property<Integer> getMemoryWeight() {
+        return memoryWeight;
+    }
 }
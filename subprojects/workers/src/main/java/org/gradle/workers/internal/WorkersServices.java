@@ -19,6 +19,7 @@
 import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.concurrent.ParallelismConfiguration;
+import org.gradle.execution.plan.MemoryBudget;
 import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.initialization.GradleUserHomeDirProvider;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -106,6 +107,7 @@ WorkerExecutor createWorkerExecutor(InstantiatorFactory instantiatorFactory,
                                             IsolatedClassloaderWorkerFactory isolatedClassloaderWorkerFactory,
                                             JavaForkOptionsFactory forkOptionsFactory,
                                             WorkerLeaseRegistry workerLeaseRegistry,
+                                            MemoryBudget memoryBudget,
                                             BuildOperationExecutor buildOperationExecutor,
                                             AsyncWorkTracker asyncWorkTracker,
                                             WorkerDirectoryProvider workerDirectoryProvider,
@@ -123,6 +125,7 @@ WorkerExecutor createWorkerExecutor(InstantiatorFactory instantiatorFactory,
                 noIsolationWorkerFactory,
                 forkOptionsFactory,
                 workerLeaseRegistry,
+                memoryBudget,
                 buildOperationExecutor,
                 asyncWorkTracker,
                 workerDirectoryProvider,
@@ -17,7 +17,10 @@
 package org.gradle.workers.internal
 
 import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.provider.DefaultProperty
+import org.gradle.api.internal.provider.PropertyHost
 import org.gradle.api.model.ObjectFactory
+import org.gradle.execution.plan.MemoryBudget
 import org.gradle.internal.Actions
 import org.gradle.internal.Factory
 import org.gradle.internal.exceptions.DefaultMultiCauseException
@@ -48,11 +51,13 @@ class DefaultWorkerExecutorParallelTest extends ConcurrentSpec {
     def workerInProcessFactory = Mock(WorkerFactory)
     def workerNoIsolationFactory = Mock(WorkerFactory)
     def buildOperationWorkerRegistry = Mock(WorkerLeaseRegistry)
+    def memoryBudget = Mock(MemoryBudget)
     def buildOperationExecutor = Mock(BuildOperationExecutor)
     def asyncWorkerTracker = Mock(AsyncWorkTracker)
     def forkOptionsFactory = new TestForkOptionsFactory(TestFiles.execFactory())
     def objectFactory = Stub(ObjectFactory) {
         fileCollection() >> { TestFiles.fileCollectionFactory().configurableFiles() }
+        property(Integer) >> { new DefaultProperty<Integer>(PropertyHost.NO_OP, Integer) }
     }
     def workerDirectoryProvider = Stub(WorkerDirectoryProvider) {
         getWorkingDirectory() >> { temporaryFolder.root }
@@ -66,11 +71,11 @@ class DefaultWorkerExecutorParallelTest extends ConcurrentSpec {
 
     def setup() {
         _ * executionQueueFactory.create() >> executionQueue
-        _ * instantiator.newInstance(DefaultWorkerSpec) >> { args -> new DefaultWorkerSpec() }
+        _ * instantiator.newInstance(DefaultWorkerSpec) >> { args -> new DefaultWorkerSpec(objectFactory) }
         _ * instantiator.newInstance(DefaultClassLoaderWorkerSpec) >> { args -> new DefaultClassLoaderWorkerSpec(objectFactory) }
         _ * instantiator.newInstance(DefaultProcessWorkerSpec, _) >> { args -> new DefaultProcessWorkerSpec(args[1][0], objectFactory) }
         _ * instantiator.newInstance(DefaultWorkerExecutor.DefaultWorkQueue, _, _, _) >> { args -> new DefaultWorkerExecutor.DefaultWorkQueue(args[1][0], args[1][1], args[1][2]) }
-        workerExecutor = new DefaultWorkerExecutor(workerDaemonFactory, workerInProcessFactory, workerNoIsolationFactory, forkOptionsFactory, buildOperationWorkerRegistry, buildOperationExecutor, asyncWorkerTracker, workerDirectoryProvider, executionQueueFactory, classLoaderStructureProvider, actionExecutionSpecFactory, instantiator, temporaryFolder.root)
+        workerExecutor = new DefaultWorkerExecutor(workerDaemonFactory, workerInProcessFactory, workerNoIsolationFactory, forkOptionsFactory, buildOperationWorkerRegistry, memoryBudget, buildOperationExecutor, asyncWorkerTracker, workerDirectoryProvider, executionQueueFactory, classLoaderStructureProvider, actionExecutionSpecFactory, instantiator, temporaryFolder.root)
         _ * actionExecutionSpecFactory.newIsolatedSpec(_, _, _, _, _) >> Mock(IsolatedParametersActionExecutionSpec)
     }
 
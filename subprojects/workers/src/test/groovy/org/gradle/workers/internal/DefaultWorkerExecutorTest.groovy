@@ -17,15 +17,20 @@
 package org.gradle.workers.internal
 
 import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.provider.DefaultProperty
+import org.gradle.api.internal.provider.PropertyHost
 import org.gradle.api.model.ObjectFactory
+import org.gradle.execution.plan.MemoryBudget
 import org.gradle.internal.Actions
 import org.gradle.internal.classloader.VisitableURLClassLoader
 import org.gradle.internal.operations.BuildOperationExecutor
 import org.gradle.internal.reflect.Instantiator
+import org.gradle.internal.resources.ResourceLock
 import org.gradle.internal.work.AsyncWorkTracker
 import org.gradle.internal.work.ConditionalExecution
 import org.gradle.internal.work.ConditionalExecutionQueue
 import org.gradle.internal.work.WorkerLeaseRegistry
+import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease
 import org.gradle.process.internal.worker.child.WorkerDirectoryProvider
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.RedirectStdOutAndErr
@@ -49,11 +54,13 @@ class DefaultWorkerExecutorTest extends Specification {
     def inProcessWorkerFactory = Mock(WorkerFactory)
     def noIsolationWorkerFactory = Mock(WorkerFactory)
     def buildOperationWorkerRegistry = Mock(WorkerLeaseRegistry)
+    def memoryBudget = Mock(MemoryBudget)
     def buildOperationExecutor = Mock(BuildOperationExecutor)
     def asyncWorkTracker = Mock(AsyncWorkTracker)
     def forkOptionsFactory = TestFiles.execFactory(temporaryFolder.testDirectory)
     def objectFactory = Stub(ObjectFactory) {
         fileCollection() >> { TestFiles.fileCollectionFactory().configurableFiles() }
+        property(Integer) >> { new DefaultProperty<Integer>(PropertyHost.NO_OP, Integer) }
     }
     def workerDirectoryProvider = Stub(WorkerDirectoryProvider) {
         getWorkingDirectory() >> { temporaryFolder.testDirectory }
@@ -72,11 +79,11 @@ class DefaultWorkerExecutorTest extends Specification {
     def setup() {
         _ * executionQueueFactory.create() >> executionQueue
         _ * instantiator.newInstance(AdapterWorkParameters) >> parameters
-        _ * instantiator.newInstance(DefaultWorkerSpec) >> { args -> new DefaultWorkerSpec() }
+        _ * instantiator.newInstance(DefaultWorkerSpec) >> { args -> new DefaultWorkerSpec(objectFactory) }
         _ * instantiator.newInstance(DefaultClassLoaderWorkerSpec) >> { args -> new DefaultClassLoaderWorkerSpec(objectFactory) }
         _ * instantiator.newInstance(DefaultProcessWorkerSpec, _) >> { args -> new DefaultProcessWorkerSpec(args[1][0], objectFactory) }
         _ * instantiator.newInstance(DefaultWorkerExecutor.DefaultWorkQueue, _, _, _) >> { args -> new DefaultWorkerExecutor.DefaultWorkQueue(args[1][0], args[1][1], args[1][2]) }
-        workerExecutor = new DefaultWorkerExecutor(workerDaemonFactory, inProcessWorkerFactory, noIsolationWorkerFactory, forkOptionsFactory, buildOperationWorkerRegistry, buildOperationExecutor, asyncWorkTracker, workerDirectoryProvider, executionQueueFactory, classLoaderStructureProvider, actionExecutionSpecFactory, instantiator, temporaryFolder.testDirectory)
+        workerExecutor = new DefaultWorkerExecutor(workerDaemonFactory, inProcessWorkerFactory, noIsolationWorkerFactory, forkOptionsFactory, buildOperationWorkerRegistry, memoryBudget, buildOperationExecutor, asyncWorkTracker, workerDirectoryProvider, executionQueueFactory, classLoaderStructureProvider, actionExecutionSpecFactory, instantiator, temporaryFolder.testDirectory)
         _ * actionExecutionSpecFactory.newIsolatedSpec(_, _, _, _, _) >> Mock(IsolatedParametersActionExecutionSpec)
     }
 
@@ -216,6 +223,56 @@ class DefaultWorkerExecutorTest extends Specification {
         }
     }
 
+    def "work with a memory weight holds a lease of the memory budget along with a worker lease"() {
+        def memoryLock = Mock(ResourceLock)
+        def workerLease = Mock(WorkerLease)
+        def parentWorkerLease = Stub(WorkerLease) {
+            createChild() >> workerLease
+        }
+
+        when:
+        workerExecutor.noIsolation { it.memoryWeight.set(512) }.submit(TestExecutable.class, Actions.doNothing())
+
+        then:
+        _ * parameters.implementationClassName >> TestExecutable.class.getName()
+        _ * parameters.params >> []
+        1 * buildOperationWorkerRegistry.getCurrentWorkerLease() >> parentWorkerLease
+        1 * memoryBudget.getResourceLockForWorkItem(512) >> memoryLock
+        1 * executionQueue.submit(_) >> { args -> task = args[0] }
+
+        when:
+        def locked = task.resourceLock.tryLock()
+
+        then:
+        !locked
+        1 * workerLease.tryLock() >> true
+        1 * memoryLock.tryLock() >> false
+        1 * workerLease.unlock()
+
+        when:
+        locked = task.resourceLock.tryLock()
+        task.resourceLock.unlock()
+
+        then:
+        locked
+        1 * workerLease.tryLock() >> true
+        1 * memoryLock.tryLock() >> true
+
+        then:
+        1 * memoryLock.unlock()
+        1 * workerLease.unlock()
+    }
+
+    def "work without a memory weight only holds a worker lease"() {
+        when:
+        workerExecutor.noIsolation().submit(TestExecutable.class, Actions.doNothing())
+
+        then:
+        _ * parameters.implementationClassName >> TestExecutable.class.getName()
+        _ * parameters.params >> []
+        0 * memoryBudget._
+    }
+
     abstract static class TestExecutable implements WorkAction<WorkParameters.None> {
         @Override
         void execute() {